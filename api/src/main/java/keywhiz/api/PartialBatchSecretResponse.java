@@ -0,0 +1,29 @@
+package keywhiz.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Partial Batch Secret Response: the requested secrets the client can read, and the names of
+ * those it could not be given.
+ */
+@AutoValue
+public abstract class PartialBatchSecretResponse {
+  /** Secrets that exist and are accessible to the client. */
+  @JsonProperty("secrets") public abstract ImmutableList<SecretDeliveryResponse> secrets();
+
+  /** Names of secrets that exist but are not accessible to the client. */
+  @JsonProperty("forbidden") public abstract ImmutableList<String> forbidden();
+
+  /** Names of secrets that do not exist. */
+  @JsonProperty("missing") public abstract ImmutableList<String> missing();
+
+  @JsonCreator public static PartialBatchSecretResponse of(
+      @JsonProperty("secrets") ImmutableList<SecretDeliveryResponse> secrets,
+      @JsonProperty("forbidden") ImmutableList<String> forbidden,
+      @JsonProperty("missing") ImmutableList<String> missing) {
+    return new AutoValue_PartialBatchSecretResponse(secrets, forbidden, missing);
+  }
+}
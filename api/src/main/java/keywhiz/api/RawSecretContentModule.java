@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package keywhiz.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * Writes the content of {@link SecretDeliveryResponse}s as raw bytes rather than base64 text, for
+ * binary formats like Smile that carry bytes natively. Readers need the module too: it turns the
+ * bytes back into base64, so {@link SecretDeliveryResponse#getSecret()} is the same whichever
+ * format was used. Only register it on binary mappers; in JSON, bytes are written as base64
+ * anyway.
+ */
+public class RawSecretContentModule extends SimpleModule {
+  /** Media type the delivery endpoints serve Smile, with this module, under. */
+  public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+  public RawSecretContentModule() {
+    super(RawSecretContentModule.class.getSimpleName());
+    setMixInAnnotation(SecretDeliveryResponse.class, SecretDeliveryResponseMixin.class);
+  }
+
+  abstract static class SecretDeliveryResponseMixin {
+    SecretDeliveryResponseMixin(
+        @JsonProperty("name") String name,
+        @JsonProperty("secret") @JsonDeserialize(using = ContentDeserializer.class) String secret,
+        @JsonProperty("secretLength") int secretLength,
+        @JsonProperty("checksum") String checksum,
+        @JsonProperty("creationDate") ApiDate creationDate,
+        @JsonProperty("updateDate") ApiDate updateDate,
+        @JsonProperty("metadata") ImmutableMap<String, String> metadata) {}
+
+    @JsonSerialize(using = ContentSerializer.class) abstract String getSecret();
+  }
+
+  /**
+   * Writes base64 content as bytes. Content that isn't canonical base64 (line breaks, missing
+   * padding) is written as text, since re-encoding the bytes would not reproduce it.
+   */
+  static class ContentSerializer extends JsonSerializer<String> {
+    @Override public void serialize(String value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      byte[] content;
+      try {
+        content = Base64.getDecoder().decode(value);
+      } catch (IllegalArgumentException e) {
+        gen.writeString(value);
+        return;
+      }
+      if (value.length() != (content.length + 2) / 3 * 4) {
+        gen.writeString(value);
+        return;
+      }
+      gen.writeBinary(content);
+    }
+  }
+
+  /** Reads bytes back into base64, and passes text through as it is. */
+  static class ContentDeserializer extends JsonDeserializer<String> {
+    @Override public String deserialize(JsonParser p, DeserializationContext ctxt)
+        throws IOException {
+      if (p.currentToken() == JsonToken.VALUE_STRING) {
+        return p.getText();
+      }
+      return Base64.getEncoder().encodeToString(p.getBinaryValue());
+    }
+  }
+}
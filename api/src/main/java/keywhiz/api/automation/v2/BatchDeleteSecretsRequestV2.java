@@ -0,0 +1,61 @@
+package keywhiz.api.automation.v2;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Request to soft-delete several secrets at once, identified by name, by id, or both.
+ */
+@AutoValue public abstract class BatchDeleteSecretsRequestV2 {
+  BatchDeleteSecretsRequestV2() {} // prevent sub-classing
+
+  public static Builder builder() {
+    return new AutoValue_BatchDeleteSecretsRequestV2.Builder()
+        .names(ImmutableSet.of())
+        .ids(ImmutableSet.of());
+  }
+
+  @AutoValue.Builder public abstract static class Builder {
+    public abstract Builder names(Set<String> names);
+
+    public Builder names(String... names) {
+      return names(ImmutableSet.copyOf(names));
+    }
+
+    public abstract Builder ids(Set<Long> ids);
+
+    public Builder ids(Long... ids) {
+      return ids(ImmutableSet.copyOf(ids));
+    }
+
+    public abstract BatchDeleteSecretsRequestV2 build();
+  }
+
+  /**
+   * Static factory method used by Jackson for deserialization
+   */
+  @SuppressWarnings("unused")
+  @JsonCreator public static BatchDeleteSecretsRequestV2 fromParts(
+      @JsonProperty("names") @Nullable Set<String> names,
+      @JsonProperty("ids") @Nullable Set<Long> ids) {
+    return builder()
+        .names(names == null ? ImmutableSet.of() : ImmutableSet.copyOf(names))
+        .ids(ids == null ? ImmutableSet.of() : ImmutableSet.copyOf(ids))
+        .build();
+  }
+
+  @JsonProperty("names") public abstract ImmutableSet<String> names();
+  @JsonProperty("ids") public abstract ImmutableSet<Long> ids();
+
+  @Override public final String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("names", names())
+        .add("ids", ids())
+        .toString();
+  }
+}
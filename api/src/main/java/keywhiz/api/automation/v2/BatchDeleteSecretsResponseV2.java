@@ -0,0 +1,47 @@
+package keywhiz.api.automation.v2;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+@AutoValue public abstract class BatchDeleteSecretsResponseV2 {
+  BatchDeleteSecretsResponseV2() {} // prevent sub-classing
+
+  public static Builder builder() {
+    return new AutoValue_BatchDeleteSecretsResponseV2.Builder()
+        .deletedSecrets(ImmutableList.of());
+  }
+
+  @AutoValue.Builder public abstract static class Builder {
+    public abstract Builder deletedSecrets(List<String> deletedSecrets);
+
+    public Builder deletedSecrets(String... deletedSecrets) {
+      return deletedSecrets(ImmutableList.copyOf(deletedSecrets));
+    }
+
+    public abstract BatchDeleteSecretsResponseV2 build();
+  }
+
+  /**
+   * Static factory method used by Jackson for deserialization
+   */
+  @SuppressWarnings("unused")
+  @JsonCreator public static BatchDeleteSecretsResponseV2 fromParts(
+      @JsonProperty("deletedSecrets") List<String> deletedSecrets) {
+    return builder()
+        .deletedSecrets(ImmutableList.copyOf(deletedSecrets))
+        .build();
+  }
+
+  /** Names of the secrets which were deleted. */
+  @JsonProperty("deletedSecrets") public abstract ImmutableList<String> deletedSecrets();
+
+  @Override public final String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("deletedSecrets", deletedSecrets())
+        .toString();
+  }
+}
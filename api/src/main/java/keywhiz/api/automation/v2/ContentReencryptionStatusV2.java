@@ -0,0 +1,96 @@
+package keywhiz.api.automation.v2;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+/**
+ * Progress of the background job re-encrypting secret contents under the current root key.
+ */
+@AutoValue public abstract class ContentReencryptionStatusV2 {
+  ContentReencryptionStatusV2() {} // prevent sub-classing
+
+  public static Builder builder() {
+    return new AutoValue_ContentReencryptionStatusV2.Builder()
+        .running(false)
+        .previousKeyConfigured(false)
+        .shards(0)
+        .completedShards(0)
+        .rowsReencrypted(0)
+        .rowsFailed(0)
+        .remainingRows(0)
+        .rowsPerSecond(0)
+        .throttleMillis(0);
+  }
+
+  @AutoValue.Builder public abstract static class Builder {
+    public abstract Builder running(boolean running);
+    public abstract Builder previousKeyConfigured(boolean previousKeyConfigured);
+    public abstract Builder shards(int shards);
+    public abstract Builder completedShards(int completedShards);
+    public abstract Builder rowsReencrypted(long rowsReencrypted);
+    public abstract Builder rowsFailed(long rowsFailed);
+    public abstract Builder remainingRows(long remainingRows);
+    public abstract Builder rowsPerSecond(double rowsPerSecond);
+    public abstract Builder throttleMillis(long throttleMillis);
+
+    public abstract ContentReencryptionStatusV2 build();
+  }
+
+  /**
+   * Static factory method used by Jackson for deserialization
+   */
+  @SuppressWarnings("unused")
+  @JsonCreator public static ContentReencryptionStatusV2 fromParts(
+      @JsonProperty("running") boolean running,
+      @JsonProperty("previousKeyConfigured") boolean previousKeyConfigured,
+      @JsonProperty("shards") int shards,
+      @JsonProperty("completedShards") int completedShards,
+      @JsonProperty("rowsReencrypted") long rowsReencrypted,
+      @JsonProperty("rowsFailed") long rowsFailed,
+      @JsonProperty("remainingRows") long remainingRows,
+      @JsonProperty("rowsPerSecond") double rowsPerSecond,
+      @JsonProperty("throttleMillis") long throttleMillis) {
+    return builder()
+        .running(running)
+        .previousKeyConfigured(previousKeyConfigured)
+        .shards(shards)
+        .completedShards(completedShards)
+        .rowsReencrypted(rowsReencrypted)
+        .rowsFailed(rowsFailed)
+        .remainingRows(remainingRows)
+        .rowsPerSecond(rowsPerSecond)
+        .throttleMillis(throttleMillis)
+        .build();
+  }
+
+  /** Whether workers are currently re-encrypting. */
+  @JsonProperty("running") public abstract boolean running();
+
+  /** Whether the server has a previous root key to decrypt with, i.e. a rotation is under way. */
+  @JsonProperty("previousKeyConfigured") public abstract boolean previousKeyConfigured();
+
+  /** Number of id ranges the secrets_content table was split into. */
+  @JsonProperty("shards") public abstract int shards();
+
+  @JsonProperty("completedShards") public abstract int completedShards();
+
+  /** Rows moved to the current key, across all runs of the current job. */
+  @JsonProperty("rowsReencrypted") public abstract long rowsReencrypted();
+
+  /** Rows this server could not decrypt under either key since it started; they are skipped. */
+  @JsonProperty("rowsFailed") public abstract long rowsFailed();
+
+  /** Rows not yet examined by the job. */
+  @JsonProperty("remainingRows") public abstract long remainingRows();
+
+  /** One-minute moving average of rows re-encrypted per second. */
+  @JsonProperty("rowsPerSecond") public abstract double rowsPerSecond();
+
+  /** Current pause between batches imposed by the adaptive throttle. */
+  @JsonProperty("throttleMillis") public abstract long throttleMillis();
+
+  public boolean completed() {
+    return shards() == completedShards();
+  }
+}
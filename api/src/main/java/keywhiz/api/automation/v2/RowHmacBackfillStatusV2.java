@@ -0,0 +1,88 @@
+package keywhiz.api.automation.v2;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+/**
+ * Progress of a background row_hmac backfill job for a single table.
+ */
+@AutoValue public abstract class RowHmacBackfillStatusV2 {
+  RowHmacBackfillStatusV2() {} // prevent sub-classing
+
+  public static Builder builder() {
+    return new AutoValue_RowHmacBackfillStatusV2.Builder()
+        .running(false)
+        .shards(0)
+        .completedShards(0)
+        .rowsUpdated(0)
+        .remainingIds(0)
+        .rowsPerSecond(0)
+        .throttleMillis(0);
+  }
+
+  @AutoValue.Builder public abstract static class Builder {
+    public abstract Builder table(String table);
+    public abstract Builder running(boolean running);
+    public abstract Builder shards(int shards);
+    public abstract Builder completedShards(int completedShards);
+    public abstract Builder rowsUpdated(long rowsUpdated);
+    public abstract Builder remainingIds(long remainingIds);
+    public abstract Builder rowsPerSecond(double rowsPerSecond);
+    public abstract Builder throttleMillis(long throttleMillis);
+
+    public abstract RowHmacBackfillStatusV2 build();
+  }
+
+  /**
+   * Static factory method used by Jackson for deserialization
+   */
+  @SuppressWarnings("unused")
+  @JsonCreator public static RowHmacBackfillStatusV2 fromParts(
+      @JsonProperty("table") String table,
+      @JsonProperty("running") boolean running,
+      @JsonProperty("shards") int shards,
+      @JsonProperty("completedShards") int completedShards,
+      @JsonProperty("rowsUpdated") long rowsUpdated,
+      @JsonProperty("remainingIds") long remainingIds,
+      @JsonProperty("rowsPerSecond") double rowsPerSecond,
+      @JsonProperty("throttleMillis") long throttleMillis) {
+    return builder()
+        .table(table)
+        .running(running)
+        .shards(shards)
+        .completedShards(completedShards)
+        .rowsUpdated(rowsUpdated)
+        .remainingIds(remainingIds)
+        .rowsPerSecond(rowsPerSecond)
+        .throttleMillis(throttleMillis)
+        .build();
+  }
+
+  /** Name of the table being backfilled, as used in the endpoint path. */
+  @JsonProperty("table") public abstract String table();
+
+  /** Whether workers are currently processing this table. */
+  @JsonProperty("running") public abstract boolean running();
+
+  /** Number of id ranges the table was split into. */
+  @JsonProperty("shards") public abstract int shards();
+
+  @JsonProperty("completedShards") public abstract int completedShards();
+
+  /** Rows whose row_hmac was written, across all runs of the current job. */
+  @JsonProperty("rowsUpdated") public abstract long rowsUpdated();
+
+  /** Width of the id ranges not yet scanned; an upper bound on the rows left to examine. */
+  @JsonProperty("remainingIds") public abstract long remainingIds();
+
+  /** One-minute moving average of rows written per second. */
+  @JsonProperty("rowsPerSecond") public abstract double rowsPerSecond();
+
+  /** Current pause between batches imposed by the adaptive throttle. */
+  @JsonProperty("throttleMillis") public abstract long throttleMillis();
+
+  public boolean completed() {
+    return shards() == completedShards();
+  }
+}
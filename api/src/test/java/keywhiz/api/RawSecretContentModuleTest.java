@@ -0,0 +1,57 @@
+package keywhiz.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.jackson.Jackson;
+import java.util.Base64;
+import java.util.Random;
+import org.junit.Test;
+
+import static keywhiz.api.model.Secret.decodedLength;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RawSecretContentModuleTest {
+  private static final ApiDate NOW = ApiDate.now();
+
+  private final ObjectMapper smile = Jackson.newObjectMapper(
+      new SmileFactory().disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT))
+      .registerModule(new RawSecretContentModule());
+
+  @Test public void roundTripsContentAsBytes() throws Exception {
+    byte[] content = new byte[3000];
+    new Random(0).nextBytes(content);
+    SecretDeliveryResponse response = response(Base64.getEncoder().encodeToString(content));
+
+    byte[] serialized = smile.writeValueAsBytes(response);
+
+    assertThat(serialized.length).isLessThan(content.length + 200);
+    assertThat(smile.readValue(serialized, SecretDeliveryResponse.class).getSecret())
+        .isEqualTo(response.getSecret());
+  }
+
+  @Test public void passesNonCanonicalBase64Through() throws Exception {
+    for (String content : new String[] {"YWJj\n", "YWI", "YW-_", ""}) {
+      SecretDeliveryResponse response = response(content);
+      byte[] serialized = smile.writeValueAsBytes(response);
+      assertThat(smile.readValue(serialized, SecretDeliveryResponse.class).getSecret())
+          .isEqualTo(content);
+    }
+  }
+
+  @Test public void readsContentWrittenAsText() throws Exception {
+    ObjectMapper withoutModule = Jackson.newObjectMapper(new SmileFactory());
+    SecretDeliveryResponse response = response("YWJj");
+
+    byte[] serialized = withoutModule.writeValueAsBytes(response);
+
+    assertThat(smile.readValue(serialized, SecretDeliveryResponse.class).getSecret())
+        .isEqualTo("YWJj");
+  }
+
+  private static SecretDeliveryResponse response(String content) {
+    return new SecretDeliveryResponse("name", content, decodedLength(content), "checksum",
+        NOW, NOW, ImmutableMap.of());
+  }
+}
@@ -0,0 +1,32 @@
+package keywhiz.api.automation.v2;
+
+import org.junit.Test;
+
+import static keywhiz.testing.JsonHelpers.asJson;
+import static keywhiz.testing.JsonHelpers.fromJson;
+import static keywhiz.testing.JsonHelpers.jsonFixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchDeleteSecretsRequestV2Test {
+  private BatchDeleteSecretsRequestV2 request = BatchDeleteSecretsRequestV2.builder()
+      .names("secret1", "secret2")
+      .ids(3L, 4L)
+      .build();
+
+  @Test public void roundTripSerialization() throws Exception {
+    assertThat(fromJson(asJson(request), BatchDeleteSecretsRequestV2.class)).isEqualTo(request);
+  }
+
+  @Test public void deserializesCorrectly() throws Exception {
+    assertThat(fromJson(
+        jsonFixture("fixtures/v2/batchDeleteSecretsRequest.json"), BatchDeleteSecretsRequestV2.class))
+        .isEqualTo(request);
+  }
+
+  @Test public void missingFieldsAreEmpty() throws Exception {
+    BatchDeleteSecretsRequestV2 namesOnly =
+        fromJson("{\"names\":[\"secret1\"]}", BatchDeleteSecretsRequestV2.class);
+    assertThat(namesOnly.names()).containsExactly("secret1");
+    assertThat(namesOnly.ids()).isEmpty();
+  }
+}
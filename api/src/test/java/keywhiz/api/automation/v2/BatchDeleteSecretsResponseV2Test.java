@@ -0,0 +1,24 @@
+package keywhiz.api.automation.v2;
+
+import org.junit.Test;
+
+import static keywhiz.testing.JsonHelpers.asJson;
+import static keywhiz.testing.JsonHelpers.fromJson;
+import static keywhiz.testing.JsonHelpers.jsonFixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchDeleteSecretsResponseV2Test {
+  private BatchDeleteSecretsResponseV2 response = BatchDeleteSecretsResponseV2.builder()
+      .deletedSecrets("secret1", "secret2", "secret3")
+      .build();
+
+  @Test public void roundTripSerialization() throws Exception {
+    assertThat(fromJson(asJson(response), BatchDeleteSecretsResponseV2.class)).isEqualTo(response);
+  }
+
+  @Test public void deserializesCorrectly() throws Exception {
+    assertThat(fromJson(
+        jsonFixture("fixtures/v2/batchDeleteSecretsResponse.json"), BatchDeleteSecretsResponseV2.class))
+        .isEqualTo(response);
+  }
+}
@@ -0,0 +1,32 @@
+package keywhiz.api.automation.v2;
+
+import org.junit.Test;
+
+import static keywhiz.testing.JsonHelpers.asJson;
+import static keywhiz.testing.JsonHelpers.fromJson;
+import static keywhiz.testing.JsonHelpers.jsonFixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentReencryptionStatusV2Test {
+  private ContentReencryptionStatusV2 status = ContentReencryptionStatusV2.builder()
+      .running(true)
+      .previousKeyConfigured(true)
+      .shards(4)
+      .completedShards(1)
+      .rowsReencrypted(120000)
+      .rowsFailed(2)
+      .remainingRows(350000)
+      .rowsPerSecond(800.5)
+      .throttleMillis(40)
+      .build();
+
+  @Test public void roundTripSerialization() throws Exception {
+    assertThat(fromJson(asJson(status), ContentReencryptionStatusV2.class)).isEqualTo(status);
+  }
+
+  @Test public void deserializesCorrectly() throws Exception {
+    assertThat(fromJson(
+        jsonFixture("fixtures/v2/contentReencryptionStatus.json"), ContentReencryptionStatusV2.class))
+        .isEqualTo(status);
+  }
+}
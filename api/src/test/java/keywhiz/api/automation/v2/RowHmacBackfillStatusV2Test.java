@@ -0,0 +1,36 @@
+package keywhiz.api.automation.v2;
+
+import org.junit.Test;
+
+import static keywhiz.testing.JsonHelpers.asJson;
+import static keywhiz.testing.JsonHelpers.fromJson;
+import static keywhiz.testing.JsonHelpers.jsonFixture;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RowHmacBackfillStatusV2Test {
+  private RowHmacBackfillStatusV2 status = RowHmacBackfillStatusV2.builder()
+      .table("secrets-content")
+      .running(true)
+      .shards(4)
+      .completedShards(1)
+      .rowsUpdated(120000)
+      .remainingIds(3500000)
+      .rowsPerSecond(2500.5)
+      .throttleMillis(40)
+      .build();
+
+  @Test public void roundTripSerialization() throws Exception {
+    assertThat(fromJson(asJson(status), RowHmacBackfillStatusV2.class)).isEqualTo(status);
+  }
+
+  @Test public void deserializesCorrectly() throws Exception {
+    assertThat(fromJson(
+        jsonFixture("fixtures/v2/rowHmacBackfillStatus.json"), RowHmacBackfillStatusV2.class))
+        .isEqualTo(status);
+  }
+
+  @Test public void completedWhenAllShardsComplete() {
+    assertThat(status.completed()).isFalse();
+    assertThat(RowHmacBackfillStatusV2.builder().table("clients").build().completed()).isTrue();
+  }
+}
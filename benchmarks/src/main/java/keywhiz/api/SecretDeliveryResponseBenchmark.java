@@ -0,0 +1,77 @@
+package keywhiz.api;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.jackson.Jackson;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of secrets delivered to clients, as JSON and as Smile with raw secret content.
+ * The size of each format's payload is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretDeliveryResponseBenchmark {
+  /** Size of the secret, in bytes before base64 encoding. */
+  @Param({"64", "4096", "65536"})
+  public int contentBytes;
+
+  @Param({"json", "smile"})
+  public String format;
+
+  private ObjectMapper mapper;
+  private SecretDeliveryResponse response;
+  private byte[] serialized;
+
+  @Setup public void setUp() throws IOException {
+    if (format.equals("smile")) {
+      mapper = Jackson.newObjectMapper(
+          new SmileFactory().disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT))
+          .registerModule(new RawSecretContentModule());
+    } else {
+      mapper = Jackson.newObjectMapper();
+    }
+    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    byte[] content = new byte[contentBytes];
+    new SecureRandom().nextBytes(content);
+    ApiDate now = ApiDate.now();
+    response = new SecretDeliveryResponse("benchmark-secret",
+        Base64.getEncoder().encodeToString(content), contentBytes,
+        "4a1e9a2b0e1c33bb1ad6d9c4b0e4a9a5e2c6f9b1a1e6e1d2c3b4a5f6e7d8c9b0", now, now,
+        ImmutableMap.of("mode", "0400", "owner", "keywhiz"));
+
+    serialized = mapper.writeValueAsBytes(response);
+    System.out.printf("%s payload for %d content bytes: %d bytes%n", format, contentBytes,
+        serialized.length);
+  }
+
+  @Benchmark public byte[] serialize() throws IOException {
+    return mapper.writeValueAsBytes(response);
+  }
+
+  @Benchmark public SecretDeliveryResponse deserialize() throws IOException {
+    return mapper.readValue(serialized, SecretDeliveryResponse.class);
+  }
+}
@@ -0,0 +1,53 @@
+package keywhiz.auth.cookie;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.AEADBadTagException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Session cookie encryption and decryption, done on every authenticated UI request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GCMEncryptorBenchmark {
+  @Param({"128", "1024"})
+  public int plaintextBytes;
+
+  private GCMEncryptor encryptor;
+  private byte[] plaintext;
+  private byte[] ciphertext;
+
+  @Setup public void setUp() throws AEADBadTagException {
+    SecureRandom random = new SecureRandom();
+    byte[] key = new byte[32];
+    random.nextBytes(key);
+    encryptor = new GCMEncryptor(key, random);
+
+    plaintext = new byte[plaintextBytes];
+    random.nextBytes(plaintext);
+    ciphertext = encryptor.encrypt(plaintext);
+  }
+
+  @Benchmark public byte[] encrypt() throws AEADBadTagException {
+    return encryptor.encrypt(plaintext);
+  }
+
+  @Benchmark public byte[] decrypt() throws AEADBadTagException {
+    return encryptor.decrypt(ciphertext);
+  }
+}
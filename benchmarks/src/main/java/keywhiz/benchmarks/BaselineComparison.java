@@ -0,0 +1,141 @@
+package keywhiz.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Compares two JMH JSON result files and prints, per benchmark, the change in score and in
+ * normalized allocation rate (bytes per operation, from the gc profiler).
+ *
+ * Usage: {@code BaselineComparison <baseline.json> <current.json> [thresholdPercent]}
+ *
+ * Exits with status 1 when any benchmark got slower, or allocates more per operation, by more than
+ * the threshold (10% by default). Benchmarks present in only one of the files are listed but
+ * never counted as regressions.
+ */
+public class BaselineComparison {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+  private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println(
+          "usage: BaselineComparison <baseline.json> <current.json> [thresholdPercent]");
+      System.exit(2);
+    }
+    double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+    Map<String, Result> baseline = read(new File(args[0]));
+    Map<String, Result> current = read(new File(args[1]));
+    int regressions = report(baseline, current, threshold, System.out);
+
+    if (regressions > 0) {
+      System.out.printf("%d benchmark(s) regressed by more than %.1f%%%n", regressions, threshold);
+      System.exit(1);
+    }
+  }
+
+  /** Prints the comparison table and returns the number of regressions past the threshold. */
+  static int report(Map<String, Result> baseline, Map<String, Result> current, double threshold,
+      PrintStream out) {
+    out.printf("%-80s %14s %14s %9s %12s %12s %9s%n", "Benchmark", "Baseline", "Current", "Delta",
+        "Base B/op", "Curr B/op", "Delta");
+
+    int regressions = 0;
+    for (Map.Entry<String, Result> entry : current.entrySet()) {
+      Result now = entry.getValue();
+      Result before = baseline.get(entry.getKey());
+      if (before == null) {
+        out.printf("%-80s %14s %14.3f %9s%n", entry.getKey(), "-", now.score, "new");
+        continue;
+      }
+
+      double scoreDelta = percentChange(before.score, now.score);
+      double allocationDelta = percentChange(before.allocation, now.allocation);
+      // throughput modes report operations per time unit, where lower is worse
+      boolean slower = now.higherIsBetter() ? -scoreDelta > threshold : scoreDelta > threshold;
+      boolean allocatesMore = allocationDelta > threshold;
+      if (slower || allocatesMore) {
+        regressions++;
+      }
+
+      out.printf("%-80s %14.3f %14.3f %8.1f%% %12s %12s %8s%s%n", entry.getKey(), before.score,
+          now.score, scoreDelta, format(before.allocation), format(now.allocation),
+          Double.isNaN(allocationDelta) ? "-" : String.format("%.1f%%", allocationDelta),
+          slower || allocatesMore ? "  REGRESSION" : "");
+    }
+    for (String name : baseline.keySet()) {
+      if (!current.containsKey(name)) {
+        out.printf("%-80s %14.3f %14s %9s%n", name, baseline.get(name).score, "-", "removed");
+      }
+    }
+    return regressions;
+  }
+
+  /** Reads a JMH JSON result file, keyed by benchmark name, parameters and mode. */
+  static Map<String, Result> read(File file) throws IOException {
+    Map<String, Result> results = new LinkedHashMap<>();
+    for (JsonNode benchmark : MAPPER.readTree(file)) {
+      String mode = benchmark.path("mode").asText();
+      StringJoiner name = new StringJoiner(",", benchmark.path("benchmark").asText() + "(", ")")
+          .setEmptyValue(benchmark.path("benchmark").asText());
+      for (Iterator<Map.Entry<String, JsonNode>> params = benchmark.path("params").fields();
+          params.hasNext(); ) {
+        Map.Entry<String, JsonNode> param = params.next();
+        name.add(param.getKey() + "=" + param.getValue().asText());
+      }
+
+      double allocation = Double.NaN;
+      for (Iterator<Map.Entry<String, JsonNode>> metrics =
+          benchmark.path("secondaryMetrics").fields(); metrics.hasNext(); ) {
+        Map.Entry<String, JsonNode> metric = metrics.next();
+        // older JMH versions prefix profiler metrics with a middle dot
+        if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+          allocation = metric.getValue().path("score").asDouble();
+        }
+      }
+
+      results.put(name + " " + mode,
+          new Result(mode, benchmark.path("primaryMetric").path("score").asDouble(), allocation));
+    }
+    return results;
+  }
+
+  private static double percentChange(double before, double after) {
+    if (Double.isNaN(before) || Double.isNaN(after)) {
+      return Double.NaN;
+    }
+    if (before == 0) {
+      return after == 0 ? 0 : Double.POSITIVE_INFINITY;
+    }
+    return (after - before) / before * 100;
+  }
+
+  private static String format(double allocation) {
+    return Double.isNaN(allocation) ? "-" : String.format("%.1f", allocation);
+  }
+
+  static class Result {
+    final String mode;
+    final double score;
+    final double allocation;
+
+    Result(String mode, double score, double allocation) {
+      this.mode = mode;
+      this.score = score;
+      this.allocation = allocation;
+    }
+
+    boolean higherIsBetter() {
+      return "thrpt".equals(mode);
+    }
+  }
+}
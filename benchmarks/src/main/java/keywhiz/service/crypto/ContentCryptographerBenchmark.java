@@ -0,0 +1,71 @@
+package keywhiz.service.crypto;
+
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import keywhiz.service.config.EnvelopeEncryptionConfig;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Secret content encryption and decryption, as done on every secret write and delivery.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentCryptographerBenchmark {
+  private static final SecretKey KEY = new SecretKeySpec(new byte[16], "AES");
+
+  /** Size of the secret, in bytes before base64 encoding. */
+  @Param({"64", "4096", "65536"})
+  public int contentBytes;
+
+  @Param({"false", "true"})
+  public boolean envelopeEncryption;
+
+  private ContentCryptographer.Encrypter encrypter;
+  private ContentCryptographer cryptographer;
+  private String plaintextBase64;
+  private String ciphertext;
+
+  @Setup public void setUp() {
+    Provider bc = new BouncyCastleProvider();
+    if (Security.getProvider(bc.getName()) == null) {
+      Security.addProvider(bc);
+    }
+    SecureRandom random = new SecureRandom();
+    cryptographer = new ContentCryptographer(KEY, bc, bc, random,
+        EnvelopeEncryptionConfig.of(envelopeEncryption, null, null));
+    encrypter = cryptographer.encryptionKeyDerivedFrom("benchmark-secret");
+
+    byte[] content = new byte[contentBytes];
+    random.nextBytes(content);
+    plaintextBase64 = Base64.getEncoder().encodeToString(content);
+    ciphertext = encrypter.encrypt(plaintextBase64);
+  }
+
+  @Benchmark public String encrypt() {
+    return encrypter.encrypt(plaintextBase64);
+  }
+
+  @Benchmark public String decrypt() {
+    return cryptographer.decrypt(ciphertext);
+  }
+}
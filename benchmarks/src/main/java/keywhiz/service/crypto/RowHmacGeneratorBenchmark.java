@@ -0,0 +1,59 @@
+package keywhiz.service.crypto;
+
+import com.google.common.collect.ImmutableList;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.spec.SecretKeySpec;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Row HMACs, computed for every secrets, secrets_content and accessgrants row read or written.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowHmacGeneratorBenchmark {
+  private RowHmacGenerator rowHmacGenerator;
+  private List<Object> secretsRow;
+  private List<Object> accessGrantsRow;
+  private String storedHmac;
+
+  @Setup public void setUp() {
+    Provider bc = new BouncyCastleProvider();
+    SecureRandom random = new SecureRandom();
+    ContentCryptographer cryptographer = new ContentCryptographer(
+        new SecretKeySpec(new byte[16], "AES"), bc, bc, random);
+    rowHmacGenerator = new RowHmacGenerator(cryptographer, random);
+
+    secretsRow = ImmutableList.of("benchmark-secret", 1234L);
+    accessGrantsRow = ImmutableList.of(1234L, 5678L);
+    storedHmac = rowHmacGenerator.computeRowHmac("secrets", secretsRow);
+  }
+
+  @Benchmark public String computeSecretsRowHmac() {
+    return rowHmacGenerator.computeRowHmac("secrets", secretsRow);
+  }
+
+  @Benchmark public String computeAccessGrantsRowHmac() {
+    return rowHmacGenerator.computeRowHmac("accessgrants", accessGrantsRow);
+  }
+
+  @Benchmark public boolean verifyRowHmac() {
+    return rowHmacGenerator.verifyRowHmac("secrets", secretsRow, storedHmac);
+  }
+}
@@ -0,0 +1,53 @@
+package keywhiz.service.daos;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.jackson.Jackson;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Secret metadata parsing, done for every secrets_content row mapped.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretContentMapperBenchmark {
+  /** Number of metadata entries; zero stores an empty string, as secrets without metadata do. */
+  @Param({"0", "4", "32"})
+  public int entries;
+
+  private SecretContentMapper mapper;
+  private String metadata;
+
+  @Setup public void setUp() throws JsonProcessingException {
+    ObjectMapper objectMapper = Jackson.newObjectMapper();
+    mapper = new SecretContentMapper(objectMapper);
+
+    Map<String, String> values = new HashMap<>();
+    for (int i = 0; i < entries; i++) {
+      values.put("key" + i, "value-" + i);
+    }
+    metadata = entries == 0 ? "" : objectMapper.writeValueAsString(values);
+  }
+
+  @Benchmark public ImmutableMap<String, String> tryToReadMapFromMetadata() {
+    return mapper.tryToReadMapFromMetadata(metadata);
+  }
+}
@@ -0,0 +1,85 @@
+package keywhiz.service.providers;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Client identification: parsing the XFCC header forwarded by a proxy and extracting the SPIFFE
+ * ID from a client certificate. Both run on every automation and delivery request.
+ *
+ * Headers are shaped like Envoy's with {@code forward_client_cert_details: SANITIZE_SET} and
+ * every detail enabled, so each element carries the url-encoded certificate and its full chain.
+ * {@link #parseXfccHeader} materializes every pair; {@link #scanXfccHeader} only locates the
+ * {@code Cert} field, as ClientAuthFactory does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientIdentityBenchmark {
+  private static final String SPIFFE_ID = "spiffe://example.org/principal";
+  private static final String HASH =
+      "468ed33be74eee6556d90c0149c1309e9ba61d6425303443c0748a02dd8de688";
+
+  /** Number of elements, one per proxy that forwarded the request. */
+  @Param({"1", "3"})
+  public int elements;
+
+  private String xfccHeader;
+  private X509Certificate certificate;
+
+  @Setup public void setUp() throws IOException, CertificateException {
+    String pem = Resources.toString(Resources.getResource("principal.pem"), UTF_8);
+    try (InputStream in = Resources.getResource("principal.pem").openStream()) {
+      certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+          .generateCertificate(in);
+    }
+
+    String encodedPem = URLEncoder.encode(pem, UTF_8);
+    String element = String.format(
+        "By=%s;Hash=%s;Cert=\"%s\";Chain=\"%s\";Subject=\"%s\";URI=%s;DNS=%s",
+        SPIFFE_ID, HASH, encodedPem, encodedPem + encodedPem,
+        certificate.getSubjectX500Principal().getName(), SPIFFE_ID, "principal.example.org");
+    StringJoiner header = new StringJoiner(",");
+    for (int i = 0; i < elements; i++) {
+      header.add(element);
+    }
+    xfccHeader = header.toString();
+  }
+
+  @Benchmark public XfccHeader parseXfccHeader() throws XfccHeader.ParseException {
+    return XfccHeader.parse(xfccHeader);
+  }
+
+  @Benchmark public Optional<String> scanXfccHeader() throws XfccHeader.ParseException {
+    return XfccHeader.scan(xfccHeader, "Cert").value("Cert");
+  }
+
+  @Benchmark public Optional<URI> spiffeIdFromCertificate() {
+    return ClientAuthenticator.getSpiffeIdFromCertificate(certificate);
+  }
+}
@@ -26,6 +26,7 @@ import keywhiz.cli.configs.AssignActionConfig;
 import keywhiz.cli.configs.CliConfiguration;
 import keywhiz.cli.configs.DeleteActionConfig;
 import keywhiz.cli.configs.DescribeActionConfig;
+import keywhiz.cli.configs.ImportActionConfig;
 import keywhiz.cli.configs.ListActionConfig;
 import keywhiz.cli.configs.ListVersionsActionConfig;
 import keywhiz.cli.configs.LoginActionConfig;
@@ -93,6 +94,7 @@ public class CliMain {
           .put("assign", new AssignActionConfig())
           .put("delete", new DeleteActionConfig())
           .put("describe", new DescribeActionConfig())
+          .put("import", new ImportActionConfig())
           .put("list", new ListActionConfig())
           .put("login", new LoginActionConfig())
           .put("rename", new RenameActionConfig())
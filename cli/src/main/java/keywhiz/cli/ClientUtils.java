@@ -38,6 +38,7 @@ import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
@@ -45,6 +46,7 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
+import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
 import okhttp3.JavaNetCookieJar;
 import okhttp3.OkHttpClient;
@@ -64,6 +66,13 @@ public class ClientUtils {
   private static final ObjectMapper mapper = Jackson.newObjectMapper();
   private static CookieManager cookieManager = null;
 
+  /**
+   * Shared by every client created here so that commands making many requests reuse kept-alive
+   * connections (and their TLS sessions). Idle connections are evicted before the server's default
+   * 30 second idle timeout would close them.
+   */
+  private static final ConnectionPool connectionPool = new ConnectionPool(5, 25, TimeUnit.SECONDS);
+
   public static synchronized CookieManager getCookieManager() {
     if (cookieManager != null) {
       return cookieManager;
@@ -110,6 +119,7 @@ public class ClientUtils {
         .sslSocketFactory(socketFactory, trustManager)
         .connectionSpecs(Arrays.asList(ConnectionSpec.MODERN_TLS))
         .followSslRedirects(false)
+        .connectionPool(connectionPool)
         .readTimeout(Duration.ofMinutes(2));
 
     client.retryOnConnectionFailure(false);
@@ -33,6 +33,7 @@ import keywhiz.cli.commands.AddAction;
 import keywhiz.cli.commands.AssignAction;
 import keywhiz.cli.commands.DeleteAction;
 import keywhiz.cli.commands.DescribeAction;
+import keywhiz.cli.commands.ImportAction;
 import keywhiz.cli.commands.ListAction;
 import keywhiz.cli.commands.ListVersionsAction;
 import keywhiz.cli.commands.RenameAction;
@@ -45,6 +46,7 @@ import keywhiz.cli.configs.AssignActionConfig;
 import keywhiz.cli.configs.CliConfiguration;
 import keywhiz.cli.configs.DeleteActionConfig;
 import keywhiz.cli.configs.DescribeActionConfig;
+import keywhiz.cli.configs.ImportActionConfig;
 import keywhiz.cli.configs.ListActionConfig;
 import keywhiz.cli.configs.ListVersionsActionConfig;
 import keywhiz.cli.configs.RenameActionConfig;
@@ -69,6 +71,7 @@ public class CommandExecutor {
     ASSIGN,
     DELETE,
     DESCRIBE,
+    IMPORT,
     LIST,
     LOGIN,
     RENAME,
@@ -171,6 +174,11 @@ public class CommandExecutor {
         new AddAction((AddActionConfig) commands.get(command), client, mapper).run();
         break;
 
+      case IMPORT:
+        new ImportAction((ImportActionConfig) commands.get(command), client, mapper, user)
+            .run();
+        break;
+
       case UPDATE:
         new UpdateAction((UpdateActionConfig) commands.get(command), client, mapper).run();
         break;
@@ -0,0 +1,128 @@
+package keywhiz.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Sorts more lines than should be held in memory: lines are sorted in runs of at most
+ * {@code maxInMemory}, each run is written to a temporary file, and the runs are merged as the
+ * output is read. Input that fits in a single run is sorted in memory without touching disk.
+ */
+public final class ExternalSort {
+  private ExternalSort() {}
+
+  /**
+   * Passes the lines, in natural order, to {@code consumer}. The temporary files are deleted once
+   * the consumer returns, so it must not keep the iterator. Lines must not contain line breaks.
+   */
+  public static void sort(Iterator<String> lines, int maxInMemory,
+      Consumer<Iterator<String>> consumer) throws IOException {
+    checkArgument(maxInMemory > 0, "maxInMemory must be positive");
+
+    List<Path> runs = new ArrayList<>();
+    List<BufferedReader> readers = new ArrayList<>();
+    try {
+      List<String> run = new ArrayList<>();
+      while (lines.hasNext()) {
+        run.add(lines.next());
+        if (run.size() == maxInMemory) {
+          runs.add(writeRun(run));
+          run.clear();
+        }
+      }
+      Collections.sort(run);
+      if (runs.isEmpty()) {
+        consumer.accept(run.iterator());
+        return;
+      }
+      if (!run.isEmpty()) {
+        runs.add(writeRun(run));
+      }
+
+      for (Path path : runs) {
+        readers.add(Files.newBufferedReader(path, UTF_8));
+      }
+      consumer.accept(new MergingIterator(readers));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      for (BufferedReader reader : readers) {
+        reader.close();
+      }
+      for (Path path : runs) {
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+
+  private static Path writeRun(List<String> run) throws IOException {
+    Collections.sort(run);
+    Path path = Files.createTempFile("keywhiz-sort", ".run");
+    try (BufferedWriter writer = Files.newBufferedWriter(path, UTF_8)) {
+      for (String line : run) {
+        writer.write(line);
+        writer.newLine();
+      }
+    }
+    return path;
+  }
+
+  /** Repeatedly takes the smallest head of the sorted runs. */
+  private static class MergingIterator implements Iterator<String> {
+    private final PriorityQueue<Head> heads =
+        new PriorityQueue<>(Comparator.comparing((Head head) -> head.line));
+
+    MergingIterator(List<BufferedReader> readers) {
+      readers.forEach(reader -> advance(new Head(reader)));
+    }
+
+    @Override public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override public String next() {
+      Head head = heads.poll();
+      if (head == null) {
+        throw new NoSuchElementException();
+      }
+      String line = head.line;
+      advance(head);
+      return line;
+    }
+
+    private void advance(Head head) {
+      try {
+        head.line = head.reader.readLine();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (head.line != null) {
+        heads.add(head);
+      }
+    }
+  }
+
+  private static class Head {
+    final BufferedReader reader;
+    String line;
+
+    Head(BufferedReader reader) {
+      this.reader = reader;
+    }
+  }
+}
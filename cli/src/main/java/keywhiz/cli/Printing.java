@@ -25,6 +25,7 @@ import java.text.DateFormat;
 import java.time.Instant;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
@@ -319,6 +320,11 @@ public class Printing {
         .forEach(s -> System.out.println(SanitizedSecret.displayName(s)));
   }
 
+  /** Prints secret names as they are produced, for listings too large to collect first. */
+  public void printSecretNames(Iterator<String> names) {
+    names.forEachRemaining(System.out::println);
+  }
+
   public void printSecretVersions(List<SanitizedSecret> versions, Optional<Long> currentVersion) {
     if (versions.isEmpty()) {
       return;
@@ -0,0 +1,383 @@
+package keywhiz.cli.commands;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.Nullable;
+import keywhiz.api.model.SanitizedSecret;
+import keywhiz.cli.configs.ImportActionConfig;
+import keywhiz.client.AsyncKeywhizClient;
+import keywhiz.client.KeywhizClient;
+import keywhiz.client.KeywhizClient.ConflictException;
+import keywhiz.client.KeywhizClient.NotFoundException;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static keywhiz.cli.Utilities.VALID_NAME_PATTERN;
+import static keywhiz.cli.Utilities.validName;
+
+/**
+ * Creates many secrets, and optionally grants them to groups, with up to {@code --concurrency}
+ * requests in flight.
+ * <p>
+ * The source is either a directory, where each regular file is a secret named after the file, or
+ * a JSON manifest listing secrets:
+ * <pre>
+ * [{"name": "db-password", "file": "db-password.txt", "description": "...", "owner": "...",
+ *   "group": "...", "metadata": {"mode": "0400"}, "expiry": 0}]
+ * </pre>
+ * where {@code file} is relative to the manifest. Sources are read one secret at a time, so only
+ * the secrets being sent are held in memory.
+ * <p>
+ * Progress is recorded in a journal as each secret is created and then granted. Rerunning an
+ * import that partially failed skips the secrets already imported, and only grants those that were
+ * created but not granted. A create that conflicts with an existing secret is treated as created
+ * only if the journal shows this import set out to create it and the existing secret was created
+ * by the importing user, as happens when the response to an earlier attempt was lost or the
+ * import stopped before journaling it; otherwise the secret fails with the conflict.
+ */
+public class ImportAction implements Runnable {
+  private final ImportActionConfig config;
+  private final KeywhizClient keywhizClient;
+  private final ObjectMapper mapper;
+  private final String user;
+
+  PrintStream out = System.out;
+
+  /** @param user the user the client is logged in as */
+  public ImportAction(ImportActionConfig config, KeywhizClient client, ObjectMapper mapper,
+      String user) {
+    this.config = config;
+    this.keywhizClient = client;
+    this.mapper = mapper;
+    this.user = user;
+  }
+
+  @Override public void run() {
+    if (config.source == null || config.source.size() != 1) {
+      throw new IllegalArgumentException("Must specify a single directory or manifest to import.");
+    }
+    if (config.concurrency < 1) {
+      throw new IllegalArgumentException("Concurrency must be positive.");
+    }
+    Path source = Paths.get(config.source.get(0));
+    Path journalPath = config.journal != null
+        ? Paths.get(config.journal)
+        : source.resolveSibling(source.getFileName() + ".import-journal");
+
+    Counts counts = new Counts();
+    long start = System.nanoTime();
+    try (Journal journal = Journal.open(journalPath);
+        Stream<Entry> entries = entries(source);
+        AsyncKeywhizClient asyncClient =
+            keywhizClient.async(config.concurrency, new MetricRegistry())) {
+      // Bounds the secrets read but not yet sent, as well as those in flight
+      int maxPending = config.concurrency * 2;
+      Semaphore pending = new Semaphore(maxPending);
+      Map<String, Long> groupIds = new HashMap<>();
+
+      try {
+        for (Entry entry : (Iterable<Entry>) entries::iterator) {
+          if (journal.isImported(entry.name)) {
+            counts.skipped.incrementAndGet();
+            out.println(format("skipped %s: already imported", entry.name));
+            continue;
+          }
+
+          pending.acquireUninterruptibly();
+          CompletableFuture<Void> imported;
+          try {
+            imported = importSecret(asyncClient, journal, entry, groupIds);
+          } catch (IOException | RuntimeException e) {
+            imported = CompletableFuture.failedFuture(e);
+          }
+          imported.whenComplete((result, failure) -> {
+            if (failure == null) {
+              counts.imported.incrementAndGet();
+              out.println(format("imported %s", entry.name));
+            } else {
+              counts.failed.incrementAndGet();
+              out.println(format("failed %s: %s", entry.name, message(failure)));
+            }
+            pending.release();
+          });
+        }
+      } finally {
+        // Wait for the secrets in flight, even if reading the source failed
+        pending.acquireUninterruptibly(maxPending);
+      }
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+
+    double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+    out.println(format("Imported %d, skipped %d, failed %d in %.1fs (%.1f secrets/s)",
+        counts.imported.get(), counts.skipped.get(), counts.failed.get(), seconds,
+        counts.imported.get() / Math.max(seconds, 0.001)));
+    if (counts.failed.get() > 0) {
+      throw new RuntimeException(format("%d secrets failed to import; rerun the same import to "
+          + "retry them (progress is kept in %s)", counts.failed.get(), journalPath));
+    }
+  }
+
+  private CompletableFuture<Void> importSecret(AsyncKeywhizClient asyncClient, Journal journal,
+      Entry entry, Map<String, Long> groupIds) throws IOException {
+    if (!validName(entry.name)) {
+      throw new IllegalArgumentException(format("Invalid name, must match %s", VALID_NAME_PATTERN));
+    }
+    String group = entry.group != null ? entry.group : config.group;
+    // Resolved before sending anything, so a missing group fails the secret before it is created
+    Long groupId = group == null ? null : groupId(group, groupIds);
+
+    Long createdId = journal.createdId(entry.name);
+    CompletableFuture<Long> created;
+    if (createdId != null) {
+      created = CompletableFuture.completedFuture(createdId);
+    } else {
+      byte[] content = Files.readAllBytes(entry.file);
+      if (content.length == 0) {
+        throw new IllegalArgumentException("Secret content empty!");
+      }
+      String owner = entry.owner != null ? entry.owner : config.owner;
+      journal.recordCreating(entry.name);
+      created = asyncClient.createSecret(entry.name, owner, entry.description, content,
+          entry.metadata, entry.expiry)
+          .handle((secret, failure) -> {
+            if (failure == null) {
+              return CompletableFuture.completedFuture(secret.id);
+            }
+            if (cause(failure) instanceof ConflictException) {
+              return adoptConflicting(asyncClient, journal, entry.name, failure);
+            }
+            return CompletableFuture.<Long>failedFuture(failure);
+          })
+          .thenCompose(id -> id)
+          .thenApply(id -> {
+            journal.recordCreated(entry.name, id);
+            return id;
+          });
+    }
+
+    CompletableFuture<Void> granted = groupId == null
+        ? created.thenAccept(id -> {})
+        : created.thenCompose(id -> asyncClient.grantSecretToGroupByIds(id, groupId));
+    return granted.thenRun(() -> journal.recordImported(entry.name));
+  }
+
+  /**
+   * Resolves a secret whose create conflicted to the existing secret, if this import may have
+   * created it, and fails with the conflict otherwise.
+   */
+  private CompletableFuture<Long> adoptConflicting(AsyncKeywhizClient asyncClient,
+      Journal journal, String name, Throwable conflict) {
+    if (!journal.isCreating(name)) {
+      return CompletableFuture.failedFuture(conflict);
+    }
+    return asyncClient.getSanitizedSecretByName(name)
+        .thenCompose((SanitizedSecret existing) -> user.equals(existing.createdBy())
+            ? CompletableFuture.completedFuture(existing.id())
+            : CompletableFuture.<Long>failedFuture(conflict));
+  }
+
+  private long groupId(String name, Map<String, Long> groupIds) throws IOException {
+    Long id = groupIds.get(name);
+    if (id == null) {
+      try {
+        id = keywhizClient.getGroupByName(name).getId();
+      } catch (NotFoundException e) {
+        throw new IllegalArgumentException(format("Group '%s' does not exist", name));
+      }
+      groupIds.put(name, id);
+    }
+    return id;
+  }
+
+  private Stream<Entry> entries(Path source) throws IOException {
+    if (Files.isDirectory(source)) {
+      return Files.list(source)
+          .filter(Files::isRegularFile)
+          .sorted()
+          .map(file -> new Entry(file.getFileName().toString(), file));
+    }
+
+    MappingIterator<ManifestEntry> manifest =
+        mapper.readerFor(ManifestEntry.class).readValues(source.toFile());
+    Path directory = source.toAbsolutePath().getParent();
+    Iterator<Entry> entries = new Iterator<>() {
+      @Override public boolean hasNext() {
+        return manifest.hasNext();
+      }
+
+      @Override public Entry next() {
+        return manifest.next().toEntry(directory);
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, 0), false)
+        .onClose(() -> {
+          try {
+            manifest.close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  private static String message(Throwable failure) {
+    Throwable cause = cause(failure);
+    return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+  }
+
+  private static Throwable cause(Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null
+        ? failure.getCause()
+        : failure;
+  }
+
+  private static class Counts {
+    final AtomicInteger imported = new AtomicInteger();
+    final AtomicInteger skipped = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+  }
+
+  private static class Entry {
+    final String name;
+    final Path file;
+    String description = "";
+    String owner;
+    String group;
+    ImmutableMap<String, String> metadata = ImmutableMap.of();
+    long expiry = 0;
+
+    Entry(String name, Path file) {
+      this.name = name;
+      this.file = file;
+    }
+  }
+
+  static class ManifestEntry {
+    @JsonProperty public String name;
+    @JsonProperty public String file;
+    @JsonProperty public String description;
+    @JsonProperty public String owner;
+    @JsonProperty public String group;
+    @JsonProperty public Map<String, String> metadata;
+    @JsonProperty public long expiry;
+
+    Entry toEntry(Path directory) {
+      if (name == null || file == null) {
+        throw new IllegalArgumentException("Manifest entries must have a name and a file");
+      }
+      Entry entry = new Entry(name, directory.resolve(file));
+      if (description != null) {
+        entry.description = description;
+      }
+      entry.owner = owner;
+      entry.group = group;
+      if (metadata != null) {
+        entry.metadata = ImmutableMap.copyOf(metadata);
+      }
+      entry.expiry = expiry;
+      return entry;
+    }
+  }
+
+  /**
+   * Append-only record of progress, one line per step: {@code creating <name>} before a secret is
+   * sent, {@code created <name> <id>} once it exists and {@code imported <name>} once it has also
+   * been granted.
+   */
+  static class Journal implements AutoCloseable {
+    private final Set<String> creating = new HashSet<>();
+    private final Map<String, Long> created = new HashMap<>();
+    private final Set<String> imported = new HashSet<>();
+    private final BufferedWriter writer;
+
+    private Journal(BufferedWriter writer) {
+      this.writer = writer;
+    }
+
+    static Journal open(Path path) throws IOException {
+      List<String> lines = Files.exists(path) ? Files.readAllLines(path, UTF_8) : List.of();
+      Journal journal = new Journal(Files.newBufferedWriter(path, UTF_8, CREATE, APPEND));
+      for (String line : lines) {
+        String[] fields = line.split(" ");
+        if (fields.length == 2 && fields[0].equals("creating")) {
+          journal.creating.add(fields[1]);
+        } else if (fields.length == 3 && fields[0].equals("created")) {
+          journal.created.put(fields[1], Long.parseLong(fields[2]));
+        } else if (fields.length == 2 && fields[0].equals("imported")) {
+          journal.imported.add(fields[1]);
+        }
+      }
+      return journal;
+    }
+
+    synchronized boolean isImported(String name) {
+      return imported.contains(name);
+    }
+
+    synchronized boolean isCreating(String name) {
+      return creating.contains(name);
+    }
+
+    @Nullable synchronized Long createdId(String name) {
+      return created.get(name);
+    }
+
+    synchronized void recordCreating(String name) {
+      if (creating.add(name)) {
+        append(format("creating %s", name));
+      }
+    }
+
+    synchronized void recordCreated(String name, long id) {
+      created.put(name, id);
+      append(format("created %s %d", name, id));
+    }
+
+    synchronized void recordImported(String name) {
+      imported.add(name);
+      append(format("imported %s", name));
+    }
+
+    private void append(String line) {
+      try {
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override public synchronized void close() throws IOException {
+      writer.close();
+    }
+  }
+}
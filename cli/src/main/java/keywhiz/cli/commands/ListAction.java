@@ -17,9 +17,16 @@
 package keywhiz.cli.commands;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Iterators;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import keywhiz.api.model.SanitizedSecret;
+import keywhiz.cli.ExternalSort;
 import keywhiz.cli.Printing;
 import keywhiz.cli.configs.ListActionConfig;
 import keywhiz.client.KeywhizClient;
@@ -27,6 +34,9 @@ import keywhiz.client.KeywhizClient;
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class ListAction implements Runnable {
+  static final int PAGE_SIZE = 1000;
+  private static final int MAX_SORTED_IN_MEMORY = 100_000;
+
   private final ListActionConfig listActionConfig;
   private final KeywhizClient keywhizClient;
   private final Printing printing;
@@ -41,7 +51,7 @@ public class ListAction implements Runnable {
     List<String> listOptions = listActionConfig.listType;
     if (listOptions == null) {
       try {
-        printing.printAllSanitizedSecrets(keywhizClient.allSecrets());
+        printAllSecrets();
       } catch (IOException e) {
         throw Throwables.propagate(e);
       }
@@ -63,7 +73,7 @@ public class ListAction implements Runnable {
 
         case "secrets":
           if (listActionConfig.idx == null && listActionConfig.num == null) {
-            printing.printAllSanitizedSecrets(keywhizClient.allSecrets());
+            printAllSecrets();
           } else if (listActionConfig.idx != null && listActionConfig.num != null) {
             checkArgument(listActionConfig.idx >= 0);
             checkArgument(listActionConfig.num >= 0);
@@ -84,4 +94,58 @@ public class ListAction implements Runnable {
       throw Throwables.propagate(e);
     }
   }
+
+  /**
+   * Fetches secrets a page at a time, so that neither the client nor the server handles the whole
+   * inventory at once, and prints their names either as they arrive or, by default, sorted with
+   * bounded memory.
+   */
+  private void printAllSecrets() throws IOException {
+    Iterator<String> names =
+        Iterators.transform(new SecretPages(keywhizClient), SanitizedSecret::displayName);
+    try {
+      if (listActionConfig.unsorted) {
+        printing.printSecretNames(names);
+      } else {
+        ExternalSort.sort(names, MAX_SORTED_IN_MEMORY, printing::printSecretNames);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** Iterates over all secrets, oldest first, fetching them in pages of {@link #PAGE_SIZE}. */
+  private static class SecretPages implements Iterator<SanitizedSecret> {
+    private final KeywhizClient keywhizClient;
+    private Iterator<SanitizedSecret> page = Collections.emptyIterator();
+    private int idx = 0;
+    private boolean lastPage = false;
+
+    SecretPages(KeywhizClient keywhizClient) {
+      this.keywhizClient = keywhizClient;
+    }
+
+    @Override public boolean hasNext() {
+      while (!page.hasNext() && !lastPage) {
+        List<SanitizedSecret> secrets;
+        try {
+          // Oldest first, so secrets created while paging are appended rather than shifting pages
+          secrets = keywhizClient.allSecretsBatched(idx, PAGE_SIZE, false);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        idx += secrets.size();
+        lastPage = secrets.size() < PAGE_SIZE;
+        page = secrets.iterator();
+      }
+      return page.hasNext();
+    }
+
+    @Override public SanitizedSecret next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+  }
 }
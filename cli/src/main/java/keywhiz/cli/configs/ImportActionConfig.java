@@ -0,0 +1,24 @@
+package keywhiz.cli.configs;
+
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+import java.util.List;
+
+@Parameters(commandDescription = "Import secrets in bulk from a directory (one secret per file, named after the file) or a JSON manifest")
+public class ImportActionConfig {
+
+  @Parameter(description = "<directory|manifest>")
+  public List<String> source;
+
+  @Parameter(names = { "-g", "--group" }, description = "Also assign the secrets to this group, unless the manifest names another")
+  public String group;
+
+  @Parameter(names = { "-o", "--owner" }, description = "Owning group, unless the manifest names another")
+  public String owner;
+
+  @Parameter(names = "--concurrency", description = "Maximum number of requests in flight")
+  public int concurrency = 8;
+
+  @Parameter(names = "--journal", description = "File recording imported secrets, so a failed import can be rerun to resume it. Defaults to <source>.import-journal")
+  public String journal;
+}
@@ -34,4 +34,7 @@ public class ListActionConfig {
 
   @Parameter(names = "--newestFirst", description = "Whether to batch the secrets from newest creation date first.  Defaults to 'true' (valid only with 'secrets'; requires --idx and --num to also be specified)")
   public Boolean newestFirst;
+
+  @Parameter(names = "--unsorted", description = "Print secrets as they are fetched instead of sorted by name, which starts printing sooner (valid only when listing all secrets)")
+  public boolean unsorted;
 }
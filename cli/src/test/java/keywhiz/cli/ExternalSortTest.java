@@ -0,0 +1,40 @@
+package keywhiz.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExternalSortTest {
+  @Test
+  public void sortsInputSpanningManyRuns() throws Exception {
+    Random random = new Random(1);
+    List<String> lines = IntStream.range(0, 1000)
+        .mapToObj(i -> "secret-" + random.nextInt(500))
+        .collect(Collectors.toList());
+
+    assertThat(sort(lines, 64)).isSorted().containsExactlyInAnyOrderElementsOf(lines);
+  }
+
+  @Test
+  public void sortsInputFittingInMemory() throws Exception {
+    assertThat(sort(List.of("c", "a", "b"), 3)).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  public void handlesEmptyInputAndPartialLastRun() throws Exception {
+    assertThat(sort(List.of(), 2)).isEmpty();
+    assertThat(sort(List.of("e", "d", "c", "b", "a"), 2)).containsExactly("a", "b", "c", "d", "e");
+  }
+
+  private static List<String> sort(List<String> lines, int maxInMemory) throws Exception {
+    List<String> sorted = new ArrayList<>();
+    ExternalSort.sort(lines.iterator(), maxInMemory,
+        iterator -> iterator.forEachRemaining(sorted::add));
+    return sorted;
+  }
+}
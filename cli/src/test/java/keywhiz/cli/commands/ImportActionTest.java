@@ -0,0 +1,193 @@
+package keywhiz.cli.commands;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.jackson.Jackson;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import keywhiz.api.ApiDate;
+import keywhiz.api.SecretDetailResponse;
+import keywhiz.api.model.Group;
+import keywhiz.api.model.SanitizedSecret;
+import keywhiz.api.model.Secret;
+import keywhiz.cli.configs.ImportActionConfig;
+import keywhiz.client.AsyncKeywhizClient;
+import keywhiz.client.KeywhizClient;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ImportActionTest {
+  private static final ApiDate NOW = ApiDate.now();
+
+  @Rule public MockitoRule mockito = MockitoJUnit.rule();
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock KeywhizClient keywhizClient;
+  @Mock AsyncKeywhizClient asyncClient;
+
+  ImportActionConfig importActionConfig;
+  ImportAction importAction;
+  ByteArrayOutputStream output = new ByteArrayOutputStream();
+  Path directory;
+
+  Group group = new Group(4, "importGroup", null, null, null, null, null, null);
+
+  @Before
+  public void setUp() throws Exception {
+    directory = temporaryFolder.newFolder("secrets").toPath();
+    importActionConfig = new ImportActionConfig();
+    importActionConfig.source = ImmutableList.of(directory.toString());
+    importActionConfig.group = group.getName();
+    importAction = new ImportAction(importActionConfig, keywhizClient, Jackson.newObjectMapper(),
+        "importer");
+    importAction.out = new PrintStream(output, true, UTF_8);
+
+    when(keywhizClient.async(anyInt(), any())).thenReturn(asyncClient);
+    when(keywhizClient.getGroupByName(group.getName())).thenReturn(group);
+    when(asyncClient.grantSecretToGroupByIds(anyLong(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+  }
+
+  @Test
+  public void importsEachFileInADirectory() throws Exception {
+    writeSecret("first", 1);
+    writeSecret("second", 2);
+
+    importAction.run();
+
+    verify(asyncClient).createSecret(eq("first"), any(), eq(""),
+        eq("first-content".getBytes(UTF_8)), eq(ImmutableMap.of()), eq(0L));
+    verify(asyncClient).grantSecretToGroupByIds(1, group.getId());
+    verify(asyncClient).grantSecretToGroupByIds(2, group.getId());
+    assertThat(output.toString(UTF_8))
+        .contains("imported first", "imported second", "Imported 2, skipped 0, failed 0");
+    assertThat(journal()).contains("created first 1", "imported first", "created second 2",
+        "imported second");
+  }
+
+  @Test
+  public void importsTheSecretsInAManifest() throws Exception {
+    writeSecret("first", 1);
+    Path manifest = temporaryFolder.getRoot().toPath().resolve("manifest.json");
+    Files.write(manifest, ("[{\"name\": \"renamed\", \"file\": \"secrets/first\", "
+        + "\"description\": \"imported\", \"metadata\": {\"mode\": \"0400\"}}]").getBytes(UTF_8));
+    importActionConfig.source = ImmutableList.of(manifest.toString());
+    when(asyncClient.createSecret(eq("renamed"), any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(secretDetails("renamed", 1)));
+
+    importAction.run();
+
+    verify(asyncClient).createSecret("renamed", null, "imported", "first-content".getBytes(UTF_8),
+        ImmutableMap.of("mode", "0400"), 0);
+    verify(asyncClient).grantSecretToGroupByIds(1, group.getId());
+  }
+
+  @Test
+  public void resumesFromTheJournal() throws Exception {
+    writeSecret("done", 1);
+    writeSecret("ungranted", 2);
+    writeSecret("new", 3);
+    Files.write(directory.resolveSibling("secrets.import-journal"),
+        List.of("created done 1", "imported done", "created ungranted 2"));
+
+    importAction.run();
+
+    verify(asyncClient, never()).createSecret(eq("done"), any(), any(), any(), any(), anyLong());
+    verify(asyncClient, never())
+        .createSecret(eq("ungranted"), any(), any(), any(), any(), anyLong());
+    verify(asyncClient, never()).grantSecretToGroupByIds(1, group.getId());
+    verify(asyncClient).grantSecretToGroupByIds(2, group.getId());
+    verify(asyncClient).grantSecretToGroupByIds(3, group.getId());
+    assertThat(output.toString(UTF_8))
+        .contains("skipped done", "Imported 2, skipped 1, failed 0");
+  }
+
+  @Test
+  public void reportsFailuresAndKeepsGoing() throws Exception {
+    writeSecret("first", 1);
+    writeSecret("second", 2);
+    when(asyncClient.createSecret(eq("first"), any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.failedFuture(new KeywhizClient.ValidationException()));
+
+    assertThatThrownBy(() -> importAction.run())
+        .hasMessageContaining("1 secrets failed to import");
+
+    assertThat(output.toString(UTF_8)).contains(
+        "failed first: Malformed request semantics from client (422)", "imported second");
+    assertThat(journal()).containsExactly("creating first", "creating second", "created second 2",
+        "imported second");
+  }
+
+  @Test
+  public void recoversASecretWhoseCreateResponseWasLost() throws Exception {
+    writeSecret("lost", 1);
+    // The first attempt created the secret but its response was dropped, so the retry conflicts
+    when(asyncClient.createSecret(eq("lost"), any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.failedFuture(new KeywhizClient.ConflictException()));
+    when(asyncClient.getSanitizedSecretByName("lost")).thenReturn(CompletableFuture.completedFuture(
+        SanitizedSecret.fromSecret(secret("lost", 7, "importer"))));
+
+    importAction.run();
+
+    verify(asyncClient).grantSecretToGroupByIds(7, group.getId());
+    assertThat(output.toString(UTF_8)).contains("imported lost", "Imported 1, skipped 0, failed 0");
+    assertThat(journal()).containsExactly("creating lost", "created lost 7", "imported lost");
+  }
+
+  @Test
+  public void failsOnAConflictWithASecretItDidNotCreate() throws Exception {
+    writeSecret("existing", 1);
+    when(asyncClient.createSecret(eq("existing"), any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.failedFuture(new KeywhizClient.ConflictException()));
+    when(asyncClient.getSanitizedSecretByName("existing")).thenReturn(
+        CompletableFuture.completedFuture(
+            SanitizedSecret.fromSecret(secret("existing", 7, "someoneElse"))));
+
+    assertThatThrownBy(() -> importAction.run())
+        .hasMessageContaining("1 secrets failed to import");
+
+    verify(asyncClient, never()).grantSecretToGroupByIds(anyLong(), anyLong());
+    assertThat(output.toString(UTF_8)).contains("failed existing: Conflicting resource (409)");
+    assertThat(journal()).containsExactly("creating existing");
+  }
+
+  private void writeSecret(String name, long id) throws IOException {
+    Files.write(directory.resolve(name), (name + "-content").getBytes(UTF_8));
+    when(asyncClient.createSecret(eq(name), any(), any(), any(), any(), anyLong()))
+        .thenReturn(CompletableFuture.completedFuture(secretDetails(name, id)));
+  }
+
+  private List<String> journal() throws IOException {
+    return Files.readAllLines(directory.resolveSibling("secrets.import-journal"));
+  }
+
+  private static SecretDetailResponse secretDetails(String name, long id) {
+    return SecretDetailResponse.fromSecret(secret(name, id, "importer"), null, null);
+  }
+
+  private static Secret secret(String name, long id, String createdBy) {
+    return new Secret(id, name, null, null, () -> "", "checksum", NOW, createdBy, NOW, null, null,
+        null, ImmutableMap.of(), 0, 1L, NOW, null);
+  }
+}
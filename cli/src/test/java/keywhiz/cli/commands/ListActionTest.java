@@ -16,7 +16,12 @@
 
 package keywhiz.cli.commands;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import keywhiz.api.model.SanitizedSecret;
 import keywhiz.cli.Printing;
 import keywhiz.cli.configs.ListActionConfig;
 import keywhiz.client.KeywhizClient;
@@ -27,7 +32,15 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class ListActionTest {
   @Rule public MockitoRule mockito = MockitoJUnit.rule();
@@ -48,7 +61,7 @@ public class ListActionTest {
   public void listCallsPrintForListAll() throws Exception {
     listActionConfig.listType = null;
     listAction.run();
-    verify(printing).printAllSanitizedSecrets(keywhizClient.allSecrets());
+    verify(printing).printSecretNames(any());
   }
 
   @Test
@@ -72,7 +85,35 @@ public class ListActionTest {
     listActionConfig.listType = Arrays.asList("secrets");
     listAction.run();
 
-    verify(printing).printAllSanitizedSecrets(keywhizClient.allSecrets());
+    verify(printing).printSecretNames(any());
+  }
+
+  @Test
+  public void listSecretsPagesThroughAllSecretsAndSortsThem() throws Exception {
+    List<SanitizedSecret> firstPage = secrets("b", ListAction.PAGE_SIZE);
+    when(keywhizClient.allSecretsBatched(0, ListAction.PAGE_SIZE, false)).thenReturn(firstPage);
+    when(keywhizClient.allSecretsBatched(ListAction.PAGE_SIZE, ListAction.PAGE_SIZE, false))
+        .thenReturn(secrets("a", 2));
+    List<String> printed = capturePrintedNames();
+
+    listActionConfig.listType = Arrays.asList("secrets");
+    listAction.run();
+
+    assertThat(printed).hasSize(ListAction.PAGE_SIZE + 2).isSorted().startsWith("a0", "a1");
+    verify(keywhizClient, times(2)).allSecretsBatched(anyInt(), anyInt(), eq(false));
+  }
+
+  @Test
+  public void listSecretsUnsortedPrintsInFetchOrder() throws Exception {
+    when(keywhizClient.allSecretsBatched(0, ListAction.PAGE_SIZE, false))
+        .thenReturn(secrets("b", 1));
+    List<String> printed = capturePrintedNames();
+
+    listActionConfig.listType = Arrays.asList("secrets");
+    listActionConfig.unsorted = true;
+    listAction.run();
+
+    assertThat(printed).containsExactly("b0");
   }
 
   @Test
@@ -96,6 +137,22 @@ public class ListActionTest {
     verify(printing).printAllSanitizedSecrets(keywhizClient.allSecretsBatched(5, 10, true));
   }
 
+  private List<String> capturePrintedNames() {
+    List<String> printed = new ArrayList<>();
+    doAnswer(invocation -> {
+      Iterator<String> names = invocation.getArgument(0);
+      names.forEachRemaining(printed::add);
+      return null;
+    }).when(printing).printSecretNames(any());
+    return printed;
+  }
+
+  private static List<SanitizedSecret> secrets(String prefix, int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> SanitizedSecret.of(i, prefix + i))
+        .collect(toList());
+  }
+
   @Test
   public void listCallsErrorsCorrectly() throws Exception {
     listActionConfig.listType = Arrays.asList("secrets");
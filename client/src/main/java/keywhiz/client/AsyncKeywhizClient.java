@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2015 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package keywhiz.client;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.HttpHeaders;
+import keywhiz.api.ClientDetailResponse;
+import keywhiz.api.GroupDetailResponse;
+import keywhiz.api.SecretDetailResponse;
+import keywhiz.api.automation.v2.CreateClientRequestV2;
+import keywhiz.api.automation.v2.CreateGroupRequestV2;
+import keywhiz.api.automation.v2.CreateSecretRequestV2;
+import keywhiz.api.model.Client;
+import keywhiz.api.model.Group;
+import keywhiz.api.model.SanitizedSecret;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+import static keywhiz.client.KeywhizClient.JSON;
+
+/**
+ * Non-blocking counterpart of {@link KeywhizClient} for scripts which make many independent
+ * calls, such as creating secrets and granting them to groups.
+ * <p>
+ * Calls return immediately with a future and are sent by OkHttp's dispatcher, at most
+ * {@code maxConcurrentRequests} at a time. Calls failing with a 5xx status or an I/O error such as
+ * a connection reset are retried with exponential backoff; as with any retry, a create whose
+ * response was lost may then fail with a {@link KeywhizClient.ConflictException}. Other failures
+ * complete the future with the same exceptions {@link KeywhizClient} throws.
+ * <p>
+ * The latency of each kind of call, including retries, is recorded in a timer named
+ * {@code AsyncKeywhizClient.<method>} in the given registry, and retries are counted in
+ * {@code AsyncKeywhizClient.retries}.
+ * <p>
+ * Obtain one from a logged-in client with {@link KeywhizClient#async}, and close it when done so
+ * the dispatcher's threads don't keep the JVM alive.
+ */
+public class AsyncKeywhizClient implements Closeable {
+  private static final int DEFAULT_MAX_RETRIES = 3;
+  private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(100);
+
+  private final ObjectMapper mapper;
+  private final OkHttpClient client;
+  private final HttpUrl baseUrl;
+  private final MetricRegistry metricRegistry;
+  private final Meter retries;
+  private final int maxRetries;
+  private final Duration initialBackoff;
+
+  public AsyncKeywhizClient(ObjectMapper mapper, OkHttpClient client, HttpUrl baseUrl,
+      int maxConcurrentRequests, MetricRegistry metricRegistry) {
+    this(mapper, client, baseUrl, maxConcurrentRequests, metricRegistry, DEFAULT_MAX_RETRIES,
+        DEFAULT_INITIAL_BACKOFF);
+  }
+
+  public AsyncKeywhizClient(ObjectMapper mapper, OkHttpClient client, HttpUrl baseUrl,
+      int maxConcurrentRequests, MetricRegistry metricRegistry, int maxRetries,
+      Duration initialBackoff) {
+    checkArgument(maxConcurrentRequests > 0, "maxConcurrentRequests must be positive");
+    checkArgument(maxRetries >= 0, "maxRetries must not be negative");
+    this.mapper = checkNotNull(mapper);
+    this.baseUrl = checkNotNull(baseUrl);
+    this.metricRegistry = checkNotNull(metricRegistry);
+    this.retries = metricRegistry.meter(MetricRegistry.name(AsyncKeywhizClient.class, "retries"));
+    this.maxRetries = maxRetries;
+    this.initialBackoff = checkNotNull(initialBackoff);
+
+    // Every request goes to the same host, so both limits are the same. Derived clients share
+    // the connection pool and cookie jar of the original.
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(maxConcurrentRequests);
+    dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+    this.client = checkNotNull(client).newBuilder()
+        .dispatcher(dispatcher)
+        .build();
+  }
+
+  public CompletableFuture<SecretDetailResponse> createSecret(String name, String owner,
+      String description, byte[] content, ImmutableMap<String, String> metadata, long expiry) {
+    checkArgument(!name.isEmpty());
+    checkArgument(content.length > 0, "Content must not be empty");
+
+    CreateSecretRequestV2 request = CreateSecretRequestV2.builder()
+        .name(name)
+        .owner(owner)
+        .description(description)
+        .content(Base64.getEncoder().encodeToString(content))
+        .metadata(metadata)
+        .expiry(expiry)
+        .build();
+    return post("createSecret", baseUrl.resolve("/admin/secrets"), request,
+        SecretDetailResponse.class);
+  }
+
+  public CompletableFuture<GroupDetailResponse> createGroup(String name, String description,
+      ImmutableMap<String, String> metadata) {
+    checkArgument(!name.isEmpty());
+    CreateGroupRequestV2 request = CreateGroupRequestV2.builder()
+        .name(name)
+        .description(description)
+        .metadata(metadata)
+        .build();
+    return post("createGroup", baseUrl.resolve("/admin/groups"), request,
+        GroupDetailResponse.class);
+  }
+
+  public CompletableFuture<ClientDetailResponse> createClient(String name, String description,
+      String spiffeId) {
+    checkArgument(!name.isEmpty());
+    CreateClientRequestV2 request = CreateClientRequestV2.builder()
+        .name(name)
+        .description(description)
+        .spiffeId(spiffeId)
+        .build();
+    return post("createClient", baseUrl.resolve("/admin/clients"), request,
+        ClientDetailResponse.class);
+  }
+
+  public CompletableFuture<SecretDetailResponse> secretDetailsForId(long secretId) {
+    return get("secretDetailsForId", baseUrl.resolve(format("/admin/secrets/%d", secretId)),
+        SecretDetailResponse.class);
+  }
+
+  public CompletableFuture<SanitizedSecret> getSanitizedSecretByName(String name) {
+    checkArgument(!name.isEmpty());
+    return get("getSanitizedSecretByName",
+        baseUrl.resolve("/admin/secrets").newBuilder().addQueryParameter("name", name).build(),
+        SanitizedSecret.class);
+  }
+
+  public CompletableFuture<Group> getGroupByName(String name) {
+    checkArgument(!name.isEmpty());
+    return get("getGroupByName",
+        baseUrl.resolve("/admin/groups").newBuilder().addQueryParameter("name", name).build(),
+        Group.class);
+  }
+
+  public CompletableFuture<Client> getClientByName(String name) {
+    checkArgument(!name.isEmpty());
+    return get("getClientByName",
+        baseUrl.resolve("/admin/clients").newBuilder().addQueryParameter("name", name).build(),
+        Client.class);
+  }
+
+  public CompletableFuture<Void> deleteSecretWithId(long secretId) {
+    return delete("deleteSecretWithId", baseUrl.resolve(format("/admin/secrets/%d", secretId)));
+  }
+
+  public CompletableFuture<Void> grantSecretToGroupByIds(long secretId, long groupId) {
+    return put("grantSecretToGroupByIds",
+        baseUrl.resolve(format("/admin/memberships/secrets/%d/groups/%d", secretId, groupId)));
+  }
+
+  public CompletableFuture<Void> revokeSecretFromGroupByIds(long secretId, long groupId) {
+    return delete("revokeSecretFromGroupByIds",
+        baseUrl.resolve(format("/admin/memberships/secrets/%d/groups/%d", secretId, groupId)));
+  }
+
+  public CompletableFuture<Void> enrollClientInGroupByIds(long clientId, long groupId) {
+    return put("enrollClientInGroupByIds",
+        baseUrl.resolve(format("/admin/memberships/clients/%d/groups/%d", clientId, groupId)));
+  }
+
+  public CompletableFuture<Void> evictClientFromGroupByIds(long clientId, long groupId) {
+    return delete("evictClientFromGroupByIds",
+        baseUrl.resolve(format("/admin/memberships/clients/%d/groups/%d", clientId, groupId)));
+  }
+
+  /** Stops the dispatcher's threads once calls in flight have finished. */
+  @Override public void close() {
+    client.dispatcher().executorService().shutdown();
+  }
+
+  private <T> CompletableFuture<T> get(String operation, HttpUrl url, Class<T> type) {
+    Request request = new Request.Builder()
+        .url(url)
+        .get()
+        .build();
+    return call(operation, request, body -> mapper.readValue(body.byteStream(), type));
+  }
+
+  private <T> CompletableFuture<T> post(String operation, HttpUrl url, Object content,
+      Class<T> type) {
+    RequestBody body;
+    try {
+      body = RequestBody.create(JSON, mapper.writeValueAsBytes(content));
+    } catch (IOException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    Request request = new Request.Builder()
+        .url(url)
+        .post(body)
+        .addHeader(HttpHeaders.CONTENT_TYPE, JSON.toString())
+        .build();
+    return call(operation, request,
+        responseBody -> mapper.readValue(responseBody.byteStream(), type));
+  }
+
+  private CompletableFuture<Void> put(String operation, HttpUrl url) {
+    Request request = new Request.Builder()
+        .url(url)
+        .put(RequestBody.create(MediaType.parse("text/plain"), ""))
+        .build();
+    return call(operation, request, body -> null);
+  }
+
+  private CompletableFuture<Void> delete(String operation, HttpUrl url) {
+    Request request = new Request.Builder()
+        .url(url)
+        .delete()
+        .build();
+    return call(operation, request, body -> null);
+  }
+
+  private <T> CompletableFuture<T> call(String operation, Request request,
+      BodyReader<T> reader) {
+    Timer.Context timer =
+        metricRegistry.timer(MetricRegistry.name(AsyncKeywhizClient.class, operation)).time();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    send(request, reader, 0, result);
+    return result.whenComplete((value, failure) -> timer.stop());
+  }
+
+  private <T> void send(Request request, BodyReader<T> reader, int attempt,
+      CompletableFuture<T> result) {
+    client.newCall(request).enqueue(new Callback() {
+      @Override public void onFailure(Call call, IOException e) {
+        if (!retry(request, reader, attempt, result)) {
+          result.completeExceptionally(e);
+        }
+      }
+
+      @Override public void onResponse(Call call, Response response) {
+        try (ResponseBody body = response.body()) {
+          if (response.code() >= 500 && retry(request, reader, attempt, result)) {
+            return;
+          }
+          KeywhizClient.throwOnCommonError(response.code());
+          result.complete(reader.read(body));
+        } catch (IOException | RuntimeException e) {
+          result.completeExceptionally(e);
+        }
+      }
+    });
+  }
+
+  /** Schedules another attempt unless retries are exhausted, returning whether it did. */
+  private <T> boolean retry(Request request, BodyReader<T> reader, int attempt,
+      CompletableFuture<T> result) {
+    if (attempt >= maxRetries) {
+      return false;
+    }
+    retries.mark();
+    CompletableFuture.delayedExecutor(backoff(initialBackoff, attempt), TimeUnit.MILLISECONDS)
+        .execute(() -> send(request, reader, attempt + 1, result));
+    return true;
+  }
+
+  /**
+   * Exponential backoff with jitter: between half and all of {@code initial * 2^attempt}, so that
+   * calls which failed together don't all retry together.
+   */
+  @VisibleForTesting static long backoff(Duration initial, int attempt) {
+    long ceiling = initial.toMillis() << Math.min(attempt, 16);
+    return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+  }
+
+  private interface BodyReader<T> {
+    T read(ResponseBody body) throws IOException;
+  }
+}
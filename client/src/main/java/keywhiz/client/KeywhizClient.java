@@ -16,12 +16,15 @@
 
 package keywhiz.client;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.util.Base64;
 import java.util.List;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.HttpHeaders;
 import keywhiz.api.ClientDetailResponse;
@@ -43,6 +46,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.apache.http.HttpStatus;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -118,6 +122,18 @@ public class KeywhizClient {
     this.baseUrl = checkNotNull(baseUrl);
   }
 
+  /**
+   * Returns an asynchronous client for the same server which shares this client's connections
+   * and session, so it is authenticated once this client has logged in.
+   *
+   * @param maxConcurrentRequests number of requests the returned client sends at once; further
+   *                              requests are queued
+   * @param metricRegistry registry to record the latency of each kind of call in
+   */
+  public AsyncKeywhizClient async(int maxConcurrentRequests, MetricRegistry metricRegistry) {
+    return new AsyncKeywhizClient(mapper, client, baseUrl, maxConcurrentRequests, metricRegistry);
+  }
+
   /**
    * Login to the Keywhiz server.
    * <p>
@@ -128,30 +144,30 @@ public class KeywhizClient {
    * @throws IOException if a network IO error occurs
    */
   public void login(String username, char[] password) throws IOException {
-    httpPost(baseUrl.resolve("/admin/login"), LoginRequest.from(username, password));
+    httpPost(baseUrl.resolve("/admin/login"), LoginRequest.from(username, password)).close();
   }
 
   public List<Group> allGroups() throws IOException {
-    String response = httpGet(baseUrl.resolve("/admin/groups/"));
-    return mapper.readValue(response, new TypeReference<List<Group>>() {
+    ResponseBody response = httpGet(baseUrl.resolve("/admin/groups/"));
+    return readValue(response, new TypeReference<List<Group>>() {
     });
   }
 
   public GroupDetailResponse createGroup(String name, String description,
       ImmutableMap<String, String> metadata) throws IOException {
     checkArgument(!name.isEmpty());
-    String response = httpPost(baseUrl.resolve("/admin/groups"),
+    ResponseBody response = httpPost(baseUrl.resolve("/admin/groups"),
         CreateGroupRequestV2.builder()
             .name(name)
             .description(description)
             .metadata(metadata)
             .build());
-    return mapper.readValue(response, GroupDetailResponse.class);
+    return readValue(response, GroupDetailResponse.class);
   }
 
   public GroupDetailResponse groupDetailsForId(long groupId) throws IOException {
-    String response = httpGet(baseUrl.resolve(format("/admin/groups/%d", groupId)));
-    return mapper.readValue(response, GroupDetailResponse.class);
+    ResponseBody response = httpGet(baseUrl.resolve(format("/admin/groups/%d", groupId)));
+    return readValue(response, GroupDetailResponse.class);
   }
 
   public void deleteGroupWithId(long groupId) throws IOException {
@@ -159,16 +175,38 @@ public class KeywhizClient {
   }
 
   public List<SanitizedSecret> allSecrets() throws IOException {
-    String response = httpGet(baseUrl.resolve("/admin/secrets?nameOnly=1"));
-    return mapper.readValue(response, new TypeReference<List<SanitizedSecret>>() {
+    ResponseBody response = httpGet(baseUrl.resolve("/admin/secrets?nameOnly=1"));
+    return readValue(response, new TypeReference<List<SanitizedSecret>>() {
     });
   }
 
+  /**
+   * Returns an iterator over all secrets which parses each secret as it is read from the
+   * response, so the whole listing is never held in memory. The iterator must be closed to release
+   * the connection.
+   */
+  public MappingIterator<SanitizedSecret> iterateSecrets() throws IOException {
+    ResponseBody response = httpGet(baseUrl.resolve("/admin/secrets?nameOnly=1"));
+    try {
+      return mapper.readerFor(SanitizedSecret.class).readValues(response.byteStream());
+    } catch (IOException | RuntimeException e) {
+      response.close();
+      throw e;
+    }
+  }
+
+  /** Calls {@code consumer} with each secret as it is read from the response. */
+  public void forEachSecret(Consumer<? super SanitizedSecret> consumer) throws IOException {
+    try (MappingIterator<SanitizedSecret> secrets = iterateSecrets()) {
+      secrets.forEachRemaining(consumer);
+    }
+  }
+
   public List<SanitizedSecret> allSecretsBatched(int idx, int num, boolean newestFirst)
       throws IOException {
-    String response = httpGet(baseUrl.resolve(
+    ResponseBody response = httpGet(baseUrl.resolve(
         String.format("/admin/secrets?idx=%d&num=%d&newestFirst=%s", idx, num, newestFirst)));
-    return mapper.readValue(response, new TypeReference<List<SanitizedSecret>>() {
+    return readValue(response, new TypeReference<List<SanitizedSecret>>() {
     });
   }
 
@@ -210,8 +248,8 @@ public class KeywhizClient {
             .metadata(metadata)
             .expiry(expiry)
             .build();
-    String response = httpPost(baseUrl.resolve("/admin/secrets"), request);
-    return mapper.readValue(response, SecretDetailResponse.class);
+    ResponseBody response = httpPost(baseUrl.resolve("/admin/secrets"), request);
+    return readValue(response, SecretDetailResponse.class);
   }
 
   public SecretDetailResponse partialUpdateSecret(
@@ -221,8 +259,8 @@ public class KeywhizClient {
         format(
             "/admin/secrets/%s/partialupdate",
             secretName));
-    String response = httpPost(url, request);
-    return mapper.readValue(response, SecretDetailResponse.class);
+    ResponseBody response = httpPost(url, request);
+    return readValue(response, SecretDetailResponse.class);
   }
 
   public SecretDetailResponse updateSecret(String name, boolean descriptionPresent,
@@ -242,32 +280,33 @@ public class KeywhizClient {
         .expiryPresent(expiryPresent)
         .expiry(expiry)
         .build();
-    String response =
+    ResponseBody response =
         httpPost(baseUrl.resolve(format("/admin/secrets/%s/partialupdate", name)), request);
-    return mapper.readValue(response, SecretDetailResponse.class);
+    return readValue(response, SecretDetailResponse.class);
   }
 
   public SecretDetailResponse secretDetailsForId(long secretId) throws IOException {
-    String response = httpGet(baseUrl.resolve(format("/admin/secrets/%d", secretId)));
-    return mapper.readValue(response, SecretDetailResponse.class);
+    ResponseBody response = httpGet(baseUrl.resolve(format("/admin/secrets/%d", secretId)));
+    return readValue(response, SecretDetailResponse.class);
   }
 
   public List<SanitizedSecret> listSecretVersions(String name, int idx, int numVersions)
       throws IOException {
-    String response = httpGet(baseUrl.resolve(
+    ResponseBody response = httpGet(baseUrl.resolve(
         format("/admin/secrets/versions/%s?versionIdx=%d&numVersions=%d", name, idx, numVersions)));
-    return mapper.readValue(response, new TypeReference<List<SanitizedSecret>>() {
+    return readValue(response, new TypeReference<List<SanitizedSecret>>() {
     });
   }
 
   public SecretDetailResponse rollbackSecret(String name, long version) throws IOException {
-    String response =
+    ResponseBody response =
         httpPost(baseUrl.resolve(format("/admin/secrets/rollback/%s/%d", name, version)), null);
-    return mapper.readValue(response, SecretDetailResponse.class);
+    return readValue(response, SecretDetailResponse.class);
   }
 
   public void renameSecret(long secretId, String newName) throws IOException {
-    httpPost(baseUrl.resolve(format("/admin/secrets/rename/%d/%s", secretId, newName)), null);
+    httpPost(baseUrl.resolve(format("/admin/secrets/rename/%d/%s", secretId, newName)), null)
+        .close();
   }
 
   public void deleteSecretWithId(long secretId) throws IOException {
@@ -303,25 +342,25 @@ public class KeywhizClient {
   }
 
   public List<Client> allClients() throws IOException {
-    String httpResponse = httpGet(baseUrl.resolve("/admin/clients/"));
-    return mapper.readValue(httpResponse, new TypeReference<List<Client>>() {
+    ResponseBody httpResponse = httpGet(baseUrl.resolve("/admin/clients/"));
+    return readValue(httpResponse, new TypeReference<List<Client>>() {
     });
   }
 
   public ClientDetailResponse createClient(String name, String description, String spiffeId) throws IOException {
     checkArgument(!name.isEmpty());
-    String response = httpPost(baseUrl.resolve("/admin/clients"),
+    ResponseBody response = httpPost(baseUrl.resolve("/admin/clients"),
         CreateClientRequestV2.builder()
             .name(name)
             .description(description)
             .spiffeId(spiffeId)
             .build());
-    return mapper.readValue(response, ClientDetailResponse.class);
+    return readValue(response, ClientDetailResponse.class);
   }
 
   public ClientDetailResponse clientDetailsForId(long clientId) throws IOException {
-    String response = httpGet(baseUrl.resolve(format("/admin/clients/%d", clientId)));
-    return mapper.readValue(response, ClientDetailResponse.class);
+    ResponseBody response = httpGet(baseUrl.resolve(format("/admin/clients/%d", clientId)));
+    return readValue(response, ClientDetailResponse.class);
   }
 
   public void deleteClientWithId(long clientId) throws IOException {
@@ -348,52 +387,54 @@ public class KeywhizClient {
 
   public Client getClientByName(String name) throws IOException {
     checkArgument(!name.isEmpty());
-    String response = httpGet(baseUrl.resolve("/admin/clients").newBuilder()
+    ResponseBody response = httpGet(baseUrl.resolve("/admin/clients").newBuilder()
         .addQueryParameter("name", name)
         .build());
-    return mapper.readValue(response, Client.class);
+    return readValue(response, Client.class);
   }
 
   public Group getGroupByName(String name) throws IOException {
     checkArgument(!name.isEmpty());
-    String response = httpGet(baseUrl.resolve("/admin/groups").newBuilder()
+    ResponseBody response = httpGet(baseUrl.resolve("/admin/groups").newBuilder()
         .addQueryParameter("name", name)
         .build());
-    return mapper.readValue(response, Group.class);
+    return readValue(response, Group.class);
   }
 
   public SanitizedSecret getSanitizedSecretByName(String name) throws IOException {
     checkArgument(!name.isEmpty());
-    String response =
+    ResponseBody response =
         httpGet(baseUrl.resolve("/admin/secrets").newBuilder().addQueryParameter("name", name)
             .build());
-    return mapper.readValue(response, SanitizedSecret.class);
+    return readValue(response, SanitizedSecret.class);
   }
 
   @Nullable
   public List<SecretSeries> getDeletedSecretsByName(String name) throws IOException {
     checkArgument(!name.isEmpty());
-    String response =
+    ResponseBody response =
         httpGet(baseUrl.newBuilder()
             .addPathSegment("admin")
             .addPathSegment("secrets")
             .addPathSegment("deleted")
             .addPathSegment(name)
             .build());
-    return mapper.readValue(response, new TypeReference<>() {
+    return readValue(response, new TypeReference<List<SecretSeries>>() {
     });
   }
 
   public boolean isLoggedIn() throws IOException {
     HttpUrl url = baseUrl.resolve("/admin/me");
     Call call = client.newCall(new Request.Builder().get().url(url).build());
-    return call.execute().code() != HttpStatus.SC_UNAUTHORIZED;
+    try (Response response = call.execute()) {
+      return response.code() != HttpStatus.SC_UNAUTHORIZED;
+    }
   }
 
   /**
    * Maps some of the common HTTP errors to the corresponding exceptions.
    */
-  private void throwOnCommonError(int status) throws IOException {
+  static void throwOnCommonError(int status) throws IOException {
     switch (status) {
       case HttpStatus.SC_BAD_REQUEST:
         throw new MalformedRequestException();
@@ -415,7 +456,12 @@ public class KeywhizClient {
     }
   }
 
-  private String makeCall(Request request) throws IOException {
+  /**
+   * Returns the body of a successful response, which the caller must close. Bodies are read as
+   * streams rather than buffered into strings, and reading one to the end (or closing it) returns
+   * the connection to the pool.
+   */
+  private ResponseBody makeCall(Request request) throws IOException {
     Response response = client.newCall(request).execute();
     try {
       throwOnCommonError(response.code());
@@ -423,10 +469,22 @@ public class KeywhizClient {
       response.body().close();
       throw e;
     }
-    return response.body().string();
+    return response.body();
   }
 
-  private String httpGet(HttpUrl url) throws IOException {
+  private <T> T readValue(ResponseBody response, Class<T> type) throws IOException {
+    try (ResponseBody body = response) {
+      return mapper.readValue(body.byteStream(), type);
+    }
+  }
+
+  private <T> T readValue(ResponseBody response, TypeReference<T> type) throws IOException {
+    try (ResponseBody body = response) {
+      return mapper.readValue(body.byteStream(), type);
+    }
+  }
+
+  private ResponseBody httpGet(HttpUrl url) throws IOException {
     Request request = new Request.Builder()
         .url(url)
         .get()
@@ -435,8 +493,8 @@ public class KeywhizClient {
     return makeCall(request);
   }
 
-  private String httpPost(HttpUrl url, Object content) throws IOException {
-    RequestBody body = RequestBody.create(JSON, mapper.writeValueAsString(content));
+  private ResponseBody httpPost(HttpUrl url, Object content) throws IOException {
+    RequestBody body = RequestBody.create(JSON, mapper.writeValueAsBytes(content));
     Request request = new Request.Builder()
         .url(url)
         .post(body)
@@ -446,27 +504,27 @@ public class KeywhizClient {
     return makeCall(request);
   }
 
-  private String httpPut(HttpUrl url) throws IOException {
+  private void httpPut(HttpUrl url) throws IOException {
     Request request = new Request.Builder()
         .url(url)
         .put(RequestBody.create(MediaType.parse("text/plain"), ""))
         .build();
 
-    return makeCall(request);
+    makeCall(request).close();
   }
 
-  private String httpDelete(HttpUrl url) throws IOException {
+  private void httpDelete(HttpUrl url) throws IOException {
     Request request = new Request.Builder()
         .url(url)
         .delete()
         .build();
 
-    return makeCall(request);
+    makeCall(request).close();
   }
 
-  private String httpDeleteQuietly(HttpUrl url) {
+  private void httpDeleteQuietly(HttpUrl url) {
     try {
-      return httpDelete(url);
+      httpDelete(url);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
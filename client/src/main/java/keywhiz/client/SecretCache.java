@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2015 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package keywhiz.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import keywhiz.api.SecretDeliveryResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Local cache of delivered secrets, for services which would otherwise fetch every secret again
+ * on each start and poll.
+ * <p>
+ * Secrets are kept in a file, encrypted with AES-GCM under a key supplied by the service and
+ * authenticated together with their name and checksum. The file is memory-mapped when the cache
+ * is opened and secrets are only decrypted when read. Each change rewrites the file and atomically
+ * replaces the previous one.
+ * <p>
+ * Once started, the cache revalidates every {@code refreshInterval} with a single request for the
+ * checksums of all of the client's secrets. It then fetches only the secrets whose checksum
+ * changed and drops those the client can no longer read. A secret is served from the cache for up
+ * to {@code maxStaleness} after it was last validated, so reads keep working while the server is
+ * unreachable. After that the secret is fetched again, and reads fail if the server still can't be
+ * reached.
+ */
+public class SecretCache implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(SecretCache.class);
+
+  private static final int MAGIC = 0x4b574331; // "KWC1"
+  private static final String CIPHER = "AES/GCM/NoPadding";
+  private static final int NONCE_LENGTH = 12;
+  private static final int TAG_BITS = 128;
+
+  /** Where the cache gets secrets from; implemented by {@link SecretDeliveryClient}. */
+  public interface SecretSource {
+    SecretDeliveryResponse secret(String name) throws IOException;
+
+    Map<String, String> checksums() throws IOException;
+  }
+
+  private final SecretSource source;
+  private final ObjectMapper mapper;
+  private final SecretKey key;
+  private final Path file;
+  private final Duration refreshInterval;
+  private final Duration maxStaleness;
+  private final Clock clock;
+  private final SecureRandom random = new SecureRandom();
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  // guarded by this
+  private ScheduledExecutorService executor;
+
+  public SecretCache(SecretSource source, ObjectMapper mapper, SecretKey key, Path file,
+      Duration refreshInterval, Duration maxStaleness) throws IOException {
+    this(source, mapper, key, file, refreshInterval, maxStaleness, Clock.systemUTC());
+  }
+
+  @VisibleForTesting SecretCache(SecretSource source, ObjectMapper mapper, SecretKey key,
+      Path file, Duration refreshInterval, Duration maxStaleness, Clock clock) throws IOException {
+    checkArgument(key.getAlgorithm().equals("AES"), "key must be an AES key");
+    checkArgument(!refreshInterval.isNegative() && !refreshInterval.isZero(),
+        "refreshInterval must be positive");
+    checkArgument(maxStaleness.compareTo(refreshInterval) >= 0,
+        "maxStaleness must be at least refreshInterval");
+    this.source = checkNotNull(source);
+    this.mapper = checkNotNull(mapper);
+    this.key = key;
+    this.file = checkNotNull(file);
+    this.refreshInterval = refreshInterval;
+    this.maxStaleness = maxStaleness;
+    this.clock = checkNotNull(clock);
+    load();
+  }
+
+  /** Starts revalidating the cached secrets in the background. */
+  public synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("secret-cache-revalidation")
+        .setDaemon(true)
+        .build());
+    executor.scheduleWithFixedDelay(this::revalidateQuietly, refreshInterval.toMillis(),
+        refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override public synchronized void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Returns the secret, from the cache if it was validated within the max staleness and otherwise
+   * from the server.
+   *
+   * @throws KeywhizClient.NotFoundException if the secret doesn't exist or the client can't read it
+   * @throws IOException if the secret had to be fetched and the server couldn't be reached
+   */
+  public SecretDeliveryResponse get(String name) throws IOException {
+    Entry entry = entries.get(name);
+    if (entry != null && !isStale(entry)) {
+      Optional<SecretDeliveryResponse> cached = decrypt(name, entry);
+      if (cached.isPresent()) {
+        return cached.get();
+      }
+    }
+
+    SecretDeliveryResponse secret;
+    try {
+      secret = source.secret(name);
+    } catch (KeywhizClient.NotFoundException e) {
+      if (entries.remove(name) != null) {
+        persist();
+      }
+      throw e;
+    }
+    entries.put(name, encrypt(name, secret));
+    persist();
+    return secret;
+  }
+
+  /**
+   * Revalidates every cached secret against the server's checksums, fetching those that changed
+   * and dropping those which are gone.
+   */
+  @VisibleForTesting void revalidate() throws IOException {
+    Map<String, String> checksums = source.checksums();
+    Instant now = clock.instant();
+
+    for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+      String name = cached.getKey();
+      Entry entry = cached.getValue();
+      String checksum = checksums.get(name);
+      if (checksum == null) {
+        entries.remove(name, entry);
+      } else if (checksum.equals(entry.checksum)) {
+        entries.replace(name, entry, entry.validatedAt(now));
+      } else {
+        try {
+          entries.put(name, encrypt(name, source.secret(name)));
+        } catch (KeywhizClient.NotFoundException e) {
+          entries.remove(name, entry);
+        } catch (IOException e) {
+          logger.warn("Unable to fetch changed secret {}, keeping the cached version", name, e);
+        }
+      }
+    }
+    persist();
+  }
+
+  private void revalidateQuietly() {
+    try {
+      revalidate();
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Unable to revalidate cached secrets", e);
+    }
+  }
+
+  private boolean isStale(Entry entry) {
+    return entry.validatedAt.plus(maxStaleness).isBefore(clock.instant());
+  }
+
+  private Entry encrypt(String name, SecretDeliveryResponse secret) throws IOException {
+    byte[] plaintext = mapper.writeValueAsBytes(secret);
+    byte[] nonce = new byte[NONCE_LENGTH];
+    random.nextBytes(nonce);
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+      cipher.updateAAD(associatedData(name, secret.getChecksum()));
+      ByteBuffer ciphertext = ByteBuffer.wrap(cipher.doFinal(plaintext));
+      return new Entry(secret.getChecksum(), clock.instant(), nonce, ciphertext);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Unable to encrypt cached secret", e);
+    } finally {
+      Arrays.fill(plaintext, (byte) 0);
+    }
+  }
+
+  /** Returns empty if the entry can't be decrypted, e.g. because the key was changed. */
+  private Optional<SecretDeliveryResponse> decrypt(String name, Entry entry) throws IOException {
+    byte[] plaintext = null;
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, entry.nonce));
+      cipher.updateAAD(associatedData(name, entry.checksum));
+      ByteBuffer output = ByteBuffer.allocate(cipher.getOutputSize(entry.ciphertext.remaining()));
+      cipher.doFinal(entry.ciphertext.duplicate(), output);
+      plaintext = output.array();
+      return Optional.of(mapper.readValue(plaintext, 0, output.position(),
+          SecretDeliveryResponse.class));
+    } catch (GeneralSecurityException e) {
+      logger.warn("Unable to decrypt cached secret {}, fetching it again", name);
+      return Optional.empty();
+    } finally {
+      if (plaintext != null) {
+        Arrays.fill(plaintext, (byte) 0);
+      }
+    }
+  }
+
+  private static byte[] associatedData(String name, String checksum) {
+    return (name + '\0' + checksum).getBytes(UTF_8);
+  }
+
+  /**
+   * File layout: magic, entry count, then for each entry its name, checksum, validation time in
+   * epoch millis, nonce and ciphertext. Strings are length-prefixed UTF-8.
+   */
+  private void load() throws IOException {
+    if (!Files.exists(file)) {
+      return;
+    }
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IllegalArgumentException("not a secret cache");
+      }
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        String name = readString(buffer);
+        String checksum = readString(buffer);
+        Instant validatedAt = Instant.ofEpochMilli(buffer.getLong());
+        byte[] nonce = new byte[NONCE_LENGTH];
+        buffer.get(nonce);
+        int length = buffer.getInt();
+        ByteBuffer ciphertext = buffer.slice().limit(length);
+        buffer.position(buffer.position() + length);
+        entries.put(name, new Entry(checksum, validatedAt, nonce, ciphertext));
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Ignoring unreadable secret cache {}", file, e);
+      entries.clear();
+    }
+  }
+
+  private synchronized void persist() throws IOException {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.deleteIfExists(temporary);
+    try (FileChannel channel =
+        FileChannel.open(temporary, Set.of(CREATE, WRITE, TRUNCATE_EXISTING), ownerOnly())) {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      Map<String, Entry> snapshot = Map.copyOf(entries);
+      out.writeInt(MAGIC);
+      out.writeInt(snapshot.size());
+      for (Map.Entry<String, Entry> cached : snapshot.entrySet()) {
+        Entry entry = cached.getValue();
+        writeString(out, cached.getKey());
+        writeString(out, entry.checksum);
+        out.writeLong(entry.validatedAt.toEpochMilli());
+        out.write(entry.nonce);
+        ByteBuffer ciphertext = entry.ciphertext.duplicate();
+        out.writeInt(ciphertext.remaining());
+        byte[] bytes = new byte[ciphertext.remaining()];
+        ciphertext.get(bytes);
+        out.write(bytes);
+      }
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+
+  private FileAttribute<?>[] ownerOnly() {
+    if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      return new FileAttribute<?>[0];
+    }
+    return new FileAttribute<?>[] {
+        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xffff];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+  }
+
+  private static class Entry {
+    final String checksum;
+    final Instant validatedAt;
+    final byte[] nonce;
+    /** Read-only view, possibly of the memory-mapped file. */
+    final ByteBuffer ciphertext;
+
+    Entry(String checksum, Instant validatedAt, byte[] nonce, ByteBuffer ciphertext) {
+      this.checksum = checksum;
+      this.validatedAt = validatedAt;
+      this.nonce = nonce;
+      this.ciphertext = ciphertext.asReadOnlyBuffer();
+    }
+
+    Entry validatedAt(Instant now) {
+      return new Entry(checksum, now, nonce, ciphertext);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package keywhiz.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.HttpHeaders;
+import io.dropwizard.jackson.Jackson;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import keywhiz.api.BatchSecretRequest;
+import keywhiz.api.PartialBatchSecretResponse;
+import keywhiz.api.RawSecretContentModule;
+import keywhiz.api.SecretDeliveryResponse;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toMap;
+import static keywhiz.api.RawSecretContentModule.APPLICATION_SMILE;
+
+/**
+ * Client for the secret delivery endpoints, used by services to fetch the secrets they have been
+ * granted. The {@link OkHttpClient} must present the service's client certificate.
+ */
+public class SecretDeliveryClient implements SecretCache.SecretSource {
+  private static final MediaType SMILE = MediaType.parse(APPLICATION_SMILE);
+
+  private final ObjectMapper mapper;
+  private final ObjectMapper smileMapper;
+  private final OkHttpClient client;
+  private final HttpUrl baseUrl;
+  private final boolean smile;
+
+  public SecretDeliveryClient(ObjectMapper mapper, OkHttpClient client, HttpUrl baseUrl) {
+    this(mapper, client, baseUrl, false);
+  }
+
+  /**
+   * @param smile whether to ask for responses in Smile, a binary form of JSON that carries secret
+   *              content as raw bytes rather than base64. Servers that don't support it answer in
+   *              JSON, which is read as usual.
+   */
+  public SecretDeliveryClient(ObjectMapper mapper, OkHttpClient client, HttpUrl baseUrl,
+      boolean smile) {
+    this.mapper = checkNotNull(mapper);
+    this.client = checkNotNull(client);
+    this.baseUrl = checkNotNull(baseUrl);
+    this.smile = smile;
+    this.smileMapper = Jackson.newObjectMapper(new SmileFactory())
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .registerModule(new RawSecretContentModule());
+  }
+
+  /** Returns the secret, including its content. */
+  @Override public SecretDeliveryResponse secret(String name) throws IOException {
+    checkArgument(!name.isEmpty());
+    HttpUrl url = baseUrl.newBuilder()
+        .addPathSegment("secret")
+        .addPathSegment(name)
+        .build();
+    return get(url, new TypeReference<SecretDeliveryResponse>() {});
+  }
+
+  /** Returns every secret the client has access to, without their contents. */
+  public List<SecretDeliveryResponse> secrets() throws IOException {
+    return get(baseUrl.resolve("/secrets"), new TypeReference<List<SecretDeliveryResponse>>() {});
+  }
+
+  /** Returns the named secrets, including their contents, failing if any can't be returned. */
+  public List<SecretDeliveryResponse> secrets(List<String> names) throws IOException {
+    return execute(batchRequest("/batchsecret", names),
+        new TypeReference<List<SecretDeliveryResponse>>() {});
+  }
+
+  /**
+   * Returns those of the named secrets the client has access to, including their contents, and
+   * the names of those that are forbidden or missing.
+   */
+  public PartialBatchSecretResponse partialSecrets(List<String> names) throws IOException {
+    return execute(batchRequest("/batchsecret/partial", names),
+        new TypeReference<PartialBatchSecretResponse>() {});
+  }
+
+  /** Returns the checksum of every secret the client has access to, by name. */
+  @Override public Map<String, String> checksums() throws IOException {
+    return secrets().stream()
+        .collect(toMap(SecretDeliveryResponse::getName, SecretDeliveryResponse::getChecksum));
+  }
+
+  private <T> T get(HttpUrl url, TypeReference<T> type) throws IOException {
+    return execute(newRequest(url).get().build(), type);
+  }
+
+  private Request batchRequest(String path, List<String> names) throws IOException {
+    checkArgument(!names.isEmpty());
+    BatchSecretRequest body = BatchSecretRequest.forSecrets(ImmutableList.copyOf(names));
+    return newRequest(baseUrl.resolve(path))
+        .post(RequestBody.create(KeywhizClient.JSON, mapper.writeValueAsBytes(body)))
+        .build();
+  }
+
+  private Request.Builder newRequest(HttpUrl url) {
+    Request.Builder request = new Request.Builder().url(url);
+    if (smile) {
+      request.header(HttpHeaders.ACCEPT, APPLICATION_SMILE + ", application/json;q=0.5");
+    }
+    return request;
+  }
+
+  private <T> T execute(Request request, TypeReference<T> type) throws IOException {
+    try (Response response = client.newCall(request).execute()) {
+      KeywhizClient.throwOnCommonError(response.code());
+      ResponseBody body = response.body();
+      MediaType contentType = body.contentType();
+      boolean isSmile = contentType != null
+          && contentType.type().equals(SMILE.type())
+          && contentType.subtype().equals(SMILE.subtype());
+      return (isSmile ? smileMapper : mapper).readValue(body.byteStream(), type);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package keywhiz.client;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncKeywhizClientTest {
+  private static final HttpUrl BASE_URL = HttpUrl.parse("https://localhost:4444");
+
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private final ScriptedResponses responses = new ScriptedResponses();
+  private final AsyncKeywhizClient client = new AsyncKeywhizClient(new ObjectMapper(),
+      new OkHttpClient.Builder().addInterceptor(responses).build(), BASE_URL, 2, metricRegistry, 2,
+      Duration.ofMillis(1));
+
+  @After public void tearDown() {
+    client.close();
+  }
+
+  @Test public void retriesServerErrors() throws Exception {
+    responses.add(503, 502, 200);
+
+    client.grantSecretToGroupByIds(1, 2).get(10, TimeUnit.SECONDS);
+
+    assertEquals(3, responses.requests);
+    assertEquals(2, retries());
+    assertEquals(1, metricRegistry.timer(
+        MetricRegistry.name(AsyncKeywhizClient.class, "grantSecretToGroupByIds")).getCount());
+  }
+
+  @Test public void retriesConnectionFailures() throws Exception {
+    responses.add(-1, 200);
+
+    client.deleteSecretWithId(1).get(10, TimeUnit.SECONDS);
+
+    assertEquals(2, responses.requests);
+    assertEquals(1, retries());
+  }
+
+  @Test public void failsOnceRetriesAreExhausted() throws Exception {
+    responses.add(503, 503, 503);
+
+    try {
+      client.deleteSecretWithId(1).get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    assertEquals(3, responses.requests);
+  }
+
+  @Test public void doesNotRetryClientErrors() throws Exception {
+    responses.add(404);
+
+    try {
+      client.deleteSecretWithId(1).get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof KeywhizClient.NotFoundException);
+    }
+    assertEquals(1, responses.requests);
+    assertEquals(0, retries());
+  }
+
+  @Test public void backoffGrowsExponentiallyWithJitter() {
+    Duration initial = Duration.ofMillis(100);
+    for (int attempt = 0; attempt < 5; attempt++) {
+      long ceiling = 100L << attempt;
+      long backoff = AsyncKeywhizClient.backoff(initial, attempt);
+      assertTrue(backoff >= ceiling / 2 && backoff <= ceiling);
+    }
+  }
+
+  private long retries() {
+    return metricRegistry.meter(MetricRegistry.name(AsyncKeywhizClient.class, "retries"))
+        .getCount();
+  }
+
+  /** Answers requests with the given statuses in turn, where -1 fails the connection. */
+  private static class ScriptedResponses implements Interceptor {
+    private final Deque<Integer> statuses = new ArrayDeque<>();
+    volatile int requests = 0;
+
+    synchronized void add(Integer... statuses) {
+      this.statuses.addAll(Arrays.asList(statuses));
+    }
+
+    @Override public Response intercept(Chain chain) throws IOException {
+      int status;
+      synchronized (this) {
+        requests++;
+        status = statuses.remove();
+      }
+      if (status < 0) {
+        throw new IOException("Connection reset");
+      }
+      return new Response.Builder()
+          .request(chain.request())
+          .protocol(Protocol.HTTP_1_1)
+          .code(status)
+          .message("")
+          .body(ResponseBody.create(MediaType.parse("text/plain"), ""))
+          .build();
+    }
+  }
+}
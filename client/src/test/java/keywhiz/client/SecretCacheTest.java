@@ -0,0 +1,199 @@
+package keywhiz.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.jackson.Jackson;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import keywhiz.api.ApiDate;
+import keywhiz.api.SecretDeliveryResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class SecretCacheTest {
+  private static final Duration REFRESH = Duration.ofMinutes(1);
+  private static final Duration MAX_STALENESS = Duration.ofHours(1);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final ObjectMapper mapper = Jackson.newObjectMapper();
+  private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+  private final FakeSource source = new FakeSource();
+  private final MutableClock clock = new MutableClock(Instant.parse("2020-01-01T00:00:00Z"));
+
+  @Test public void servesRepeatedReadsFromTheCache() throws Exception {
+    source.put("db-password", "hunter2");
+    SecretCache cache = open();
+
+    assertEquals("hunter2", content(cache.get("db-password")));
+    assertEquals("hunter2", content(cache.get("db-password")));
+    assertEquals(1, source.fetches);
+  }
+
+  @Test public void survivesRestartsWithoutTheServer() throws Exception {
+    source.put("db-password", "hunter2");
+    open().get("db-password");
+
+    source.available = false;
+    assertEquals("hunter2", content(open().get("db-password")));
+  }
+
+  @Test public void encryptsSecretsAtRest() throws Exception {
+    source.put("db-password", "hunter2");
+    open().get("db-password");
+
+    String file = new String(Files.readAllBytes(cacheFile()), UTF_8);
+    assertFalse(file.contains("hunter2"));
+    assertFalse(file.contains(Base64.getEncoder().encodeToString("hunter2".getBytes(UTF_8))));
+  }
+
+  @Test public void refetchesWhenTheKeyChanges() throws Exception {
+    source.put("db-password", "hunter2");
+    open().get("db-password");
+
+    SecretCache cache = new SecretCache(source, mapper, new SecretKeySpec(new byte[16], "AES"),
+        cacheFile(), REFRESH, MAX_STALENESS, clock);
+    assertEquals("hunter2", content(cache.get("db-password")));
+    assertEquals(2, source.fetches);
+  }
+
+  @Test public void revalidationOnlyFetchesChangedSecrets() throws Exception {
+    source.put("unchanged", "a");
+    source.put("changed", "b");
+    source.put("revoked", "c");
+    SecretCache cache = open();
+    cache.get("unchanged");
+    cache.get("changed");
+    cache.get("revoked");
+
+    source.put("changed", "b2");
+    source.secrets.remove("revoked");
+    cache.revalidate();
+
+    assertEquals(4, source.fetches);
+    source.available = false;
+    assertEquals("a", content(cache.get("unchanged")));
+    assertEquals("b2", content(cache.get("changed")));
+    try {
+      cache.get("revoked");
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  @Test public void servesStaleSecretsOnlyWithinTheMaxStaleness() throws Exception {
+    source.put("db-password", "hunter2");
+    SecretCache cache = open();
+    cache.get("db-password");
+    source.available = false;
+
+    clock.instant = clock.instant.plus(MAX_STALENESS);
+    assertEquals("hunter2", content(cache.get("db-password")));
+
+    clock.instant = clock.instant.plusSeconds(1);
+    try {
+      cache.get("db-password");
+      fail();
+    } catch (IOException expected) {
+    }
+  }
+
+  @Test public void revalidationExtendsTheStalenessWindow() throws Exception {
+    source.put("db-password", "hunter2");
+    SecretCache cache = open();
+    cache.get("db-password");
+
+    clock.instant = clock.instant.plus(MAX_STALENESS);
+    cache.revalidate();
+    source.available = false;
+    clock.instant = clock.instant.plus(MAX_STALENESS);
+
+    assertEquals("hunter2", content(cache.get("db-password")));
+    assertEquals(1, source.fetches);
+  }
+
+  private SecretCache open() throws IOException {
+    return new SecretCache(source, mapper, key, cacheFile(), REFRESH, MAX_STALENESS, clock);
+  }
+
+  private Path cacheFile() {
+    return temporaryFolder.getRoot().toPath().resolve("secrets.cache");
+  }
+
+  private static String content(SecretDeliveryResponse secret) {
+    return new String(Base64.getDecoder().decode(secret.getSecret()), UTF_8);
+  }
+
+  private static class FakeSource implements SecretCache.SecretSource {
+    final Map<String, SecretDeliveryResponse> secrets = new HashMap<>();
+    boolean available = true;
+    int fetches = 0;
+
+    void put(String name, String content) {
+      String encoded = Base64.getEncoder().encodeToString(content.getBytes(UTF_8));
+      String checksum = Integer.toHexString(content.hashCode());
+      secrets.put(name, new SecretDeliveryResponse(name, encoded, content.length(), checksum,
+          ApiDate.now(), ApiDate.now(), ImmutableMap.of()));
+    }
+
+    @Override public SecretDeliveryResponse secret(String name) throws IOException {
+      checkAvailable();
+      fetches++;
+      SecretDeliveryResponse secret = secrets.get(name);
+      if (secret == null) {
+        throw new KeywhizClient.NotFoundException();
+      }
+      return secret;
+    }
+
+    @Override public Map<String, String> checksums() throws IOException {
+      checkAvailable();
+      Map<String, String> checksums = new HashMap<>();
+      secrets.forEach((name, secret) -> checksums.put(name, secret.getChecksum()));
+      return checksums;
+    }
+
+    private void checkAvailable() throws IOException {
+      if (!available) {
+        throw new IOException("Connection refused");
+      }
+    }
+  }
+
+  private static class MutableClock extends Clock {
+    Instant instant;
+
+    MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    @Override public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public Instant instant() {
+      return instant;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 Square, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package keywhiz.hkdf;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Throughput of a single key derivation, as done by the server for every secret it encrypts or
+ * decrypts. {@code perCallMac} is the previous implementation, which created and initialized a Mac
+ * and allocated intermediate buffers on every call.
+ *
+ * Run with the gc profiler to also get bytes allocated per derivation (gc.alloc.rate.norm):
+ * <pre>
+ * mvn -pl hkdf -P benchmarks test-compile exec:exec -Djmh.args="-prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HkdfBenchmark {
+  private static final int BATCH_SIZE = 64;
+
+  @Param({"16", "32", "64"})
+  int outputLength;
+
+  private Hkdf hkdf;
+  private SecretKey key;
+  private byte[] info;
+  private List<byte[]> batchInfos;
+  private byte[] output;
+  private byte[] batchOutput;
+
+  @Setup(Level.Trial) public void setUp() {
+    hkdf = Hkdf.usingDefaults();
+    key = new SecretKeySpec(new byte[32], Hash.SHA256.getAlgorithm());
+    info = "Database_Password.gpg".getBytes(UTF_8);
+    batchInfos = new ArrayList<>();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      batchInfos.add(("secret-" + i).getBytes(UTF_8));
+    }
+    output = new byte[outputLength];
+    batchOutput = new byte[BATCH_SIZE * outputLength];
+  }
+
+  @Benchmark public byte[] perCallMac() throws Exception {
+    int hashLen = Hash.SHA256.getByteLength();
+    int n = (outputLength + hashLen - 1) / hashLen;
+    byte[] hashRound = new byte[0];
+    ByteBuffer generatedBytes = ByteBuffer.allocate(n * hashLen);
+    Mac mac = Mac.getInstance(Hash.SHA256.getAlgorithm());
+    mac.init(key);
+    for (int roundNum = 1; roundNum <= n; roundNum++) {
+      mac.reset();
+      ByteBuffer t = ByteBuffer.allocate(hashRound.length + info.length + 1);
+      t.put(hashRound);
+      t.put(info);
+      t.put((byte) roundNum);
+      hashRound = mac.doFinal(t.array());
+      generatedBytes.put(hashRound);
+    }
+    byte[] result = new byte[outputLength];
+    generatedBytes.rewind();
+    generatedBytes.get(result, 0, outputLength);
+    return result;
+  }
+
+  @Benchmark public byte[] expand() {
+    return hkdf.expand(key, info, outputLength);
+  }
+
+  @Benchmark public byte[] expandIntoBuffer() {
+    hkdf.expand(key, info, output, 0, outputLength);
+    return output;
+  }
+
+  @Benchmark @OperationsPerInvocation(BATCH_SIZE) public byte[] expandBatch() {
+    hkdf.expand(key, batchInfos, outputLength, batchOutput, 0);
+    return batchOutput;
+  }
+}
@@ -15,13 +15,15 @@
  */
 package keywhiz.hkdf;
 
-import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 
 import static java.util.Objects.requireNonNull;
@@ -46,12 +48,17 @@ import static java.util.Objects.requireNonNull;
  * HKDF is a generic means for generating derived keys. In some cases, you may want to use it in a
  * different manner. Consult the RFC for security considerations, when to omit a salt, skipping the
  * extraction step, etc.
+ *
+ * Instances are thread-safe and meant to be reused: each thread keeps its own {@link Mac}, which
+ * is only re-initialized when it is used with a different key.
  */
 public class Hkdf {
   private static Hash DEFAULT_HASH = Hash.SHA256;
+  private static final byte[] EMPTY = new byte[0];
 
   private final Hash hash;
   private final Provider provider;
+  private final ThreadLocal<MacState> macs = ThreadLocal.withInitial(MacState::new);
 
   private Hkdf(Hash hash, Provider provider) {
     this.hash = hash;
@@ -94,7 +101,7 @@ public class Hkdf {
       salt = new SecretKeySpec(new byte[hash.getByteLength()], hash.getAlgorithm());
     }
 
-    Mac mac = initMac(salt);
+    Mac mac = mac(salt);
     byte[] keyBytes = mac.doFinal(ikm);
     return new SecretKeySpec(keyBytes, hash.getAlgorithm());
   }
@@ -109,54 +116,106 @@ public class Hkdf {
    */
   public byte[] expand(SecretKey key, byte[] info, int outputLength) {
     requireNonNull(key, "key must not be null");
-    if (outputLength < 1) {
-      throw new IllegalArgumentException("outputLength must be positive");
+    checkOutputLength(outputLength);
+    byte[] result = new byte[outputLength];
+    expand(key, info, result, 0, outputLength);
+    return result;
+  }
+
+  /**
+   * HKDF-Expand(PRK, info, L) -&gt; OKM, writing the output keying material into a caller-provided
+   * buffer instead of allocating one.
+   *
+   * @param key a pseudorandom key of at least HashLen bytes (usually, the output from the extract step)
+   * @param info context and application specific information (can be empty)
+   * @param output buffer receiving the output keying material
+   * @param offset position in output of the first byte written
+   * @param outputLength length of output keying material in bytes (&lt;= 255*HashLen)
+   */
+  public void expand(SecretKey key, byte[] info, byte[] output, int offset, int outputLength) {
+    requireNonNull(key, "key must not be null");
+    checkOutputLength(outputLength);
+    checkBounds(output, offset, outputLength);
+    expand(mac(key), info == null ? EMPTY : info, output, offset, outputLength);
+  }
+
+  /**
+   * Expands the same key with each of several infos, as if by calling
+   * {@link #expand(SecretKey, byte[], int)} for each of them, but initializing the underlying
+   * {@link Mac} once.
+   *
+   * @param key a pseudorandom key of at least HashLen bytes (usually, the output from the extract step)
+   * @param infos context and application specific information for each output
+   * @param outputLength length of each output in bytes (&lt;= 255*HashLen)
+   * @param output buffer receiving the outputs back to back, in the order of infos
+   * @param offset position in output of the first byte written
+   */
+  public void expand(SecretKey key, List<byte[]> infos, int outputLength, byte[] output,
+      int offset) {
+    requireNonNull(key, "key must not be null");
+    requireNonNull(infos, "infos must not be null");
+    checkOutputLength(outputLength);
+    checkBounds(output, offset, Math.multiplyExact(infos.size(), outputLength));
+
+    Mac mac = mac(key);
+    for (byte[] info : infos) {
+      expand(mac, info == null ? EMPTY : info, output, offset, outputLength);
+      offset += outputLength;
     }
+  }
+
+  /*
+  The output OKM is calculated as follows:
+
+    N = ceil(L/HashLen)
+    T = T(1) | T(2) | T(3) | ... | T(N)
+    OKM = first L bytes of T
+
+  where:
+    T(0) = empty string (zero length)
+    T(1) = HMAC-Hash(PRK, T(0) | info | 0x01)
+    T(2) = HMAC-Hash(PRK, T(1) | info | 0x02)
+    T(3) = HMAC-Hash(PRK, T(2) | info | 0x03)
+    ...
+   */
+  private void expand(Mac mac, byte[] info, byte[] output, int offset, int outputLength) {
     int hashLen = hash.getByteLength();
-    if (outputLength > 255 * hashLen) {
-      throw new IllegalArgumentException("outputLength must be less than or equal to 255*HashLen");
-    }
+    byte[] block = macs.get().block;
+    try {
+      int written = 0;
+      for (int roundNum = 1; written < outputLength; roundNum++) {
+        if (roundNum > 1) {
+          mac.update(block, 0, hashLen);
+        }
+        mac.update(info);
+        mac.update((byte) roundNum);
+        mac.doFinal(block, 0);
 
-    if (info == null) {
-      info = new byte[0];
+        int length = Math.min(hashLen, outputLength - written);
+        System.arraycopy(block, 0, output, offset + written, length);
+        written += length;
+      }
+    } catch (ShortBufferException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      Arrays.fill(block, (byte) 0);
     }
+  }
 
-    /*
-    The output OKM is calculated as follows:
-
-      N = ceil(L/HashLen)
-      T = T(1) | T(2) | T(3) | ... | T(N)
-      OKM = first L bytes of T
-
-    where:
-      T(0) = empty string (zero length)
-      T(1) = HMAC-Hash(PRK, T(0) | info | 0x01)
-      T(2) = HMAC-Hash(PRK, T(1) | info | 0x02)
-      T(3) = HMAC-Hash(PRK, T(2) | info | 0x03)
-      ...
-     */
-    int n = (outputLength % hashLen == 0) ?
-        outputLength / hashLen :
-        (outputLength / hashLen) + 1;
-
-    byte[] hashRound = new byte[0];
-
-    ByteBuffer generatedBytes = ByteBuffer.allocate(Math.multiplyExact(n, hashLen));
-    Mac mac = initMac(key);
-    for (int roundNum = 1; roundNum <= n; roundNum++) {
-      mac.reset();
-      ByteBuffer t = ByteBuffer.allocate(hashRound.length + info.length + 1);
-      t.put(hashRound);
-      t.put(info);
-      t.put((byte)roundNum);
-      hashRound = mac.doFinal(t.array());
-      generatedBytes.put(hashRound);
+  private void checkOutputLength(int outputLength) {
+    if (outputLength < 1) {
+      throw new IllegalArgumentException("outputLength must be positive");
+    }
+    if (outputLength > 255 * hash.getByteLength()) {
+      throw new IllegalArgumentException("outputLength must be less than or equal to 255*HashLen");
     }
+  }
 
-    byte[] result = new byte[outputLength];
-    generatedBytes.rewind();
-    generatedBytes.get(result, 0, outputLength);
-    return result;
+  private static void checkBounds(byte[] output, int offset, int length) {
+    requireNonNull(output, "output must not be null");
+    if (offset < 0 || offset > output.length - length) {
+      throw new IndexOutOfBoundsException("output too small for outputLength at offset");
+    }
   }
 
   /**
@@ -171,20 +230,36 @@ public class Hkdf {
     return new SecretKeySpec(randBytes, hash.getAlgorithm());
   }
 
-  private Mac initMac(SecretKey key) {
-    Mac mac;
+  /** Returns this thread's Mac, initialized with the given key and reset. */
+  private Mac mac(SecretKey key) {
+    MacState state = macs.get();
     try {
-      if (provider != null) {
-        mac = Mac.getInstance(hash.getAlgorithm(), provider);
+      if (state.mac == null) {
+        if (provider != null) {
+          state.mac = Mac.getInstance(hash.getAlgorithm(), provider);
+        } else {
+          state.mac = Mac.getInstance(hash.getAlgorithm());
+        }
+      }
+      if (state.key != key) {
+        state.key = null;
+        state.mac.init(key);
+        state.key = key;
       } else {
-        mac = Mac.getInstance(hash.getAlgorithm());
+        state.mac.reset();
       }
-      mac.init(key);
-      return mac;
+      return state.mac;
     } catch (NoSuchAlgorithmException e) {
       throw new RuntimeException(e);
     } catch (InvalidKeyException e) {
       throw new IllegalArgumentException(e);
     }
   }
+
+  /** Per-thread state, so that neither the Mac nor the scratch block is shared across threads. */
+  private final class MacState {
+    private final byte[] block = new byte[hash.getByteLength()];
+    private Mac mac;
+    private SecretKey key;
+  }
 }
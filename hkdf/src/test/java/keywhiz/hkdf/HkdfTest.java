@@ -17,10 +17,13 @@ package keywhiz.hkdf;
 
 import com.google.common.base.Strings;
 import com.google.common.io.BaseEncoding;
+import java.util.Arrays;
+import java.util.List;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import org.junit.Test;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class HkdfTest {
@@ -52,4 +55,52 @@ public class HkdfTest {
     byte[] keyEmptyInfo = hkdf.expand(key, new byte[0], 53);
     assertThat(keyNullInfo).isEqualTo(keyEmptyInfo);
   }
+
+  @Test public void expand_intoBufferSameAsAllocating() {
+    Hkdf hkdf = Hkdf.usingDefaults();
+    SecretKey key = hkdf.extract(null, HEX.decode("DEADBEE0"));
+    byte[] info = "info".getBytes(UTF_8);
+
+    byte[] buffer = new byte[60];
+    hkdf.expand(key, info, buffer, 5, 53);
+
+    assertThat(Arrays.copyOfRange(buffer, 5, 58)).isEqualTo(hkdf.expand(key, info, 53));
+    assertThat(Arrays.copyOfRange(buffer, 0, 5)).containsOnly(0);
+    assertThat(Arrays.copyOfRange(buffer, 58, 60)).containsOnly(0);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void expand_rejectsShortBuffer() {
+    Hkdf hkdf = Hkdf.usingDefaults();
+    SecretKey key = hkdf.extract(null, HEX.decode("DEADBEE0"));
+    hkdf.expand(key, null, new byte[32], 1, 32);
+  }
+
+  @Test public void expand_batchSameAsIndividual() {
+    Hkdf hkdf = Hkdf.usingDefaults();
+    SecretKey key = hkdf.extract(null, HEX.decode("DEADBEE0"));
+    List<byte[]> infos = List.of("a".getBytes(UTF_8), new byte[0], "c".getBytes(UTF_8));
+
+    byte[] output = new byte[3 * 40];
+    hkdf.expand(key, infos, 40, output, 0);
+
+    for (int i = 0; i < infos.size(); i++) {
+      assertThat(Arrays.copyOfRange(output, i * 40, (i + 1) * 40))
+          .isEqualTo(hkdf.expand(key, infos.get(i), 40));
+    }
+  }
+
+  @Test public void expand_alternatingKeysOnOneInstance() {
+    Hkdf hkdf = Hkdf.usingDefaults();
+    SecretKey first = hkdf.extract(null, HEX.decode("DEADBEE0"));
+    SecretKey second = hkdf.extract(null, HEX.decode("DEADBEE1"));
+    byte[] info = "info".getBytes(UTF_8);
+
+    byte[] fromFirst = Hkdf.usingDefaults().expand(first, info, 32);
+    byte[] fromSecond = Hkdf.usingDefaults().expand(second, info, 32);
+
+    assertThat(hkdf.expand(first, info, 32)).isEqualTo(fromFirst);
+    assertThat(hkdf.expand(second, info, 32)).isEqualTo(fromSecond);
+    assertThat(hkdf.expand(first, info, 32)).isEqualTo(fromFirst);
+  }
 }
@@ -0,0 +1,44 @@
+package keywhiz.loadtest;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import okhttp3.OkHttpClient;
+
+/**
+ * A seeded client traffic is sent as: its name, an HTTP client presenting its certificate and the
+ * names of the secrets it has access to.
+ */
+class Identity {
+  private final String name;
+  private final OkHttpClient httpClient;
+  private final String[] secrets;
+
+  Identity(String name, OkHttpClient httpClient, String[] secrets) {
+    this.name = name;
+    this.httpClient = httpClient;
+    this.secrets = secrets;
+  }
+
+  String name() {
+    return name;
+  }
+
+  OkHttpClient httpClient() {
+    return httpClient;
+  }
+
+  String randomSecret(Random random) {
+    return secrets[random.nextInt(secrets.length)];
+  }
+
+  /** Up to {@code count} distinct secrets the client has access to. */
+  Set<String> randomSecrets(Random random, int count) {
+    Set<String> names = new LinkedHashSet<>();
+    int wanted = Math.min(count, secrets.length);
+    while (names.size() < wanted) {
+      names.add(randomSecret(random));
+    }
+    return names;
+  }
+}
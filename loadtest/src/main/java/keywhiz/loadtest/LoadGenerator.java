@@ -0,0 +1,145 @@
+package keywhiz.loadtest;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a weighted mix of operations from a fixed number of threads, each looping as fast as the
+ * server responds. Delivery operations are spread uniformly over the delivery identities.
+ * Latencies are only recorded once the warmup period is over.
+ */
+class LoadGenerator {
+  private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+  private final TrafficConfig config;
+  private final HttpUrl baseUrl;
+  private final Topology topology;
+  private final List<Identity> identities;
+  private final Identity automationIdentity;
+
+  private final Operation[] operations;
+  private final int[] cumulativeWeights;
+  private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+  private final Map<Operation, Boolean> failureLogged = new ConcurrentHashMap<>();
+
+  private volatile boolean measuring = false;
+  private volatile boolean stopped = false;
+
+  LoadGenerator(TrafficConfig config, HttpUrl baseUrl, Topology topology,
+      List<Identity> identities, Identity automationIdentity) {
+    this.config = config;
+    this.baseUrl = baseUrl;
+    this.topology = topology;
+    this.identities = identities;
+    this.automationIdentity = automationIdentity;
+
+    Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    config.mix().forEach((operation, weight) -> {
+      if (weight > 0) {
+        weights.put(operation, weight);
+      }
+    });
+    operations = weights.keySet().toArray(new Operation[0]);
+    cumulativeWeights = new int[operations.length];
+    int total = 0;
+    for (int i = 0; i < operations.length; i++) {
+      total += weights.get(operations[i]);
+      cumulativeWeights[i] = total;
+      stats.put(operations[i], new OperationStats());
+    }
+  }
+
+  /**
+   * Runs the warmup and measured periods.
+   *
+   * @param onMeasurementStart called once the warmup is over, just before latencies are recorded
+   * @return stats of every operation in the mix
+   */
+  Map<Operation, OperationStats> run(Runnable onMeasurementStart) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(config.threads());
+    for (int i = 0; i < config.threads(); i++) {
+      executor.execute(this::loop);
+    }
+
+    try {
+      logger.info("Warming up for {}s", config.warmupSeconds());
+      TimeUnit.SECONDS.sleep(config.warmupSeconds());
+      onMeasurementStart.run();
+      measuring = true;
+
+      logger.info("Measuring for {}s with {} threads", config.durationSeconds(), config.threads());
+      TimeUnit.SECONDS.sleep(config.durationSeconds());
+    } finally {
+      measuring = false;
+      stopped = true;
+      executor.shutdown();
+    }
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+    return stats;
+  }
+
+  private void loop() {
+    Random random = ThreadLocalRandom.current();
+    while (!stopped) {
+      Operation operation = pick(random);
+      Identity identity = operation.automation()
+          ? automationIdentity
+          : identities.get(random.nextInt(identities.size()));
+      Request request =
+          operation.request(baseUrl, identity, topology, config.batchSize(), random);
+
+      boolean success;
+      long start = System.nanoTime();
+      try (Response response = identity.httpClient().newCall(request).execute()) {
+        ResponseBody body = response.body();
+        if (body != null) {
+          body.bytes();
+        }
+        success = response.isSuccessful();
+        if (!success) {
+          logFirstFailure(operation, identity, "HTTP " + response.code(), null);
+        }
+      } catch (IOException | RuntimeException e) {
+        success = false;
+        logFirstFailure(operation, identity, e.getMessage(), e);
+      }
+      long latency = System.nanoTime() - start;
+
+      if (measuring) {
+        stats.get(operation).record(latency, success);
+      }
+    }
+  }
+
+  private Operation pick(Random random) {
+    int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (value < cumulativeWeights[i]) {
+        return operations[i];
+      }
+    }
+    throw new AssertionError("weight out of range");
+  }
+
+  private void logFirstFailure(Operation operation, Identity identity, String reason,
+      Exception cause) {
+    if (failureLogged.putIfAbsent(operation, true) == null) {
+      logger.warn("{} failed for {}: {} (further failures are only counted)", operation,
+          identity.name(), reason, cause);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package keywhiz.loadtest;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.dropwizard.configuration.YamlConfigurationFactory;
+import io.dropwizard.jackson.Jackson;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import javax.validation.Validation;
+import keywhiz.KeywhizConfig;
+import keywhiz.KeywhizService;
+import keywhiz.service.crypto.ContentCryptographer;
+import keywhiz.service.crypto.CryptoModule;
+import keywhiz.service.crypto.RowHmacGenerator;
+import keywhiz.testing.HttpClients;
+import keywhiz.utility.DSLContexts;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Seeds a development database and drives load at a running Keywhiz server.
+ *
+ * Usage: {@code LoadTest [scenario.yaml]}; see {@link LoadTestScenario} for the options and their
+ * defaults, which match server/src/main/resources/keywhiz-development.yaml.
+ *
+ * Like {@link keywhiz.commands.DbSeedCommand}, refuses to touch a database whose configuration
+ * is not for the "development" environment.
+ */
+public class LoadTest {
+  private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+  private static final char[] KEY_STORE_PASSWORD = "loadtest".toCharArray();
+
+  private LoadTest() {}
+
+  public static void main(String[] args) throws Exception {
+    LoadTestScenario scenario = LoadTestScenario.defaults();
+    if (args.length > 0 && !args[0].isEmpty()) {
+      ObjectMapper yaml = Jackson.newObjectMapper(new YAMLFactory());
+      scenario = yaml.readValue(new File(args[0]), LoadTestScenario.class);
+    }
+
+    Topology topology = new Topology(scenario.seed());
+    if (scenario.seed().enabled()) {
+      seed(scenario, topology);
+    }
+
+    Identities identities = identities(scenario, topology);
+    HttpUrl baseUrl = HttpUrl.get(scenario.baseUrl());
+    HttpUrl adminUrl = HttpUrl.get(scenario.adminUrl());
+    OkHttpClient adminClient = new OkHttpClient();
+
+    LoadGenerator generator = new LoadGenerator(scenario.traffic(), baseUrl, topology,
+        identities.delivery, identities.automation);
+    QueryCounts[] queriesBefore = new QueryCounts[1];
+    long[] measurementStart = new long[1];
+    Map<Operation, OperationStats> stats = generator.run(() -> {
+      queriesBefore[0] = QueryCounts.fetch(adminClient, adminUrl);
+      measurementStart[0] = System.nanoTime();
+    });
+    double seconds = (System.nanoTime() - measurementStart[0]) / 1e9;
+    QueryCounts queriesAfter = QueryCounts.fetch(adminClient, adminUrl);
+
+    new LoadTestReport(stats, seconds, queriesBefore[0], queriesAfter).print(System.out);
+    System.exit(0);
+  }
+
+  private static void seed(LoadTestScenario scenario, Topology topology) throws Exception {
+    ObjectMapper objectMapper = KeywhizService.customizeObjectMapper(Jackson.newObjectMapper());
+    KeywhizConfig config = new YamlConfigurationFactory<>(KeywhizConfig.class,
+        Validation.buildDefaultValidatorFactory().getValidator(), objectMapper, "dw")
+        .build(new File(scenario.keywhizConfig()));
+    checkArgument(config.getEnvironment().equals("development"),
+        "load tests only run against a development environment");
+
+    DataSource dataSource = config.getDataSourceFactory()
+        .build(new MetricRegistry(), "loadtest-datasource");
+    if (scenario.seed().migrate()) {
+      Flyway.configure()
+          .dataSource(dataSource)
+          .locations(config.getMigrationsDir())
+          .table(config.getFlywaySchemaTable())
+          .load()
+          .migrate();
+    }
+
+    Injector injector = Guice.createInjector(new CryptoModule(config.getDerivationProviderClass(),
+        config.getContentKeyStore(), config.getEnvelopeEncryptionConfig(),
+        config.getPreviousContentKeyStore()));
+    new LoadTestSeeder(DSLContexts.databaseAgnostic(dataSource),
+        injector.getInstance(ContentCryptographer.class),
+        injector.getInstance(RowHmacGenerator.class), topology, scenario.seed())
+        .seed();
+  }
+
+  private static Identities identities(LoadTestScenario scenario, Topology topology)
+      throws Exception {
+    KeyStore trustStore = KeyStore.getInstance("PKCS12");
+    try (InputStream in = Files.newInputStream(Paths.get(scenario.trustStore()))) {
+      trustStore.load(in, scenario.trustStorePassword().toCharArray());
+    }
+    ClientCertificates certificates = ClientCertificates.load(
+        Paths.get(scenario.caCertificate()), Paths.get(scenario.caKey()));
+
+    int count = Math.min(scenario.traffic().identities(), topology.clients());
+    logger.info("Issuing certificates to {} clients", count + 1);
+    List<Identity> delivery = new ArrayList<>();
+    for (int client = 0; client < count; client++) {
+      String name = topology.clientName(client);
+      String[] secrets = Arrays.stream(topology.secretsOfClient(client))
+          .mapToObj(topology::secretName)
+          .toArray(String[]::new);
+      delivery.add(new Identity(name, httpClient(certificates, name, trustStore), secrets));
+    }
+    String automationName = topology.automationClientName();
+    Identity automation = new Identity(automationName,
+        httpClient(certificates, automationName, trustStore), new String[0]);
+
+    return new Identities(delivery, automation);
+  }
+
+  private static OkHttpClient httpClient(ClientCertificates certificates, String clientName,
+      KeyStore trustStore) throws Exception {
+    return HttpClients.builder()
+        .withClientCert(certificates.keyStoreFor(clientName, KEY_STORE_PASSWORD),
+            new String(KEY_STORE_PASSWORD))
+        .addRequestInterceptors(chain -> chain.proceed(
+            chain.request().newBuilder().header("Accept", "application/json").build()))
+        .build(trustStore);
+  }
+
+  private static class Identities {
+    final List<Identity> delivery;
+    final Identity automation;
+
+    Identities(List<Identity> delivery, Identity automation) {
+      this.delivery = delivery;
+      this.automation = automation;
+    }
+  }
+}
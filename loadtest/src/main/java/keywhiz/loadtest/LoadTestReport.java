@@ -0,0 +1,58 @@
+package keywhiz.loadtest;
+
+import com.codahale.metrics.Snapshot;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Prints throughput, latency percentiles and queries per request for each operation of a run.
+ */
+class LoadTestReport {
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+  private static final String HEADER_FORMAT =
+      "%-28s %10s %8s %10s %9s %9s %9s %9s %9s%n";
+  private static final String ROW_FORMAT =
+      "%-28s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9s%n";
+
+  private final Map<Operation, OperationStats> stats;
+  private final double seconds;
+  private final QueryCounts queriesBefore;
+  private final QueryCounts queriesAfter;
+
+  LoadTestReport(Map<Operation, OperationStats> stats, double seconds,
+      QueryCounts queriesBefore, QueryCounts queriesAfter) {
+    this.stats = stats;
+    this.seconds = seconds;
+    this.queriesBefore = queriesBefore;
+    this.queriesAfter = queriesAfter;
+  }
+
+  void print(PrintStream out) {
+    out.printf(HEADER_FORMAT, "Operation", "Requests", "Failed", "Req/s", "p50 ms", "p90 ms",
+        "p99 ms", "max ms", "Queries");
+
+    long totalRequests = 0;
+    long totalFailures = 0;
+    for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+      OperationStats operation = entry.getValue();
+      Snapshot latencies = operation.latencies();
+      OptionalDouble queries =
+          queriesAfter.queriesPerRequest(queriesBefore, entry.getKey().endpoint());
+
+      out.printf(ROW_FORMAT, entry.getKey(), operation.requests(), operation.failures(),
+          operation.requests() / seconds,
+          latencies.getMedian() / NANOS_PER_MILLI,
+          latencies.getValue(0.90) / NANOS_PER_MILLI,
+          latencies.get99thPercentile() / NANOS_PER_MILLI,
+          latencies.getMax() / NANOS_PER_MILLI,
+          queries.isPresent() ? String.format("%.2f", queries.getAsDouble()) : "-");
+      totalRequests += operation.requests();
+      totalFailures += operation.failures();
+    }
+
+    out.printf("%nTotal: %d requests, %d failed, %.1f requests/s over %.1fs%n", totalRequests,
+        totalFailures, totalRequests / seconds, seconds);
+    out.println("Queries: average database queries per request, from the server's metrics");
+  }
+}
@@ -0,0 +1,86 @@
+package keywhiz.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nullable;
+
+/**
+ * A load test run: where the server and its database are, what to seed and what traffic to send.
+ * Paths are relative to the working directory, normally the repository root.
+ */
+@AutoValue
+public abstract class LoadTestScenario {
+  private static final String DEFAULT_KEYWHIZ_CONFIG =
+      "server/src/main/resources/keywhiz-development.yaml";
+  private static final String DEFAULT_BASE_URL = "https://localhost:4444/";
+  private static final String DEFAULT_ADMIN_URL = "http://localhost:8085/";
+  private static final String DEFAULT_TRUST_STORE =
+      "server/src/main/resources/dev_and_test_truststore.p12";
+  private static final String DEFAULT_TRUST_STORE_PASSWORD = "ponies";
+  private static final String DEFAULT_CA_CERTIFICATE = "server/src/test/resources/CA/cacert.crt";
+  private static final String DEFAULT_CA_KEY = "server/src/test/resources/CA/cacert.key";
+
+  @JsonCreator public static LoadTestScenario of(
+      @JsonProperty("keywhizConfig") @Nullable String keywhizConfig,
+      @JsonProperty("baseUrl") @Nullable String baseUrl,
+      @JsonProperty("adminUrl") @Nullable String adminUrl,
+      @JsonProperty("trustStore") @Nullable String trustStore,
+      @JsonProperty("trustStorePassword") @Nullable String trustStorePassword,
+      @JsonProperty("caCertificate") @Nullable String caCertificate,
+      @JsonProperty("caKey") @Nullable String caKey,
+      @JsonProperty("seed") @Nullable SeedConfig seed,
+      @JsonProperty("traffic") @Nullable TrafficConfig traffic) {
+    return new AutoValue_LoadTestScenario(
+        keywhizConfig == null ? DEFAULT_KEYWHIZ_CONFIG : keywhizConfig,
+        baseUrl == null ? DEFAULT_BASE_URL : baseUrl,
+        adminUrl == null ? DEFAULT_ADMIN_URL : adminUrl,
+        trustStore == null ? DEFAULT_TRUST_STORE : trustStore,
+        trustStorePassword == null ? DEFAULT_TRUST_STORE_PASSWORD : trustStorePassword,
+        caCertificate == null ? DEFAULT_CA_CERTIFICATE : caCertificate,
+        caKey == null ? DEFAULT_CA_KEY : caKey,
+        seed == null ? SeedConfig.defaults() : seed,
+        traffic == null ? TrafficConfig.defaults() : traffic);
+  }
+
+  public static LoadTestScenario defaults() {
+    return of(null, null, null, null, null, null, null, null, null);
+  }
+
+  /**
+   * Keywhiz server configuration, used for its database and content key; its environment must be
+   * "development"
+   */
+  public abstract String keywhizConfig();
+
+  /**
+   * root URL of the server's application connector
+   */
+  public abstract String baseUrl();
+
+  /**
+   * root URL of the server's admin connector, read for query counts
+   */
+  public abstract String adminUrl();
+
+  /**
+   * PKCS12 trust store for the server's certificate
+   */
+  public abstract String trustStore();
+
+  public abstract String trustStorePassword();
+
+  /**
+   * PEM certificate of a CA the server trusts for client certificates
+   */
+  public abstract String caCertificate();
+
+  /**
+   * PEM (PKCS#1) RSA private key of that CA, used to issue certificates to seeded clients
+   */
+  public abstract String caKey();
+
+  public abstract SeedConfig seed();
+
+  public abstract TrafficConfig traffic();
+}
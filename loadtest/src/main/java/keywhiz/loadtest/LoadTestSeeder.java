@@ -0,0 +1,233 @@
+package keywhiz.loadtest;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import keywhiz.jooq.tables.records.AccessgrantsRecord;
+import keywhiz.jooq.tables.records.ClientsRecord;
+import keywhiz.jooq.tables.records.GroupsRecord;
+import keywhiz.jooq.tables.records.MembershipsRecord;
+import keywhiz.jooq.tables.records.SecretsContentRecord;
+import keywhiz.jooq.tables.records.SecretsRecord;
+import keywhiz.service.crypto.ContentCryptographer;
+import keywhiz.service.crypto.RowHmacGenerator;
+import org.jooq.DSLContext;
+import org.jooq.TableRecord;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static keywhiz.jooq.tables.Accessgrants.ACCESSGRANTS;
+import static keywhiz.jooq.tables.Clients.CLIENTS;
+import static keywhiz.jooq.tables.Groups.GROUPS;
+import static keywhiz.jooq.tables.Memberships.MEMBERSHIPS;
+import static keywhiz.jooq.tables.Secrets.SECRETS;
+import static keywhiz.jooq.tables.SecretsContent.SECRETS_CONTENT;
+
+/**
+ * Populates the database with the clients, groups, secrets, memberships and access grants
+ * described by a {@link Topology}.
+ *
+ * Like {@link keywhiz.commands.DbSeedCommand}, rows are written directly with jOOQ rather than
+ * through the DAOs, here in JDBC batches so that large data sets seed quickly. Row HMACs and
+ * secret contents are computed with the server's own key, so the server reads the data back as
+ * if it had written it. Rows left by a previous run with the same prefix are removed first.
+ */
+public class LoadTestSeeder {
+  private static final Logger logger = LoggerFactory.getLogger(LoadTestSeeder.class);
+  private static final int BATCH_SIZE = 1000;
+  private static final String CREATOR = "loadtest";
+
+  private final DSLContext jooq;
+  private final ContentCryptographer cryptographer;
+  private final RowHmacGenerator rowHmacGenerator;
+  private final Topology topology;
+  private final SeedConfig config;
+  private final SecureRandom random = new SecureRandom();
+
+  public LoadTestSeeder(DSLContext jooq, ContentCryptographer cryptographer,
+      RowHmacGenerator rowHmacGenerator, Topology topology, SeedConfig config) {
+    this.jooq = jooq;
+    this.cryptographer = cryptographer;
+    this.rowHmacGenerator = rowHmacGenerator;
+    this.topology = topology;
+    this.config = config;
+  }
+
+  public void seed() {
+    deleteExisting();
+
+    long now = Instant.now().getEpochSecond();
+    long[] groupIds = ids(topology.groups());
+    long[] clientIds = ids(topology.clients());
+    long[] secretIds = ids(topology.secrets());
+
+    List<GroupsRecord> groups = new ArrayList<>();
+    for (int group = 0; group < topology.groups(); group++) {
+      GroupsRecord r = jooq.newRecord(GROUPS);
+      r.setId(groupIds[group]);
+      r.setName(topology.groupName(group));
+      r.setDescription("load test group");
+      r.setCreatedat(now);
+      r.setUpdatedat(now);
+      r.setCreatedby(CREATOR);
+      r.setUpdatedby(CREATOR);
+      r.setMetadata("{}");
+      groups.add(r);
+    }
+    insert(groups);
+
+    List<ClientsRecord> clients = new ArrayList<>();
+    for (int client = 0; client < topology.clients(); client++) {
+      clients.add(client(clientIds[client], topology.clientName(client), false, now));
+    }
+    clients.add(client(rowHmacGenerator.getNextLongSecure(), topology.automationClientName(), true,
+        now));
+    insert(clients);
+
+    List<TableRecord<?>> secrets = new ArrayList<>();
+    for (int secret = 0; secret < topology.secrets(); secret++) {
+      secrets.addAll(secret(secretIds[secret], topology.secretName(secret), now));
+      if (secrets.size() >= BATCH_SIZE) {
+        insert(secrets);
+        secrets.clear();
+      }
+    }
+    insert(secrets);
+
+    List<MembershipsRecord> memberships = new ArrayList<>();
+    for (int client = 0; client < topology.clients(); client++) {
+      for (int group : topology.groupsOfClient(client)) {
+        MembershipsRecord r = jooq.newRecord(MEMBERSHIPS);
+        r.setId(rowHmacGenerator.getNextLongSecure());
+        r.setGroupid(groupIds[group]);
+        r.setClientid(clientIds[client]);
+        r.setCreatedat(now);
+        r.setUpdatedat(now);
+        r.setRowHmac(rowHmacGenerator.computeRowHmac(MEMBERSHIPS.getName(),
+            List.of(clientIds[client], groupIds[group])));
+        memberships.add(r);
+      }
+    }
+    insert(memberships);
+
+    List<AccessgrantsRecord> accessGrants = new ArrayList<>();
+    for (int group = 0; group < topology.groups(); group++) {
+      for (int secret : topology.secretsOfGroup(group)) {
+        AccessgrantsRecord r = jooq.newRecord(ACCESSGRANTS);
+        r.setId(rowHmacGenerator.getNextLongSecure());
+        r.setGroupid(groupIds[group]);
+        r.setSecretid(secretIds[secret]);
+        r.setCreatedat(now);
+        r.setUpdatedat(now);
+        r.setRowHmac(rowHmacGenerator.computeRowHmac(ACCESSGRANTS.getName(),
+            List.of(groupIds[group], secretIds[secret])));
+        accessGrants.add(r);
+      }
+    }
+    insert(accessGrants);
+
+    logger.info("Seeded {} clients, {} groups, {} secrets, {} memberships and {} access grants",
+        topology.clients() + 1, topology.groups(), topology.secrets(), memberships.size(),
+        accessGrants.size());
+  }
+
+  private ClientsRecord client(long id, String name, boolean automationAllowed, long now) {
+    ClientsRecord r = jooq.newRecord(CLIENTS);
+    r.setId(id);
+    r.setName(name);
+    r.setDescription("load test client");
+    r.setCreatedat(now);
+    r.setUpdatedat(now);
+    r.setCreatedby(CREATOR);
+    r.setUpdatedby(CREATOR);
+    r.setEnabled(true);
+    r.setAutomationallowed(automationAllowed);
+    r.setRowHmac(rowHmacGenerator.computeRowHmac(CLIENTS.getName(), List.of(name, id)));
+    return r;
+  }
+
+  private List<TableRecord<?>> secret(long id, String name, long now) {
+    byte[] content = new byte[config.secretBytes()];
+    random.nextBytes(content);
+    String contentBase64 = Base64.getEncoder().encodeToString(content);
+    String encrypted = cryptographer.encryptionKeyDerivedFrom(name).encrypt(contentBase64);
+    String metadata = "{}";
+    long contentId = rowHmacGenerator.getNextLongSecure();
+
+    SecretsRecord series = jooq.newRecord(SECRETS);
+    series.setId(id);
+    series.setName(name);
+    series.setDescription("load test secret");
+    series.setCreatedat(now);
+    series.setUpdatedat(now);
+    series.setCreatedby(CREATOR);
+    series.setUpdatedby(CREATOR);
+    series.setOptions("{}");
+    series.setCurrent(contentId);
+    series.setRowHmac(rowHmacGenerator.computeRowHmac(SECRETS.getName(), List.of(name, id)));
+
+    SecretsContentRecord contents = jooq.newRecord(SECRETS_CONTENT);
+    contents.setId(contentId);
+    contents.setSecretid(id);
+    contents.setCreatedat(now);
+    contents.setUpdatedat(now);
+    contents.setCreatedby(CREATOR);
+    contents.setUpdatedby(CREATOR);
+    contents.setEncryptedContent(encrypted);
+    contents.setContentHmac(cryptographer.computeHmac(contentBase64.getBytes(UTF_8), "hmackey"));
+    contents.setMetadata(metadata);
+    contents.setExpiry(0L);
+    contents.setRowHmac(rowHmacGenerator.computeRowHmac(SECRETS_CONTENT.getName(),
+        List.of(encrypted, metadata, contentId)));
+
+    return List.of(series, contents);
+  }
+
+  private void deleteExisting() {
+    String pattern = config.prefix() + "-%";
+    jooq.transaction(configuration -> {
+      DSLContext tx = DSL.using(configuration);
+      List<Long> clientIds = tx.select(CLIENTS.ID).from(CLIENTS)
+          .where(CLIENTS.NAME.like(pattern)).fetch(CLIENTS.ID);
+      List<Long> groupIds = tx.select(GROUPS.ID).from(GROUPS)
+          .where(GROUPS.NAME.like(pattern)).fetch(GROUPS.ID);
+      List<Long> secretIds = tx.select(SECRETS.ID).from(SECRETS)
+          .where(SECRETS.NAME.like(pattern)).fetch(SECRETS.ID);
+
+      tx.deleteFrom(MEMBERSHIPS)
+          .where(MEMBERSHIPS.CLIENTID.in(clientIds).or(MEMBERSHIPS.GROUPID.in(groupIds)))
+          .execute();
+      tx.deleteFrom(ACCESSGRANTS)
+          .where(ACCESSGRANTS.GROUPID.in(groupIds).or(ACCESSGRANTS.SECRETID.in(secretIds)))
+          .execute();
+      tx.deleteFrom(SECRETS_CONTENT).where(SECRETS_CONTENT.SECRETID.in(secretIds)).execute();
+      tx.deleteFrom(SECRETS).where(SECRETS.ID.in(secretIds)).execute();
+      tx.deleteFrom(GROUPS).where(GROUPS.ID.in(groupIds)).execute();
+      tx.deleteFrom(CLIENTS).where(CLIENTS.ID.in(clientIds)).execute();
+
+      if (!clientIds.isEmpty() || !groupIds.isEmpty() || !secretIds.isEmpty()) {
+        logger.info("Removed {} clients, {} groups and {} secrets from a previous run",
+            clientIds.size(), groupIds.size(), secretIds.size());
+      }
+    });
+  }
+
+  private long[] ids(int count) {
+    long[] ids = new long[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = rowHmacGenerator.getNextLongSecure();
+    }
+    return ids;
+  }
+
+  private void insert(List<? extends TableRecord<?>> records) {
+    for (int from = 0; from < records.size(); from += BATCH_SIZE) {
+      jooq.batchInsert(records.subList(from, Math.min(records.size(), from + BATCH_SIZE)))
+          .execute();
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package keywhiz.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.dropwizard.jackson.Jackson;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import keywhiz.api.BatchSecretRequest;
+import keywhiz.api.automation.v2.SecretContentsRequestV2;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * Requests the load generator can send. Each names the resource method serving it, as used by the
+ * server's query count metrics.
+ */
+public enum Operation {
+  /** A single secret the client has access to. */
+  SECRET("SecretDeliveryResource.getSecret", false) {
+    @Override Request request(HttpUrl baseUrl, Identity identity, Topology topology,
+        int batchSize, Random random) {
+      return get(baseUrl, "secret/" + identity.randomSecret(random));
+    }
+  },
+  /** Every secret the client has access to. */
+  SECRETS("SecretsDeliveryResource.getSecrets", false) {
+    @Override Request request(HttpUrl baseUrl, Identity identity, Topology topology,
+        int batchSize, Random random) {
+      return get(baseUrl, "secrets");
+    }
+  },
+  /** A batch of secrets the client has access to. */
+  BATCH_SECRET("BatchSecretDeliveryResource.getBatchSecret", false) {
+    @Override Request request(HttpUrl baseUrl, Identity identity, Topology topology,
+        int batchSize, Random random) {
+      return post(baseUrl, "batchsecret",
+          BatchSecretRequest.create(ImmutableList.copyOf(identity.randomSecrets(random, batchSize))));
+    }
+  },
+  /** Names of all secrets, through the automation API. */
+  AUTOMATION_SECRET_NAMES("SecretResource.secretListing", true) {
+    @Override Request request(HttpUrl baseUrl, Identity identity, Topology topology,
+        int batchSize, Random random) {
+      return get(baseUrl, "automation/v2/secrets");
+    }
+  },
+  /** Details of any secret, through the automation API. */
+  AUTOMATION_SECRET_INFO("SecretResource.secretInfo", true) {
+    @Override Request request(HttpUrl baseUrl, Identity identity, Topology topology,
+        int batchSize, Random random) {
+      return get(baseUrl,
+          "automation/v2/secrets/" + topology.secretName(random.nextInt(topology.secrets())));
+    }
+  },
+  /** Contents of a batch of secrets, through the automation API. */
+  AUTOMATION_SECRET_CONTENTS("SecretResource.secretContents", true) {
+    @Override Request request(HttpUrl baseUrl, Identity identity, Topology topology,
+        int batchSize, Random random) {
+      ImmutableSet.Builder<String> names = ImmutableSet.builder();
+      for (int i = 0; i < batchSize; i++) {
+        names.add(topology.secretName(random.nextInt(topology.secrets())));
+      }
+      return post(baseUrl, "automation/v2/secrets/request/contents",
+          SecretContentsRequestV2.fromParts(names.build()));
+    }
+  },
+  /** Details of any client, through the automation API. */
+  AUTOMATION_CLIENT_INFO("ClientResource.clientInfo", true) {
+    @Override Request request(HttpUrl baseUrl, Identity identity, Topology topology,
+        int batchSize, Random random) {
+      return get(baseUrl,
+          "automation/v2/clients/" + topology.clientName(random.nextInt(topology.clients())));
+    }
+  };
+
+  private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+  private static final MediaType JSON = MediaType.parse("application/json");
+
+  private final String endpoint;
+  private final boolean automation;
+
+  Operation(String endpoint, boolean automation) {
+    this.endpoint = endpoint;
+    this.automation = automation;
+  }
+
+  /** Resource class and method serving this operation, e.g. "SecretResource.secretInfo". */
+  public String endpoint() {
+    return endpoint;
+  }
+
+  /** Whether the operation is sent by the automation client rather than a delivery client. */
+  public boolean automation() {
+    return automation;
+  }
+
+  abstract Request request(HttpUrl baseUrl, Identity identity, Topology topology, int batchSize,
+      Random random);
+
+  private static Request get(HttpUrl baseUrl, String path) {
+    return new Request.Builder().url(baseUrl.newBuilder().addPathSegments(path).build()).build();
+  }
+
+  private static Request post(HttpUrl baseUrl, String path, Object body) {
+    try {
+      return new Request.Builder()
+          .url(baseUrl.newBuilder().addPathSegments(path).build())
+          .post(RequestBody.create(JSON, MAPPER.writeValueAsBytes(body)))
+          .build();
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package keywhiz.loadtest;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Latencies and failures recorded for one operation during the measured part of a run. */
+class OperationStats {
+  private static final int RESERVOIR_SIZE = 1 << 16;
+
+  private final Histogram latencies = new Histogram(new UniformReservoir(RESERVOIR_SIZE));
+  private final LongAdder failures = new LongAdder();
+
+  void record(long latencyNanos, boolean success) {
+    latencies.update(latencyNanos);
+    if (!success) {
+      failures.increment();
+    }
+  }
+
+  long requests() {
+    return latencies.getCount();
+  }
+
+  long failures() {
+    return failures.sum();
+  }
+
+  /** Latency distribution, in nanoseconds. */
+  Snapshot latencies() {
+    return latencies.getSnapshot();
+  }
+}
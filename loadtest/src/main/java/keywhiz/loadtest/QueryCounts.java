@@ -0,0 +1,75 @@
+package keywhiz.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.jackson.Jackson;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.OptionalDouble;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snapshot of the server's per-endpoint query counters, read from the admin connector's metrics
+ * servlet. See {@code keywhiz.service.filters.QueryCountFilter}.
+ */
+class QueryCounts {
+  private static final Logger logger = LoggerFactory.getLogger(QueryCounts.class);
+  private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+  private static final String PREFIX = "keywhiz.service.filters.QueryCountFilter.";
+
+  private final ImmutableMap<String, Long> counters;
+
+  private QueryCounts(ImmutableMap<String, Long> counters) {
+    this.counters = counters;
+  }
+
+  /** Reads the counters, or returns an empty snapshot if the admin connector is unreachable. */
+  static QueryCounts fetch(OkHttpClient httpClient, HttpUrl adminUrl) {
+    Request request = new Request.Builder()
+        .url(adminUrl.newBuilder().addPathSegment("metrics").build())
+        .build();
+    ImmutableMap.Builder<String, Long> counters = ImmutableMap.builder();
+    try (Response response = httpClient.newCall(request).execute()) {
+      ResponseBody body = response.body();
+      if (!response.isSuccessful() || body == null) {
+        throw new IOException("HTTP " + response.code());
+      }
+      JsonNode tree = MAPPER.readTree(body.byteStream());
+      for (Iterator<Map.Entry<String, JsonNode>> fields = tree.path("counters").fields();
+          fields.hasNext(); ) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        if (field.getKey().startsWith(PREFIX)) {
+          counters.put(field.getKey().substring(PREFIX.length()),
+              field.getValue().path("count").asLong());
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to read query counts from {}: {}", adminUrl, e.getMessage());
+    }
+    return new QueryCounts(counters.build());
+  }
+
+  /**
+   * Average number of queries per request made by an endpoint since {@code before}, or empty if
+   * the endpoint served no requests in between.
+   */
+  OptionalDouble queriesPerRequest(QueryCounts before, String endpoint) {
+    long requests = delta(before, endpoint + ".requests");
+    if (requests <= 0) {
+      return OptionalDouble.empty();
+    }
+    return OptionalDouble.of((double) delta(before, endpoint + ".queries") / requests);
+  }
+
+  private long delta(QueryCounts before, String name) {
+    return counters.getOrDefault(name, 0L) - before.counters.getOrDefault(name, 0L);
+  }
+}
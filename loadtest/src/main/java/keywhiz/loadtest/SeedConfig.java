@@ -0,0 +1,92 @@
+package keywhiz.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Size and shape of the data seeded before a load test.
+ */
+@AutoValue
+public abstract class SeedConfig {
+  private static final String DEFAULT_PREFIX = "loadtest";
+  private static final int DEFAULT_CLIENTS = 200;
+  private static final int DEFAULT_GROUPS = 20;
+  private static final int DEFAULT_SECRETS = 2000;
+  private static final int DEFAULT_GROUPS_PER_CLIENT = 2;
+  private static final int DEFAULT_SECRETS_PER_GROUP = 100;
+  private static final int DEFAULT_SECRET_BYTES = 256;
+
+  @JsonCreator public static SeedConfig of(
+      @JsonProperty("enabled") @Nullable Boolean enabled,
+      @JsonProperty("migrate") @Nullable Boolean migrate,
+      @JsonProperty("prefix") @Nullable String prefix,
+      @JsonProperty("clients") @Nullable Integer clients,
+      @JsonProperty("groups") @Nullable Integer groups,
+      @JsonProperty("secrets") @Nullable Integer secrets,
+      @JsonProperty("groupsPerClient") @Nullable Integer groupsPerClient,
+      @JsonProperty("secretsPerGroup") @Nullable Integer secretsPerGroup,
+      @JsonProperty("secretBytes") @Nullable Integer secretBytes) {
+    SeedConfig config = new AutoValue_SeedConfig(
+        enabled == null || enabled,
+        migrate == null || migrate,
+        prefix == null ? DEFAULT_PREFIX : prefix,
+        clients == null ? DEFAULT_CLIENTS : clients,
+        groups == null ? DEFAULT_GROUPS : groups,
+        secrets == null ? DEFAULT_SECRETS : secrets,
+        groupsPerClient == null ? DEFAULT_GROUPS_PER_CLIENT : groupsPerClient,
+        secretsPerGroup == null ? DEFAULT_SECRETS_PER_GROUP : secretsPerGroup,
+        secretBytes == null ? DEFAULT_SECRET_BYTES : secretBytes);
+    checkArgument(!config.prefix().isEmpty(), "prefix must not be empty");
+    checkArgument(config.clients() > 0, "clients must be positive");
+    checkArgument(config.groups() > 0, "groups must be positive");
+    checkArgument(config.secrets() > 0, "secrets must be positive");
+    checkArgument(config.groupsPerClient() > 0, "groupsPerClient must be positive");
+    checkArgument(config.secretsPerGroup() > 0, "secretsPerGroup must be positive");
+    checkArgument(config.secretBytes() > 0, "secretBytes must be positive");
+    return config;
+  }
+
+  public static SeedConfig defaults() {
+    return of(null, null, null, null, null, null, null, null, null);
+  }
+
+  /**
+   * whether to replace previously seeded data; when false, the data is assumed to be in place
+   */
+  public abstract boolean enabled();
+
+  /**
+   * whether to apply pending database migrations before seeding
+   */
+  public abstract boolean migrate();
+
+  /**
+   * prefix of every seeded client, group and secret name
+   */
+  public abstract String prefix();
+
+  public abstract int clients();
+
+  public abstract int groups();
+
+  public abstract int secrets();
+
+  /**
+   * number of groups each client is a member of
+   */
+  public abstract int groupsPerClient();
+
+  /**
+   * number of secrets each group has access to
+   */
+  public abstract int secretsPerGroup();
+
+  /**
+   * size of each secret's content, before base64 encoding
+   */
+  public abstract int secretBytes();
+}
@@ -0,0 +1,75 @@
+package keywhiz.loadtest;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic names and relationships of the seeded data, shared by the seeder and the load
+ * generator so the generator knows which secrets each client may read without querying the server.
+ *
+ * Client {@code i} is a member of the {@code groupsPerClient} groups following {@code i}, modulo
+ * the number of groups; group {@code j} has access to {@code secretsPerGroup} consecutive secrets
+ * starting at {@code j * secretsPerGroup}, modulo the number of secrets.
+ */
+public class Topology {
+  private final SeedConfig config;
+
+  public Topology(SeedConfig config) {
+    this.config = config;
+  }
+
+  public int clients() {
+    return config.clients();
+  }
+
+  public int groups() {
+    return config.groups();
+  }
+
+  public int secrets() {
+    return config.secrets();
+  }
+
+  public String clientName(int client) {
+    return config.prefix() + "-client-" + client;
+  }
+
+  /** Name of the seeded client allowed to call the automation API. */
+  public String automationClientName() {
+    return config.prefix() + "-automation";
+  }
+
+  public String groupName(int group) {
+    return config.prefix() + "-group-" + group;
+  }
+
+  public String secretName(int secret) {
+    return config.prefix() + "-secret-" + secret;
+  }
+
+  /** Groups the client is a member of, in ascending order. */
+  public int[] groupsOfClient(int client) {
+    return IntStream.range(0, Math.min(config.groupsPerClient(), config.groups()))
+        .map(offset -> (client + offset) % config.groups())
+        .sorted()
+        .toArray();
+  }
+
+  /** Secrets the group has access to, in ascending order. */
+  public int[] secretsOfGroup(int group) {
+    return IntStream.range(0, Math.min(config.secretsPerGroup(), config.secrets()))
+        .map(offset -> (int) (((long) group * config.secretsPerGroup() + offset) % config.secrets()))
+        .sorted()
+        .toArray();
+  }
+
+  /** Secrets the client can read through any of its groups, in ascending order. */
+  public int[] secretsOfClient(int client) {
+    TreeSet<Integer> secrets = new TreeSet<>();
+    for (int group : groupsOfClient(client)) {
+      Arrays.stream(secretsOfGroup(group)).forEach(secrets::add);
+    }
+    return secrets.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
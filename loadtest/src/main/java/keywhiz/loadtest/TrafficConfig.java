@@ -0,0 +1,91 @@
+package keywhiz.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Traffic replayed against the server during a load test.
+ */
+@AutoValue
+public abstract class TrafficConfig {
+  private static final int DEFAULT_THREADS = 16;
+  private static final int DEFAULT_WARMUP_SECONDS = 10;
+  private static final int DEFAULT_DURATION_SECONDS = 60;
+  private static final int DEFAULT_IDENTITIES = 20;
+  private static final int DEFAULT_BATCH_SIZE = 10;
+  private static final ImmutableMap<Operation, Integer> DEFAULT_MIX =
+      ImmutableMap.<Operation, Integer>builder()
+          .put(Operation.SECRET, 50)
+          .put(Operation.SECRETS, 10)
+          .put(Operation.BATCH_SECRET, 20)
+          .put(Operation.AUTOMATION_SECRET_NAMES, 5)
+          .put(Operation.AUTOMATION_SECRET_INFO, 5)
+          .put(Operation.AUTOMATION_SECRET_CONTENTS, 5)
+          .put(Operation.AUTOMATION_CLIENT_INFO, 5)
+          .build();
+
+  @JsonCreator public static TrafficConfig of(
+      @JsonProperty("threads") @Nullable Integer threads,
+      @JsonProperty("warmupSeconds") @Nullable Integer warmupSeconds,
+      @JsonProperty("durationSeconds") @Nullable Integer durationSeconds,
+      @JsonProperty("identities") @Nullable Integer identities,
+      @JsonProperty("batchSize") @Nullable Integer batchSize,
+      @JsonProperty("mix") @Nullable ImmutableMap<Operation, Integer> mix) {
+    TrafficConfig config = new AutoValue_TrafficConfig(
+        threads == null ? DEFAULT_THREADS : threads,
+        warmupSeconds == null ? DEFAULT_WARMUP_SECONDS : warmupSeconds,
+        durationSeconds == null ? DEFAULT_DURATION_SECONDS : durationSeconds,
+        identities == null ? DEFAULT_IDENTITIES : identities,
+        batchSize == null ? DEFAULT_BATCH_SIZE : batchSize,
+        mix == null ? DEFAULT_MIX : mix);
+    checkArgument(config.threads() > 0, "threads must be positive");
+    checkArgument(config.warmupSeconds() >= 0, "warmupSeconds must not be negative");
+    checkArgument(config.durationSeconds() > 0, "durationSeconds must be positive");
+    checkArgument(config.identities() > 0, "identities must be positive");
+    checkArgument(config.batchSize() > 0, "batchSize must be positive");
+    checkArgument(config.mix().values().stream().allMatch(weight -> weight >= 0),
+        "mix weights must not be negative");
+    checkArgument(config.mix().values().stream().mapToInt(Integer::intValue).sum() > 0,
+        "mix must contain at least one operation");
+    return config;
+  }
+
+  public static TrafficConfig defaults() {
+    return of(null, null, null, null, null, null);
+  }
+
+  /**
+   * number of concurrent request loops
+   */
+  public abstract int threads();
+
+  /**
+   * traffic sent before measurement starts, to warm up the server and connection pools
+   */
+  public abstract int warmupSeconds();
+
+  /**
+   * length of the measured run
+   */
+  public abstract int durationSeconds();
+
+  /**
+   * number of seeded clients, each with its own certificate, that delivery traffic is spread over
+   */
+  public abstract int identities();
+
+  /**
+   * number of secrets requested by each batch operation
+   */
+  public abstract int batchSize();
+
+  /**
+   * relative weight of each operation; operations left out are not sent
+   */
+  public abstract ImmutableMap<Operation, Integer> mix();
+}
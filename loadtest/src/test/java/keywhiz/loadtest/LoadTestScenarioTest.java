@@ -0,0 +1,38 @@
+package keywhiz.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.dropwizard.jackson.Jackson;
+import java.io.File;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LoadTestScenarioTest {
+  private final ObjectMapper mapper = Jackson.newObjectMapper(new YAMLFactory());
+
+  @Test public void exampleScenarioMatchesDefaults() throws Exception {
+    LoadTestScenario scenario =
+        mapper.readValue(new File("scenario-example.yaml"), LoadTestScenario.class);
+
+    assertThat(scenario).isEqualTo(LoadTestScenario.defaults());
+  }
+
+  @Test public void omittedFieldsUseDefaults() throws Exception {
+    LoadTestScenario scenario = mapper.readValue(
+        "traffic:\n  threads: 4\n  mix:\n    SECRET: 1\n", LoadTestScenario.class);
+
+    assertThat(scenario.traffic().threads()).isEqualTo(4);
+    assertThat(scenario.traffic().mix()).containsOnlyKeys(Operation.SECRET);
+    assertThat(scenario.traffic().durationSeconds())
+        .isEqualTo(TrafficConfig.defaults().durationSeconds());
+    assertThat(scenario.seed()).isEqualTo(SeedConfig.defaults());
+  }
+
+  @Test public void rejectsEmptyMix() {
+    assertThatThrownBy(() -> mapper.readValue(
+        "traffic:\n  mix:\n    SECRET: 0\n", LoadTestScenario.class))
+        .hasRootCauseInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,48 @@
+package keywhiz.loadtest;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TopologyTest {
+  private final Topology topology =
+      new Topology(SeedConfig.of(null, null, "lt", 10, 4, 10, 2, 3, null));
+
+  @Test public void namesUseThePrefix() {
+    assertThat(topology.clientName(3)).isEqualTo("lt-client-3");
+    assertThat(topology.groupName(1)).isEqualTo("lt-group-1");
+    assertThat(topology.secretName(7)).isEqualTo("lt-secret-7");
+    assertThat(topology.automationClientName()).isEqualTo("lt-automation");
+  }
+
+  @Test public void clientsJoinConsecutiveGroups() {
+    assertThat(topology.groupsOfClient(0)).containsExactly(0, 1);
+    assertThat(topology.groupsOfClient(3)).containsExactly(0, 3);
+  }
+
+  @Test public void groupsGrantConsecutiveSecrets() {
+    assertThat(topology.secretsOfGroup(0)).containsExactly(0, 1, 2);
+    assertThat(topology.secretsOfGroup(3)).containsExactly(0, 1, 9);
+  }
+
+  @Test public void clientSecretsAreTheUnionOfTheirGroups() {
+    assertThat(topology.secretsOfClient(3)).containsExactly(0, 1, 2, 9);
+  }
+
+  @Test public void limitsRelationshipsToWhatExists() {
+    Topology small = new Topology(SeedConfig.of(null, null, "lt", 2, 1, 2, 5, 5, null));
+
+    assertThat(small.groupsOfClient(1)).containsExactly(0);
+    assertThat(small.secretsOfGroup(0)).containsExactly(0, 1);
+  }
+
+  @Test public void everySecretIsGrantedWhenGroupsCoverThem() {
+    int[] granted = IntStream.range(0, topology.groups())
+        .flatMap(group -> Arrays.stream(topology.secretsOfGroup(group)))
+        .distinct()
+        .toArray();
+    assertThat(granted).hasSize(topology.secrets());
+  }
+}
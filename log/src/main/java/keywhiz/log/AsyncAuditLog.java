@@ -0,0 +1,175 @@
+package keywhiz.log;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * An {@link AuditLog} which queues events and writes them to another audit log in batches on a
+ * dedicated thread, so that request threads (and the database transactions some events are
+ * recorded in) do not wait on formatting and I/O.
+ *
+ * When the queue is full, events are handled according to the {@link OverflowPolicy}. Events
+ * recorded before {@link #start()} or after {@link #stop()} are written synchronously; stopping
+ * writes out every queued event first.
+ *
+ * Reports the queue depth, the number of dropped events and the time taken to write each batch
+ * as metrics.
+ */
+public class AsyncAuditLog implements AuditLog, Managed {
+  private static final Logger logger = LoggerFactory.getLogger(AsyncAuditLog.class);
+  private static final long POLL_MILLIS = 100;
+
+  /** What to do with an event recorded while the queue is full. */
+  public enum OverflowPolicy {
+    /** Wait for the writer to make room; no event is lost, but request threads can stall. */
+    BLOCK,
+    /** Discard the event and count it in the dropped metric; request threads never wait. */
+    DROP
+  }
+
+  private final AuditLog delegate;
+  private final BlockingQueue<Event> queue;
+  private final int batchSize;
+  private final OverflowPolicy overflowPolicy;
+  private final Counter dropped;
+  private final Timer writes;
+
+  // producers hold the read lock while checking running and enqueueing; stop() takes the write
+  // lock to clear running, so no event can be enqueued after its final drain
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean running = false;
+  private Thread writer;
+
+  /**
+   * @param delegate audit log to write events to; while started, only the writer thread calls it
+   * @param capacity maximum number of events waiting to be written
+   * @param batchSize maximum number of events passed to {@link AuditLog#recordEvents} at once
+   */
+  public AsyncAuditLog(AuditLog delegate, int capacity, int batchSize,
+      OverflowPolicy overflowPolicy, MetricRegistry metricRegistry) {
+    checkArgument(capacity > 0, "capacity must be positive");
+    checkArgument(batchSize > 0, "batchSize must be positive");
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.batchSize = batchSize;
+    this.overflowPolicy = overflowPolicy;
+    this.dropped = metricRegistry.counter(MetricRegistry.name(AsyncAuditLog.class, "dropped"));
+    this.writes = metricRegistry.timer(MetricRegistry.name(AsyncAuditLog.class, "writes"));
+    metricRegistry.register(MetricRegistry.name(AsyncAuditLog.class, "queueDepth"),
+        (Gauge<Integer>) queue::size);
+  }
+
+  @Override public synchronized void start() {
+    if (running) {
+      return;
+    }
+    running = true;
+    writer = new Thread(this::run, "audit-log-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override public synchronized void stop() throws InterruptedException {
+    if (!running) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      running = false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    writer.join();
+    writer = null;
+    // Events enqueued while the writer was exiting
+    drainAndWrite(new ArrayList<>(batchSize));
+  }
+
+  @Override public void recordEvent(Event e) {
+    if (!enqueue(e)) {
+      delegate.recordEvent(e);
+    }
+  }
+
+  /**
+   * Queues the event, or drops it when the queue is full and the policy allows.
+   *
+   * @return false if the event must be written synchronously instead
+   */
+  private boolean enqueue(Event e) {
+    lock.readLock().lock();
+    try {
+      if (!running) {
+        return false;
+      }
+      switch (overflowPolicy) {
+        case DROP:
+          if (!queue.offer(e)) {
+            dropped.inc();
+          }
+          return true;
+        case BLOCK:
+          // holds off stop() until the writer, which keeps draining meanwhile, makes room
+          try {
+            queue.put(e);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+          }
+          return true;
+        default:
+          throw new IllegalStateException("Unknown overflow policy " + overflowPolicy);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void run() {
+    List<Event> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      Event first;
+      try {
+        first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        // Only stop() ends the writer, and it waits for the queue to be empty
+        continue;
+      }
+      if (first != null) {
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        write(batch);
+      }
+    }
+  }
+
+  private void drainAndWrite(List<Event> batch) {
+    while (queue.drainTo(batch, batchSize) > 0) {
+      write(batch);
+    }
+  }
+
+  private void write(List<Event> batch) {
+    try (Timer.Context ignored = writes.time()) {
+      delegate.recordEvents(batch);
+    } catch (RuntimeException e) {
+      logger.error("Unable to write {} audit events", batch.size(), e);
+    } finally {
+      batch.clear();
+    }
+  }
+}
@@ -1,9 +1,20 @@
 package keywhiz.log;
 
+import java.util.List;
+
 /**
  * An interface for recording Keywhiz events
  */
 public interface AuditLog {
   void recordEvent(Event e);
-}
 
+  /**
+   * Records a batch of events, in order. Implementations which can write several events more
+   * cheaply than one at a time should override this.
+   */
+  default void recordEvents(List<Event> events) {
+    for (Event e : events) {
+      recordEvent(e);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package keywhiz.log;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads audit log files written by {@link FileAuditLog}, one record at a time, so that a day's
+ * events can be filtered without loading the file into memory.
+ *
+ * Can also be run from the command line to print the matching records of a file:
+ *
+ * <pre>AuditLogReader audit-2020-01-01.jsonl [type=SECRET_CREATE,SECRET_DELETE] [user=alice]
+ *     [object=db-password]</pre>
+ */
+public final class AuditLogReader {
+  private static final Logger logger = LoggerFactory.getLogger(AuditLogReader.class);
+
+  private AuditLogReader() {}
+
+  /**
+   * Returns the events in the file matching the filter, in the order they were written. Lines
+   * which are not complete records are skipped. The stream reads the file lazily and must be
+   * closed.
+   */
+  public static Stream<Event> read(Path file, Predicate<Event> filter) throws IOException {
+    BufferedReader reader = Files.newBufferedReader(file, UTF_8);
+    return reader.lines()
+        .map(line -> parse(file, line))
+        .filter(Objects::nonNull)
+        .filter(filter)
+        .onClose(() -> {
+          try {
+            reader.close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  /** Matches events of any of the given types. */
+  public static Predicate<Event> byType(Set<EventTag> types) {
+    Set<EventTag> copy = EnumSet.copyOf(types);
+    return event -> copy.contains(event.getType());
+  }
+
+  /** Matches events recorded for the given user. */
+  public static Predicate<Event> byUser(String user) {
+    return event -> user.equals(event.getUser());
+  }
+
+  /** Matches events affecting the object with the given name. */
+  public static Predicate<Event> byObjectName(String objectName) {
+    return event -> objectName.equals(event.getObjectName());
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println(
+          "usage: AuditLogReader <file> [type=<tag>[,<tag>...]] [user=<user>] [object=<name>]");
+      System.exit(2);
+    }
+
+    Predicate<Event> filter = event -> true;
+    for (String arg : Arrays.asList(args).subList(1, args.length)) {
+      int separator = arg.indexOf('=');
+      String key = separator < 0 ? arg : arg.substring(0, separator);
+      String value = separator < 0 ? "" : arg.substring(separator + 1);
+      switch (key) {
+        case "type":
+          EnumSet<EventTag> types = EnumSet.noneOf(EventTag.class);
+          for (String type : value.split(",")) {
+            types.add(EventTag.valueOf(type));
+          }
+          filter = filter.and(byType(types));
+          break;
+        case "user":
+          filter = filter.and(byUser(value));
+          break;
+        case "object":
+          filter = filter.and(byObjectName(value));
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown filter " + arg);
+      }
+    }
+
+    OutputStream out = System.out;
+    try (Stream<Event> events = read(Paths.get(args[0]), filter);
+        JsonGenerator generator = AuditLogRecords.generator(out)) {
+      for (Event event : (Iterable<Event>) events::iterator) {
+        AuditLogRecords.write(generator, event);
+      }
+    }
+    out.flush();
+  }
+
+  private static Event parse(Path file, String line) {
+    if (line.isEmpty()) {
+      return null;
+    }
+    try {
+      return AuditLogRecords.parse(line);
+    } catch (IOException e) {
+      logger.warn("Skipping invalid record in {}: {}", file, e.getMessage());
+      return null;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package keywhiz.log;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encoding of {@link Event}s as audit log records: one JSON object per line, e.g.
+ *
+ * <pre>{"timestamp":"2020-01-01T00:00:00Z","type":"SECRET_CREATE","user":"alice",
+ * "objectName":"db-password","extraInfo":{"mode":"0400"}}</pre>
+ *
+ * (shown wrapped). Records are written and read with Jackson's streaming API, so neither side
+ * builds an intermediate tree.
+ */
+final class AuditLogRecords {
+  private static final JsonFactory JSON = new JsonFactory().setRootValueSeparator(null);
+
+  private AuditLogRecords() {}
+
+  /** Returns a generator writing records to the given stream, which it does not close. */
+  static JsonGenerator generator(OutputStream out) throws IOException {
+    return JSON.createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  /** Writes the event as a single line, including the terminating newline. */
+  static void write(JsonGenerator generator, Event event) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("timestamp", event.getTimestamp().toString());
+    generator.writeStringField("type", event.getType().name());
+    generator.writeStringField("user", event.getUser());
+    generator.writeStringField("objectName", event.getObjectName());
+    generator.writeObjectFieldStart("extraInfo");
+    if (event.getExtraInfo() != null) {
+      for (Map.Entry<String, String> entry : event.getExtraInfo().entrySet()) {
+        generator.writeStringField(entry.getKey(), entry.getValue());
+      }
+    }
+    generator.writeEndObject();
+    generator.writeEndObject();
+    generator.writeRaw('\n');
+  }
+
+  /**
+   * Parses a single record.
+   *
+   * @throws IOException if the line is not a complete record, e.g. the last line of a file being
+   * written when the process died, or names an event type this version does not know.
+   */
+  static Event parse(String line) throws IOException {
+    Instant timestamp = null;
+    EventTag type = null;
+    String user = null;
+    String objectName = null;
+    Map<String, String> extraInfo = new LinkedHashMap<>();
+
+    try (JsonParser parser = JSON.createParser(line)) {
+      expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        switch (field) {
+          case "timestamp":
+            timestamp = Instant.parse(parser.getValueAsString());
+            break;
+          case "type":
+            type = EventTag.valueOf(parser.getValueAsString());
+            break;
+          case "user":
+            user = parser.getValueAsString();
+            break;
+          case "objectName":
+            objectName = parser.getValueAsString();
+            break;
+          case "extraInfo":
+            expect(parser, value, JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+              String key = parser.getCurrentName();
+              parser.nextToken();
+              extraInfo.put(key, parser.getValueAsString());
+            }
+            break;
+          default:
+            // Fields added by later versions
+            parser.skipChildren();
+        }
+      }
+      expect(parser, parser.currentToken(), JsonToken.END_OBJECT);
+    } catch (RuntimeException e) {
+      throw new IOException("Invalid audit log record", e);
+    }
+
+    if (timestamp == null || type == null) {
+      throw new IOException("Audit log record is missing its timestamp or type");
+    }
+    return new Event(timestamp, type, user, objectName, extraInfo);
+  }
+
+  private static void expect(JsonParser parser, JsonToken actual, JsonToken expected)
+      throws IOException {
+    if (actual != expected) {
+      throw new IOException(
+          "Expected " + expected + " but found " + actual + " at " + parser.getCurrentLocation());
+    }
+  }
+}
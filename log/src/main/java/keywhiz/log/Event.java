@@ -16,7 +16,7 @@ public class Event {
   private final String objectName; // The name of the affected object
   private final Map<String, String> extraInfo; // Any extra information
 
-  private final DateTimeFormatter df =
+  private static final DateTimeFormatter df =
       DateTimeFormatter.ofPattern("uuuu-MM-dd HH:mm:ss").withZone(ZoneId.of("UTC"));
 
   public Event(Instant timestamp, EventTag type, String user, String objectName,
@@ -9,12 +9,14 @@ public enum EventTag {
   SECRET_UPDATE,
   SECRET_CHANGEVERSION,
   SECRET_DELETE,
+  SECRET_BULKDELETE,
   SECRET_UNDELETE,
   SECRET_BACKFILLEXPIRY,
   SECRET_READCONTENT,
   SECRET_RENAME,
   SECRET_UPDATECURRENT,
   SECRET_BACKFILLHMAC,
+  SECRET_REENCRYPT,
 
   GROUP_CREATE,
   GROUP_DELETE,
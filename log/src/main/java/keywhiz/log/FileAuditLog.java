@@ -0,0 +1,146 @@
+package keywhiz.log;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.annotations.VisibleForTesting;
+import io.dropwizard.lifecycle.Managed;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An {@link AuditLog} which appends events as structured records (see {@link AuditLogRecords})
+ * to one file per UTC day, named {@code audit-<yyyy-MM-dd>.jsonl}, in a directory. Files are only
+ * ever appended to; the day's file is switched when the first event of a new day is written.
+ *
+ * Each call to {@link #recordEvents} encodes the whole batch, appends it with a single write and
+ * then forces it to disk, so a batch costs one fsync however many events it holds. Wrap this in
+ * an {@link AsyncAuditLog} to have request threads share those fsyncs.
+ *
+ * Use {@link AuditLogReader} to read the files back.
+ */
+public class FileAuditLog implements AuditLog, Managed, Closeable {
+  private static final String PREFIX = "audit-";
+  private static final String SUFFIX = ".jsonl";
+
+  private final Path directory;
+  private final Clock clock;
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+
+  // guarded by this
+  private FileChannel channel;
+  // guarded by this
+  private LocalDate day;
+
+  public FileAuditLog(Path directory) {
+    this(directory, Clock.systemUTC());
+  }
+
+  @VisibleForTesting FileAuditLog(Path directory, Clock clock) {
+    this.directory = directory;
+    this.clock = clock;
+  }
+
+  /** The file holding the events written on the given UTC day. */
+  public static Path fileFor(Path directory, LocalDate day) {
+    return directory.resolve(PREFIX + day + SUFFIX);
+  }
+
+  /** Opens today's file, so that an unusable directory is reported at startup. */
+  @Override public synchronized void start() throws IOException {
+    channel(LocalDate.now(clock));
+  }
+
+  @Override public void stop() throws IOException {
+    close();
+  }
+
+  @Override public void recordEvent(Event e) {
+    recordEvents(List.of(e));
+  }
+
+  @Override public synchronized void recordEvents(List<Event> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    try {
+      buffer.reset();
+      try (JsonGenerator generator = AuditLogRecords.generator(buffer)) {
+        for (Event event : events) {
+          AuditLogRecords.write(generator, event);
+        }
+      }
+
+      FileChannel channel = channel(LocalDate.now(clock));
+      buffer.writeTo(Channels.newOutputStream(channel));
+      channel.force(false);
+    } catch (IOException e) {
+      // Reopening repairs the file if the batch was partially written
+      try {
+        close();
+      } catch (IOException suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw new UncheckedIOException("Unable to write audit events to " + directory, e);
+    }
+  }
+
+  @Override public synchronized void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+      day = null;
+    }
+  }
+
+  private FileChannel channel(LocalDate today) throws IOException {
+    if (channel != null && today.equals(day)) {
+      return channel;
+    }
+    close();
+
+    Files.createDirectories(directory);
+    // Not opened with APPEND, which cannot be combined with READ; this is the only writer, so
+    // positioning at the end once has the same effect.
+    FileChannel opened = FileChannel.open(fileFor(directory, today), CREATE, WRITE, READ);
+    try {
+      opened.position(opened.size());
+      terminateTornRecord(opened);
+    } catch (IOException e) {
+      opened.close();
+      throw e;
+    }
+    channel = opened;
+    day = today;
+    return channel;
+  }
+
+  /**
+   * Ends the file with a newline if the process writing it died part way through a record, so
+   * that the partial record stays on a line of its own (which readers skip) rather than corrupting
+   * the next one.
+   */
+  private static void terminateTornRecord(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      return;
+    }
+    ByteBuffer last = ByteBuffer.allocate(1);
+    channel.read(last, size - 1);
+    if (last.get(0) != '\n') {
+      channel.write(ByteBuffer.wrap(new byte[] {'\n'}));
+    }
+  }
+}
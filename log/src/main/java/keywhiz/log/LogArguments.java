@@ -5,6 +5,16 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Logs the name and arguments of the annotated method at INFO each time it is called. Arguments
+ * are only formatted when the call is sampled and INFO is enabled for this annotation's logger.
+ */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
-public @interface LogArguments {}
+public @interface LogArguments {
+  /** fraction of calls, between 0 and 1, whose arguments are logged */
+  double sampleRate() default 1.0;
+
+  /** number of characters of each argument's string form to log; the rest is elided */
+  int maxArgumentLength() default 1024;
+}
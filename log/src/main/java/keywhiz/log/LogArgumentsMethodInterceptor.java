@@ -1,34 +1,200 @@
 package keywhiz.log;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
-import java.util.AbstractMap;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Logs the arguments of methods annotated with {@link LogArguments}. The time spent deciding
+ * whether to log and formatting the arguments is recorded per method in a timer named after the
+ * method's class and name.
+ */
 public class LogArgumentsMethodInterceptor implements MethodInterceptor {
   private static final Logger logger = LoggerFactory.getLogger(LogArguments.class);
 
+  private final MetricRegistry metricRegistry;
+  private final Map<Method, InterceptedMethod> methods = new ConcurrentHashMap<>();
+
+  public LogArgumentsMethodInterceptor(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
   public Object invoke(MethodInvocation invocation) throws Throwable {
-    Parameter[] parameters = invocation.getMethod().getParameters();
-    Object[] arguments = invocation.getArguments();
+    long start = System.nanoTime();
+    InterceptedMethod method = methods.computeIfAbsent(invocation.getMethod(), this::intercepted);
+    if (method.sampled() && logger.isInfoEnabled()) {
+      logger.info("Method Name: {}, Method Arguments: {}", method.name,
+          method.format(invocation.getArguments()));
+    }
+    method.timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+    return invocation.proceed();
+  }
+
+  private InterceptedMethod intercepted(Method method) {
+    LogArguments annotation = method.getAnnotation(LogArguments.class);
+    Timer timer = metricRegistry.timer(MetricRegistry.name(LogArgumentsMethodInterceptor.class,
+        method.getDeclaringClass().getSimpleName(), method.getName()));
+    return new InterceptedMethod(method, annotation.sampleRate(),
+        annotation.maxArgumentLength(), timer);
+  }
+
+  private static class InterceptedMethod {
+    final String name;
+    final String[] parameterNames;
+    final double sampleRate;
+    final int maxArgumentLength;
+    final Timer timer;
 
-    Object[] parameterArgumentPairs = new Object[arguments.length];
+    InterceptedMethod(Method method, double sampleRate, int maxArgumentLength, Timer timer) {
+      checkArgument(sampleRate >= 0 && sampleRate <= 1,
+          "sampleRate of %s must be between 0 and 1", method);
+      checkArgument(maxArgumentLength > 0, "maxArgumentLength of %s must be positive", method);
+      this.name = method.getName();
+      this.parameterNames = Arrays.stream(method.getParameters())
+          .map(parameter -> parameter.isNamePresent() ? parameter.getName() : null)
+          .toArray(String[]::new);
+      this.sampleRate = sampleRate;
+      this.maxArgumentLength = maxArgumentLength;
+      this.timer = timer;
+    }
+
+    boolean sampled() {
+      return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
 
+    String format(Object[] arguments) {
+      return formatArguments(parameterNames, arguments, maxArgumentLength);
+    }
+  }
+
+  /**
+   * Formats arguments as {@code [name=value, ...]}, the way they have always been logged, with
+   * each value cut to at most {@code maxArgumentLength} characters. Arrays, lists, sets and maps
+   * are formatted element by element, stopping once the limit is reached, so large batches are
+   * never formatted in full.
+   */
+  @VisibleForTesting
+  static String formatArguments(String[] parameterNames, Object[] arguments,
+      int maxArgumentLength) {
+    StringBuilder builder = new StringBuilder().append('[');
     for (int i = 0; i < arguments.length; i++) {
-      if (parameters[i].isNamePresent()) {
-        parameterArgumentPairs[i] = new AbstractMap.SimpleImmutableEntry<>(parameters[i].getName(), arguments[i]);
+      if (i > 0) {
+        builder.append(", ");
+      }
+      if (parameterNames[i] != null) {
+        builder.append(parameterNames[i]).append('=');
+      }
+      Object argument = arguments[i];
+      if (BoundedFormatter.isContainer(argument, true)) {
+        BoundedFormatter formatter = new BoundedFormatter(maxArgumentLength);
+        formatter.append(argument, true);
+        builder.append(formatter.builder);
+        if (formatter.truncated) {
+          builder.append("...(truncated)");
+        }
+        continue;
+      }
+      String value = String.valueOf(argument);
+      if (value.length() > maxArgumentLength) {
+        builder.append(value, 0, maxArgumentLength)
+            .append("...(")
+            .append(value.length() - maxArgumentLength)
+            .append(" more chars)");
       } else {
-        parameterArgumentPairs[i] = arguments[i];
+        builder.append(value);
       }
     }
+    return builder.append(']').toString();
+  }
 
-    logger.info(String.format("Method Name: %s, Method Arguments: %s",
-            invocation.getMethod().getName(),
-            Arrays.deepToString(parameterArgumentPairs)));
+  /**
+   * Formats a value the way {@link Arrays#deepToString} and the collection {@code toString}
+   * methods would, but stops formatting elements once a number of characters has been written.
+   */
+  private static class BoundedFormatter {
+    final StringBuilder builder = new StringBuilder();
+    final int maxLength;
+    boolean truncated = false;
 
-    return invocation.proceed();
+    BoundedFormatter(int maxLength) {
+      this.maxLength = maxLength;
+    }
+
+    /** Whether the value is formatted element by element; arrays nested in collections aren't. */
+    static boolean isContainer(Object value, boolean expandArrays) {
+      return value instanceof List || value instanceof Set || value instanceof Map
+          || (expandArrays && value != null && value.getClass().isArray());
+    }
+
+    /** @return false once the limit has been reached */
+    boolean append(Object value, boolean expandArrays) {
+      if (!isContainer(value, expandArrays)) {
+        return appendText(String.valueOf(value));
+      }
+      if (value instanceof Map) {
+        if (!appendText("{")) {
+          return false;
+        }
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          if (!(first || appendText(", "))
+              || !append(entry.getKey(), false)
+              || !appendText("=")
+              || !append(entry.getValue(), false)) {
+            return false;
+          }
+          first = false;
+        }
+        return appendText("}");
+      }
+
+      if (!appendText("[")) {
+        return false;
+      }
+      if (value instanceof Iterable) {
+        boolean first = true;
+        for (Object element : (Iterable<?>) value) {
+          if (!(first || appendText(", ")) || !append(element, false)) {
+            return false;
+          }
+          first = false;
+        }
+      } else {
+        for (int i = 0; i < Array.getLength(value); i++) {
+          if (!(i == 0 || appendText(", ")) || !append(Array.get(value, i), true)) {
+            return false;
+          }
+        }
+      }
+      return appendText("]");
+    }
+
+    private boolean appendText(String text) {
+      int room = maxLength - builder.length();
+      if (text.length() > room) {
+        builder.append(text, 0, room);
+        truncated = true;
+        return false;
+      }
+      builder.append(text);
+      return true;
+    }
   }
 }
@@ -1,11 +1,19 @@
 package keywhiz.log;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.AbstractModule;
 import com.google.inject.matcher.Matchers;
 
 public class LogArgumentsModule extends AbstractModule {
+  private final MetricRegistry metricRegistry;
+
+  public LogArgumentsModule(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
   @Override
   protected void configure() {
-    bindInterceptor(Matchers.any(), Matchers.annotatedWith(LogArguments.class), new LogArgumentsMethodInterceptor());
+    bindInterceptor(Matchers.any(), Matchers.annotatedWith(LogArguments.class),
+        new LogArgumentsMethodInterceptor(metricRegistry));
   }
 }
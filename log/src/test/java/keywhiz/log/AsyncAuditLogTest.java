@@ -0,0 +1,216 @@
+package keywhiz.log;
+
+import com.codahale.metrics.MetricRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import keywhiz.log.AsyncAuditLog.OverflowPolicy;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncAuditLogTest {
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private final RecordingAuditLog delegate = new RecordingAuditLog();
+  private AsyncAuditLog auditLog;
+
+  @After public void tearDown() throws Exception {
+    delegate.unblock();
+    if (auditLog != null) {
+      auditLog.stop();
+    }
+  }
+
+  @Test public void writesEventsInOrderInBatches() throws Exception {
+    auditLog = new AsyncAuditLog(delegate, 100, 10, OverflowPolicy.BLOCK, metricRegistry);
+    auditLog.start();
+
+    List<Event> events = events(50);
+    events.forEach(auditLog::recordEvent);
+    auditLog.stop();
+
+    assertThat(delegate.events()).containsExactlyElementsOf(events);
+    assertThat(delegate.batchSizes()).allMatch(size -> size <= 10);
+    assertThat(metricRegistry.timer(
+        MetricRegistry.name(AsyncAuditLog.class, "writes")).getCount())
+        .isEqualTo(delegate.batchSizes().size());
+  }
+
+  @Test public void writesSynchronouslyWhenNotStarted() {
+    auditLog = new AsyncAuditLog(delegate, 100, 10, OverflowPolicy.BLOCK, metricRegistry);
+
+    Event event = events(1).get(0);
+    auditLog.recordEvent(event);
+
+    assertThat(delegate.events()).containsExactly(event);
+  }
+
+  @Test public void stopWritesQueuedEvents() throws Exception {
+    auditLog = new AsyncAuditLog(delegate, 100, 10, OverflowPolicy.BLOCK, metricRegistry);
+    delegate.block();
+    auditLog.start();
+
+    List<Event> events = events(30);
+    events.forEach(auditLog::recordEvent);
+    delegate.awaitBlocked();
+    assertThat(queueDepth()).isGreaterThan(0);
+
+    delegate.unblock();
+    auditLog.stop();
+
+    assertThat(delegate.events()).containsExactlyElementsOf(events);
+    assertThat(queueDepth()).isZero();
+  }
+
+  @Test public void dropsAndCountsEventsWhenFull() throws Exception {
+    auditLog = new AsyncAuditLog(delegate, 5, 1, OverflowPolicy.DROP, metricRegistry);
+    delegate.block();
+    auditLog.start();
+
+    List<Event> events = events(1);
+    auditLog.recordEvent(events.get(0));
+    // The writer holds the first event, so the queue fills after five more
+    delegate.awaitBlocked();
+    List<Event> queued = events(5);
+    queued.forEach(auditLog::recordEvent);
+    events(3).forEach(auditLog::recordEvent);
+
+    assertThat(metricRegistry.counter(
+        MetricRegistry.name(AsyncAuditLog.class, "dropped")).getCount()).isEqualTo(3);
+
+    delegate.unblock();
+    auditLog.stop();
+    events.addAll(queued);
+    assertThat(delegate.events()).containsExactlyElementsOf(events);
+  }
+
+  @Test public void blocksUntilTheWriterMakesRoom() throws Exception {
+    auditLog = new AsyncAuditLog(delegate, 1, 1, OverflowPolicy.BLOCK, metricRegistry);
+    delegate.block();
+    auditLog.start();
+
+    List<Event> events = events(3);
+    auditLog.recordEvent(events.get(0));
+    delegate.awaitBlocked();
+    auditLog.recordEvent(events.get(1));
+
+    Thread producer = new Thread(() -> auditLog.recordEvent(events.get(2)));
+    producer.start();
+    producer.join(300);
+    assertThat(producer.isAlive()).isTrue();
+
+    delegate.unblock();
+    producer.join(TimeUnit.SECONDS.toMillis(10));
+    assertThat(producer.isAlive()).isFalse();
+    auditLog.stop();
+    assertThat(delegate.events()).containsExactlyElementsOf(events);
+  }
+
+  @Test public void noEventIsLostWhenStoppingWhileRecording() throws Exception {
+    auditLog = new AsyncAuditLog(delegate, 1000, 10, OverflowPolicy.BLOCK, metricRegistry);
+    auditLog.start();
+
+    List<Event> events = events(4000);
+    CountDownLatch started = new CountDownLatch(4);
+    List<Thread> producers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      List<Event> slice = events.subList(i * 1000, (i + 1) * 1000);
+      Thread producer = new Thread(() -> {
+        started.countDown();
+        slice.forEach(auditLog::recordEvent);
+      });
+      producers.add(producer);
+      producer.start();
+    }
+    started.await();
+    auditLog.stop();
+    for (Thread producer : producers) {
+      producer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    assertThat(delegate.events()).containsExactlyInAnyOrderElementsOf(events);
+    assertThat(queueDepth()).isZero();
+  }
+
+  @Test public void keepsWritingAfterTheDelegateFails() throws Exception {
+    auditLog = new AsyncAuditLog(delegate, 100, 1, OverflowPolicy.BLOCK, metricRegistry);
+    auditLog.start();
+
+    List<Event> events = events(2);
+    delegate.failNext();
+    auditLog.recordEvent(events.get(0));
+    auditLog.recordEvent(events.get(1));
+    auditLog.stop();
+
+    assertThat(delegate.events()).containsExactly(events.get(1));
+  }
+
+  private long queueDepth() {
+    return ((Number) metricRegistry.getGauges()
+        .get(MetricRegistry.name(AsyncAuditLog.class, "queueDepth")).getValue()).longValue();
+  }
+
+  private static List<Event> events(int count) {
+    return IntStream.range(0, count)
+        .mapToObj(i -> new Event(Instant.now(), EventTag.SECRET_CREATE, "user", "secret-" + i))
+        .collect(Collectors.toCollection(ArrayList::new));
+  }
+
+  /** Records batches, optionally blocking the writer inside its first write until unblocked. */
+  private static class RecordingAuditLog implements AuditLog {
+    private final List<Event> events = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blocked = new CountDownLatch(1);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile boolean failNext = false;
+
+    @Override public void recordEvent(Event e) {
+      recordEvents(List.of(e));
+    }
+
+    @Override public void recordEvents(List<Event> batch) {
+      blocked.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      if (failNext) {
+        failNext = false;
+        throw new IllegalStateException("write failed");
+      }
+      events.addAll(batch);
+      batchSizes.add(batch.size());
+    }
+
+    void block() {
+      release = new CountDownLatch(1);
+    }
+
+    void awaitBlocked() throws InterruptedException {
+      assertThat(blocked.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    void unblock() {
+      release.countDown();
+    }
+
+    void failNext() {
+      failNext = true;
+    }
+
+    List<Event> events() {
+      return new ArrayList<>(events);
+    }
+
+    List<Integer> batchSizes() {
+      return new ArrayList<>(batchSizes);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package keywhiz.log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileAuditLogTest {
+  private static final Instant DAY_ONE = Instant.parse("2020-01-01T23:59:59Z");
+  private static final Instant DAY_TWO = Instant.parse("2020-01-02T00:00:01Z");
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final MutableClock clock = new MutableClock(DAY_ONE);
+
+  @Test public void writesEventsAsRecordsTheReaderReturns() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+    Event created = new Event(DAY_ONE, EventTag.SECRET_CREATE, "alice", "db-password",
+        Map.of("mode", "0400"));
+    Event deleted = new Event(DAY_ONE, EventTag.SECRET_DELETE, "bob", "api-key");
+
+    try (FileAuditLog auditLog = new FileAuditLog(directory, clock)) {
+      auditLog.recordEvents(List.of(created, deleted));
+    }
+
+    List<Event> events = readAll(FileAuditLog.fileFor(directory, LocalDate.of(2020, 1, 1)));
+    assertThat(events).hasSize(2);
+    assertEventEquals(events.get(0), created);
+    assertEventEquals(events.get(1), deleted);
+    assertThat(Files.readAllLines(FileAuditLog.fileFor(directory, LocalDate.of(2020, 1, 1))))
+        .hasSize(2);
+  }
+
+  @Test public void startsANewFileEachDay() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+
+    try (FileAuditLog auditLog = new FileAuditLog(directory, clock)) {
+      auditLog.recordEvent(new Event(DAY_ONE, EventTag.SECRET_CREATE, "alice", "first"));
+      clock.instant = DAY_TWO;
+      auditLog.recordEvent(new Event(DAY_TWO, EventTag.SECRET_CREATE, "alice", "second"));
+    }
+
+    assertThat(readAll(FileAuditLog.fileFor(directory, LocalDate.of(2020, 1, 1))))
+        .extracting(Event::getObjectName).containsExactly("first");
+    assertThat(readAll(FileAuditLog.fileFor(directory, LocalDate.of(2020, 1, 2))))
+        .extracting(Event::getObjectName).containsExactly("second");
+  }
+
+  @Test public void appendsToAnExistingFile() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+
+    try (FileAuditLog auditLog = new FileAuditLog(directory, clock)) {
+      auditLog.recordEvent(new Event(DAY_ONE, EventTag.SECRET_CREATE, "alice", "first"));
+    }
+    try (FileAuditLog auditLog = new FileAuditLog(directory, clock)) {
+      auditLog.recordEvent(new Event(DAY_ONE, EventTag.SECRET_CREATE, "alice", "second"));
+    }
+
+    assertThat(readAll(FileAuditLog.fileFor(directory, LocalDate.of(2020, 1, 1))))
+        .extracting(Event::getObjectName).containsExactly("first", "second");
+  }
+
+  @Test public void skipsARecordTornByACrash() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+    Path file = FileAuditLog.fileFor(directory, LocalDate.of(2020, 1, 1));
+
+    try (FileAuditLog auditLog = new FileAuditLog(directory, clock)) {
+      auditLog.recordEvent(new Event(DAY_ONE, EventTag.SECRET_CREATE, "alice", "first"));
+    }
+    Files.write(file, "{\"timestamp\":\"2020-01-01T23:59:59Z\",\"ty".getBytes(UTF_8), APPEND);
+    try (FileAuditLog auditLog = new FileAuditLog(directory, clock)) {
+      auditLog.recordEvent(new Event(DAY_ONE, EventTag.SECRET_CREATE, "alice", "second"));
+    }
+
+    assertThat(Files.readAllLines(file)).hasSize(3);
+    assertThat(readAll(file)).extracting(Event::getObjectName).containsExactly("first", "second");
+  }
+
+  @Test public void readerFiltersByTypeUserAndObjectName() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath();
+    try (FileAuditLog auditLog = new FileAuditLog(directory, clock)) {
+      auditLog.recordEvents(List.of(
+          new Event(DAY_ONE, EventTag.SECRET_CREATE, "alice", "a"),
+          new Event(DAY_ONE, EventTag.SECRET_DELETE, "alice", "b"),
+          new Event(DAY_ONE, EventTag.SECRET_CREATE, "bob", "c"),
+          new Event(DAY_ONE, EventTag.GROUP_CREATE, "alice", "a")));
+    }
+    Path file = FileAuditLog.fileFor(directory, LocalDate.of(2020, 1, 1));
+
+    assertThat(read(file, AuditLogReader.byType(EnumSet.of(EventTag.SECRET_CREATE,
+        EventTag.SECRET_DELETE)).and(AuditLogReader.byUser("alice"))))
+        .extracting(Event::getObjectName).containsExactly("a", "b");
+    assertThat(read(file, AuditLogReader.byObjectName("a")))
+        .extracting(Event::getType).containsExactly(EventTag.SECRET_CREATE, EventTag.GROUP_CREATE);
+  }
+
+  private static List<Event> readAll(Path file) throws IOException {
+    return read(file, event -> true);
+  }
+
+  private static List<Event> read(Path file, Predicate<Event> filter) throws IOException {
+    try (Stream<Event> events = AuditLogReader.read(file, filter)) {
+      return events.collect(Collectors.toList());
+    }
+  }
+
+  private static void assertEventEquals(Event actual, Event expected) {
+    assertThat(actual.getTimestamp()).isEqualTo(expected.getTimestamp());
+    assertThat(actual.getType()).isEqualTo(expected.getType());
+    assertThat(actual.getUser()).isEqualTo(expected.getUser());
+    assertThat(actual.getObjectName()).isEqualTo(expected.getObjectName());
+    assertThat(actual.getExtraInfo()).isEqualTo(expected.getExtraInfo());
+  }
+
+  private static class MutableClock extends Clock {
+    volatile Instant instant;
+
+    MutableClock(Instant instant) {
+      this.instant = instant;
+    }
+
+    @Override public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public Instant instant() {
+      return instant;
+    }
+  }
+}
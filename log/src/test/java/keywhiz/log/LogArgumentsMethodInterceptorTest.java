@@ -0,0 +1,81 @@
+package keywhiz.log;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Strings;
+import com.google.inject.Guice;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogArgumentsMethodInterceptorTest {
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private final Resource resource = Guice.createInjector(new LogArgumentsModule(metricRegistry))
+      .getInstance(Resource.class);
+
+  @Test public void timesInterceptionPerMethod() {
+    resource.always("a");
+    resource.always("b");
+    resource.never("c");
+
+    assertThat(metricRegistry.timer(MetricRegistry.name(LogArgumentsMethodInterceptor.class,
+        "Resource", "always")).getCount()).isEqualTo(2);
+    assertThat(metricRegistry.timer(MetricRegistry.name(LogArgumentsMethodInterceptor.class,
+        "Resource", "never")).getCount()).isEqualTo(1);
+  }
+
+  @Test public void stillCallsTheMethodWhenNotSampled() {
+    assertThat(resource.never("c")).isEqualTo("c");
+  }
+
+  @Test public void formatsNamedArguments() {
+    assertThat(LogArgumentsMethodInterceptor.formatArguments(new String[] {"name", null, "tags"},
+        new Object[] {"secret", null, new String[] {"a", "b"}}, 100))
+        .isEqualTo("[name=secret, null, tags=[a, b]]");
+  }
+
+  @Test public void truncatesLongArguments() {
+    String content = Strings.repeat("x", 30);
+
+    assertThat(LogArgumentsMethodInterceptor.formatArguments(new String[] {"content", "ids"},
+        new Object[] {content, List.of(1, 2)}, 10))
+        .isEqualTo("[content=xxxxxxxxxx...(20 more chars), ids=[1, 2]]");
+  }
+
+  @Test public void formatsCollectionsAsTheirToStringWouldWithinTheLimit() {
+    Map<String, List<Integer>> groups = Map.of("a", List.of(1, 2));
+
+    assertThat(LogArgumentsMethodInterceptor.formatArguments(new String[] {"groups", "nested"},
+        new Object[] {groups, new int[][] {{1}, {2, 3}}}, 100))
+        .isEqualTo("[groups=" + groups + ", nested=[[1], [2, 3]]]");
+  }
+
+  @Test public void stopsFormattingLargeCollectionsAtTheLimit() {
+    AtomicInteger formatted = new AtomicInteger();
+    Object element = new Object() {
+      @Override public String toString() {
+        formatted.incrementAndGet();
+        return "item";
+      }
+    };
+    List<Object> batch = Collections.nCopies(100_000, element);
+
+    assertThat(LogArgumentsMethodInterceptor.formatArguments(new String[] {"batch"},
+        new Object[] {batch}, 13))
+        .isEqualTo("[batch=[item, item, ...(truncated)]");
+    assertThat(formatted.get()).isEqualTo(3);
+  }
+
+  static class Resource {
+    @LogArguments String always(String name) {
+      return name;
+    }
+
+    @LogArguments(sampleRate = 0) String never(String name) {
+      return name;
+    }
+  }
+}
@@ -10,7 +10,9 @@ import keywhiz.jooq.tables.DeletedAccessgrants;
 import keywhiz.jooq.tables.DeletedSecrets;
 import keywhiz.jooq.tables.Groups;
 import keywhiz.jooq.tables.Memberships;
+import keywhiz.jooq.tables.RowHmacBackfillProgress;
 import keywhiz.jooq.tables.SchemaVersion;
+import keywhiz.jooq.tables.SecretPurgeProgress;
 import keywhiz.jooq.tables.Secrets;
 import keywhiz.jooq.tables.SecretsContent;
 import keywhiz.jooq.tables.Users;
@@ -20,7 +22,9 @@ import keywhiz.jooq.tables.records.DeletedAccessgrantsRecord;
 import keywhiz.jooq.tables.records.DeletedSecretsRecord;
 import keywhiz.jooq.tables.records.GroupsRecord;
 import keywhiz.jooq.tables.records.MembershipsRecord;
+import keywhiz.jooq.tables.records.RowHmacBackfillProgressRecord;
 import keywhiz.jooq.tables.records.SchemaVersionRecord;
+import keywhiz.jooq.tables.records.SecretPurgeProgressRecord;
 import keywhiz.jooq.tables.records.SecretsContentRecord;
 import keywhiz.jooq.tables.records.SecretsRecord;
 import keywhiz.jooq.tables.records.UsersRecord;
@@ -53,7 +57,11 @@ public class Keys {
     public static final UniqueKey<GroupsRecord> KEY_GROUPS_PRIMARY = Internal.createUniqueKey(Groups.GROUPS, DSL.name("KEY_groups_PRIMARY"), new TableField[] { Groups.GROUPS.ID }, true);
     public static final UniqueKey<MembershipsRecord> KEY_MEMBERSHIPS_MEMBERSHIPS_CLIENTID_GROUPID_IDX = Internal.createUniqueKey(Memberships.MEMBERSHIPS, DSL.name("KEY_memberships_memberships_clientid_groupid_idx"), new TableField[] { Memberships.MEMBERSHIPS.CLIENTID, Memberships.MEMBERSHIPS.GROUPID }, true);
     public static final UniqueKey<MembershipsRecord> KEY_MEMBERSHIPS_PRIMARY = Internal.createUniqueKey(Memberships.MEMBERSHIPS, DSL.name("KEY_memberships_PRIMARY"), new TableField[] { Memberships.MEMBERSHIPS.ID }, true);
+    public static final UniqueKey<RowHmacBackfillProgressRecord> KEY_ROW_HMAC_BACKFILL_PROGRESS_PRIMARY = Internal.createUniqueKey(RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS, DSL.name("KEY_row_hmac_backfill_progress_PRIMARY"), new TableField[] { RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.ID }, true);
+    public static final UniqueKey<RowHmacBackfillProgressRecord> KEY_ROW_HMAC_BACKFILL_PROGRESS_RHBP_TABLE_NAME_SHARD_IDX = Internal.createUniqueKey(RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS, DSL.name("KEY_row_hmac_backfill_progress_rhbp_table_name_shard_idx"), new TableField[] { RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.TABLE_NAME, RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.SHARD }, true);
     public static final UniqueKey<SchemaVersionRecord> KEY_SCHEMA_VERSION_PRIMARY = Internal.createUniqueKey(SchemaVersion.SCHEMA_VERSION, DSL.name("KEY_schema_version_PRIMARY"), new TableField[] { SchemaVersion.SCHEMA_VERSION.INSTALLED_RANK }, true);
+    public static final UniqueKey<SecretPurgeProgressRecord> KEY_SECRET_PURGE_PROGRESS_PRIMARY = Internal.createUniqueKey(SecretPurgeProgress.SECRET_PURGE_PROGRESS, DSL.name("KEY_secret_purge_progress_PRIMARY"), new TableField[] { SecretPurgeProgress.SECRET_PURGE_PROGRESS.ID }, true);
+    public static final UniqueKey<SecretPurgeProgressRecord> KEY_SECRET_PURGE_PROGRESS_SPP_DELETED_BEFORE_IDX = Internal.createUniqueKey(SecretPurgeProgress.SECRET_PURGE_PROGRESS, DSL.name("KEY_secret_purge_progress_spp_deleted_before_idx"), new TableField[] { SecretPurgeProgress.SECRET_PURGE_PROGRESS.DELETED_BEFORE }, true);
     public static final UniqueKey<SecretsRecord> KEY_SECRETS_NAME = Internal.createUniqueKey(Secrets.SECRETS, DSL.name("KEY_secrets_name"), new TableField[] { Secrets.SECRETS.NAME }, true);
     public static final UniqueKey<SecretsRecord> KEY_SECRETS_PRIMARY = Internal.createUniqueKey(Secrets.SECRETS, DSL.name("KEY_secrets_PRIMARY"), new TableField[] { Secrets.SECRETS.ID }, true);
     public static final UniqueKey<SecretsContentRecord> KEY_SECRETS_CONTENT_PRIMARY = Internal.createUniqueKey(SecretsContent.SECRETS_CONTENT, DSL.name("KEY_secrets_content_PRIMARY"), new TableField[] { SecretsContent.SECRETS_CONTENT.ID }, true);
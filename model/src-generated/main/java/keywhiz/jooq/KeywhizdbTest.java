@@ -13,7 +13,9 @@ import keywhiz.jooq.tables.DeletedAccessgrants;
 import keywhiz.jooq.tables.DeletedSecrets;
 import keywhiz.jooq.tables.Groups;
 import keywhiz.jooq.tables.Memberships;
+import keywhiz.jooq.tables.RowHmacBackfillProgress;
 import keywhiz.jooq.tables.SchemaVersion;
+import keywhiz.jooq.tables.SecretPurgeProgress;
 import keywhiz.jooq.tables.Secrets;
 import keywhiz.jooq.tables.SecretsContent;
 import keywhiz.jooq.tables.Users;
@@ -66,11 +68,21 @@ public class KeywhizdbTest extends SchemaImpl {
      */
     public final Memberships MEMBERSHIPS = Memberships.MEMBERSHIPS;
 
+    /**
+     * The table <code>keywhizdb_test.row_hmac_backfill_progress</code>.
+     */
+    public final RowHmacBackfillProgress ROW_HMAC_BACKFILL_PROGRESS = RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS;
+
     /**
      * The table <code>keywhizdb_test.schema_version</code>.
      */
     public final SchemaVersion SCHEMA_VERSION = SchemaVersion.SCHEMA_VERSION;
 
+    /**
+     * The table <code>keywhizdb_test.secret_purge_progress</code>.
+     */
+    public final SecretPurgeProgress SECRET_PURGE_PROGRESS = SecretPurgeProgress.SECRET_PURGE_PROGRESS;
+
     /**
      * The table <code>keywhizdb_test.secrets</code>.
      */
@@ -108,7 +120,9 @@ public class KeywhizdbTest extends SchemaImpl {
             DeletedSecrets.DELETED_SECRETS,
             Groups.GROUPS,
             Memberships.MEMBERSHIPS,
+            RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS,
             SchemaVersion.SCHEMA_VERSION,
+            SecretPurgeProgress.SECRET_PURGE_PROGRESS,
             Secrets.SECRETS,
             SecretsContent.SECRETS_CONTENT,
             Users.USERS
@@ -10,7 +10,9 @@ import keywhiz.jooq.tables.DeletedAccessgrants;
 import keywhiz.jooq.tables.DeletedSecrets;
 import keywhiz.jooq.tables.Groups;
 import keywhiz.jooq.tables.Memberships;
+import keywhiz.jooq.tables.RowHmacBackfillProgress;
 import keywhiz.jooq.tables.SchemaVersion;
+import keywhiz.jooq.tables.SecretPurgeProgress;
 import keywhiz.jooq.tables.Secrets;
 import keywhiz.jooq.tables.SecretsContent;
 import keywhiz.jooq.tables.Users;
@@ -52,11 +54,21 @@ public class Tables {
      */
     public static final Memberships MEMBERSHIPS = Memberships.MEMBERSHIPS;
 
+    /**
+     * The table <code>keywhizdb_test.row_hmac_backfill_progress</code>.
+     */
+    public static final RowHmacBackfillProgress ROW_HMAC_BACKFILL_PROGRESS = RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS;
+
     /**
      * The table <code>keywhizdb_test.schema_version</code>.
      */
     public static final SchemaVersion SCHEMA_VERSION = SchemaVersion.SCHEMA_VERSION;
 
+    /**
+     * The table <code>keywhizdb_test.secret_purge_progress</code>.
+     */
+    public static final SecretPurgeProgress SECRET_PURGE_PROGRESS = SecretPurgeProgress.SECRET_PURGE_PROGRESS;
+
     /**
      * The table <code>keywhizdb_test.secrets</code>.
      */
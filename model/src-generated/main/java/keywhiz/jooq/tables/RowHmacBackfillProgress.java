@@ -0,0 +1,194 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package keywhiz.jooq.tables;
+
+
+import java.util.Arrays;
+import java.util.List;
+
+import keywhiz.jooq.Keys;
+import keywhiz.jooq.KeywhizdbTest;
+import keywhiz.jooq.tables.records.RowHmacBackfillProgressRecord;
+import keywhiz.model.TinyIntConverter;
+
+import org.jooq.Field;
+import org.jooq.ForeignKey;
+import org.jooq.Identity;
+import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.Row9;
+import org.jooq.Schema;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class RowHmacBackfillProgress extends TableImpl<RowHmacBackfillProgressRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reference instance of
+     * <code>keywhizdb_test.row_hmac_backfill_progress</code>
+     */
+    public static final RowHmacBackfillProgress ROW_HMAC_BACKFILL_PROGRESS = new RowHmacBackfillProgress();
+
+    /**
+     * The class holding records for this type
+     */
+    @Override
+    public Class<RowHmacBackfillProgressRecord> getRecordType() {
+        return RowHmacBackfillProgressRecord.class;
+    }
+
+    /**
+     * The column <code>keywhizdb_test.row_hmac_backfill_progress.id</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Long> ID = createField(DSL.name("id"), SQLDataType.BIGINT.nullable(false).identity(true), this, "");
+
+    /**
+     * The column
+     * <code>keywhizdb_test.row_hmac_backfill_progress.table_name</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, String> TABLE_NAME = createField(DSL.name("table_name"), SQLDataType.VARCHAR(64).nullable(false), this, "");
+
+    /**
+     * The column <code>keywhizdb_test.row_hmac_backfill_progress.shard</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Long> SHARD = createField(DSL.name("shard"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column
+     * <code>keywhizdb_test.row_hmac_backfill_progress.last_id</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Long> LAST_ID = createField(DSL.name("last_id"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column <code>keywhizdb_test.row_hmac_backfill_progress.end_id</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Long> END_ID = createField(DSL.name("end_id"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column
+     * <code>keywhizdb_test.row_hmac_backfill_progress.rows_updated</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Long> ROWS_UPDATED = createField(DSL.name("rows_updated"), SQLDataType.BIGINT.nullable(false).defaultValue(DSL.inline("0", SQLDataType.BIGINT)), this, "");
+
+    /**
+     * The column
+     * <code>keywhizdb_test.row_hmac_backfill_progress.completed</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Boolean> COMPLETED = createField(DSL.name("completed"), SQLDataType.TINYINT.nullable(false).defaultValue(DSL.inline("0", SQLDataType.TINYINT)), this, "", new TinyIntConverter());
+
+    /**
+     * The column
+     * <code>keywhizdb_test.row_hmac_backfill_progress.createdat</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Long> CREATEDAT = createField(DSL.name("createdat"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column
+     * <code>keywhizdb_test.row_hmac_backfill_progress.updatedat</code>.
+     */
+    public final TableField<RowHmacBackfillProgressRecord, Long> UPDATEDAT = createField(DSL.name("updatedat"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    private RowHmacBackfillProgress(Name alias, Table<RowHmacBackfillProgressRecord> aliased) {
+        this(alias, aliased, null);
+    }
+
+    private RowHmacBackfillProgress(Name alias, Table<RowHmacBackfillProgressRecord> aliased, Field<?>[] parameters) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table());
+    }
+
+    /**
+     * Create an aliased <code>keywhizdb_test.row_hmac_backfill_progress</code>
+     * table reference
+     */
+    public RowHmacBackfillProgress(String alias) {
+        this(DSL.name(alias), ROW_HMAC_BACKFILL_PROGRESS);
+    }
+
+    /**
+     * Create an aliased <code>keywhizdb_test.row_hmac_backfill_progress</code>
+     * table reference
+     */
+    public RowHmacBackfillProgress(Name alias) {
+        this(alias, ROW_HMAC_BACKFILL_PROGRESS);
+    }
+
+    /**
+     * Create a <code>keywhizdb_test.row_hmac_backfill_progress</code> table
+     * reference
+     */
+    public RowHmacBackfillProgress() {
+        this(DSL.name("row_hmac_backfill_progress"), null);
+    }
+
+    public <O extends Record> RowHmacBackfillProgress(Table<O> child, ForeignKey<O, RowHmacBackfillProgressRecord> key) {
+        super(child, key, ROW_HMAC_BACKFILL_PROGRESS);
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : KeywhizdbTest.KEYWHIZDB_TEST;
+    }
+
+    @Override
+    public Identity<RowHmacBackfillProgressRecord, Long> getIdentity() {
+        return (Identity<RowHmacBackfillProgressRecord, Long>) super.getIdentity();
+    }
+
+    @Override
+    public UniqueKey<RowHmacBackfillProgressRecord> getPrimaryKey() {
+        return Keys.KEY_ROW_HMAC_BACKFILL_PROGRESS_PRIMARY;
+    }
+
+    @Override
+    public List<UniqueKey<RowHmacBackfillProgressRecord>> getUniqueKeys() {
+        return Arrays.asList(Keys.KEY_ROW_HMAC_BACKFILL_PROGRESS_RHBP_TABLE_NAME_SHARD_IDX);
+    }
+
+    @Override
+    public RowHmacBackfillProgress as(String alias) {
+        return new RowHmacBackfillProgress(DSL.name(alias), this);
+    }
+
+    @Override
+    public RowHmacBackfillProgress as(Name alias) {
+        return new RowHmacBackfillProgress(alias, this);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public RowHmacBackfillProgress rename(String name) {
+        return new RowHmacBackfillProgress(DSL.name(name), null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public RowHmacBackfillProgress rename(Name name) {
+        return new RowHmacBackfillProgress(name, null);
+    }
+
+    // -------------------------------------------------------------------------
+    // Row9 type methods
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Row9<Long, String, Long, Long, Long, Long, Boolean, Long, Long> fieldsRow() {
+        return (Row9) super.fieldsRow();
+    }
+}
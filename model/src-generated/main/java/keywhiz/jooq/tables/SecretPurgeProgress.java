@@ -0,0 +1,180 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package keywhiz.jooq.tables;
+
+
+import java.util.Arrays;
+import java.util.List;
+
+import keywhiz.jooq.Keys;
+import keywhiz.jooq.KeywhizdbTest;
+import keywhiz.jooq.tables.records.SecretPurgeProgressRecord;
+import keywhiz.model.TinyIntConverter;
+
+import org.jooq.Field;
+import org.jooq.ForeignKey;
+import org.jooq.Identity;
+import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.Row7;
+import org.jooq.Schema;
+import org.jooq.Table;
+import org.jooq.TableField;
+import org.jooq.TableOptions;
+import org.jooq.UniqueKey;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.impl.TableImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class SecretPurgeProgress extends TableImpl<SecretPurgeProgressRecord> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The reference instance of
+     * <code>keywhizdb_test.secret_purge_progress</code>
+     */
+    public static final SecretPurgeProgress SECRET_PURGE_PROGRESS = new SecretPurgeProgress();
+
+    /**
+     * The class holding records for this type
+     */
+    @Override
+    public Class<SecretPurgeProgressRecord> getRecordType() {
+        return SecretPurgeProgressRecord.class;
+    }
+
+    /**
+     * The column <code>keywhizdb_test.secret_purge_progress.id</code>.
+     */
+    public final TableField<SecretPurgeProgressRecord, Long> ID = createField(DSL.name("id"), SQLDataType.BIGINT.nullable(false).identity(true), this, "");
+
+    /**
+     * The column
+     * <code>keywhizdb_test.secret_purge_progress.deleted_before</code>.
+     */
+    public final TableField<SecretPurgeProgressRecord, Long> DELETED_BEFORE = createField(DSL.name("deleted_before"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column <code>keywhizdb_test.secret_purge_progress.last_id</code>.
+     */
+    public final TableField<SecretPurgeProgressRecord, Long> LAST_ID = createField(DSL.name("last_id"), SQLDataType.BIGINT.defaultValue(DSL.inline("NULL", SQLDataType.BIGINT)), this, "");
+
+    /**
+     * The column
+     * <code>keywhizdb_test.secret_purge_progress.secrets_removed</code>.
+     */
+    public final TableField<SecretPurgeProgressRecord, Long> SECRETS_REMOVED = createField(DSL.name("secrets_removed"), SQLDataType.BIGINT.nullable(false).defaultValue(DSL.inline("0", SQLDataType.BIGINT)), this, "");
+
+    /**
+     * The column <code>keywhizdb_test.secret_purge_progress.completed</code>.
+     */
+    public final TableField<SecretPurgeProgressRecord, Boolean> COMPLETED = createField(DSL.name("completed"), SQLDataType.TINYINT.nullable(false).defaultValue(DSL.inline("0", SQLDataType.TINYINT)), this, "", new TinyIntConverter());
+
+    /**
+     * The column <code>keywhizdb_test.secret_purge_progress.createdat</code>.
+     */
+    public final TableField<SecretPurgeProgressRecord, Long> CREATEDAT = createField(DSL.name("createdat"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    /**
+     * The column <code>keywhizdb_test.secret_purge_progress.updatedat</code>.
+     */
+    public final TableField<SecretPurgeProgressRecord, Long> UPDATEDAT = createField(DSL.name("updatedat"), SQLDataType.BIGINT.nullable(false), this, "");
+
+    private SecretPurgeProgress(Name alias, Table<SecretPurgeProgressRecord> aliased) {
+        this(alias, aliased, null);
+    }
+
+    private SecretPurgeProgress(Name alias, Table<SecretPurgeProgressRecord> aliased, Field<?>[] parameters) {
+        super(alias, null, aliased, parameters, DSL.comment(""), TableOptions.table());
+    }
+
+    /**
+     * Create an aliased <code>keywhizdb_test.secret_purge_progress</code> table
+     * reference
+     */
+    public SecretPurgeProgress(String alias) {
+        this(DSL.name(alias), SECRET_PURGE_PROGRESS);
+    }
+
+    /**
+     * Create an aliased <code>keywhizdb_test.secret_purge_progress</code> table
+     * reference
+     */
+    public SecretPurgeProgress(Name alias) {
+        this(alias, SECRET_PURGE_PROGRESS);
+    }
+
+    /**
+     * Create a <code>keywhizdb_test.secret_purge_progress</code> table
+     * reference
+     */
+    public SecretPurgeProgress() {
+        this(DSL.name("secret_purge_progress"), null);
+    }
+
+    public <O extends Record> SecretPurgeProgress(Table<O> child, ForeignKey<O, SecretPurgeProgressRecord> key) {
+        super(child, key, SECRET_PURGE_PROGRESS);
+    }
+
+    @Override
+    public Schema getSchema() {
+        return aliased() ? null : KeywhizdbTest.KEYWHIZDB_TEST;
+    }
+
+    @Override
+    public Identity<SecretPurgeProgressRecord, Long> getIdentity() {
+        return (Identity<SecretPurgeProgressRecord, Long>) super.getIdentity();
+    }
+
+    @Override
+    public UniqueKey<SecretPurgeProgressRecord> getPrimaryKey() {
+        return Keys.KEY_SECRET_PURGE_PROGRESS_PRIMARY;
+    }
+
+    @Override
+    public List<UniqueKey<SecretPurgeProgressRecord>> getUniqueKeys() {
+        return Arrays.asList(Keys.KEY_SECRET_PURGE_PROGRESS_SPP_DELETED_BEFORE_IDX);
+    }
+
+    @Override
+    public SecretPurgeProgress as(String alias) {
+        return new SecretPurgeProgress(DSL.name(alias), this);
+    }
+
+    @Override
+    public SecretPurgeProgress as(Name alias) {
+        return new SecretPurgeProgress(alias, this);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public SecretPurgeProgress rename(String name) {
+        return new SecretPurgeProgress(DSL.name(name), null);
+    }
+
+    /**
+     * Rename this table
+     */
+    @Override
+    public SecretPurgeProgress rename(Name name) {
+        return new SecretPurgeProgress(name, null);
+    }
+
+    // -------------------------------------------------------------------------
+    // Row7 type methods
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Row7<Long, Long, Long, Long, Boolean, Long, Long> fieldsRow() {
+        return (Row7) super.fieldsRow();
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package keywhiz.jooq.tables.records;
+
+
+import keywhiz.jooq.tables.RowHmacBackfillProgress;
+
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Record9;
+import org.jooq.Row9;
+import org.jooq.impl.UpdatableRecordImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class RowHmacBackfillProgressRecord extends UpdatableRecordImpl<RowHmacBackfillProgressRecord> implements Record9<Long, String, Long, Long, Long, Long, Boolean, Long, Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>keywhizdb_test.row_hmac_backfill_progress.id</code>.
+     */
+    public void setId(Long value) {
+        set(0, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.row_hmac_backfill_progress.id</code>.
+     */
+    public Long getId() {
+        return (Long) get(0);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.table_name</code>.
+     */
+    public void setTableName(String value) {
+        set(1, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.table_name</code>.
+     */
+    public String getTableName() {
+        return (String) get(1);
+    }
+
+    /**
+     * Setter for <code>keywhizdb_test.row_hmac_backfill_progress.shard</code>.
+     */
+    public void setShard(Long value) {
+        set(2, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.row_hmac_backfill_progress.shard</code>.
+     */
+    public Long getShard() {
+        return (Long) get(2);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.last_id</code>.
+     */
+    public void setLastId(Long value) {
+        set(3, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.last_id</code>.
+     */
+    public Long getLastId() {
+        return (Long) get(3);
+    }
+
+    /**
+     * Setter for <code>keywhizdb_test.row_hmac_backfill_progress.end_id</code>.
+     */
+    public void setEndId(Long value) {
+        set(4, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.row_hmac_backfill_progress.end_id</code>.
+     */
+    public Long getEndId() {
+        return (Long) get(4);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.rows_updated</code>.
+     */
+    public void setRowsUpdated(Long value) {
+        set(5, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.rows_updated</code>.
+     */
+    public Long getRowsUpdated() {
+        return (Long) get(5);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.completed</code>.
+     */
+    public void setCompleted(Boolean value) {
+        set(6, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.completed</code>.
+     */
+    public Boolean getCompleted() {
+        return (Boolean) get(6);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.createdat</code>.
+     */
+    public void setCreatedat(Long value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.createdat</code>.
+     */
+    public Long getCreatedat() {
+        return (Long) get(7);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.updatedat</code>.
+     */
+    public void setUpdatedat(Long value) {
+        set(8, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.row_hmac_backfill_progress.updatedat</code>.
+     */
+    public Long getUpdatedat() {
+        return (Long) get(8);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primary key information
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Record1<Long> key() {
+        return (Record1) super.key();
+    }
+
+    // -------------------------------------------------------------------------
+    // Record9 type implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Row9<Long, String, Long, Long, Long, Long, Boolean, Long, Long> fieldsRow() {
+        return (Row9) super.fieldsRow();
+    }
+
+    @Override
+    public Row9<Long, String, Long, Long, Long, Long, Boolean, Long, Long> valuesRow() {
+        return (Row9) super.valuesRow();
+    }
+
+    @Override
+    public Field<Long> field1() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.ID;
+    }
+
+    @Override
+    public Field<String> field2() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.TABLE_NAME;
+    }
+
+    @Override
+    public Field<Long> field3() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.SHARD;
+    }
+
+    @Override
+    public Field<Long> field4() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.LAST_ID;
+    }
+
+    @Override
+    public Field<Long> field5() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.END_ID;
+    }
+
+    @Override
+    public Field<Long> field6() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.ROWS_UPDATED;
+    }
+
+    @Override
+    public Field<Boolean> field7() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.COMPLETED;
+    }
+
+    @Override
+    public Field<Long> field8() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.CREATEDAT;
+    }
+
+    @Override
+    public Field<Long> field9() {
+        return RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS.UPDATEDAT;
+    }
+
+    @Override
+    public Long component1() {
+        return getId();
+    }
+
+    @Override
+    public String component2() {
+        return getTableName();
+    }
+
+    @Override
+    public Long component3() {
+        return getShard();
+    }
+
+    @Override
+    public Long component4() {
+        return getLastId();
+    }
+
+    @Override
+    public Long component5() {
+        return getEndId();
+    }
+
+    @Override
+    public Long component6() {
+        return getRowsUpdated();
+    }
+
+    @Override
+    public Boolean component7() {
+        return getCompleted();
+    }
+
+    @Override
+    public Long component8() {
+        return getCreatedat();
+    }
+
+    @Override
+    public Long component9() {
+        return getUpdatedat();
+    }
+
+    @Override
+    public Long value1() {
+        return getId();
+    }
+
+    @Override
+    public String value2() {
+        return getTableName();
+    }
+
+    @Override
+    public Long value3() {
+        return getShard();
+    }
+
+    @Override
+    public Long value4() {
+        return getLastId();
+    }
+
+    @Override
+    public Long value5() {
+        return getEndId();
+    }
+
+    @Override
+    public Long value6() {
+        return getRowsUpdated();
+    }
+
+    @Override
+    public Boolean value7() {
+        return getCompleted();
+    }
+
+    @Override
+    public Long value8() {
+        return getCreatedat();
+    }
+
+    @Override
+    public Long value9() {
+        return getUpdatedat();
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value1(Long value) {
+        setId(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value2(String value) {
+        setTableName(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value3(Long value) {
+        setShard(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value4(Long value) {
+        setLastId(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value5(Long value) {
+        setEndId(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value6(Long value) {
+        setRowsUpdated(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value7(Boolean value) {
+        setCompleted(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value8(Long value) {
+        setCreatedat(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord value9(Long value) {
+        setUpdatedat(value);
+        return this;
+    }
+
+    @Override
+    public RowHmacBackfillProgressRecord values(Long value1, String value2, Long value3, Long value4, Long value5, Long value6, Boolean value7, Long value8, Long value9) {
+        value1(value1);
+        value2(value2);
+        value3(value3);
+        value4(value4);
+        value5(value5);
+        value6(value6);
+        value7(value7);
+        value8(value8);
+        value9(value9);
+        return this;
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached RowHmacBackfillProgressRecord
+     */
+    public RowHmacBackfillProgressRecord() {
+        super(RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS);
+    }
+
+    /**
+     * Create a detached, initialised RowHmacBackfillProgressRecord
+     */
+    public RowHmacBackfillProgressRecord(Long id, String tableName, Long shard, Long lastId, Long endId, Long rowsUpdated, Boolean completed, Long createdat, Long updatedat) {
+        super(RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS);
+
+        setId(id);
+        setTableName(tableName);
+        setShard(shard);
+        setLastId(lastId);
+        setEndId(endId);
+        setRowsUpdated(rowsUpdated);
+        setCompleted(completed);
+        setCreatedat(createdat);
+        setUpdatedat(updatedat);
+    }
+}
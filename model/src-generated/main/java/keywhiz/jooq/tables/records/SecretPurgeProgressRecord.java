@@ -0,0 +1,333 @@
+/*
+ * This file is generated by jOOQ.
+ */
+package keywhiz.jooq.tables.records;
+
+
+import keywhiz.jooq.tables.SecretPurgeProgress;
+
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Record7;
+import org.jooq.Row7;
+import org.jooq.impl.UpdatableRecordImpl;
+
+
+/**
+ * This class is generated by jOOQ.
+ */
+@SuppressWarnings({ "all", "unchecked", "rawtypes" })
+public class SecretPurgeProgressRecord extends UpdatableRecordImpl<SecretPurgeProgressRecord> implements Record7<Long, Long, Long, Long, Boolean, Long, Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Setter for <code>keywhizdb_test.secret_purge_progress.id</code>.
+     */
+    public void setId(Long value) {
+        set(0, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.secret_purge_progress.id</code>.
+     */
+    public Long getId() {
+        return (Long) get(0);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.secret_purge_progress.deleted_before</code>.
+     */
+    public void setDeletedBefore(Long value) {
+        set(1, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.secret_purge_progress.deleted_before</code>.
+     */
+    public Long getDeletedBefore() {
+        return (Long) get(1);
+    }
+
+    /**
+     * Setter for <code>keywhizdb_test.secret_purge_progress.last_id</code>.
+     */
+    public void setLastId(Long value) {
+        set(2, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.secret_purge_progress.last_id</code>.
+     */
+    public Long getLastId() {
+        return (Long) get(2);
+    }
+
+    /**
+     * Setter for
+     * <code>keywhizdb_test.secret_purge_progress.secrets_removed</code>.
+     */
+    public void setSecretsRemoved(Long value) {
+        set(3, value);
+    }
+
+    /**
+     * Getter for
+     * <code>keywhizdb_test.secret_purge_progress.secrets_removed</code>.
+     */
+    public Long getSecretsRemoved() {
+        return (Long) get(3);
+    }
+
+    /**
+     * Setter for <code>keywhizdb_test.secret_purge_progress.completed</code>.
+     */
+    public void setCompleted(Boolean value) {
+        set(4, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.secret_purge_progress.completed</code>.
+     */
+    public Boolean getCompleted() {
+        return (Boolean) get(4);
+    }
+
+    /**
+     * Setter for <code>keywhizdb_test.secret_purge_progress.createdat</code>.
+     */
+    public void setCreatedat(Long value) {
+        set(5, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.secret_purge_progress.createdat</code>.
+     */
+    public Long getCreatedat() {
+        return (Long) get(5);
+    }
+
+    /**
+     * Setter for <code>keywhizdb_test.secret_purge_progress.updatedat</code>.
+     */
+    public void setUpdatedat(Long value) {
+        set(6, value);
+    }
+
+    /**
+     * Getter for <code>keywhizdb_test.secret_purge_progress.updatedat</code>.
+     */
+    public Long getUpdatedat() {
+        return (Long) get(6);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primary key information
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Record1<Long> key() {
+        return (Record1) super.key();
+    }
+
+    // -------------------------------------------------------------------------
+    // Record7 type implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Row7<Long, Long, Long, Long, Boolean, Long, Long> fieldsRow() {
+        return (Row7) super.fieldsRow();
+    }
+
+    @Override
+    public Row7<Long, Long, Long, Long, Boolean, Long, Long> valuesRow() {
+        return (Row7) super.valuesRow();
+    }
+
+    @Override
+    public Field<Long> field1() {
+        return SecretPurgeProgress.SECRET_PURGE_PROGRESS.ID;
+    }
+
+    @Override
+    public Field<Long> field2() {
+        return SecretPurgeProgress.SECRET_PURGE_PROGRESS.DELETED_BEFORE;
+    }
+
+    @Override
+    public Field<Long> field3() {
+        return SecretPurgeProgress.SECRET_PURGE_PROGRESS.LAST_ID;
+    }
+
+    @Override
+    public Field<Long> field4() {
+        return SecretPurgeProgress.SECRET_PURGE_PROGRESS.SECRETS_REMOVED;
+    }
+
+    @Override
+    public Field<Boolean> field5() {
+        return SecretPurgeProgress.SECRET_PURGE_PROGRESS.COMPLETED;
+    }
+
+    @Override
+    public Field<Long> field6() {
+        return SecretPurgeProgress.SECRET_PURGE_PROGRESS.CREATEDAT;
+    }
+
+    @Override
+    public Field<Long> field7() {
+        return SecretPurgeProgress.SECRET_PURGE_PROGRESS.UPDATEDAT;
+    }
+
+    @Override
+    public Long component1() {
+        return getId();
+    }
+
+    @Override
+    public Long component2() {
+        return getDeletedBefore();
+    }
+
+    @Override
+    public Long component3() {
+        return getLastId();
+    }
+
+    @Override
+    public Long component4() {
+        return getSecretsRemoved();
+    }
+
+    @Override
+    public Boolean component5() {
+        return getCompleted();
+    }
+
+    @Override
+    public Long component6() {
+        return getCreatedat();
+    }
+
+    @Override
+    public Long component7() {
+        return getUpdatedat();
+    }
+
+    @Override
+    public Long value1() {
+        return getId();
+    }
+
+    @Override
+    public Long value2() {
+        return getDeletedBefore();
+    }
+
+    @Override
+    public Long value3() {
+        return getLastId();
+    }
+
+    @Override
+    public Long value4() {
+        return getSecretsRemoved();
+    }
+
+    @Override
+    public Boolean value5() {
+        return getCompleted();
+    }
+
+    @Override
+    public Long value6() {
+        return getCreatedat();
+    }
+
+    @Override
+    public Long value7() {
+        return getUpdatedat();
+    }
+
+    @Override
+    public SecretPurgeProgressRecord value1(Long value) {
+        setId(value);
+        return this;
+    }
+
+    @Override
+    public SecretPurgeProgressRecord value2(Long value) {
+        setDeletedBefore(value);
+        return this;
+    }
+
+    @Override
+    public SecretPurgeProgressRecord value3(Long value) {
+        setLastId(value);
+        return this;
+    }
+
+    @Override
+    public SecretPurgeProgressRecord value4(Long value) {
+        setSecretsRemoved(value);
+        return this;
+    }
+
+    @Override
+    public SecretPurgeProgressRecord value5(Boolean value) {
+        setCompleted(value);
+        return this;
+    }
+
+    @Override
+    public SecretPurgeProgressRecord value6(Long value) {
+        setCreatedat(value);
+        return this;
+    }
+
+    @Override
+    public SecretPurgeProgressRecord value7(Long value) {
+        setUpdatedat(value);
+        return this;
+    }
+
+    @Override
+    public SecretPurgeProgressRecord values(Long value1, Long value2, Long value3, Long value4, Boolean value5, Long value6, Long value7) {
+        value1(value1);
+        value2(value2);
+        value3(value3);
+        value4(value4);
+        value5(value5);
+        value6(value6);
+        value7(value7);
+        return this;
+    }
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Create a detached SecretPurgeProgressRecord
+     */
+    public SecretPurgeProgressRecord() {
+        super(SecretPurgeProgress.SECRET_PURGE_PROGRESS);
+    }
+
+    /**
+     * Create a detached, initialised SecretPurgeProgressRecord
+     */
+    public SecretPurgeProgressRecord(Long id, Long deletedBefore, Long lastId, Long secretsRemoved, Boolean completed, Long createdat, Long updatedat) {
+        super(SecretPurgeProgress.SECRET_PURGE_PROGRESS);
+
+        setId(id);
+        setDeletedBefore(deletedBefore);
+        setLastId(lastId);
+        setSecretsRemoved(secretsRemoved);
+        setCompleted(completed);
+        setCreatedat(createdat);
+        setUpdatedat(updatedat);
+    }
+}
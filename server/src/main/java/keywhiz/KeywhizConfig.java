@@ -30,8 +30,16 @@ import javax.validation.constraints.NotNull;
 import keywhiz.api.validation.ValidBase64;
 import keywhiz.auth.UserAuthenticatorFactory;
 import keywhiz.auth.cookie.CookieConfig;
+import keywhiz.service.config.AuditLogConfig;
 import keywhiz.service.config.ClientAuthConfig;
+import keywhiz.service.config.CompressionConfig;
 import keywhiz.service.config.KeyStoreConfig;
+import keywhiz.service.config.ContentReencryptionConfig;
+import keywhiz.service.config.EnvelopeEncryptionConfig;
+import keywhiz.service.config.ReadCoalescingConfig;
+import keywhiz.service.config.RowHmacBackfillConfig;
+import keywhiz.service.config.SecretExpiryIndexConfig;
+import keywhiz.service.config.SecretResponseCacheConfig;
 import keywhiz.service.config.Templates;
 import org.hibernate.validator.constraints.Length;
 import org.hibernate.validator.constraints.NotEmpty;
@@ -82,6 +90,10 @@ public class KeywhizConfig extends Configuration {
   @JsonProperty
   private KeyStoreConfig contentKeyStore;
 
+  @Nullable
+  @JsonProperty
+  private KeyStoreConfig previousContentKeyStore;
+
   @NotNull
   @JsonProperty
   private String derivationProviderClass = "com.sun.crypto.provider.SunJCE";
@@ -110,6 +122,33 @@ public class KeywhizConfig extends Configuration {
   @JsonProperty
   private Boolean validateDatabase;
 
+  @JsonProperty
+  private RowHmacBackfillConfig rowHmacBackfill;
+
+  @JsonProperty
+  private SecretExpiryIndexConfig secretExpiryIndex;
+
+  @JsonProperty
+  private EnvelopeEncryptionConfig envelopeEncryption;
+
+  @JsonProperty
+  private ContentReencryptionConfig contentReencryption;
+
+  @JsonProperty
+  private AuditLogConfig auditLog;
+
+  @JsonProperty
+  private CompressionConfig compression;
+
+  @JsonProperty
+  private SecretResponseCacheConfig secretResponseCache;
+
+  @JsonProperty
+  private ReadCoalescingConfig readCoalescing;
+
+  @JsonProperty
+  private Boolean countQueries;
+
   public enum RowHmacCheck {
     @JsonProperty("disabled")
     DISABLED,
@@ -211,6 +250,14 @@ public class KeywhizConfig extends Configuration {
     return contentKeyStore;
   }
 
+  /**
+   * Keystore holding the root key being replaced by contentKeyStore during a key rotation. Set it
+   * until the content re-encryption job and the row_hmac backfills have completed.
+   */
+  @Nullable public KeyStoreConfig getPreviousContentKeyStore() {
+    return previousContentKeyStore;
+  }
+
   public String getDerivationProviderClass() {
     return derivationProviderClass;
   }
@@ -277,6 +324,43 @@ public class KeywhizConfig extends Configuration {
     this.validateDatabase = validateDatabase;
   }
 
+  public RowHmacBackfillConfig getRowHmacBackfillConfig() {
+    return rowHmacBackfill == null ? RowHmacBackfillConfig.defaults() : rowHmacBackfill;
+  }
+
+  public SecretExpiryIndexConfig getSecretExpiryIndexConfig() {
+    return secretExpiryIndex == null ? SecretExpiryIndexConfig.defaults() : secretExpiryIndex;
+  }
+
+  public EnvelopeEncryptionConfig getEnvelopeEncryptionConfig() {
+    return envelopeEncryption == null ? EnvelopeEncryptionConfig.defaults() : envelopeEncryption;
+  }
+
+  public ContentReencryptionConfig getContentReencryptionConfig() {
+    return contentReencryption == null ? ContentReencryptionConfig.defaults() : contentReencryption;
+  }
+
+  public AuditLogConfig getAuditLogConfig() {
+    return auditLog == null ? AuditLogConfig.defaults() : auditLog;
+  }
+
+  public CompressionConfig getCompressionConfig() {
+    return compression == null ? CompressionConfig.defaults() : compression;
+  }
+
+  public SecretResponseCacheConfig getSecretResponseCacheConfig() {
+    return secretResponseCache == null ? SecretResponseCacheConfig.defaults() : secretResponseCache;
+  }
+
+  public ReadCoalescingConfig getReadCoalescingConfig() {
+    return readCoalescing == null ? ReadCoalescingConfig.defaults() : readCoalescing;
+  }
+
+  /** Whether to count the database queries issued per resource method; off by default. */
+  public boolean shouldCountQueries() {
+    return countQueries == null ? false : countQueries;
+  }
+
   public static class TemplatedDataSourceFactory extends DataSourceFactory {
     @Override public String getUrl() {
       try {
@@ -38,15 +38,19 @@ import keywhiz.commands.GenerateAesKeyCommand;
 import keywhiz.commands.MigrateCommand;
 import keywhiz.commands.PreviewMigrateCommand;
 import keywhiz.inject.InjectorFactory;
+import keywhiz.service.filters.CompressionInterceptor;
 import keywhiz.service.filters.CookieRenewingFilter;
+import keywhiz.service.filters.QueryCountFilter;
 import keywhiz.service.filters.SecurityHeadersFilter;
 import keywhiz.service.permissions.PermissionCheck;
 import keywhiz.service.providers.AuthResolver;
 import keywhiz.service.providers.AutomationClientAuthFactory;
 import keywhiz.service.providers.ClientAuthFactory;
+import keywhiz.service.providers.SmileMessageBodyWriter;
 import keywhiz.service.providers.UserAuthFactory;
 import keywhiz.service.resources.BatchSecretDeliveryResource;
 import keywhiz.service.resources.SecretDeliveryResource;
+import keywhiz.service.resources.SecretDeliveryResponseCache;
 import keywhiz.service.resources.SecretsDeliveryResource;
 import keywhiz.service.resources.StatusResource;
 import keywhiz.service.resources.admin.ClientsResource;
@@ -65,6 +69,7 @@ import keywhiz.service.resources.automation.v2.BackfillRowHmacResource;
 import keywhiz.service.resources.automation.v2.BackupResource;
 import keywhiz.service.resources.automation.v2.BatchResource;
 import keywhiz.service.resources.automation.v2.ClientResource;
+import keywhiz.service.resources.automation.v2.ContentReencryptionResource;
 import keywhiz.service.resources.automation.v2.GroupResource;
 import keywhiz.service.resources.automation.v2.SecretResource;
 import org.flywaydb.core.Flyway;
@@ -137,6 +142,11 @@ public class KeywhizService extends Application<KeywhizConfig> {
         .addMappingForUrlPatterns(null, /* Default is for requests */
             false /* Can be after other filters */, "/*" /* Every request */);
     jersey.register(injector.getInstance(CookieRenewingFilter.class));
+    if (config.shouldCountQueries()) {
+      jersey.register(injector.getInstance(QueryCountFilter.class));
+    }
+    jersey.register(injector.getInstance(CompressionInterceptor.class));
+    jersey.register(new SmileMessageBodyWriter());
 
     logger.debug("Registering providers");
     jersey.register(new AuthResolver.Binder(injector.getInstance(ClientAuthFactory.class),
@@ -150,6 +160,7 @@ public class KeywhizService extends Application<KeywhizConfig> {
     jersey.register(injector.getInstance(BatchResource.class));
     jersey.register(injector.getInstance(ClientResource.class));
     jersey.register(injector.getInstance(ClientsResource.class));
+    jersey.register(injector.getInstance(ContentReencryptionResource.class));
     jersey.register(injector.getInstance(GroupResource.class));
     jersey.register(injector.getInstance(GroupsResource.class));
     jersey.register(injector.getInstance(MembershipResource.class));
@@ -208,6 +219,7 @@ public class KeywhizService extends Application<KeywhizConfig> {
   public static ObjectMapper customizeObjectMapper(ObjectMapper objectMapper) {
     objectMapper.registerModules(new Jdk8Module());
     objectMapper.registerModules(new JavaTimeModule());
+    objectMapper.registerModules(SecretDeliveryResponseCache.serializerModule());
     objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
     objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
@@ -15,6 +15,7 @@
  */
 package keywhiz;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
@@ -23,6 +24,7 @@ import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.basic.BasicCredentials;
 import io.dropwizard.db.ManagedDataSource;
 import io.dropwizard.setup.Environment;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.time.Clock;
 import keywhiz.auth.BouncyCastle;
@@ -33,16 +35,25 @@ import keywhiz.auth.cookie.SessionCookie;
 import keywhiz.auth.mutualssl.ClientCertificateFilter;
 import keywhiz.inject.ContextModule;
 import keywhiz.inject.StrictGuiceModule;
+import keywhiz.log.AsyncAuditLog;
 import keywhiz.log.AuditLog;
+import keywhiz.log.FileAuditLog;
 import keywhiz.log.SimpleLogger;
+import keywhiz.service.backfill.ContentReencrypter;
+import keywhiz.service.backfill.RowHmacBackfiller;
+import keywhiz.service.config.AuditLogConfig;
 import keywhiz.service.config.Readonly;
 import keywhiz.service.crypto.ContentCryptographer;
 import keywhiz.service.crypto.CryptoModule;
+import keywhiz.service.crypto.RowHmacGenerator;
 import keywhiz.service.crypto.SecretTransformer;
 import keywhiz.service.daos.AclDAO.AclDAOFactory;
 import keywhiz.service.daos.DaoModule;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO.RowHmacBackfillProgressDAOFactory;
 import keywhiz.service.daos.SecretController;
 import keywhiz.service.daos.SecretDAO.SecretDAOFactory;
+import keywhiz.service.expiry.SecretExpiryIndex;
+import keywhiz.service.filters.QueryCountFilter;
 import keywhiz.service.filters.SecurityHeadersFilter;
 import keywhiz.service.permissions.PermissionCheckModule;
 import keywhiz.service.resources.admin.SessionMeResource;
@@ -75,17 +86,35 @@ public class ServiceModule extends AbstractModule {
 
     install(new ContextModule(config, environment));
     install(new CookieModule(config.getCookieKey()));
-    install(new CryptoModule(config.getDerivationProviderClass(), config.getContentKeyStore()));
+    install(new CryptoModule(config.getDerivationProviderClass(), config.getContentKeyStore(),
+        config.getEnvelopeEncryptionConfig(), config.getPreviousContentKeyStore()));
     install(new DaoModule());
     install(new StrictGuiceModule());
     install(new PermissionCheckModule());
-    install(new LogArgumentsModule());
+    install(new LogArgumentsModule(environment.metrics()));
   }
 
   // AuditLog
 
-  @Provides @Singleton AuditLog simpleLogger() {
-    return new SimpleLogger();
+  @Provides @Singleton AuditLog auditLog(MetricRegistry metricRegistry, KeywhizConfig config) {
+    AuditLogConfig auditLogConfig = config.getAuditLogConfig();
+    AuditLog sink;
+    if (auditLogConfig.directory() == null) {
+      sink = new SimpleLogger();
+    } else {
+      FileAuditLog fileAuditLog = new FileAuditLog(Paths.get(auditLogConfig.directory()));
+      environment.lifecycle().manage(fileAuditLog);
+      sink = fileAuditLog;
+    }
+    if (!auditLogConfig.async()) {
+      return sink;
+    }
+    // Managed objects are stopped in reverse order, so queued events are written before the file
+    // is closed
+    AsyncAuditLog auditLog = new AsyncAuditLog(sink, auditLogConfig.queueCapacity(),
+        auditLogConfig.batchSize(), auditLogConfig.overflowPolicy(), metricRegistry);
+    environment.lifecycle().manage(auditLog);
+    return auditLog;
   }
 
   @Provides ObjectMapper configuredObjectMapper(Environment environment) {
@@ -94,8 +123,14 @@ public class ServiceModule extends AbstractModule {
 
   // jOOQ
 
-  @Provides @Singleton DSLContext jooqContext(ManagedDataSource dataSource) throws SQLException {
-    return DSLContexts.databaseAgnostic(dataSource);
+  @Provides @Singleton DSLContext jooqContext(ManagedDataSource dataSource,
+      SecretExpiryIndex expiryIndex) throws SQLException {
+    DSLContext dslContext = DSLContexts.databaseAgnostic(dataSource);
+    if (config.shouldCountQueries()) {
+      QueryCountFilter.install(dslContext);
+    }
+    expiryIndex.install(dslContext);
+    return dslContext;
   }
 
   @Provides @Singleton
@@ -106,6 +141,9 @@ public class ServiceModule extends AbstractModule {
     // Disable support for nested transactions via savepoints (required for MySQL)
     // See: https://groups.google.com/forum/#!topic/jooq-user/zG0U6CkxI5o
     configuration.set(new DefaultTransactionProvider(configuration.connectionProvider(), false));
+    if (config.shouldCountQueries()) {
+      QueryCountFilter.install(dslContext);
+    }
     return dslContext;
   }
 
@@ -124,6 +162,32 @@ public class ServiceModule extends AbstractModule {
         aclDAOFactory.readonly(), config);
   }
 
+  @Provides @Singleton RowHmacBackfiller rowHmacBackfiller(DSLContext jooq,
+      RowHmacBackfillProgressDAOFactory progressDAOFactory, RowHmacGenerator rowHmacGenerator,
+      MetricRegistry metricRegistry, KeywhizConfig config) {
+    RowHmacBackfiller backfiller = new RowHmacBackfiller(jooq, progressDAOFactory,
+        rowHmacGenerator, metricRegistry, config.getRowHmacBackfillConfig());
+    environment.lifecycle().manage(backfiller);
+    return backfiller;
+  }
+
+  @Provides @Singleton ContentReencrypter contentReencrypter(DSLContext jooq,
+      RowHmacBackfillProgressDAOFactory progressDAOFactory, ContentCryptographer cryptographer,
+      RowHmacGenerator rowHmacGenerator, MetricRegistry metricRegistry, KeywhizConfig config) {
+    ContentReencrypter reencrypter = new ContentReencrypter(jooq, progressDAOFactory, cryptographer,
+        rowHmacGenerator, metricRegistry, config.getContentReencryptionConfig());
+    environment.lifecycle().manage(reencrypter);
+    return reencrypter;
+  }
+
+  @Provides @Singleton SecretExpiryIndex secretExpiryIndex(@Readonly DSLContext readonlyJooq,
+      MetricRegistry metricRegistry, KeywhizConfig config) {
+    SecretExpiryIndex index = new SecretExpiryIndex(readonlyJooq,
+        config.getSecretExpiryIndexConfig(), metricRegistry);
+    environment.lifecycle().manage(index);
+    return index;
+  }
+
   @Provides @Singleton
   @Readonly Authenticator<BasicCredentials, User> authenticator(KeywhizConfig config,
       @Readonly DSLContext jooqContext) {
@@ -11,7 +11,10 @@ import java.util.Scanner;
 import keywhiz.Environments;
 import keywhiz.inject.InjectorFactory;
 import keywhiz.KeywhizConfig;
-import keywhiz.service.daos.SecretDAO;
+import keywhiz.service.purge.DeletedSecretsPurger;
+import keywhiz.service.purge.SecretPurgeEstimate;
+import keywhiz.service.purge.SecretPurgeOptions;
+import net.sourceforge.argparse4j.impl.Arguments;
 import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 import org.joda.time.DateTime;
@@ -29,22 +32,33 @@ import static java.lang.String.format;
  * This command permanently drops information about deleted secrets from the database.  This is
  * clearly dangerous, so it should be run only when it is certain that the deleted secrets will not
  * need to be manually recovered.
+ *
+ * Removal proceeds in batches whose size adapts to how long each batch takes, and pauses while
+ * the readonly replica lags behind.  Progress is checkpointed in the database, so re-running the
+ * command with the same cutoff after an interruption resumes where it stopped.  Use --dry-run to
+ * see how many records would be removed and roughly how long it would take.
  */
 public class DropDeletedSecretsCommand extends ConfiguredCommand<KeywhizConfig> {
   private static final Logger logger = LoggerFactory.getLogger(DropDeletedSecretsCommand.class);
   protected static final String INPUT_DELETED_BEFORE = "deleted-before";
   protected static final String INPUT_SLEEP_MILLIS = "sleep-millis";
+  protected static final String INPUT_BATCH_SIZE = "batch-size";
+  protected static final String INPUT_MAX_BATCH_SIZE = "max-batch-size";
+  protected static final String INPUT_TARGET_BATCH_MILLIS = "target-batch-millis";
+  protected static final String INPUT_MAX_REPLICA_LAG_SECONDS = "max-replica-lag-seconds";
+  protected static final String INPUT_RESTART = "restart";
+  protected static final String INPUT_DRY_RUN = "dry-run";
 
-  private SecretDAO secretDAO;
+  private DeletedSecretsPurger purger;
 
   public DropDeletedSecretsCommand() {
     super("drop-deleted-secrets", "PERMANENTLY REMOVES database records for deleted secrets");
   }
 
   @VisibleForTesting
-  public DropDeletedSecretsCommand(SecretDAO secretDAO) {
+  public DropDeletedSecretsCommand(DeletedSecretsPurger purger) {
     this();
-    this.secretDAO = secretDAO;
+    this.purger = purger;
   }
 
   @Override public void configure(Subparser subparser) {
@@ -63,12 +77,46 @@ public class DropDeletedSecretsCommand extends ConfiguredCommand<KeywhizConfig>
         .type(Integer.class)
         .setDefault(500)
         .help("how many milliseconds to sleep between batches of removals");
+
+    subparser.addArgument("--batch-size")
+        .dest(INPUT_BATCH_SIZE)
+        .type(Integer.class)
+        .setDefault(1000)
+        .help("how many secrets to remove in the first batch");
+
+    subparser.addArgument("--max-batch-size")
+        .dest(INPUT_MAX_BATCH_SIZE)
+        .type(Integer.class)
+        .setDefault(10000)
+        .help("the most secrets to remove in a single batch");
+
+    subparser.addArgument("--target-batch-millis")
+        .dest(INPUT_TARGET_BATCH_MILLIS)
+        .type(Integer.class)
+        .setDefault(500)
+        .help("batch latency to aim for; batches shrink when slower and grow when faster");
+
+    subparser.addArgument("--max-replica-lag-seconds")
+        .dest(INPUT_MAX_REPLICA_LAG_SECONDS)
+        .type(Integer.class)
+        .setDefault(10)
+        .help("pause removals while the readonly replica lags by more than this; negative to ignore lag");
+
+    subparser.addArgument("--restart")
+        .dest(INPUT_RESTART)
+        .action(Arguments.storeTrue())
+        .help("start over instead of resuming an interrupted removal with the same cutoff");
+
+    subparser.addArgument("--dry-run")
+        .dest(INPUT_DRY_RUN)
+        .action(Arguments.storeTrue())
+        .help("report what would be removed and the projected duration without removing anything");
   }
 
   @Override public void run(Bootstrap<KeywhizConfig> bootstrap, Namespace namespace,
       KeywhizConfig config) throws Exception {
-    if (secretDAO == null) {
-      secretDAO = getSecretDAO(bootstrap, config);
+    if (purger == null) {
+      purger = getPurger(bootstrap, config);
     }
 
     // validate the input
@@ -85,9 +133,36 @@ public class DropDeletedSecretsCommand extends ConfiguredCommand<KeywhizConfig>
       return;
     }
 
+    SecretPurgeOptions options;
+    try {
+      options = SecretPurgeOptions.builder()
+          .initialBatchSize(namespace.getInt(INPUT_BATCH_SIZE))
+          .maxBatchSize(namespace.getInt(INPUT_MAX_BATCH_SIZE))
+          .targetBatchLatencyMillis(namespace.getInt(INPUT_TARGET_BATCH_MILLIS))
+          .pauseMillis(sleepMillis)
+          .maxReplicaLagSeconds(namespace.getInt(INPUT_MAX_REPLICA_LAG_SECONDS))
+          .restart(namespace.getBoolean(INPUT_RESTART))
+          .build();
+    } catch (IllegalArgumentException e) {
+      System.out.format("Invalid batch options: %s\n", e.getMessage());
+      return;
+    }
+
+    if (namespace.getBoolean(INPUT_DRY_RUN)) {
+      SecretPurgeEstimate estimate = purger.estimate(deletedBefore, options);
+      System.out.format(
+          "Dry run: %d secrets deleted before %s would be removed, with %d secret versions, "
+              + "in about %d batches taking roughly %d seconds%s.\n",
+          estimate.secrets(), deletedBefore.toString(), estimate.secretContents(),
+          estimate.batches(), estimate.projectedDuration().getSeconds(),
+          estimate.resumeAfterId() == null ? ""
+              : format(" (resuming after secret id %d)", estimate.resumeAfterId()));
+      return;
+    }
+
     // determine how many secrets would be affected and get user confirmation
-    long totalDeletedCount = secretDAO.countDeletedSecrets();
-    long affectedCount = secretDAO.countSecretsDeletedBeforeDate(deletedBefore);
+    long totalDeletedCount = purger.countDeletedSecrets();
+    long affectedCount = purger.countSecretsDeletedBeforeDate(deletedBefore);
 
     if (affectedCount == 0) {
       System.out.format(
@@ -127,9 +202,10 @@ public class DropDeletedSecretsCommand extends ConfiguredCommand<KeywhizConfig>
         "drop-deleted-secrets: Removing %d secrets which were deleted before %s from the database",
         affectedCount, deletedBefore.toString()));
     try {
-      secretDAO.dangerPermanentlyRemoveSecretsDeletedBeforeDate(deletedBefore, sleepMillis);
+      long removed = purger.purge(deletedBefore, options);
+      System.out.format("Removed %d secrets\n", removed);
     } catch (InterruptedException e) {
-      System.out.println("Error removing secrets; please retry command");
+      System.out.println("Error removing secrets; re-run the command to resume");
       e.printStackTrace();
 
       logger.info(format(
@@ -139,7 +215,7 @@ public class DropDeletedSecretsCommand extends ConfiguredCommand<KeywhizConfig>
   }
 
   @VisibleForTesting
-  static SecretDAO getSecretDAO(Bootstrap<KeywhizConfig> bootstrap, KeywhizConfig config) {
+  static DeletedSecretsPurger getPurger(Bootstrap<KeywhizConfig> bootstrap, KeywhizConfig config) {
     ManagedDataSource dataSource = config.getDataSourceFactory()
         .build(new MetricRegistry(), "drop-deleted-secrets-datasource");
 
@@ -148,8 +224,7 @@ public class DropDeletedSecretsCommand extends ConfiguredCommand<KeywhizConfig>
         Environments.fromBootstrap(bootstrap),
         dataSource);
 
-    SecretDAO.SecretDAOFactory factory = injector.getInstance(SecretDAO.SecretDAOFactory.class);
-    return factory.readwrite();
+    return injector.getInstance(DeletedSecretsPurger.class);
   }
 
   private DateTime getDateIfValid(String deletedBeforeStr) {
@@ -0,0 +1,279 @@
+package keywhiz.service.backfill;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import keywhiz.api.automation.v2.ContentReencryptionStatusV2;
+import keywhiz.jooq.tables.records.RowHmacBackfillProgressRecord;
+import keywhiz.service.config.ContentReencryptionConfig;
+import keywhiz.service.crypto.ContentCryptographer;
+import keywhiz.service.crypto.RowHmacGenerator;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO.RowHmacBackfillProgressDAOFactory;
+import keywhiz.utility.AdaptiveThrottle;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Record3;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static keywhiz.jooq.Tables.SECRETS_CONTENT;
+import static org.jooq.impl.DSL.max;
+import static org.jooq.impl.DSL.min;
+
+/**
+ * Moves secret contents encrypted under the previous root key over to the current one.
+ *
+ * The job is run like a {@link RowHmacBackfiller} job, and keeps its per-shard cursors in the
+ * same progress table. For each batch, a worker locks its shard's progress row, so that batches
+ * of a shard are never run concurrently by several instances, then locks the secrets_content rows
+ * past the persisted cursor, re-encrypts those still under the previous key and writes them back
+ * with their content_hmac and row_hmac recomputed under the current key, in a single UPDATE. Rows
+ * already under the current key are left alone, so the job can safely be restarted or run while
+ * secrets are being written.
+ *
+ * Rows which cannot be decrypted under either key are logged and skipped.
+ */
+public class ContentReencrypter implements Managed {
+  private static final Logger logger = LoggerFactory.getLogger(ContentReencrypter.class);
+
+  /** Key of the job in the progress table. */
+  @VisibleForTesting static final String JOB_NAME = "secrets_content_reencrypt";
+
+  private final DSLContext jooq;
+  private final RowHmacBackfillProgressDAOFactory progressDAOFactory;
+  private final ContentCryptographer cryptographer;
+  private final RowHmacGenerator rowHmacGenerator;
+  private final MetricRegistry metricRegistry;
+  private final ContentReencryptionConfig config;
+  private final AdaptiveThrottle throttle;
+  private final ExecutorService executor;
+  private volatile List<Future<?>> running = List.of();
+
+  public ContentReencrypter(DSLContext jooq, RowHmacBackfillProgressDAOFactory progressDAOFactory,
+      ContentCryptographer cryptographer, RowHmacGenerator rowHmacGenerator,
+      MetricRegistry metricRegistry, ContentReencryptionConfig config) {
+    this.jooq = jooq;
+    this.progressDAOFactory = progressDAOFactory;
+    this.cryptographer = cryptographer;
+    this.rowHmacGenerator = rowHmacGenerator;
+    this.metricRegistry = metricRegistry;
+    this.config = config;
+    this.throttle = new AdaptiveThrottle(config.targetBatchLatencyMillis(), config.maxThrottleMillis());
+    this.executor = Executors.newFixedThreadPool(config.workers(),
+        new ThreadFactoryBuilder().setNameFormat("content-reencrypt-%d").setDaemon(true).build());
+  }
+
+  /** Resumes a job that was interrupted by a shutdown, as long as the previous key is still set. */
+  @Override public void start() {
+    List<RowHmacBackfillProgressRecord> shards = progressDAOFactory.readwrite().getProgress(JOB_NAME);
+    if (shards.stream().anyMatch(shard -> !shard.getCompleted())) {
+      if (cryptographer.hasPreviousKey()) {
+        logger.info("content-reencrypt: resuming");
+        submit(shards);
+      } else {
+        logger.warn("content-reencrypt: not resuming, no previous content key is configured");
+      }
+    }
+  }
+
+  @Override public void stop() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Starts re-encrypting. Does nothing if the job is already running. Resumes an incomplete job
+   * unless {@code restart} is set; a completed job is always started over.
+   *
+   * @throws IllegalStateException if no previous root key is configured
+   */
+  public synchronized ContentReencryptionStatusV2 startReencryption(boolean restart) {
+    checkState(cryptographer.hasPreviousKey(), "No previous content key is configured");
+    if (isRunning()) {
+      return status();
+    }
+
+    RowHmacBackfillProgressDAO progressDAO = progressDAOFactory.readwrite();
+    List<RowHmacBackfillProgressRecord> shards = progressDAO.getProgress(JOB_NAME);
+    boolean resumable = shards.stream().anyMatch(shard -> !shard.getCompleted());
+
+    if (restart || !resumable) {
+      Record bounds = jooq.select(min(SECRETS_CONTENT.ID), max(SECRETS_CONTENT.ID))
+          .from(SECRETS_CONTENT)
+          .fetchOne();
+      Long minId = bounds.get(0, Long.class);
+      Long maxId = bounds.get(1, Long.class);
+      if (minId == null) {
+        progressDAO.resetProgress(JOB_NAME, 0, 0, config.workers());
+      } else {
+        progressDAO.resetProgress(JOB_NAME, minId - 1, maxId, config.workers());
+      }
+      shards = progressDAO.getProgress(JOB_NAME);
+    }
+
+    submit(shards);
+    return status();
+  }
+
+  public ContentReencryptionStatusV2 status() {
+    List<RowHmacBackfillProgressRecord> shards = progressDAOFactory.readwrite().getProgress(JOB_NAME);
+    long remainingRows = 0;
+    for (RowHmacBackfillProgressRecord shard : shards) {
+      if (!shard.getCompleted()) {
+        remainingRows += jooq.fetchCount(SECRETS_CONTENT,
+            SECRETS_CONTENT.ID.greaterThan(shard.getLastId())
+                .and(SECRETS_CONTENT.ID.lessOrEqual(shard.getEndId())));
+      }
+    }
+    return ContentReencryptionStatusV2.builder()
+        .running(isRunning())
+        .previousKeyConfigured(cryptographer.hasPreviousKey())
+        .shards(shards.size())
+        .completedShards((int) shards.stream().filter(RowHmacBackfillProgressRecord::getCompleted).count())
+        .rowsReencrypted(shards.stream().mapToLong(RowHmacBackfillProgressRecord::getRowsUpdated).sum())
+        .rowsFailed(failuresMeter().getCount())
+        .remainingRows(remainingRows)
+        .rowsPerSecond(rowsMeter().getOneMinuteRate())
+        .throttleMillis(throttle.currentDelayMillis())
+        .build();
+  }
+
+  public boolean isRunning() {
+    return running.stream().anyMatch(future -> !future.isDone());
+  }
+
+  private void submit(List<RowHmacBackfillProgressRecord> shards) {
+    List<Future<?>> futures = new ArrayList<>();
+    for (RowHmacBackfillProgressRecord shard : shards) {
+      if (!shard.getCompleted()) {
+        futures.add(executor.submit(() -> runShard(shard)));
+      }
+    }
+    running = futures;
+  }
+
+  private void runShard(RowHmacBackfillProgressRecord shard) {
+    try {
+      long cursor = shard.getLastId();
+      while (cursor < shard.getEndId() && !Thread.currentThread().isInterrupted()) {
+        long start = System.nanoTime();
+        cursor = processBatch(shard.getId(), shard.getEndId());
+        throttle.pace(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      }
+      logger.info("content-reencrypt: shard {} stopped at id {}", shard.getShard(), cursor);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      logger.error("content-reencrypt: shard {} failed", shard.getShard(), e);
+    }
+  }
+
+  /**
+   * Re-encrypts up to one batch of the rows with ids in (cursor, endId], where the cursor is the
+   * shard's persisted one.
+   *
+   * @return the new cursor, or endId if the shard is complete or no longer exists
+   */
+  @VisibleForTesting
+  long processBatch(long progressId, long endId) {
+    try (Timer.Context ignored = metricRegistry.timer(metricName("batches")).time()) {
+      return jooq.transactionResult(configuration -> {
+        DSLContext dslContext = DSL.using(configuration);
+        RowHmacBackfillProgressDAO progressDAO = progressDAOFactory.using(configuration);
+        Optional<RowHmacBackfillProgressRecord> progress = progressDAO.lockShard(progressId);
+        if (progress.isEmpty() || progress.get().getCompleted()) {
+          return endId;
+        }
+        long cursor = progress.get().getLastId();
+
+        Result<Record3<Long, String, String>> rows = dslContext
+            .select(SECRETS_CONTENT.ID, SECRETS_CONTENT.ENCRYPTED_CONTENT, SECRETS_CONTENT.METADATA)
+            .from(SECRETS_CONTENT)
+            .where(SECRETS_CONTENT.ID.greaterThan(cursor).and(SECRETS_CONTENT.ID.lessOrEqual(endId)))
+            .orderBy(SECRETS_CONTENT.ID)
+            .limit(config.batchSize())
+            .forUpdate()
+            .fetch();
+
+        long newCursor = rows.isEmpty() ? endId : rows.get(rows.size() - 1).value1();
+        boolean completed = rows.size() < config.batchSize() || newCursor >= endId;
+
+        Map<Long, String> encryptedContents = new HashMap<>();
+        Map<Long, String> contentHmacs = new HashMap<>();
+        Map<Long, String> rowHmacs = new HashMap<>();
+        for (Record3<Long, String, String> row : rows) {
+          long id = row.value1();
+          Optional<String> reencrypted;
+          String contentHmac;
+          try {
+            reencrypted = cryptographer.reencrypt(row.value2());
+            if (!reencrypted.isPresent()) {
+              continue;
+            }
+            // content_hmac is computed over the base64 content, like on secret creation
+            String plaintext = cryptographer.decrypt(reencrypted.get());
+            contentHmac = cryptographer.computeHmac(plaintext.getBytes(UTF_8), "hmackey");
+          } catch (RuntimeException e) {
+            logger.warn("content-reencrypt: unable to re-encrypt secrets_content {}", id, e);
+            failuresMeter().mark();
+            continue;
+          }
+
+          encryptedContents.put(id, reencrypted.get());
+          contentHmacs.put(id, contentHmac);
+          rowHmacs.put(id, rowHmacGenerator.computeRowHmac(SECRETS_CONTENT.getName(),
+              List.of(reencrypted.get(), row.value3(), id)));
+        }
+
+        if (!encryptedContents.isEmpty()) {
+          dslContext.update(SECRETS_CONTENT)
+              .set(SECRETS_CONTENT.ENCRYPTED_CONTENT, DSL.choose(SECRETS_CONTENT.ID)
+                  .mapValues(encryptedContents)
+                  .otherwise(SECRETS_CONTENT.ENCRYPTED_CONTENT))
+              .set(SECRETS_CONTENT.CONTENT_HMAC, DSL.choose(SECRETS_CONTENT.ID)
+                  .mapValues(contentHmacs)
+                  .otherwise(SECRETS_CONTENT.CONTENT_HMAC))
+              .set(SECRETS_CONTENT.ROW_HMAC, DSL.choose(SECRETS_CONTENT.ID)
+                  .mapValues(rowHmacs)
+                  .otherwise(SECRETS_CONTENT.ROW_HMAC))
+              .where(SECRETS_CONTENT.ID.in(encryptedContents.keySet()))
+              .execute();
+        }
+
+        progressDAO.advanceShard(progressId, completed ? endId : newCursor,
+            encryptedContents.size(), completed);
+        rowsMeter().mark(encryptedContents.size());
+        return completed ? endId : newCursor;
+      });
+    }
+  }
+
+  private Meter rowsMeter() {
+    return metricRegistry.meter(metricName("rows"));
+  }
+
+  private Meter failuresMeter() {
+    return metricRegistry.meter(metricName("failures"));
+  }
+
+  private static String metricName(String name) {
+    return MetricRegistry.name(ContentReencrypter.class, name);
+  }
+}
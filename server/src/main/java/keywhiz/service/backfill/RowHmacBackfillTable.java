@@ -0,0 +1,91 @@
+package keywhiz.service.backfill;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+
+import static java.util.stream.Collectors.toList;
+import static keywhiz.jooq.Tables.ACCESSGRANTS;
+import static keywhiz.jooq.Tables.CLIENTS;
+import static keywhiz.jooq.Tables.MEMBERSHIPS;
+import static keywhiz.jooq.Tables.SECRETS;
+import static keywhiz.jooq.Tables.SECRETS_CONTENT;
+
+/**
+ * Tables with a row_hmac column, and the columns each row's HMAC is computed over. The column
+ * order must match the one used when the rows are written.
+ */
+public enum RowHmacBackfillTable {
+  SECRETS_TABLE("secrets", SECRETS, SECRETS.ID, SECRETS.ROW_HMAC, true,
+      List.of(SECRETS.NAME, SECRETS.ID)),
+  SECRETS_CONTENT_TABLE("secrets-content", SECRETS_CONTENT, SECRETS_CONTENT.ID,
+      SECRETS_CONTENT.ROW_HMAC, false,
+      List.of(SECRETS_CONTENT.ENCRYPTED_CONTENT, SECRETS_CONTENT.METADATA, SECRETS_CONTENT.ID)),
+  CLIENTS_TABLE("clients", CLIENTS, CLIENTS.ID, CLIENTS.ROW_HMAC, false,
+      List.of(CLIENTS.NAME, CLIENTS.ID)),
+  MEMBERSHIPS_TABLE("memberships", MEMBERSHIPS, MEMBERSHIPS.ID, MEMBERSHIPS.ROW_HMAC, false,
+      List.of(MEMBERSHIPS.CLIENTID, MEMBERSHIPS.GROUPID)),
+  ACCESSGRANTS_TABLE("accessgrants", ACCESSGRANTS, ACCESSGRANTS.ID, ACCESSGRANTS.ROW_HMAC, false,
+      List.of(ACCESSGRANTS.GROUPID, ACCESSGRANTS.SECRETID));
+
+  private final String pathName;
+  private final Table<?> table;
+  private final Field<Long> id;
+  private final Field<String> rowHmac;
+  private final boolean onlyMissing;
+  private final List<Field<?>> hmacFields;
+
+  RowHmacBackfillTable(String pathName, Table<?> table, Field<Long> id, Field<String> rowHmac,
+      boolean onlyMissing, List<Field<?>> hmacFields) {
+    this.pathName = pathName;
+    this.table = table;
+    this.id = id;
+    this.rowHmac = rowHmac;
+    this.onlyMissing = onlyMissing;
+    this.hmacFields = hmacFields;
+  }
+
+  public static Optional<RowHmacBackfillTable> fromPathName(String pathName) {
+    return Stream.of(values()).filter(t -> t.pathName.equals(pathName)).findFirst();
+  }
+
+  /** Name used in endpoint paths, matching the existing backfill-* endpoints. */
+  public String pathName() {
+    return pathName;
+  }
+
+  public Table<?> table() {
+    return table;
+  }
+
+  public Field<Long> id() {
+    return id;
+  }
+
+  public Field<String> rowHmac() {
+    return rowHmac;
+  }
+
+  /**
+   * Whether only rows without an HMAC, or with one computed under the previous root key during a
+   * key rotation, are written. Rows of other tables are rewritten whenever the stored HMAC differs
+   * from the computed one.
+   */
+  public boolean onlyMissing() {
+    return onlyMissing;
+  }
+
+  /** Columns to select for each row: the id, the current row_hmac and the HMAC inputs. */
+  public List<Field<?>> selectFields() {
+    return Stream.concat(Stream.of(id, rowHmac), hmacFields.stream())
+        .distinct()
+        .collect(toList());
+  }
+
+  public List<Object> hmacInputs(Record row) {
+    return hmacFields.stream().map(row::get).collect(toList());
+  }
+}
@@ -0,0 +1,252 @@
+package keywhiz.service.backfill;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import keywhiz.api.automation.v2.RowHmacBackfillStatusV2;
+import keywhiz.jooq.tables.records.RowHmacBackfillProgressRecord;
+import keywhiz.service.config.RowHmacBackfillConfig;
+import keywhiz.service.crypto.RowHmacGenerator;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO.RowHmacBackfillProgressDAOFactory;
+import keywhiz.utility.AdaptiveThrottle;
+import org.jooq.CaseValueStep;
+import org.jooq.CaseWhenStep;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.stream.Collectors.toList;
+import static org.jooq.impl.DSL.max;
+import static org.jooq.impl.DSL.min;
+
+/**
+ * Runs row_hmac backfills in the background.
+ *
+ * A job splits a table's id space into one shard per worker. Each worker reads a batch of rows
+ * past its shard cursor, computes their HMACs, writes the changed ones with a single UPDATE and
+ * advances the persisted cursor in the same transaction. Batches are paced by an
+ * {@link AdaptiveThrottle} shared by all workers, and jobs left incomplete by a restart are
+ * resumed when the service starts.
+ *
+ * Every instance resumes incomplete jobs, and a job can be started on several instances. Each
+ * batch therefore locks its shard's progress row and continues from the persisted cursor, so
+ * workers on the same shard take turns rather than repeating or rewinding each other's work. A
+ * worker whose shard was discarded by a restart elsewhere stops.
+ */
+public class RowHmacBackfiller implements Managed {
+  private static final Logger logger = LoggerFactory.getLogger(RowHmacBackfiller.class);
+
+  private final DSLContext jooq;
+  private final RowHmacBackfillProgressDAOFactory progressDAOFactory;
+  private final RowHmacGenerator rowHmacGenerator;
+  private final MetricRegistry metricRegistry;
+  private final RowHmacBackfillConfig config;
+  private final AdaptiveThrottle throttle;
+  private final ExecutorService executor;
+  private final Map<RowHmacBackfillTable, List<Future<?>>> runningJobs = new ConcurrentHashMap<>();
+
+  public RowHmacBackfiller(DSLContext jooq, RowHmacBackfillProgressDAOFactory progressDAOFactory,
+      RowHmacGenerator rowHmacGenerator, MetricRegistry metricRegistry,
+      RowHmacBackfillConfig config) {
+    this.jooq = jooq;
+    this.progressDAOFactory = progressDAOFactory;
+    this.rowHmacGenerator = rowHmacGenerator;
+    this.metricRegistry = metricRegistry;
+    this.config = config;
+    this.throttle = new AdaptiveThrottle(config.targetBatchLatencyMillis(), config.maxThrottleMillis());
+    this.executor = Executors.newFixedThreadPool(config.workers(),
+        new ThreadFactoryBuilder().setNameFormat("row-hmac-backfill-%d").setDaemon(true).build());
+  }
+
+  /** Resumes jobs that were interrupted by a shutdown. */
+  @Override public void start() {
+    RowHmacBackfillProgressDAO progressDAO = progressDAOFactory.readwrite();
+    for (RowHmacBackfillTable table : RowHmacBackfillTable.values()) {
+      List<RowHmacBackfillProgressRecord> shards = progressDAO.getProgress(table.table().getName());
+      if (shards.stream().anyMatch(shard -> !shard.getCompleted())) {
+        logger.info("row-hmac-backfill: resuming {}", table.pathName());
+        submit(table, shards);
+      }
+    }
+  }
+
+  @Override public void stop() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Starts backfilling a table. Does nothing if the table is already being processed. Resumes an
+   * incomplete job unless {@code restart} is set; a completed job is always started over.
+   */
+  public synchronized RowHmacBackfillStatusV2 startBackfill(RowHmacBackfillTable table,
+      boolean restart) {
+    if (isRunning(table)) {
+      return status(table);
+    }
+
+    RowHmacBackfillProgressDAO progressDAO = progressDAOFactory.readwrite();
+    String tableName = table.table().getName();
+    List<RowHmacBackfillProgressRecord> shards = progressDAO.getProgress(tableName);
+    boolean resumable = shards.stream().anyMatch(shard -> !shard.getCompleted());
+
+    if (restart || !resumable) {
+      Record bounds = jooq.select(min(table.id()), max(table.id())).from(table.table()).fetchOne();
+      Long minId = bounds.get(0, Long.class);
+      Long maxId = bounds.get(1, Long.class);
+      if (minId == null) {
+        progressDAO.resetProgress(tableName, 0, 0, config.workers());
+      } else {
+        progressDAO.resetProgress(tableName, minId - 1, maxId, config.workers());
+      }
+      shards = progressDAO.getProgress(tableName);
+    }
+
+    submit(table, shards);
+    return status(table);
+  }
+
+  public RowHmacBackfillStatusV2 status(RowHmacBackfillTable table) {
+    List<RowHmacBackfillProgressRecord> shards =
+        progressDAOFactory.readwrite().getProgress(table.table().getName());
+    return RowHmacBackfillStatusV2.builder()
+        .table(table.pathName())
+        .running(isRunning(table))
+        .shards(shards.size())
+        .completedShards((int) shards.stream().filter(RowHmacBackfillProgressRecord::getCompleted).count())
+        .rowsUpdated(shards.stream().mapToLong(RowHmacBackfillProgressRecord::getRowsUpdated).sum())
+        .remainingIds(shards.stream()
+            .filter(shard -> !shard.getCompleted())
+            .mapToLong(shard -> shard.getEndId() - shard.getLastId())
+            .sum())
+        .rowsPerSecond(rowsMeter(table).getOneMinuteRate())
+        .throttleMillis(throttle.currentDelayMillis())
+        .build();
+  }
+
+  public List<RowHmacBackfillStatusV2> statuses() {
+    return Stream.of(RowHmacBackfillTable.values()).map(this::status).collect(toList());
+  }
+
+  public boolean isRunning(RowHmacBackfillTable table) {
+    List<Future<?>> futures = runningJobs.get(table);
+    return futures != null && futures.stream().anyMatch(future -> !future.isDone());
+  }
+
+  private void submit(RowHmacBackfillTable table, List<RowHmacBackfillProgressRecord> shards) {
+    List<Future<?>> futures = new ArrayList<>();
+    for (RowHmacBackfillProgressRecord shard : shards) {
+      if (!shard.getCompleted()) {
+        futures.add(executor.submit(() -> runShard(table, shard)));
+      }
+    }
+    runningJobs.put(table, futures);
+  }
+
+  private void runShard(RowHmacBackfillTable table, RowHmacBackfillProgressRecord shard) {
+    try {
+      long cursor = shard.getLastId();
+      while (cursor < shard.getEndId() && !Thread.currentThread().isInterrupted()) {
+        long start = System.nanoTime();
+        cursor = processBatch(table, shard.getId(), shard.getEndId());
+        throttle.pace(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      }
+      logger.info("row-hmac-backfill: {} shard {} stopped at id {}", table.pathName(),
+          shard.getShard(), cursor);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      logger.error("row-hmac-backfill: {} shard {} failed", table.pathName(), shard.getShard(), e);
+    }
+  }
+
+  /**
+   * Backfills up to one batch of the rows with ids in (cursor, endId], where the cursor is the
+   * shard's persisted one.
+   *
+   * @return the new cursor, or endId if the shard is complete or no longer exists
+   */
+  @VisibleForTesting
+  long processBatch(RowHmacBackfillTable table, long progressId, long endId) {
+    try (Timer.Context ignored = metricRegistry.timer(metricName(table, "batches")).time()) {
+      return jooq.transactionResult(configuration -> {
+        DSLContext dslContext = DSL.using(configuration);
+        RowHmacBackfillProgressDAO progressDAO = progressDAOFactory.using(configuration);
+        Optional<RowHmacBackfillProgressRecord> progress = progressDAO.lockShard(progressId);
+        if (progress.isEmpty() || progress.get().getCompleted()) {
+          return endId;
+        }
+        long cursor = progress.get().getLastId();
+
+        Result<Record> rows = dslContext.select(table.selectFields())
+            .from(table.table())
+            .where(table.id().greaterThan(cursor).and(table.id().lessOrEqual(endId)))
+            .orderBy(table.id())
+            .limit(config.batchSize())
+            .fetch();
+
+        long newCursor = rows.isEmpty() ? endId : rows.get(rows.size() - 1).get(table.id());
+        boolean completed = rows.size() < config.batchSize() || newCursor >= endId;
+
+        CaseValueStep<Long> choose = DSL.choose(table.id());
+        CaseWhenStep<Long, String> newHmacs = null;
+        List<Long> updatedIds = new ArrayList<>();
+        for (Record row : rows) {
+          String oldHmac = row.get(table.rowHmac());
+          boolean missing = oldHmac == null || oldHmac.isEmpty();
+          List<Object> hmacInputs = table.hmacInputs(row);
+          if (table.onlyMissing() && !missing
+              && !rowHmacGenerator.isPreviousKeyHmac(table.table().getName(), hmacInputs, oldHmac)) {
+            continue;
+          }
+
+          String newHmac = rowHmacGenerator.computeRowHmac(table.table().getName(), hmacInputs);
+          if (!newHmac.equals(oldHmac)) {
+            Long id = row.get(table.id());
+            newHmacs = newHmacs == null ? choose.when(id, newHmac) : newHmacs.when(id, newHmac);
+            updatedIds.add(id);
+          }
+        }
+
+        if (!updatedIds.isEmpty()) {
+          Field<String> newHmac = newHmacs.otherwise(table.rowHmac());
+          dslContext.update(table.table())
+              .set(table.rowHmac(), newHmac)
+              .where(table.id().in(updatedIds))
+              .execute();
+        }
+
+        progressDAO.advanceShard(progressId, completed ? endId : newCursor, updatedIds.size(),
+            completed);
+        rowsMeter(table).mark(updatedIds.size());
+        return completed ? endId : newCursor;
+      });
+    }
+  }
+
+  private Meter rowsMeter(RowHmacBackfillTable table) {
+    return metricRegistry.meter(metricName(table, "rows"));
+  }
+
+  private static String metricName(RowHmacBackfillTable table, String name) {
+    return MetricRegistry.name(RowHmacBackfiller.class, table.pathName(), name);
+  }
+}
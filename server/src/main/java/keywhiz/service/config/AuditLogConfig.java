@@ -0,0 +1,67 @@
+package keywhiz.service.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nullable;
+import keywhiz.log.AsyncAuditLog.OverflowPolicy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Configuration for how audit events are written.
+ */
+@AutoValue
+public abstract class AuditLogConfig {
+  private static final int DEFAULT_QUEUE_CAPACITY = 8192;
+  private static final int DEFAULT_BATCH_SIZE = 256;
+
+  @JsonCreator public static AuditLogConfig of(
+      @JsonProperty("async") @Nullable Boolean async,
+      @JsonProperty("queueCapacity") @Nullable Integer queueCapacity,
+      @JsonProperty("batchSize") @Nullable Integer batchSize,
+      @JsonProperty("overflowPolicy") @Nullable OverflowPolicy overflowPolicy,
+      @JsonProperty("directory") @Nullable String directory) {
+    AuditLogConfig config = new AutoValue_AuditLogConfig(
+        directory,
+        async != null && async,
+        queueCapacity == null ? DEFAULT_QUEUE_CAPACITY : queueCapacity,
+        batchSize == null ? DEFAULT_BATCH_SIZE : batchSize,
+        overflowPolicy == null ? OverflowPolicy.BLOCK : overflowPolicy);
+    checkArgument(config.queueCapacity() > 0, "queueCapacity must be positive");
+    checkArgument(config.batchSize() > 0, "batchSize must be positive");
+    return config;
+  }
+
+  public static AuditLogConfig defaults() {
+    return of(null, null, null, null, null);
+  }
+
+  /**
+   * directory to write events to as structured records, one file per UTC day (see
+   * keywhiz.log.FileAuditLog); when unset, events are written to the application log
+   */
+  @Nullable public abstract String directory();
+
+  /**
+   * whether events are queued and written on a dedicated thread rather than on the request thread
+   * that records them
+   */
+  public abstract boolean async();
+
+  /**
+   * maximum number of events waiting to be written, when async
+   */
+  public abstract int queueCapacity();
+
+  /**
+   * maximum number of events written at once, when async
+   */
+  public abstract int batchSize();
+
+  /**
+   * BLOCK to make request threads wait while the queue is full, or DROP to discard (and count)
+   * events instead, when async
+   */
+  public abstract OverflowPolicy overflowPolicy();
+}
@@ -20,17 +20,30 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.auto.value.AutoValue;
 import java.util.List;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * Configuration for how clients should be authenticated.
  */
 @AutoValue
 public abstract class ClientAuthConfig {
+  private static final long DEFAULT_XFCC_CERTIFICATE_CACHE_SIZE = 10_000;
+
   @JsonCreator public static ClientAuthConfig of(
       @JsonProperty("xfcc") List<XfccSourceConfig> sourceConfigs,
       @JsonProperty("type") ClientAuthTypeConfig typeConfig,
-      @JsonProperty("createMissingClients") boolean createMissingClients) {
-    return new AutoValue_ClientAuthConfig(sourceConfigs, typeConfig, createMissingClients);
+      @JsonProperty("createMissingClients") boolean createMissingClients,
+      @JsonProperty("xfccCertificateCacheSize") @Nullable Long xfccCertificateCacheSize) {
+    ClientAuthConfig config = new AutoValue_ClientAuthConfig(sourceConfigs, typeConfig,
+        createMissingClients,
+        xfccCertificateCacheSize == null
+            ? DEFAULT_XFCC_CERTIFICATE_CACHE_SIZE
+            : xfccCertificateCacheSize);
+    checkArgument(config.xfccCertificateCacheSize() >= 0,
+        "xfccCertificateCacheSize must not be negative");
+    return config;
   }
 
   /**
@@ -47,4 +60,10 @@ public abstract class ClientAuthConfig {
    * whether to create missing (non-automation) clients when a new certificate is presented
    */
   public abstract boolean createMissingClients();
+
+  /**
+   * maximum number of certificates parsed from x-forwarded-client-cert headers held in memory;
+   * 0 parses the certificate on every request
+   */
+  public abstract long xfccCertificateCacheSize();
 }
@@ -0,0 +1,54 @@
+package keywhiz.service.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Configuration for compressing the responses of endpoints annotated with
+ * keywhiz.service.filters.Compressed.
+ */
+@AutoValue
+public abstract class CompressionConfig {
+  private static final int DEFAULT_MINIMUM_SIZE = 1024;
+  private static final int DEFAULT_LEVEL = 6;
+
+  @JsonCreator public static CompressionConfig of(
+      @JsonProperty("enabled") @Nullable Boolean enabled,
+      @JsonProperty("minimumSize") @Nullable Integer minimumSize,
+      @JsonProperty("level") @Nullable Integer level) {
+    CompressionConfig config = new AutoValue_CompressionConfig(
+        enabled == null || enabled,
+        minimumSize == null ? DEFAULT_MINIMUM_SIZE : minimumSize,
+        level == null ? DEFAULT_LEVEL : level);
+    checkArgument(config.minimumSize() >= 0, "minimumSize must not be negative");
+    checkArgument(
+        config.level() >= Deflater.BEST_SPEED && config.level() <= Deflater.BEST_COMPRESSION,
+        "level must be between 1 and 9");
+    return config;
+  }
+
+  public static CompressionConfig defaults() {
+    return of(null, null, null);
+  }
+
+  /**
+   * whether responses are compressed for clients that accept gzip
+   */
+  public abstract boolean enabled();
+
+  /**
+   * number of bytes a response must exceed before it is compressed; smaller responses are sent
+   * as they are
+   */
+  public abstract int minimumSize();
+
+  /**
+   * deflate level, from 1 (fastest) to 9 (smallest)
+   */
+  public abstract int level();
+}
@@ -0,0 +1,58 @@
+package keywhiz.service.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Configuration for the background job re-encrypting secret contents after a root key rotation.
+ */
+@AutoValue
+public abstract class ContentReencryptionConfig {
+  private static final int DEFAULT_WORKERS = 4;
+  private static final int DEFAULT_BATCH_SIZE = 100;
+  private static final long DEFAULT_TARGET_BATCH_LATENCY_MILLIS = 250;
+  private static final long DEFAULT_MAX_THROTTLE_MILLIS = 5000;
+
+  @JsonCreator public static ContentReencryptionConfig of(
+      @JsonProperty("workers") @Nullable Integer workers,
+      @JsonProperty("batchSize") @Nullable Integer batchSize,
+      @JsonProperty("targetBatchLatencyMillis") @Nullable Long targetBatchLatencyMillis,
+      @JsonProperty("maxThrottleMillis") @Nullable Long maxThrottleMillis) {
+    ContentReencryptionConfig config = new AutoValue_ContentReencryptionConfig(
+        workers == null ? DEFAULT_WORKERS : workers,
+        batchSize == null ? DEFAULT_BATCH_SIZE : batchSize,
+        targetBatchLatencyMillis == null ? DEFAULT_TARGET_BATCH_LATENCY_MILLIS : targetBatchLatencyMillis,
+        maxThrottleMillis == null ? DEFAULT_MAX_THROTTLE_MILLIS : maxThrottleMillis);
+    checkArgument(config.workers() > 0, "workers must be positive");
+    checkArgument(config.batchSize() > 0, "batchSize must be positive");
+    return config;
+  }
+
+  public static ContentReencryptionConfig defaults() {
+    return of(null, null, null, null);
+  }
+
+  /**
+   * number of worker threads; the secrets_content id space is split into this many ranges
+   */
+  public abstract int workers();
+
+  /**
+   * number of rows decrypted, re-encrypted and written back per transaction
+   */
+  public abstract int batchSize();
+
+  /**
+   * batches slower than this cause workers to back off between batches
+   */
+  public abstract long targetBatchLatencyMillis();
+
+  /**
+   * upper bound on the pause between batches
+   */
+  public abstract long maxThrottleMillis();
+}
@@ -0,0 +1,51 @@
+package keywhiz.service.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Configuration for envelope encryption of secret content, where each secret version is encrypted
+ * under its own random data key and only the data key is encrypted under the derived root key.
+ */
+@AutoValue
+public abstract class EnvelopeEncryptionConfig {
+  private static final long DEFAULT_DATA_KEY_CACHE_SIZE = 10000;
+  private static final long DEFAULT_DATA_KEY_CACHE_TTL_SECONDS = 300;
+
+  @JsonCreator public static EnvelopeEncryptionConfig of(
+      @JsonProperty("enabled") @Nullable Boolean enabled,
+      @JsonProperty("dataKeyCacheSize") @Nullable Long dataKeyCacheSize,
+      @JsonProperty("dataKeyCacheTtlSeconds") @Nullable Long dataKeyCacheTtlSeconds) {
+    EnvelopeEncryptionConfig config = new AutoValue_EnvelopeEncryptionConfig(
+        enabled != null && enabled,
+        dataKeyCacheSize == null ? DEFAULT_DATA_KEY_CACHE_SIZE : dataKeyCacheSize,
+        dataKeyCacheTtlSeconds == null ? DEFAULT_DATA_KEY_CACHE_TTL_SECONDS : dataKeyCacheTtlSeconds);
+    checkArgument(config.dataKeyCacheSize() >= 0, "dataKeyCacheSize must not be negative");
+    checkArgument(config.dataKeyCacheTtlSeconds() > 0, "dataKeyCacheTtlSeconds must be positive");
+    return config;
+  }
+
+  public static EnvelopeEncryptionConfig defaults() {
+    return of(null, null, null);
+  }
+
+  /**
+   * whether new secret content is envelope-encrypted; content in either format is always
+   * decryptable, so this can be turned on and off without re-encrypting anything
+   */
+  public abstract boolean enabled();
+
+  /**
+   * maximum number of unwrapped data keys held in memory
+   */
+  public abstract long dataKeyCacheSize();
+
+  /**
+   * how long an unwrapped data key is held in memory after it was unwrapped
+   */
+  public abstract long dataKeyCacheTtlSeconds();
+}
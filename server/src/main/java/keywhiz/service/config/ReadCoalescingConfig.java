@@ -0,0 +1,41 @@
+package keywhiz.service.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Configuration for coalescing identical concurrent secret delivery reads (see
+ * keywhiz.utility.SingleFlight).
+ */
+@AutoValue
+public abstract class ReadCoalescingConfig {
+  private static final long DEFAULT_MAX_WAIT_MILLIS = 500;
+
+  @JsonCreator public static ReadCoalescingConfig of(
+      @JsonProperty("enabled") @Nullable Boolean enabled,
+      @JsonProperty("maxWaitMillis") @Nullable Long maxWaitMillis) {
+    ReadCoalescingConfig config = new AutoValue_ReadCoalescingConfig(
+        enabled == null || enabled,
+        maxWaitMillis == null ? DEFAULT_MAX_WAIT_MILLIS : maxWaitMillis);
+    checkArgument(config.maxWaitMillis() >= 0, "maxWaitMillis must not be negative");
+    return config;
+  }
+
+  public static ReadCoalescingConfig defaults() {
+    return of(null, null);
+  }
+
+  /**
+   * whether concurrent requests for the same secret share one database read and decryption
+   */
+  public abstract boolean enabled();
+
+  /**
+   * how long a request waits on an identical one already in flight before doing the read itself
+   */
+  public abstract long maxWaitMillis();
+}
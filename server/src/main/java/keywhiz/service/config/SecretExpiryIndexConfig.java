@@ -0,0 +1,55 @@
+package keywhiz.service.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Configuration for the in-memory index of secret expiries used to notify expiry listeners.
+ */
+@AutoValue
+public abstract class SecretExpiryIndexConfig {
+  private static final long DEFAULT_RECONCILE_INTERVAL_SECONDS = 60;
+
+  @JsonCreator public static SecretExpiryIndexConfig of(
+      @JsonProperty("enabled") @Nullable Boolean enabled,
+      @JsonProperty("reconcileIntervalSeconds") @Nullable Long reconcileIntervalSeconds,
+      @JsonProperty("notificationThresholdsSeconds") @Nullable List<Long> notificationThresholdsSeconds) {
+    SecretExpiryIndexConfig config = new AutoValue_SecretExpiryIndexConfig(
+        enabled != null && enabled,
+        reconcileIntervalSeconds == null ? DEFAULT_RECONCILE_INTERVAL_SECONDS : reconcileIntervalSeconds,
+        notificationThresholdsSeconds == null
+            ? ImmutableList.of()
+            : ImmutableList.copyOf(notificationThresholdsSeconds));
+    checkArgument(config.reconcileIntervalSeconds() > 0, "reconcileIntervalSeconds must be positive");
+    checkArgument(config.notificationThresholdsSeconds().stream().allMatch(t -> t >= 0),
+        "notificationThresholdsSeconds must not be negative");
+    return config;
+  }
+
+  public static SecretExpiryIndexConfig defaults() {
+    return of(null, null, null);
+  }
+
+  /**
+   * whether the index is maintained; when disabled no expiry notifications are sent
+   */
+  public abstract boolean enabled();
+
+  /**
+   * how often the index is reloaded from the database, bounding how long changes made by other
+   * Keywhiz instances take to show up
+   */
+  public abstract long reconcileIntervalSeconds();
+
+  /**
+   * how long before its expiry a secret is reported to expiry listeners, e.g. [604800, 86400] for
+   * a week and a day ahead
+   */
+  public abstract ImmutableList<Long> notificationThresholdsSeconds();
+}
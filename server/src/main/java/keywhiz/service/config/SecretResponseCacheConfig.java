@@ -0,0 +1,42 @@
+package keywhiz.service.config;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Configuration for the in-memory cache of serialized secret delivery responses (see
+ * keywhiz.service.resources.SecretDeliveryResponseCache).
+ */
+@AutoValue
+public abstract class SecretResponseCacheConfig {
+  private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+  @JsonCreator public static SecretResponseCacheConfig of(
+      @JsonProperty("enabled") @Nullable Boolean enabled,
+      @JsonProperty("maximumSize") @Nullable Long maximumSize) {
+    SecretResponseCacheConfig config = new AutoValue_SecretResponseCacheConfig(
+        enabled == null || enabled,
+        maximumSize == null ? DEFAULT_MAXIMUM_SIZE : maximumSize);
+    checkArgument(config.maximumSize() > 0, "maximumSize must be positive");
+    return config;
+  }
+
+  public static SecretResponseCacheConfig defaults() {
+    return of(null, null);
+  }
+
+  /**
+   * whether delivery responses are cached; when disabled, every request decrypts and serializes
+   * the secret
+   */
+  public abstract boolean enabled();
+
+  /**
+   * maximum number of secret versions cached; the least recently used are evicted first
+   */
+  public abstract long maximumSize();
+}
@@ -17,13 +17,19 @@
 package keywhiz.service.crypto;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
 import com.google.common.io.BaseEncoding;
+import com.google.common.primitives.Bytes;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.dropwizard.jackson.Jackson;
 import java.io.IOException;
 import java.security.InvalidAlgorithmParameterException;
@@ -31,8 +37,15 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Base64.Encoder;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.crypto.AEADBadTagException;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
@@ -42,10 +55,13 @@ import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import keywhiz.auth.Subtles;
 import keywhiz.hkdf.Hkdf;
+import keywhiz.service.config.EnvelopeEncryptionConfig;
 import keywhiz.service.crypto.CryptoModule.Derivation;
 import keywhiz.service.crypto.CryptoModule.Encryption;
+import keywhiz.service.crypto.CryptoModule.Previous;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,27 +77,62 @@ import static javax.crypto.Cipher.ENCRYPT_MODE;
  *
  * Encryption keys are derived using a provided info tag. Encrypted content is serialized as JSON
  * with the necessary parameters for decryption.
+ *
+ * With envelope encryption enabled, content is instead encrypted under a random data key, which is
+ * itself encrypted ("wrapped") under the derived key and stored alongside the content. Unwrapped
+ * data keys are cached, so repeated reads of a secret version only derive a key once.
+ *
+ * While the root key is being rotated, the key being retired can be supplied as the previous key.
+ * Content and data keys which fail to authenticate under the current key are then decrypted under
+ * the previous one, and {@link #reencrypt} moves content over to the current key.
  */
+@Singleton
 public class ContentCryptographer {
   private static final Logger logger = LoggerFactory.getLogger(ContentCryptographer.class);
   private static final String ENCRYPTION_ALGORITHM = "AES/GCM/NoPadding";
   private static final String KEY_ALGORITHM = "AES";
   private static final int TAG_BITS = 128;
   private static final int NONCE_BYTES = 12;
+  private static final int DATA_KEY_BYTES = 32;
+  // derived keys have always been as long as the AES block size
+  private static final int DERIVED_KEY_BYTES = 16;
   private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
 
   private final SecretKey key;
-  private final Provider derivationProvider;
+  @Nullable private final SecretKey previousKey;
+  private final Hkdf hkdf;
   private final Provider encryptionProvider;
   private final SecureRandom random;
+  private final boolean envelopeEncryption;
+  private final Cache<Map.Entry<String, String>, SecretKey> dataKeys;
+
+  public ContentCryptographer(SecretKey key, Provider derivationProvider,
+      Provider encryptionProvider, SecureRandom random) {
+    this(key, derivationProvider, encryptionProvider, random, EnvelopeEncryptionConfig.defaults());
+  }
+
+  public ContentCryptographer(SecretKey key, Provider derivationProvider,
+      Provider encryptionProvider, SecureRandom random,
+      EnvelopeEncryptionConfig envelopeEncryptionConfig) {
+    this(key, derivationProvider, encryptionProvider, random, envelopeEncryptionConfig,
+        Optional.empty());
+  }
 
   @Inject public ContentCryptographer(@Derivation SecretKey key,
       @Derivation Provider derivationProvider,
-      @Encryption Provider encryptionProvider, SecureRandom random) {
+      @Encryption Provider encryptionProvider, SecureRandom random,
+      EnvelopeEncryptionConfig envelopeEncryptionConfig,
+      @Previous Optional<SecretKey> previousKey) {
     this.key = key;
-    this.derivationProvider = derivationProvider;
+    this.previousKey = previousKey.orElse(null);
+    this.hkdf = Hkdf.usingProvider(derivationProvider);
     this.encryptionProvider = encryptionProvider;
     this.random = random;
+    this.envelopeEncryption = envelopeEncryptionConfig.enabled();
+    this.dataKeys = CacheBuilder.newBuilder()
+        .maximumSize(envelopeEncryptionConfig.dataKeyCacheSize())
+        .expireAfterWrite(envelopeEncryptionConfig.dataKeyCacheTtlSeconds(), TimeUnit.SECONDS)
+        .build();
   }
 
   public class Encrypter {
@@ -104,14 +155,21 @@ public class ContentCryptographer {
       byte[] nonce = new byte[NONCE_BYTES];
       random.nextBytes(nonce);
 
-      byte[] ciphertext = gcm(Mode.ENCRYPT, derivationInfo, nonce, plaintext);
-      Crypted crypted = Crypted.of(derivationInfo, ciphertext, nonce);
-      String encryptedJson;
-      try {
-        encryptedJson = MAPPER.writeValueAsString(crypted);
-      } catch (JsonProcessingException e) {
-        throw Throwables.propagate(e);
+      Crypted crypted;
+      if (envelopeEncryption) {
+        byte[] dataKeyBytes = new byte[DATA_KEY_BYTES];
+        random.nextBytes(dataKeyBytes);
+        SecretKey dataKey = new SecretKeySpec(dataKeyBytes, KEY_ALGORITHM);
+        String wrappedKey = wrapDataKey(derivationInfo, dataKeyBytes);
+        dataKeys.put(Maps.immutableEntry(derivationInfo, wrappedKey), dataKey);
+
+        byte[] ciphertext = gcm(Mode.ENCRYPT, dataKey, nonce, plaintext);
+        crypted = Crypted.of(derivationInfo, ciphertext, nonce, wrappedKey);
+      } else {
+        byte[] ciphertext = gcm(Mode.ENCRYPT, derivationInfo, nonce, plaintext);
+        crypted = Crypted.of(derivationInfo, ciphertext, nonce, null);
       }
+      String encryptedJson = crypted.toJson();
 
       if (!Subtles.secureCompare(decoder.decode(decrypt(encryptedJson)), plaintext)) {
         logger.warn("Decryption of (just encrypted) data does not match original! [name={}]",
@@ -140,17 +198,60 @@ public class ContentCryptographer {
    * @return original base64 plaintext without padding
    */
   public String decrypt(String ciphertextJson) {
-    Crypted crypted;
-    try {
-      crypted = MAPPER.readValue(ciphertextJson, Crypted.class);
-    } catch (IOException e) {
-      throw new IllegalArgumentException("Cannot deserialize Crypted json", e);
-    }
+    Crypted crypted = Crypted.fromJson(ciphertextJson);
 
-    byte[] plaintext = gcm(Mode.DECRYPT, crypted.derivationInfo(), crypted.ivBytes(), crypted.contentBytes());
+    byte[] plaintext;
+    if (crypted.wrappedKey() != null) {
+      SecretKey dataKey = dataKey(crypted.derivationInfo(), crypted.wrappedKey());
+      plaintext = gcm(Mode.DECRYPT, dataKey, crypted.ivBytes(), crypted.contentBytes());
+    } else {
+      plaintext = open(crypted.derivationInfo(), crypted.ivBytes(), crypted.contentBytes());
+    }
     return getEncoder().encodeToString(plaintext);
   }
 
+  /** Whether a previous root key is configured, i.e. a key rotation is in progress. */
+  public boolean hasPreviousKey() {
+    return previousKey != null;
+  }
+
+  /**
+   * Moves content encrypted under the previous root key over to the current one. Envelope-encrypted
+   * content keeps its data key, which is only re-wrapped.
+   *
+   * @param ciphertextJson JSON from prior {@link Encrypter#encrypt} call
+   * @return the content encrypted under the current key, or empty if it already was
+   * @throws RuntimeException if the content cannot be decrypted under either key
+   */
+  public Optional<String> reencrypt(String ciphertextJson) {
+    Crypted crypted = Crypted.fromJson(ciphertextJson);
+    String info = crypted.derivationInfo();
+
+    if (crypted.wrappedKey() != null) {
+      byte[] wrapped = getDecoder().decode(crypted.wrappedKey());
+      checkArgument(wrapped.length > NONCE_BYTES, "Wrapped data key is too short");
+      byte[] nonce = Arrays.copyOfRange(wrapped, 0, NONCE_BYTES);
+      byte[] ciphertext = Arrays.copyOfRange(wrapped, NONCE_BYTES, wrapped.length);
+      if (previousKey == null || opensUnderCurrentKey(info, nonce, ciphertext)) {
+        return Optional.empty();
+      }
+      byte[] dataKeyBytes = gcmWithPreviousKey(Mode.DECRYPT, info, nonce, ciphertext);
+      String rewrapped = wrapDataKey(info, dataKeyBytes);
+      dataKeys.put(Maps.immutableEntry(info, rewrapped),
+          new SecretKeySpec(dataKeyBytes, KEY_ALGORITHM));
+      return Optional.of(Crypted.fromJson(info, crypted.content(), crypted.iv(), rewrapped)
+          .toJson());
+    }
+
+    if (previousKey == null
+        || opensUnderCurrentKey(info, crypted.ivBytes(), crypted.contentBytes())) {
+      return Optional.empty();
+    }
+    byte[] plaintext = gcmWithPreviousKey(Mode.DECRYPT, info, crypted.ivBytes(),
+        crypted.contentBytes());
+    return Optional.of(encryptionKeyDerivedFrom(info).encrypt(getEncoder().encodeToString(plaintext)));
+  }
+
   public String computeHmac(byte[] data, String derivationKey) {
     SecretKey hmacKey = deriveKey(32, derivationKey);
     return computeHmacWithSecretKey(data, hmacKey);
@@ -168,45 +269,135 @@ public class ContentCryptographer {
   }
 
   public SecretKey deriveKey(int blockSize, String info) {
-    Hkdf hkdf = Hkdf.usingProvider(derivationProvider);
+    return deriveKey(key, blockSize, info);
+  }
+
+  /** Derives a key from the previous root key, if one is configured. */
+  public Optional<SecretKey> derivePreviousKey(int blockSize, String info) {
+    return Optional.ofNullable(previousKey)
+        .map(previous -> deriveKey(previous, blockSize, info));
+  }
+
+  private SecretKey deriveKey(SecretKey rootKey, int blockSize, String info) {
     byte[] infoBytes = info.getBytes(UTF_8);
-    byte[] derivedKeyBytes = hkdf.expand(key, infoBytes, blockSize);
-    return new SecretKeySpec(derivedKeyBytes, KEY_ALGORITHM);
+    byte[] derivedKeyBytes = hkdf.expand(rootKey, infoBytes, blockSize);
+    SecretKey derivedKey = new SecretKeySpec(derivedKeyBytes, KEY_ALGORITHM);
+    Arrays.fill(derivedKeyBytes, (byte) 0);
+    return derivedKey;
   }
 
   private byte[] gcm(Mode mode, String info, byte[] nonce, byte[] data) {
+    return gcm(mode, deriveKey(DERIVED_KEY_BYTES, info), nonce, data);
+  }
+
+  private byte[] gcmWithPreviousKey(Mode mode, String info, byte[] nonce, byte[] data) {
+    SecretKey derivedKey = derivePreviousKey(DERIVED_KEY_BYTES, info)
+        .orElseThrow(() -> new IllegalStateException("No previous key configured"));
+    return gcm(mode, derivedKey, nonce, data);
+  }
+
+  /**
+   * Decrypts under the key derived from info, falling back to the previous root key when the
+   * current one fails to authenticate the data.
+   */
+  private byte[] open(String info, byte[] nonce, byte[] data) {
+    try {
+      return gcm(Mode.DECRYPT, info, nonce, data);
+    } catch (RuntimeException e) {
+      if (previousKey == null || !(e.getCause() instanceof AEADBadTagException)) {
+        throw e;
+      }
+      return gcmWithPreviousKey(Mode.DECRYPT, info, nonce, data);
+    }
+  }
+
+  private boolean opensUnderCurrentKey(String info, byte[] nonce, byte[] data) {
+    try {
+      gcm(Mode.DECRYPT, info, nonce, data);
+      return true;
+    } catch (RuntimeException e) {
+      if (e.getCause() instanceof AEADBadTagException) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private byte[] gcm(Mode mode, SecretKey cipherKey, byte[] nonce, byte[] data) {
     try {
       Cipher cipher = Cipher.getInstance(ENCRYPTION_ALGORITHM, encryptionProvider);
-      SecretKey derivedKey = deriveKey(cipher.getBlockSize(), info);
       GCMParameterSpec gcmParameters = new GCMParameterSpec(TAG_BITS, nonce);
-      cipher.init(mode.cipherMode, derivedKey, gcmParameters);
+      cipher.init(mode.cipherMode, cipherKey, gcmParameters);
       return cipher.doFinal(data);
     } catch (IllegalBlockSizeException | InvalidAlgorithmParameterException | NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException | BadPaddingException e) {
       throw Throwables.propagate(e);
     }
   }
 
+  /** Encrypts a data key under the key derived from info, returning base64 of nonce || ciphertext. */
+  private String wrapDataKey(String info, byte[] dataKeyBytes) {
+    byte[] nonce = new byte[NONCE_BYTES];
+    random.nextBytes(nonce);
+    byte[] wrapped = gcm(Mode.ENCRYPT, info, nonce, dataKeyBytes);
+    return getEncoder().encodeToString(Bytes.concat(nonce, wrapped));
+  }
+
+  private SecretKey dataKey(String info, String wrappedKey) {
+    try {
+      return dataKeys.get(Maps.immutableEntry(info, wrappedKey), () -> {
+        byte[] wrapped = getDecoder().decode(wrappedKey);
+        checkArgument(wrapped.length > NONCE_BYTES, "Wrapped data key is too short");
+        byte[] nonce = Arrays.copyOfRange(wrapped, 0, NONCE_BYTES);
+        byte[] dataKeyBytes =
+            open(info, nonce, Arrays.copyOfRange(wrapped, NONCE_BYTES, wrapped.length));
+        return new SecretKeySpec(dataKeyBytes, KEY_ALGORITHM);
+      });
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException("Unable to unwrap data key", e.getCause());
+    }
+  }
+
   /**
    * Non-public value type representing JSON serialized fields for encrypted data.
    */
   @AutoValue static abstract class Crypted {
-    static Crypted of(String info, byte[] content, byte[] iv) {
+    static Crypted of(String info, byte[] content, byte[] iv, @Nullable String wrappedKey) {
       Encoder encoder = getEncoder();
       String contentBase64 = encoder.encodeToString(content);
       String ivBase64 = encoder.encodeToString(iv);
-      return new AutoValue_ContentCryptographer_Crypted(info, contentBase64, ivBase64);
+      return new AutoValue_ContentCryptographer_Crypted(info, contentBase64, ivBase64, wrappedKey);
+    }
+
+    static Crypted fromJson(String json) {
+      try {
+        return MAPPER.readValue(json, Crypted.class);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Cannot deserialize Crypted json", e);
+      }
     }
 
-    @SuppressWarnings("unused")
     @JsonCreator static Crypted fromJson(@JsonProperty("derivationInfo") String derivationInfo,
-        @JsonProperty("content") String content, @JsonProperty("iv") String iv) {
-      return new AutoValue_ContentCryptographer_Crypted(derivationInfo, content, iv);
+        @JsonProperty("content") String content, @JsonProperty("iv") String iv,
+        @JsonProperty("wrappedKey") @Nullable String wrappedKey) {
+      return new AutoValue_ContentCryptographer_Crypted(derivationInfo, content, iv, wrappedKey);
     }
 
     @JsonProperty abstract String derivationInfo();
     @JsonProperty abstract String content();
     @JsonProperty abstract String iv();
 
+    /** Data key encrypted under the derived key, present only for envelope-encrypted content. */
+    @JsonProperty @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable abstract String wrappedKey();
+
+    String toJson() {
+      try {
+        return MAPPER.writeValueAsString(this);
+      } catch (JsonProcessingException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+
     byte[] contentBytes() {
       return getDecoder().decode(content());
     }
@@ -220,6 +411,8 @@ public class ContentCryptographer {
           .add("derivationInfo", derivationInfo())
           .add("content", "REDACTED")
           .add("iv", "REDACTED")
+          .add("wrappedKey", wrappedKey() == null ? null : "REDACTED")
+          .omitNullValues()
           .toString();
     }
   }
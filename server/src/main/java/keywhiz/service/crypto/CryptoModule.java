@@ -30,9 +30,12 @@ import java.security.SecureRandom;
 import java.security.Security;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.Optional;
+import javax.annotation.Nullable;
 import javax.crypto.SecretKey;
 import javax.inject.Qualifier;
 import javax.inject.Singleton;
+import keywhiz.service.config.EnvelopeEncryptionConfig;
 import keywhiz.service.config.KeyStoreConfig;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
@@ -48,24 +51,53 @@ public class CryptoModule extends AbstractModule {
 
   private final String derivationProviderClass;
   private final KeyStoreConfig keyStoreConfig;
+  private final EnvelopeEncryptionConfig envelopeEncryptionConfig;
+  @Nullable private final KeyStoreConfig previousKeyStoreConfig;
 
   // TODO: These values can be read from KeywhizConfig directly once the CLI uses a proper API.
   public CryptoModule(String derivationProviderClass, KeyStoreConfig keyStoreConfig) {
+    this(derivationProviderClass, keyStoreConfig, EnvelopeEncryptionConfig.defaults());
+  }
+
+  public CryptoModule(String derivationProviderClass, KeyStoreConfig keyStoreConfig,
+      EnvelopeEncryptionConfig envelopeEncryptionConfig) {
+    this(derivationProviderClass, keyStoreConfig, envelopeEncryptionConfig, null);
+  }
+
+  public CryptoModule(String derivationProviderClass, KeyStoreConfig keyStoreConfig,
+      EnvelopeEncryptionConfig envelopeEncryptionConfig,
+      @Nullable KeyStoreConfig previousKeyStoreConfig) {
     this.derivationProviderClass = derivationProviderClass;
     this.keyStoreConfig = keyStoreConfig;
+    this.envelopeEncryptionConfig = envelopeEncryptionConfig;
+    this.previousKeyStoreConfig = previousKeyStoreConfig;
   }
 
   @Override protected void configure() {
     bind(SecureRandom.class).toProvider(SecureRandom::new);
+    bind(EnvelopeEncryptionConfig.class).toInstance(envelopeEncryptionConfig);
   }
 
   @Provides @Derivation @Singleton SecretKey baseDerivationKey(@Derivation Provider provider) {
-    String alias = keyStoreConfig.alias();
-    char[] password = keyStoreConfig.resolvedPassword().toCharArray();
+    return loadKey(keyStoreConfig, provider);
+  }
+
+  /**
+   * The base derivation key being rotated out, if any. Data which does not decrypt under the
+   * current key is decrypted under this one.
+   */
+  @Provides @Previous @Singleton Optional<SecretKey> previousDerivationKey(
+      @Derivation Provider provider) {
+    return Optional.ofNullable(previousKeyStoreConfig).map(config -> loadKey(config, provider));
+  }
+
+  private static SecretKey loadKey(KeyStoreConfig config, Provider provider) {
+    String alias = config.alias();
+    char[] password = config.resolvedPassword().toCharArray();
 
     KeyStore keyStore;
-    try (InputStream inputStream = keyStoreConfig.openPath()) {
-      keyStore = KeyStore.getInstance(keyStoreConfig.type(), provider);
+    try (InputStream inputStream = config.openPath()) {
+      keyStore = KeyStore.getInstance(config.type(), provider);
       keyStore.load(inputStream, password);
       return (SecretKey) keyStore.getKey(alias, password);
     } catch (CertificateException | IOException | KeyStoreException | NoSuchAlgorithmException | UnrecoverableKeyException e) {
@@ -109,4 +141,7 @@ public class CryptoModule extends AbstractModule {
 
   /** Denotes objects used for key derivation. */
   @Qualifier @Retention(RUNTIME) public @interface Derivation {}
+
+  /** Denotes the key being retired by a root key rotation. */
+  @Qualifier @Retention(RUNTIME) public @interface Previous {}
 }
@@ -6,6 +6,7 @@ import java.security.SecureRandom;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.crypto.SecretKey;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -21,20 +22,44 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class RowHmacGenerator {
   private final ContentCryptographer cryptographer;
   private final SecretKey hmacKey;
+  @Nullable private final SecretKey previousHmacKey;
   private final SecureRandom random;
 
-  @Inject private RowHmacGenerator(ContentCryptographer cryptographer, SecureRandom random) {
+  @Inject public RowHmacGenerator(ContentCryptographer cryptographer, SecureRandom random) {
     this.cryptographer = cryptographer;
     this.random = random;
     this.hmacKey = cryptographer.deriveKey(32, "row_hmac");
+    this.previousHmacKey = cryptographer.derivePreviousKey(32, "row_hmac").orElse(null);
   }
 
   public String computeRowHmac(String table, List<Object> fields) {
+    return computeRowHmac(table, fields, hmacKey);
+  }
+
+  /**
+   * Checks a stored HMAC against a row. During a root key rotation, HMACs computed under the
+   * previous key are also accepted.
+   */
+  public boolean verifyRowHmac(String table, List<Object> fields, @Nullable String storedHmac) {
+    if (storedHmac == null) {
+      return false;
+    }
+    return compareHmacs(computeRowHmac(table, fields), storedHmac)
+        || isPreviousKeyHmac(table, fields, storedHmac);
+  }
+
+  /** Whether a stored HMAC was computed under the previous root key and should be rewritten. */
+  public boolean isPreviousKeyHmac(String table, List<Object> fields, @Nullable String storedHmac) {
+    return storedHmac != null && previousHmacKey != null
+        && compareHmacs(computeRowHmac(table, fields, previousHmacKey), storedHmac);
+  }
+
+  private String computeRowHmac(String table, List<Object> fields, SecretKey key) {
     String joinedFields = fields.stream()
         .map(object -> Objects.toString(object, null))
         .collect(Collectors.joining("|"));
     String hmacContent = table + "|" + joinedFields;
-    return cryptographer.computeHmacWithSecretKey(hmacContent.getBytes(UTF_8), hmacKey);
+    return cryptographer.computeHmacWithSecretKey(hmacContent.getBytes(UTF_8), key);
   }
 
   /**
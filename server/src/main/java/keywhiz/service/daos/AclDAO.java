@@ -16,16 +16,20 @@
 
 package keywhiz.service.daos;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 import javax.inject.Inject;
 import keywhiz.KeywhizConfig;
 import keywhiz.KeywhizConfig.RowHmacCheck;
@@ -57,7 +61,6 @@ import org.slf4j.LoggerFactory;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
-import static java.util.stream.Collectors.toList;
 import static keywhiz.jooq.tables.Accessgrants.ACCESSGRANTS;
 import static keywhiz.jooq.tables.Clients.CLIENTS;
 import static keywhiz.jooq.tables.Groups.GROUPS;
@@ -67,6 +70,7 @@ import static keywhiz.jooq.tables.SecretsContent.SECRETS_CONTENT;
 
 public class AclDAO {
   private static final Logger logger = LoggerFactory.getLogger(AclDAO.class);
+  private static final int MAX_SECRET_IDS_PER_QUERY = 1000;
 
   private final DSLContext dslContext;
   private final ClientDAOFactory clientDAOFactory;
@@ -378,10 +382,9 @@ public class AclDAO {
 
     SecretSeries series = secretSeriesDAO.recordToSecretSeries(row);
 
-    String secretHmac = rowHmacGenerator.computeRowHmac(
-        SECRETS.getName(), List.of(row.getValue(SECRETS.NAME), row.getValue(SECRETS.ID))
-    );
-    if (!RowHmacGenerator.compareHmacs(secretHmac, row.getValue(SECRETS.ROW_HMAC))) {
+    if (!rowHmacGenerator.verifyRowHmac(
+        SECRETS.getName(), List.of(row.getValue(SECRETS.NAME), row.getValue(SECRETS.ID)),
+        row.getValue(SECRETS.ROW_HMAC))) {
       String errorMessage = String.format(
           "Secret HMAC verification failed for secret: %s", row.getValue(SECRETS.NAME));
       if (rowHmacLog) {
@@ -392,10 +395,9 @@ public class AclDAO {
       }
     }
 
-    String clientHmac = rowHmacGenerator.computeRowHmac(
-        CLIENTS.getName(), List.of(client.getName(), client.getId())
-    );
-    if (!RowHmacGenerator.compareHmacs(clientHmac, row.getValue(CLIENTS.ROW_HMAC))) {
+    if (!rowHmacGenerator.verifyRowHmac(
+        CLIENTS.getName(), List.of(client.getName(), client.getId()),
+        row.getValue(CLIENTS.ROW_HMAC))) {
       String errorMessage = String.format(
           "Client HMAC verification failed for client: %s", client.getName());
       if (rowHmacLog) {
@@ -406,9 +408,9 @@ public class AclDAO {
       }
     }
 
-    String membershipsHmac = rowHmacGenerator.computeRowHmac(
-        MEMBERSHIPS.getName(), List.of(client.getId(), row.getValue(MEMBERSHIPS.GROUPID)));
-    if (!RowHmacGenerator.compareHmacs(membershipsHmac, row.getValue(MEMBERSHIPS.ROW_HMAC))) {
+    if (!rowHmacGenerator.verifyRowHmac(
+        MEMBERSHIPS.getName(), List.of(client.getId(), row.getValue(MEMBERSHIPS.GROUPID)),
+        row.getValue(MEMBERSHIPS.ROW_HMAC))) {
       String errorMessage = String.format(
           "Memberships HMAC verification failed for clientId: %d in groupId: %d",
           client.getId(), row.getValue(MEMBERSHIPS.GROUPID));
@@ -420,10 +422,10 @@ public class AclDAO {
       }
     }
 
-    String accessgrantsHmac = rowHmacGenerator.computeRowHmac(
+    if (!rowHmacGenerator.verifyRowHmac(
         ACCESSGRANTS.getName(),
-        List.of(row.getValue(MEMBERSHIPS.GROUPID), row.getValue(SECRETS.ID)));
-    if (!RowHmacGenerator.compareHmacs(accessgrantsHmac, row.getValue(ACCESSGRANTS.ROW_HMAC))) {
+        List.of(row.getValue(MEMBERSHIPS.GROUPID), row.getValue(SECRETS.ID)),
+        row.getValue(ACCESSGRANTS.ROW_HMAC))) {
       String errorMessage = String.format(
           "Access Grants HMAC verification failed for groupId: %d in secretId: %d",
           row.getValue(MEMBERSHIPS.GROUPID), row.getValue(SECRETS.ID));
@@ -454,24 +456,34 @@ public class AclDAO {
         row.getValue(SECRETS_CONTENT.CREATEDBY));
   }
 
+  /**
+   * Fetches the groups with access to each of the given secrets. Secrets without any access grants
+   * are absent from the returned map.
+   *
+   * Large id sets are split into bounded IN lists; each chunk is read in a single pass and groups
+   * shared between secrets are only mapped once.
+   */
   public Map<Long, List<Group>> getGroupsForSecrets(Set<Long> secretIdList) {
-    Map<Long, Group> groupMap = dslContext.select().from(GROUPS)
-        .join(ACCESSGRANTS).on(ACCESSGRANTS.GROUPID.eq(GROUPS.ID))
-        .join(SECRETS).on(ACCESSGRANTS.SECRETID.eq(SECRETS.ID))
-        .where(SECRETS.ID.in(secretIdList))
-        .fetchInto(GROUPS).map(groupMapper).stream().collect(Collectors.toMap(Group::getId, g -> g, (g1, g2) -> g1));
-
-    Map<Long, List<Long>> secretsIdGroupsIdMap = dslContext.select().from(GROUPS)
-        .join(ACCESSGRANTS).on(ACCESSGRANTS.GROUPID.eq(GROUPS.ID))
-        .join(SECRETS).on(ACCESSGRANTS.SECRETID.eq(SECRETS.ID))
-        .where(SECRETS.ID.in(secretIdList))
-        .fetch().intoGroups(SECRETS.ID, GROUPS.ID);
+    Map<Long, Group> groupCache = new HashMap<>();
+    Map<Long, List<Group>> groupsForSecrets = new LinkedHashMap<>();
+
+    for (List<Long> idBatch : Iterables.partition(secretIdList, MAX_SECRET_IDS_PER_QUERY)) {
+      dslContext.select(GROUPS.fields()).select(ACCESSGRANTS.SECRETID)
+          .from(GROUPS)
+          .join(ACCESSGRANTS).on(ACCESSGRANTS.GROUPID.eq(GROUPS.ID))
+          .join(SECRETS).on(ACCESSGRANTS.SECRETID.eq(SECRETS.ID))
+          .where(SECRETS.ID.in(idBatch))
+          .fetch()
+          .forEach(row -> {
+            Group group = groupCache.computeIfAbsent(row.get(GROUPS.ID),
+                id -> groupMapper.map(row.into(GROUPS)));
+            groupsForSecrets.computeIfAbsent(row.get(ACCESSGRANTS.SECRETID), id -> new ArrayList<>())
+                .add(group);
+          });
+    }
 
     ImmutableMap.Builder<Long, List<Group>> builder = ImmutableMap.builder();
-    for (Map.Entry<Long, List<Long>> entry : secretsIdGroupsIdMap.entrySet()) {
-      List<Group> groupList = entry.getValue().stream().map(groupMap::get).collect(toList());
-      builder.put(entry.getKey(), groupList);
-    }
+    groupsForSecrets.forEach((secretId, groups) -> builder.put(secretId, ImmutableList.copyOf(groups)));
     return builder.build();
   }
 
@@ -0,0 +1,118 @@
+package keywhiz.service.daos;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import javax.inject.Inject;
+import keywhiz.jooq.tables.records.RowHmacBackfillProgressRecord;
+import keywhiz.service.config.Readonly;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static keywhiz.jooq.tables.RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS;
+
+/**
+ * Persists the per-shard cursors of row_hmac backfill jobs, so that an interrupted job resumes
+ * where it stopped instead of starting over.
+ */
+public class RowHmacBackfillProgressDAO {
+  private final DSLContext dslContext;
+
+  private RowHmacBackfillProgressDAO(DSLContext dslContext) {
+    this.dslContext = dslContext;
+  }
+
+  public List<RowHmacBackfillProgressRecord> getProgress(String tableName) {
+    return dslContext.selectFrom(ROW_HMAC_BACKFILL_PROGRESS)
+        .where(ROW_HMAC_BACKFILL_PROGRESS.TABLE_NAME.eq(tableName))
+        .orderBy(ROW_HMAC_BACKFILL_PROGRESS.SHARD)
+        .fetch();
+  }
+
+  /**
+   * Discards any existing progress for a table and splits the ids (minId, maxId] into contiguous
+   * shards of roughly equal width.
+   */
+  public void resetProgress(String tableName, long minId, long maxId, int shards) {
+    checkArgument(shards > 0);
+    long now = OffsetDateTime.now().toEpochSecond();
+    long width = Math.max(1, (maxId - minId + shards - 1) / shards);
+
+    dslContext.transaction(configuration -> {
+      DSLContext jooq = DSL.using(configuration);
+      jooq.deleteFrom(ROW_HMAC_BACKFILL_PROGRESS)
+          .where(ROW_HMAC_BACKFILL_PROGRESS.TABLE_NAME.eq(tableName))
+          .execute();
+
+      long start = minId;
+      for (long shard = 0; shard < shards && start < maxId; shard++) {
+        long end = (shard == shards - 1) ? maxId : Math.min(maxId, start + width);
+        jooq.insertInto(ROW_HMAC_BACKFILL_PROGRESS)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.TABLE_NAME, tableName)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.SHARD, shard)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.LAST_ID, start)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.END_ID, end)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.ROWS_UPDATED, 0L)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.COMPLETED, false)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.CREATEDAT, now)
+            .set(ROW_HMAC_BACKFILL_PROGRESS.UPDATEDAT, now)
+            .execute();
+        start = end;
+      }
+    });
+  }
+
+  /**
+   * Locks a shard's progress row until the end of the current transaction, so that workers on
+   * different instances take turns on the shard instead of overwriting each other's cursor.
+   *
+   * @return the shard's progress as of the lock, or empty if the job has since been reset
+   */
+  public Optional<RowHmacBackfillProgressRecord> lockShard(long progressId) {
+    return dslContext.selectFrom(ROW_HMAC_BACKFILL_PROGRESS)
+        .where(ROW_HMAC_BACKFILL_PROGRESS.ID.eq(progressId))
+        .forUpdate()
+        .fetchOptional();
+  }
+
+  /**
+   * Advances a shard's cursor. Call this from the transaction that updated the rows so the cursor
+   * never gets ahead of the data.
+   */
+  public void advanceShard(long progressId, long lastId, long rowsUpdated, boolean completed) {
+    dslContext.update(ROW_HMAC_BACKFILL_PROGRESS)
+        .set(ROW_HMAC_BACKFILL_PROGRESS.LAST_ID, lastId)
+        .set(ROW_HMAC_BACKFILL_PROGRESS.ROWS_UPDATED,
+            ROW_HMAC_BACKFILL_PROGRESS.ROWS_UPDATED.plus(rowsUpdated))
+        .set(ROW_HMAC_BACKFILL_PROGRESS.COMPLETED, completed)
+        .set(ROW_HMAC_BACKFILL_PROGRESS.UPDATEDAT, OffsetDateTime.now().toEpochSecond())
+        .where(ROW_HMAC_BACKFILL_PROGRESS.ID.eq(progressId))
+        .execute();
+  }
+
+  public static class RowHmacBackfillProgressDAOFactory implements DAOFactory<RowHmacBackfillProgressDAO> {
+    private final DSLContext jooq;
+    private final DSLContext readonlyJooq;
+
+    @Inject public RowHmacBackfillProgressDAOFactory(DSLContext jooq, @Readonly DSLContext readonlyJooq) {
+      this.jooq = jooq;
+      this.readonlyJooq = readonlyJooq;
+    }
+
+    @Override public RowHmacBackfillProgressDAO readwrite() {
+      return new RowHmacBackfillProgressDAO(jooq);
+    }
+
+    @Override public RowHmacBackfillProgressDAO readonly() {
+      return new RowHmacBackfillProgressDAO(readonlyJooq);
+    }
+
+    @Override public RowHmacBackfillProgressDAO using(Configuration configuration) {
+      DSLContext dslContext = DSL.using(checkNotNull(configuration));
+      return new RowHmacBackfillProgressDAO(dslContext);
+    }
+  }
+}
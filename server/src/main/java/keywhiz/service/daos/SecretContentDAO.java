@@ -21,7 +21,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -153,10 +156,32 @@ public class SecretContentDAO {
       return result;
     }
 
-    String rowHmac = rowHmacGenerator.computeRowHmac(
-        SECRETS_CONTENT.getName(), List.of(r.getEncryptedContent(), r.getMetadata(), r.getId()));
+    verifyRowHmac(r);
+    return result;
+  }
 
-    if (!rowHmac.equals(r.getRowHmac())) {
+  /**
+   * Fetches several secret contents in one query, verifying each row's HMAC as {@link
+   * #getSecretContentById(long)} does.
+   *
+   * @param ids IDs in the `secrets_content` table
+   * @return the contents found, keyed by ID
+   */
+  public Map<Long, SecretContent> getSecretContentsByIds(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return ImmutableMap.of();
+    }
+    Map<Long, SecretContent> contents = new HashMap<>();
+    for (SecretsContentRecord r : dslContext.fetch(SECRETS_CONTENT, SECRETS_CONTENT.ID.in(ids))) {
+      verifyRowHmac(r);
+      contents.put(r.getId(), secretContentMapper.map(r));
+    }
+    return contents;
+  }
+
+  private void verifyRowHmac(SecretsContentRecord r) {
+    if (!rowHmacGenerator.verifyRowHmac(SECRETS_CONTENT.getName(),
+        List.of(r.getEncryptedContent(), r.getMetadata(), r.getId()), r.getRowHmac())) {
       String errorMessage = String.format(
           "Secret Content HMAC verification failed for secretContent: %d", r.getId());
       if (config.getRowHmacCheck() == RowHmacCheck.DISABLED_BUT_LOG) {
@@ -166,8 +191,6 @@ public class SecretContentDAO {
         throw new AssertionError(errorMessage);
       }
     }
-
-    return result;
   }
 
   public Optional<ImmutableList<SecretContent>> getSecretVersionsBySecretId(long id,
@@ -187,6 +210,18 @@ public class SecretContentDAO {
     }
   }
 
+  /**
+   * @param ids IDs in the `secrets` table
+   * @return the number of `secrets_content` records linked to the given secrets
+   */
+  public int countRecordsForGivenSecretsIDs(List<Long> ids) {
+    return dslContext.selectCount()
+        .from(SECRETS_CONTENT)
+        .where(SECRETS_CONTENT.SECRETID.in(ids))
+        .fetchOne()
+        .value1();
+  }
+
   /**
    * PERMANENTLY REMOVE database records from `secrets_contents` which are associated with the given
    * list of SECRETS IDs.  (Does not affect the `secrets` table.)
@@ -19,7 +19,6 @@ package keywhiz.service.daos;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 import keywhiz.KeywhizConfig;
 import keywhiz.api.automation.v2.PartialUpdateSecretRequestV2;
 import keywhiz.api.model.Group;
@@ -35,6 +34,7 @@ import keywhiz.service.crypto.ContentEncodingException;
 import keywhiz.service.daos.SecretContentDAO.SecretContentDAOFactory;
 import keywhiz.service.daos.SecretSeriesDAO.SecretSeriesDAOFactory;
 import keywhiz.service.exceptions.ConflictException;
+import keywhiz.service.expiry.SecretExpiryIndex;
 import keywhiz.service.permissions.PermissionCheck;
 import org.joda.time.DateTime;
 import org.jooq.Configuration;
@@ -50,6 +50,7 @@ import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -75,6 +76,7 @@ public class SecretDAO {
   private final ContentCryptographer cryptographer;
   private final PermissionCheck permissionCheck;
   private final KeywhizConfig config;
+  private final SecretExpiryIndex expiryIndex;
 
   // this is the maximum length of a secret name, so that it will still fit in the 255 char limit
   // of the database field if it is deleted and auto-renamed
@@ -91,7 +93,8 @@ public class SecretDAO {
       GroupDAO.GroupDAOFactory groupDAOFactory,
       ContentCryptographer cryptographer,
       PermissionCheck permissionCheck,
-      KeywhizConfig config) {
+      KeywhizConfig config,
+      SecretExpiryIndex expiryIndex) {
     this.dslContext = dslContext;
     this.secretContentDAOFactory = secretContentDAOFactory;
     this.secretSeriesDAOFactory = secretSeriesDAOFactory;
@@ -99,6 +102,7 @@ public class SecretDAO {
     this.cryptographer = cryptographer;
     this.permissionCheck = permissionCheck;
     this.config = config;
+    this.expiryIndex = expiryIndex;
   }
 
   @VisibleForTesting
@@ -114,7 +118,7 @@ public class SecretDAO {
       @Nullable String type,
       @Nullable Map<String, String> generationOptions) {
 
-    return dslContext.transactionResult(configuration -> {
+    long createdId = dslContext.transactionResult(configuration -> {
       // disallow use of a leading period in secret names
       // check is here because this is where all APIs converge on secret creation
       if (name.startsWith(".")) {
@@ -168,6 +172,8 @@ public class SecretDAO {
 
       return secretId;
     });
+    expiryIndex.refresh(dslContext, createdId);
+    return createdId;
   }
 
   @VisibleForTesting
@@ -211,7 +217,7 @@ public class SecretDAO {
       @Nullable String type,
       @Nullable Map<String, String> generationOptions) {
     // SecretController should have already checked that the contents are not empty
-    return dslContext.transactionResult(configuration -> {
+    long updatedId = dslContext.transactionResult(configuration -> {
       long now = OffsetDateTime.now().toEpochSecond();
 
       SecretContentDAO secretContentDAO = secretContentDAOFactory.using(configuration);
@@ -255,12 +261,14 @@ public class SecretDAO {
 
       return secretId;
     });
+    expiryIndex.refresh(dslContext, updatedId);
+    return updatedId;
   }
 
   @VisibleForTesting
   public long partialUpdateSecret(String name, String creator,
       PartialUpdateSecretRequestV2 request) {
-    return dslContext.transactionResult(configuration -> {
+    long updatedId = dslContext.transactionResult(configuration -> {
       long now = OffsetDateTime.now().toEpochSecond();
 
       SecretContentDAO secretContentDAO = secretContentDAOFactory.using(configuration);
@@ -324,21 +332,26 @@ public class SecretDAO {
 
       return secretId;
     });
+    expiryIndex.refresh(dslContext, updatedId);
+    return updatedId;
   }
 
   public boolean setExpiration(String name, Instant expiration) {
-    return dslContext.transactionResult(configuration -> {
+    Optional<Long> updatedId = dslContext.transactionResult(configuration -> {
       SecretSeriesDAO secretSeriesDAO = secretSeriesDAOFactory.using(configuration);
 
       Optional<SecretSeries> secretSeries = secretSeriesDAO.getSecretSeriesByName(name);
       if (secretSeries.isPresent()) {
         Optional<Long> currentVersion = secretSeries.get().currentVersion();
-        if (currentVersion.isPresent()) {
-          return secretSeriesDAO.setExpiration(currentVersion.get(), expiration) > 0;
+        if (currentVersion.isPresent()
+            && secretSeriesDAO.setExpiration(currentVersion.get(), expiration) > 0) {
+          return Optional.of(secretSeries.get().id());
         }
       }
-      return false;
+      return Optional.empty();
     });
+    updatedId.ifPresent(id -> expiryIndex.refresh(dslContext, id));
+    return updatedId.isPresent();
   }
 
   /**
@@ -473,14 +486,20 @@ public class SecretDAO {
       SecretContentDAO secretContentDAO = secretContentDAOFactory.using(configuration);
       SecretSeriesDAO secretSeriesDAO = secretSeriesDAOFactory.using(configuration);
 
-      ImmutableList.Builder<SecretSeriesAndContent> secretsBuilder = ImmutableList.builder();
+      List<SecretSeries> seriesList = secretSeriesDAO.getSecretSeries(expireMaxTime, group,
+          expireMinTime, minName, limit);
 
-      for (SecretSeries series : secretSeriesDAO.getSecretSeries(expireMaxTime, group,
-          expireMinTime, minName, limit)) {
-        SecretContent content =
-            secretContentDAO.getSecretContentById(series.currentVersion().get()).get();
-        SecretSeriesAndContent seriesAndContent = SecretSeriesAndContent.of(series, content);
-        secretsBuilder.add(seriesAndContent);
+      Map<Long, SecretContent> contents = secretContentDAO.getSecretContentsByIds(
+          seriesList.stream().map(series -> series.currentVersion().get()).collect(toList()));
+
+      ImmutableList.Builder<SecretSeriesAndContent> secretsBuilder = ImmutableList.builder();
+      for (SecretSeries series : seriesList) {
+        SecretContent content = contents.get(series.currentVersion().get());
+        if (content == null) {
+          throw new IllegalStateException(
+              format("secret %s has no content for its current version", series.name()));
+        }
+        secretsBuilder.add(SecretSeriesAndContent.of(series, content));
       }
 
       return secretsBuilder.build();
@@ -619,6 +638,7 @@ public class SecretDAO {
         NotFoundException::new);
     secretSeriesDAO.setCurrentVersion(series.id(), versionId, updater,
         OffsetDateTime.now().toEpochSecond());
+    expiryIndex.refresh(dslContext, series.id());
   }
 
   /**
@@ -633,6 +653,12 @@ public class SecretDAO {
   public void deleteSecretsByName(String name, SecretDeletionMode mode) {
     checkArgument(!name.isEmpty());
 
+    Optional<Long> secretId = expiryIndex.isEnabled()
+        ? secretSeriesDAOFactory.using(dslContext.configuration())
+            .getSecretSeriesByName(name)
+            .map(SecretSeries::id)
+        : Optional.empty();
+
     switch(mode) {
       case HARD:
         secretSeriesDAOFactory.using(dslContext.configuration())
@@ -645,11 +671,71 @@ public class SecretDAO {
       default:
         throw new IllegalArgumentException(String.format("Unknown secret deletion mode: %s", mode));
     }
+    secretId.ifPresent(id -> expiryIndex.refresh(dslContext, id));
+  }
+
+  /**
+   * Soft-deletes the given secrets in a single transaction. Secrets which do not exist or are
+   * already deleted are skipped.
+   *
+   * @param ids IDs of the secret series to delete
+   * @return IDs of the secret series which were deleted
+   */
+  public List<Long> deleteSecretsByIds(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return ImmutableList.of();
+    }
+    List<Long> deleted = secretSeriesDAOFactory.using(dslContext.configuration())
+        .softDeleteSecretSeriesByIds(ids);
+    deleted.forEach(id -> expiryIndex.refresh(dslContext, id));
+    return deleted;
+  }
+
+  /**
+   * Soft-deletes the secrets with the given names in a single transaction. Names which do not
+   * match a current secret are skipped.
+   *
+   * @param names names of the secret series to delete
+   * @return IDs of the secret series which were deleted
+   */
+  public List<Long> deleteSecretsByNames(Collection<String> names) {
+    if (names.isEmpty()) {
+      return ImmutableList.of();
+    }
+    List<Long> deleted = secretSeriesDAOFactory.using(dslContext.configuration())
+        .softDeleteSecretSeriesByNames(names);
+    deleted.forEach(id -> expiryIndex.refresh(dslContext, id));
+    return deleted;
+  }
+
+  /**
+   * @param ids IDs of secret series to look up
+   * @return the current secret series among them, without their contents
+   */
+  public List<SecretSeries> getSecretSeriesByIds(Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return ImmutableList.of();
+    }
+    return secretSeriesDAOFactory.using(dslContext.configuration())
+        .getMultipleSecretSeriesById(ids);
+  }
+
+  /**
+   * @param names names of secret series to look up
+   * @return the current secret series among them, without their contents
+   */
+  public List<SecretSeries> getSecretSeriesByNames(Collection<String> names) {
+    if (names.isEmpty()) {
+      return ImmutableList.of();
+    }
+    return secretSeriesDAOFactory.using(dslContext.configuration())
+        .getMultipleSecretSeriesByName(ImmutableList.copyOf(names));
   }
 
   public void undeleteSecret(long secretId) {
     secretSeriesDAOFactory.using(dslContext.configuration())
         .undeleteSoftDeletedSecretSeriesById(secretId);
+    expiryIndex.refresh(dslContext, secretId);
   }
 
   /**
@@ -670,6 +756,7 @@ public class SecretDAO {
 
     secretSeriesDAOFactory.using(dslContext.configuration())
         .renameSecretSeriesById(secretId, name, creator, OffsetDateTime.now().toEpochSecond());
+    expiryIndex.refresh(dslContext, secretId);
   }
 
   /**
@@ -680,6 +767,7 @@ public class SecretDAO {
     secretSeriesDAOFactory.using(dslContext.configuration())
         .setCurrentVersion(secretId, secretContentId, updater,
         OffsetDateTime.now().toEpochSecond());
+    expiryIndex.refresh(dslContext, secretId);
   }
 
   /**
@@ -697,10 +785,37 @@ public class SecretDAO {
   public int countSecretsDeletedBeforeDate(DateTime deleteBefore) {
     checkArgument(deleteBefore != null);
 
-    // identify the secrets deleted before this date
     return secretSeriesDAOFactory.using(dslContext.configuration())
-        .getIdsForSecretSeriesDeletedBeforeDate(deleteBefore)
-        .size();
+        .countSecretSeriesDeletedBeforeDate(deleteBefore);
+  }
+
+  /**
+   * Pages through the secrets deleted before the given date in id order.
+   *
+   * @param deleteBefore the cutoff date; secrets deleted before this date will be returned
+   * @param afterId only ids greater than this are returned; null to start from the lowest id
+   * @param limit the maximum number of ids to return
+   * @return IDs of secrets deleted before this date, in ascending order
+   */
+  public List<Long> getIdsOfSecretsDeletedBeforeDate(DateTime deleteBefore,
+      @Nullable Long afterId, int limit) {
+    checkArgument(deleteBefore != null);
+    checkArgument(limit > 0);
+
+    return secretSeriesDAOFactory.using(dslContext.configuration())
+        .getIdsForSecretSeriesDeletedBeforeDate(deleteBefore, afterId, limit);
+  }
+
+  /**
+   * @param ids IDs of secrets
+   * @return the number of versions stored for the given secrets
+   */
+  public int countSecretContentsForSecretIds(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    return secretContentDAOFactory.using(dslContext.configuration())
+        .countRecordsForGivenSecretsIDs(ids);
   }
 
   /**
@@ -718,24 +833,44 @@ public class SecretDAO {
   public void dangerPermanentlyRemoveSecretsDeletedBeforeDate(DateTime deletedBefore,
       int sleepMillis) throws InterruptedException {
     checkArgument(deletedBefore != null);
-    SecretSeriesDAO secretSeriesDAO = secretSeriesDAOFactory.using(dslContext.configuration());
-    SecretContentDAO secretContentDAO = secretContentDAOFactory.using(dslContext.configuration());
-
-    // identify the secrets deleted before this date
-    List<Long> ids = secretSeriesDAO.getIdsForSecretSeriesDeletedBeforeDate(deletedBefore);
 
-    // batch the list of secrets to be removed, to reduce load on the database
-    List<List<Long>> partitionedIds = Lists.partition(ids, MAX_ROWS_REMOVED_PER_TRANSACTION);
-    for (List<Long> idBatch : partitionedIds) {
-      // permanently remove the `secrets_contents` entries originally associated with these secrets
-      secretContentDAO.dangerPermanentlyRemoveRecordsForGivenSecretsIDs(idBatch);
-
-      // permanently remove the `secrets` entries for these secrets
-      secretSeriesDAO.dangerPermanentlyRemoveRecordsForGivenIDs(idBatch);
+    // walk the secrets deleted before this date in batches, to reduce load on the database
+    Long cursor = null;
+    List<Long> idBatch;
+    do {
+      idBatch = getIdsOfSecretsDeletedBeforeDate(deletedBefore, cursor,
+          MAX_ROWS_REMOVED_PER_TRANSACTION);
+      if (idBatch.isEmpty()) {
+        break;
+      }
+      dangerPermanentlyRemoveSecretsWithIds(idBatch);
+      cursor = idBatch.get(idBatch.size() - 1);
 
       // sleep
       Thread.sleep(sleepMillis);
+    } while (idBatch.size() == MAX_ROWS_REMOVED_PER_TRANSACTION);
+  }
+
+  /**
+   * PERMANENTLY REMOVES the given secrets: their series, all their secrets-contents records, and
+   * their `deleted_secrets` and `deleted_accessgrants` records, in a single transaction.
+   *
+   * @param ids IDs of secrets to be PERMANENTLY REMOVED
+   * @return the number of secret series which were removed
+   */
+  public long dangerPermanentlyRemoveSecretsWithIds(List<Long> ids) {
+    if (ids.isEmpty()) {
+      return 0;
     }
+    return dslContext.transactionResult(configuration -> {
+      // permanently remove the `secrets_contents` entries originally associated with these secrets
+      secretContentDAOFactory.using(configuration)
+          .dangerPermanentlyRemoveRecordsForGivenSecretsIDs(ids);
+
+      // permanently remove the `secrets` entries for these secrets
+      return secretSeriesDAOFactory.using(configuration)
+          .dangerPermanentlyRemoveRecordsForGivenIDs(ids);
+    });
   }
 
   private Long getOwnerId(Configuration configuration, String ownerName) {
@@ -762,6 +897,7 @@ public class SecretDAO {
     private final ContentCryptographer cryptographer;
     private final PermissionCheck permissionCheck;
     private final KeywhizConfig config;
+    private final SecretExpiryIndex expiryIndex;
 
     @Inject public SecretDAOFactory(
         DSLContext jooq,
@@ -771,7 +907,8 @@ public class SecretDAO {
         GroupDAO.GroupDAOFactory groupDAOFactory,
         ContentCryptographer cryptographer,
         PermissionCheck permissionCheck,
-        KeywhizConfig config) {
+        KeywhizConfig config,
+        SecretExpiryIndex expiryIndex) {
       this.jooq = jooq;
       this.readonlyJooq = readonlyJooq;
       this.secretContentDAOFactory = secretContentDAOFactory;
@@ -780,6 +917,7 @@ public class SecretDAO {
       this.cryptographer = cryptographer;
       this.permissionCheck = permissionCheck;
       this.config = config;
+      this.expiryIndex = expiryIndex;
     }
 
     @Override public SecretDAO readwrite() {
@@ -790,7 +928,8 @@ public class SecretDAO {
           groupDAOFactory,
           cryptographer,
           permissionCheck,
-          config);
+          config,
+          expiryIndex);
     }
 
     @Override public SecretDAO readonly() {
@@ -801,7 +940,8 @@ public class SecretDAO {
           groupDAOFactory,
           cryptographer,
           permissionCheck,
-          config);
+          config,
+          expiryIndex);
     }
 
     @Override public SecretDAO using(Configuration configuration) {
@@ -813,7 +953,8 @@ public class SecretDAO {
           groupDAOFactory,
           cryptographer,
           permissionCheck,
-          config);
+          config,
+          expiryIndex);
     }
   }
 }
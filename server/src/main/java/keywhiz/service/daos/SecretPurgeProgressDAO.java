@@ -0,0 +1,97 @@
+package keywhiz.service.daos;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import keywhiz.jooq.tables.records.SecretPurgeProgressRecord;
+import keywhiz.service.config.Readonly;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static keywhiz.jooq.tables.SecretPurgeProgress.SECRET_PURGE_PROGRESS;
+
+/**
+ * Persists the cursor of permanent removals of deleted secrets, one per cutoff date, so that an
+ * interrupted removal resumes where it stopped instead of rescanning from the lowest id.
+ */
+public class SecretPurgeProgressDAO {
+  private final DSLContext dslContext;
+
+  private SecretPurgeProgressDAO(DSLContext dslContext) {
+    this.dslContext = dslContext;
+  }
+
+  /**
+   * @param deletedBefore the removal cutoff, in epoch seconds
+   */
+  public Optional<SecretPurgeProgressRecord> getProgress(long deletedBefore) {
+    return Optional.ofNullable(dslContext.selectFrom(SECRET_PURGE_PROGRESS)
+        .where(SECRET_PURGE_PROGRESS.DELETED_BEFORE.eq(deletedBefore))
+        .fetchOne());
+  }
+
+  /**
+   * Discards any existing progress for a cutoff and starts it over from the lowest id.
+   *
+   * @param deletedBefore the removal cutoff, in epoch seconds
+   */
+  public SecretPurgeProgressRecord resetProgress(long deletedBefore) {
+    long now = OffsetDateTime.now().toEpochSecond();
+    dslContext.transaction(configuration -> {
+      DSLContext jooq = DSL.using(configuration);
+      jooq.deleteFrom(SECRET_PURGE_PROGRESS)
+          .where(SECRET_PURGE_PROGRESS.DELETED_BEFORE.eq(deletedBefore))
+          .execute();
+      jooq.insertInto(SECRET_PURGE_PROGRESS)
+          .set(SECRET_PURGE_PROGRESS.DELETED_BEFORE, deletedBefore)
+          .set(SECRET_PURGE_PROGRESS.SECRETS_REMOVED, 0L)
+          .set(SECRET_PURGE_PROGRESS.COMPLETED, false)
+          .set(SECRET_PURGE_PROGRESS.CREATEDAT, now)
+          .set(SECRET_PURGE_PROGRESS.UPDATEDAT, now)
+          .execute();
+    });
+    return getProgress(deletedBefore).orElseThrow();
+  }
+
+  /**
+   * Advances the cursor. Call this from the transaction that removed the secrets so the cursor
+   * never gets ahead of the data.
+   */
+  public void advance(long progressId, @Nullable Long lastId, long secretsRemoved,
+      boolean completed) {
+    dslContext.update(SECRET_PURGE_PROGRESS)
+        .set(SECRET_PURGE_PROGRESS.LAST_ID, lastId)
+        .set(SECRET_PURGE_PROGRESS.SECRETS_REMOVED,
+            SECRET_PURGE_PROGRESS.SECRETS_REMOVED.plus(secretsRemoved))
+        .set(SECRET_PURGE_PROGRESS.COMPLETED, completed)
+        .set(SECRET_PURGE_PROGRESS.UPDATEDAT, OffsetDateTime.now().toEpochSecond())
+        .where(SECRET_PURGE_PROGRESS.ID.eq(progressId))
+        .execute();
+  }
+
+  public static class SecretPurgeProgressDAOFactory implements DAOFactory<SecretPurgeProgressDAO> {
+    private final DSLContext jooq;
+    private final DSLContext readonlyJooq;
+
+    @Inject public SecretPurgeProgressDAOFactory(DSLContext jooq, @Readonly DSLContext readonlyJooq) {
+      this.jooq = jooq;
+      this.readonlyJooq = readonlyJooq;
+    }
+
+    @Override public SecretPurgeProgressDAO readwrite() {
+      return new SecretPurgeProgressDAO(jooq);
+    }
+
+    @Override public SecretPurgeProgressDAO readonly() {
+      return new SecretPurgeProgressDAO(readonlyJooq);
+    }
+
+    @Override public SecretPurgeProgressDAO using(Configuration configuration) {
+      DSLContext dslContext = DSL.using(checkNotNull(configuration));
+      return new SecretPurgeProgressDAO(dslContext);
+    }
+  }
+}
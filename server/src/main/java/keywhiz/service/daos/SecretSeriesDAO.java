@@ -23,6 +23,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -323,6 +324,10 @@ public class SecretSeriesDAO {
     return getMultipleSecretSeries(SECRETS.NAME.in(names).and(SECRETS.CURRENT.isNotNull()));
   }
 
+  public List<SecretSeries> getMultipleSecretSeriesById(Collection<Long> ids) {
+    return getMultipleSecretSeries(SECRETS.ID.in(ids).and(SECRETS.CURRENT.isNotNull()));
+  }
+
   SelectQuery<Record> baseSelectQuery() {
         return baseSelect().getQuery();
   }
@@ -458,10 +463,11 @@ public class SecretSeriesDAO {
         .on(SECRETS.CURRENT.equal(SECRETS_CONTENT.ID))
         .where(SECRETS.CURRENT.isNotNull())
         .getQuery();
+    // Ordered by id as well, so that pages don't overlap or skip secrets created in the same second
     if (newestFirst) {
-      select.addOrderBy(SECRETS.CREATEDAT.desc());
+      select.addOrderBy(SECRETS.CREATEDAT.desc(), SECRETS.ID.desc());
     } else {
-      select.addOrderBy(SECRETS.CREATEDAT.asc());
+      select.addOrderBy(SECRETS.CREATEDAT.asc(), SECRETS.ID.asc());
     }
     select.addLimit(idx, num);
 
@@ -541,27 +547,76 @@ public class SecretSeriesDAO {
     });
   }
 
+  /**
+   * Soft-deletes every current secret series with one of the given names, in a single
+   * transaction.
+   *
+   * @return IDs of the secret series which were deleted
+   */
+  public List<Long> softDeleteSecretSeriesByNames(Collection<String> names) {
+    return softDeleteMultipleSecretSeries(SECRETS.NAME.in(names));
+  }
+
+  /**
+   * Soft-deletes every current secret series with one of the given IDs, in a single transaction.
+   *
+   * @return IDs of the secret series which were deleted
+   */
+  public List<Long> softDeleteSecretSeriesByIds(Collection<Long> ids) {
+    return softDeleteMultipleSecretSeries(SECRETS.ID.in(ids));
+  }
+
+  private List<Long> softDeleteMultipleSecretSeries(Condition condition) {
+    return dslContext.transactionResult(configuration -> {
+      // find the records and lock them until this transaction is complete; locking in id order
+      // keeps concurrent bulk deletions from deadlocking each other
+      List<SecretsRecord> records = DSL.using(configuration)
+          .select()
+          .from(SECRETS)
+          .where(condition.and(SECRETS.CURRENT.isNotNull()))
+          .orderBy(SECRETS.ID)
+          .forUpdate()
+          .fetchInto(SECRETS);
+
+      softDeleteSecretSeries(DSL.using(configuration), records);
+      return records.stream().map(SecretsRecord::getId).collect(Collectors.toList());
+    });
+  }
+
   private static void softDeleteSecretSeries(DSLContext dslContext, SecretsRecord record) {
     if (record == null) {
       return;
     }
+    softDeleteSecretSeries(dslContext, List.of(record));
+  }
+
+  /**
+   * Soft-deletes the given locked records, running each statement once for all of them.
+   */
+  private static void softDeleteSecretSeries(DSLContext dslContext, List<SecretsRecord> records) {
+    if (records.isEmpty()) {
+      return;
+    }
 
     long now = OffsetDateTime.now().toEpochSecond();
+    List<Long> ids = records.stream().map(SecretsRecord::getId).collect(Collectors.toList());
+    Map<Long, String> deletedNames = records.stream().collect(Collectors.toMap(
+        SecretsRecord::getId, record -> transformNameForDeletion(record.getName())));
 
     dslContext
         .insertInto(DELETED_SECRETS)
         .columns(DELETED_SECRETS.fields())
         .select(select(Arrays.stream(DELETED_SECRETS.fields())
             .map(SECRETS::field)
-            .collect(Collectors.toList())).from(SECRETS).where(SECRETS.ID.eq(record.getId())))
+            .collect(Collectors.toList())).from(SECRETS).where(SECRETS.ID.in(ids)))
             .execute();
 
     dslContext
         .update(SECRETS)
-        .set(SECRETS.NAME, transformNameForDeletion(record.getName()))
+        .set(SECRETS.NAME, DSL.choose(SECRETS.ID).mapValues(deletedNames).otherwise(SECRETS.NAME))
         .set(SECRETS.CURRENT, (Long) null)
         .set(SECRETS.UPDATEDAT, now)
-        .where(SECRETS.ID.eq(record.getId()))
+        .where(SECRETS.ID.in(ids))
         .execute();
 
     List<Field<?>> fieldsToCopy = Arrays.stream(DELETED_ACCESSGRANTS.fields())
@@ -576,12 +631,12 @@ public class SecretSeriesDAO {
                 .map(ACCESSGRANTS::field)
                 .collect(Collectors.toList()))
             .from(ACCESSGRANTS)
-            .where(ACCESSGRANTS.SECRETID.eq(record.getId())))
+            .where(ACCESSGRANTS.SECRETID.in(ids)))
         .execute();
 
     dslContext
         .delete(ACCESSGRANTS)
-        .where(ACCESSGRANTS.SECRETID.eq(record.getId()))
+        .where(ACCESSGRANTS.SECRETID.in(ids))
         .execute();
   }
 
@@ -658,38 +713,64 @@ public class SecretSeriesDAO {
   }
 
   /**
-   * Identify all secret series which were deleted before the given date.
+   * @param deleteBefore the cutoff date; secrets deleted before this date will be counted
+   * @return the number of secret series deleted before this date
+   */
+  public int countSecretSeriesDeletedBeforeDate(DateTime deleteBefore) {
+    long deleteBeforeSeconds = deleteBefore.getMillis() / 1000;
+    return dslContext.selectCount()
+        .from(SECRETS)
+        .where(SECRETS.CURRENT.isNull())
+        .and(SECRETS.UPDATEDAT.le(deleteBeforeSeconds))
+        .fetchOne()
+        .value1();
+  }
+
+  /**
+   * Pages through the secret series deleted before the given date in id order, so callers can walk
+   * them without loading every id at once.
    *
    * @param deleteBefore the cutoff date; secrets deleted before this date will be returned
-   * @return IDs for secret series deleted before this date
+   * @param afterId only ids greater than this are returned; null to start from the lowest id
+   * @param limit the maximum number of ids to return
+   * @return IDs for secret series deleted before this date, in ascending order
    */
-  public List<Long> getIdsForSecretSeriesDeletedBeforeDate(DateTime deleteBefore) {
+  public List<Long> getIdsForSecretSeriesDeletedBeforeDate(DateTime deleteBefore,
+      @Nullable Long afterId, int limit) {
     long deleteBeforeSeconds = deleteBefore.getMillis() / 1000;
+    Condition condition = SECRETS.CURRENT.isNull().and(SECRETS.UPDATEDAT.le(deleteBeforeSeconds));
+    if (afterId != null) {
+      condition = condition.and(SECRETS.ID.greaterThan(afterId));
+    }
     return dslContext.select(SECRETS.ID)
         .from(SECRETS)
-        .where(SECRETS.CURRENT.isNull())
-        .and(SECRETS.UPDATEDAT.le(deleteBeforeSeconds))
+        .where(condition)
+        .orderBy(SECRETS.ID)
+        .limit(limit)
         .fetch(SECRETS.ID);
   }
 
   /**
-   * PERMANENTLY REMOVE database records from `secrets` which have the given list of IDs. Does not
-   * affect the `secrets_content` table.
+   * PERMANENTLY REMOVE database records from `secrets` which have the given list of IDs, along with
+   * their `deleted_secrets` and `deleted_accessgrants` records. Does not affect the
+   * `secrets_content` table.
    *
    * @param ids the IDs in the `secrets` table to be PERMANENTLY REMOVED
-   * @return the number of records which were removed
+   * @return the number of records which were removed from `secrets`
    */
   public long dangerPermanentlyRemoveRecordsForGivenIDs(List<Long> ids) {
-    var deletedCount = new Object(){ long val = 0; };
-    dslContext.transaction(configuration -> {
-      dslContext.deleteFrom(DELETED_SECRETS)
+    return dslContext.transactionResult(configuration -> {
+      DSLContext jooq = DSL.using(configuration);
+      jooq.deleteFrom(DELETED_ACCESSGRANTS)
+          .where(DELETED_ACCESSGRANTS.SECRETID.in(ids))
+          .execute();
+      jooq.deleteFrom(DELETED_SECRETS)
           .where(DELETED_SECRETS.ID.in(ids))
           .execute();
-      deletedCount.val = dslContext.deleteFrom(SECRETS)
+      return (long) jooq.deleteFrom(SECRETS)
           .where(SECRETS.ID.in(ids))
           .execute();
     });
-    return deletedCount.val;
   }
 
   public static class SecretSeriesDAOFactory implements DAOFactory<SecretSeriesDAO> {
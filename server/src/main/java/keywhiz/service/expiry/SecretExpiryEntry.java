@@ -0,0 +1,34 @@
+package keywhiz.service.expiry;
+
+import com.google.auto.value.AutoValue;
+import java.util.Comparator;
+
+/**
+ * A current secret with an expiry, as held by the {@link SecretExpiryIndex}. Entries sort by
+ * expiry and then by id; ordering by name is left to the database, whose collation decides it.
+ */
+@AutoValue
+public abstract class SecretExpiryEntry implements Comparable<SecretExpiryEntry> {
+  private static final Comparator<SecretExpiryEntry> ORDER =
+      Comparator.comparingLong(SecretExpiryEntry::expiry).thenComparingLong(SecretExpiryEntry::id);
+
+  public static SecretExpiryEntry of(long id, String name, long expiry) {
+    return new AutoValue_SecretExpiryEntry(id, name, expiry);
+  }
+
+  /** Sorts before every entry expiring at or after the given time. */
+  static SecretExpiryEntry lowerBound(long expiry) {
+    return of(Long.MIN_VALUE, "", expiry);
+  }
+
+  public abstract long id();
+
+  public abstract String name();
+
+  /** Expiry in epoch seconds. */
+  public abstract long expiry();
+
+  @Override public int compareTo(SecretExpiryEntry other) {
+    return ORDER.compare(this, other);
+  }
+}
@@ -0,0 +1,339 @@
+package keywhiz.service.expiry;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import keywhiz.service.config.SecretExpiryIndexConfig;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.jooq.TransactionContext;
+import org.jooq.TransactionListenerProvider;
+import org.jooq.impl.DefaultTransactionListener;
+import org.jooq.impl.DefaultTransactionListenerProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.stream.Collectors.toList;
+import static keywhiz.jooq.tables.Secrets.SECRETS;
+
+/**
+ * In-memory index of current secrets ordered by expiry, used to tell listeners about secrets that
+ * are about to expire without range-scanning the secrets table.
+ *
+ * Writes made through {@link keywhiz.service.daos.SecretDAO} refresh the affected secret once
+ * the outermost transaction they were made in commits, so rolled back writes never reach the
+ * index; this requires the index to be {@link #install installed} on the read-write context. The
+ * whole index is reloaded from the database every reconcile interval, which picks up changes
+ * made by other Keywhiz instances.
+ *
+ * When notification thresholds are configured, registered {@link SecretExpiryListener}s are told
+ * about secrets as they come within each threshold of expiring. Secrets that cross a threshold
+ * while the service is down are not reported.
+ */
+public class SecretExpiryIndex implements Managed {
+  private static final Logger logger = LoggerFactory.getLogger(SecretExpiryIndex.class);
+
+  private final DSLContext jooq;
+  private final SecretExpiryIndexConfig config;
+  private final MetricRegistry metricRegistry;
+  private final Clock clock;
+  private final List<SecretExpiryListener> listeners = new CopyOnWriteArrayList<>();
+
+  private final NavigableSet<SecretExpiryEntry> byExpiry = new ConcurrentSkipListSet<>();
+  // guarded by this
+  private final Map<Long, SecretExpiryEntry> byId = new HashMap<>();
+  // guarded by this; secrets refreshed while a reconcile was loading, whose loaded state is stale
+  private final Set<Long> refreshedDuringReconcile = new HashSet<>();
+  // guarded by this
+  private boolean reconciling = false;
+
+  // per thread: open transactions on the installed context, and secrets written in them which
+  // are refreshed once the outermost one commits
+  private final ThreadLocal<Deque<TransactionContext>> transactions =
+      ThreadLocal.withInitial(ArrayDeque::new);
+  private final ThreadLocal<Set<Long>> pendingRefreshes = ThreadLocal.withInitial(HashSet::new);
+  private DSLContext committedJooq;
+
+  private volatile boolean ready = false;
+  private long lastThresholdCheck;
+  private ScheduledExecutorService executor;
+
+  public SecretExpiryIndex(DSLContext jooq, SecretExpiryIndexConfig config,
+      MetricRegistry metricRegistry) {
+    this(jooq, config, metricRegistry, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  SecretExpiryIndex(DSLContext jooq, SecretExpiryIndexConfig config,
+      MetricRegistry metricRegistry, Clock clock) {
+    this.jooq = jooq;
+    this.config = config;
+    this.metricRegistry = metricRegistry;
+    this.clock = clock;
+  }
+
+  @Override public void start() {
+    if (!config.enabled()) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("secret-expiry-index").setDaemon(true).build());
+    executor.scheduleWithFixedDelay(this::tick, 0, config.reconcileIntervalSeconds(),
+        TimeUnit.SECONDS);
+  }
+
+  @Override public void stop() throws InterruptedException {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Defers refreshes of secrets written in transactions on the given read-write context until
+   * the outermost transaction commits, and reads them back through it afterwards.
+   */
+  public void install(DSLContext dslContext) {
+    committedJooq = dslContext;
+    TransactionListenerProvider[] existing =
+        dslContext.configuration().transactionListenerProviders();
+    TransactionListenerProvider[] providers = new TransactionListenerProvider[existing.length + 1];
+    System.arraycopy(existing, 0, providers, 0, existing.length);
+    providers[existing.length] = new DefaultTransactionListenerProvider(new Listener());
+    dslContext.configuration().set(providers);
+  }
+
+  public void addListener(SecretExpiryListener listener) {
+    listeners.add(listener);
+  }
+
+  public boolean isEnabled() {
+    return config.enabled();
+  }
+
+  /** Whether the index is enabled and has been loaded at least once. */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Returns secrets expiring in [fromInclusive, toExclusive) in order of expiry. With a
+   * non-negative limit, stops after that many secrets, except that all secrets sharing the expiry
+   * of the last one are included so the caller can order them by name.
+   */
+  public List<SecretExpiryEntry> expiring(long fromInclusive, long toExclusive, int limit) {
+    if (fromInclusive >= toExclusive) {
+      return ImmutableList.of();
+    }
+    List<SecretExpiryEntry> result = new ArrayList<>();
+    for (SecretExpiryEntry entry : byExpiry.subSet(SecretExpiryEntry.lowerBound(fromInclusive),
+        SecretExpiryEntry.lowerBound(toExclusive))) {
+      if (limit >= 0 && result.size() >= limit
+          && entry.expiry() != result.get(result.size() - 1).expiry()) {
+        break;
+      }
+      result.add(entry);
+    }
+    return result;
+  }
+
+  /** Names of secrets expiring in [fromInclusive, toExclusive). */
+  public List<String> expiringNames(long fromInclusive, long toExclusive) {
+    return expiring(fromInclusive, toExclusive, -1).stream()
+        .map(SecretExpiryEntry::name)
+        .collect(toList());
+  }
+
+  /**
+   * Re-reads a single secret after it was written. Inside a transaction on the installed context
+   * the read is deferred until the outermost transaction commits, and dropped if it rolls back.
+   */
+  public void refresh(DSLContext dslContext, long secretId) {
+    if (!config.enabled()) {
+      return;
+    }
+    if (!transactions.get().isEmpty()) {
+      pendingRefreshes.get().add(secretId);
+      return;
+    }
+    read(dslContext, secretId);
+  }
+
+  private void read(DSLContext dslContext, long secretId) {
+    Record3<String, Long, Long> row = dslContext
+        .select(SECRETS.NAME, SECRETS.EXPIRY, SECRETS.CURRENT)
+        .from(SECRETS)
+        .where(SECRETS.ID.eq(secretId))
+        .fetchOne();
+
+    synchronized (this) {
+      if (reconciling) {
+        refreshedDuringReconcile.add(secretId);
+      }
+      if (row == null || row.value3() == null || row.value2() == null || row.value2() <= 0) {
+        remove(secretId);
+      } else {
+        put(SecretExpiryEntry.of(secretId, row.value1(), row.value2()));
+      }
+    }
+  }
+
+  /** Reloads every current secret with an expiry from the database. */
+  @VisibleForTesting
+  void reconcile() {
+    synchronized (this) {
+      reconciling = true;
+      refreshedDuringReconcile.clear();
+    }
+
+    List<SecretExpiryEntry> loaded;
+    try {
+      loaded = jooq.select(SECRETS.ID, SECRETS.NAME, SECRETS.EXPIRY)
+          .from(SECRETS)
+          .where(SECRETS.CURRENT.isNotNull())
+          .and(SECRETS.EXPIRY.greaterThan(0L))
+          .fetch(r -> SecretExpiryEntry.of(r.value1(), r.value2(), r.value3()));
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        reconciling = false;
+      }
+      throw e;
+    }
+
+    synchronized (this) {
+      Set<Long> loadedIds = new HashSet<>();
+      for (SecretExpiryEntry entry : loaded) {
+        loadedIds.add(entry.id());
+        if (!refreshedDuringReconcile.contains(entry.id())) {
+          put(entry);
+        }
+      }
+      for (Long id : new ArrayList<>(byId.keySet())) {
+        if (!loadedIds.contains(id) && !refreshedDuringReconcile.contains(id)) {
+          remove(id);
+        }
+      }
+      reconciling = false;
+    }
+
+    if (!ready) {
+      lastThresholdCheck = clock.instant().getEpochSecond();
+      ready = true;
+    }
+  }
+
+  /**
+   * Notifies listeners about secrets which came within a threshold of expiring since the last
+   * check.
+   */
+  @VisibleForTesting
+  void checkThresholds() {
+    long now = clock.instant().getEpochSecond();
+    for (long threshold : config.notificationThresholdsSeconds()) {
+      Duration duration = Duration.ofSeconds(threshold);
+      for (SecretExpiryEntry entry : byExpiry.subSet(
+          SecretExpiryEntry.lowerBound(lastThresholdCheck + threshold + 1),
+          SecretExpiryEntry.lowerBound(now + threshold + 1))) {
+        metricRegistry.meter(MetricRegistry.name(SecretExpiryIndex.class, "thresholdsCrossed"))
+            .mark();
+        for (SecretExpiryListener listener : listeners) {
+          try {
+            listener.thresholdCrossed(entry, duration);
+          } catch (RuntimeException e) {
+            logger.warn("Expiry listener failed for secret {}", entry.name(), e);
+          }
+        }
+      }
+    }
+    lastThresholdCheck = now;
+  }
+
+  private void tick() {
+    try {
+      reconcile();
+      checkThresholds();
+    } catch (RuntimeException e) {
+      logger.warn("Unable to reconcile secret expiry index", e);
+    }
+  }
+
+  /** Refreshes the secrets written in a transaction once it finally commits. */
+  private void transactionEnded(TransactionContext ctx, boolean committed) {
+    Deque<TransactionContext> open = transactions.get();
+    // a failed commit is followed by a rollback of the same transaction
+    if (open.peek() != ctx) {
+      return;
+    }
+    open.pop();
+    if (!open.isEmpty()) {
+      return;
+    }
+    Set<Long> pending = pendingRefreshes.get();
+    List<Long> ids = new ArrayList<>(pending);
+    pending.clear();
+    if (!committed) {
+      return;
+    }
+    for (long id : ids) {
+      try {
+        read(committedJooq, id);
+      } catch (RuntimeException e) {
+        logger.warn("Unable to refresh secret {} in expiry index", id, e);
+      }
+    }
+  }
+
+  private class Listener extends DefaultTransactionListener {
+    @Override public void beginStart(TransactionContext ctx) {
+      transactions.get().push(ctx);
+    }
+
+    @Override public void commitEnd(TransactionContext ctx) {
+      transactionEnded(ctx, true);
+    }
+
+    @Override public void rollbackEnd(TransactionContext ctx) {
+      transactionEnded(ctx, false);
+    }
+  }
+
+  private void put(SecretExpiryEntry entry) {
+    SecretExpiryEntry old = byId.put(entry.id(), entry);
+    if (old == null) {
+      byExpiry.add(entry);
+    } else if (old.compareTo(entry) == 0) {
+      // only the name changed; the set treats both as the same element
+      byExpiry.remove(old);
+      byExpiry.add(entry);
+    } else {
+      // add before removing so concurrent readers never miss the secret
+      byExpiry.add(entry);
+      byExpiry.remove(old);
+    }
+  }
+
+  private void remove(long id) {
+    SecretExpiryEntry old = byId.remove(id);
+    if (old != null) {
+      byExpiry.remove(old);
+    }
+  }
+}
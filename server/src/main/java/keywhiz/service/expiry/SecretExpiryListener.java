@@ -0,0 +1,18 @@
+package keywhiz.service.expiry;
+
+import java.time.Duration;
+
+/**
+ * Notified by the {@link SecretExpiryIndex} when a secret comes within one of the configured
+ * notification thresholds of its expiry.
+ */
+public interface SecretExpiryListener {
+  /**
+   * Called once per secret and threshold, from the index's background thread. Implementations
+   * should not block.
+   *
+   * @param secret the secret approaching expiry
+   * @param threshold the threshold crossed, as time remaining before expiry
+   */
+  void thresholdCrossed(SecretExpiryEntry secret, Duration threshold);
+}
@@ -0,0 +1,18 @@
+package keywhiz.service.filters;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import javax.ws.rs.NameBinding;
+
+/**
+ * Compresses the annotated resource method's responses with gzip for clients that accept it (see
+ * {@link CompressionInterceptor}). Meant for endpoints whose responses are large and repetitive,
+ * such as listings of secret metadata.
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Compressed {
+}
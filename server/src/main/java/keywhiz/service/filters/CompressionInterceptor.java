@@ -0,0 +1,242 @@
+package keywhiz.service.filters;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import javax.inject.Inject;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import keywhiz.KeywhizConfig;
+import keywhiz.service.config.CompressionConfig;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Gzips the responses of {@link Compressed} resource methods as they are serialized, for clients
+ * that send {@code Accept-Encoding: gzip}.
+ *
+ * The first {@link CompressionConfig#minimumSize()} bytes of a response are held back; responses
+ * that end within them are sent uncompressed, and longer ones are compressed as they are written,
+ * so the serialized entity is never buffered in full. Under this class's metric prefix,
+ * {@code uncompressedBytes} and {@code compressedBytes} count the bytes of compressed responses
+ * before and after compression, {@code deflate} times the deflating of each response (excluding
+ * time spent writing to the client), and {@code belowMinimumSize} counts the responses sent as
+ * they were.
+ */
+@Compressed
+public class CompressionInterceptor implements WriterInterceptor {
+  private final CompressionConfig config;
+  private final Counter uncompressedBytes;
+  private final Counter compressedBytes;
+  private final Counter belowMinimumSize;
+  private final Timer deflate;
+
+  @Context private HttpHeaders requestHeaders;
+
+  @Inject public CompressionInterceptor(KeywhizConfig config, MetricRegistry metricRegistry) {
+    this(config.getCompressionConfig(), metricRegistry);
+  }
+
+  @VisibleForTesting
+  CompressionInterceptor(CompressionConfig config, MetricRegistry metricRegistry) {
+    this.config = config;
+    this.uncompressedBytes =
+        metricRegistry.counter(MetricRegistry.name(CompressionInterceptor.class, "uncompressedBytes"));
+    this.compressedBytes =
+        metricRegistry.counter(MetricRegistry.name(CompressionInterceptor.class, "compressedBytes"));
+    this.belowMinimumSize =
+        metricRegistry.counter(MetricRegistry.name(CompressionInterceptor.class, "belowMinimumSize"));
+    this.deflate = metricRegistry.timer(MetricRegistry.name(CompressionInterceptor.class, "deflate"));
+  }
+
+  @VisibleForTesting
+  CompressionInterceptor(CompressionConfig config, MetricRegistry metricRegistry,
+      HttpHeaders requestHeaders) {
+    this(config, metricRegistry);
+    this.requestHeaders = requestHeaders;
+  }
+
+  @Override public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+    MultivaluedMap<String, Object> headers = context.getHeaders();
+    if (!config.enabled() || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+      context.proceed();
+      return;
+    }
+
+    headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (!acceptsGzip(requestHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING))) {
+      context.proceed();
+      return;
+    }
+
+    CompressingOutputStream output =
+        new CompressingOutputStream(context.getOutputStream(), headers);
+    context.setOutputStream(output);
+    context.proceed();
+    output.finish();
+  }
+
+  /**
+   * Whether an Accept-Encoding header lists gzip without excluding it with {@code q=0}. A
+   * malformed quality value also excludes it.
+   */
+  @VisibleForTesting static boolean acceptsGzip(List<String> acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String header : acceptEncoding) {
+      for (String coding : header.split(",")) {
+        String[] parameters = coding.split(";");
+        if (!parameters[0].trim().equalsIgnoreCase("gzip")) {
+          continue;
+        }
+        for (int i = 1; i < parameters.length; i++) {
+          String parameter = parameters[i].replace(" ", "");
+          if (parameter.startsWith("q=") && !(quality(parameter.substring(2)) > 0)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static double quality(String value) {
+    try {
+      return Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Holds back the first bytes written until they exceed the minimum size, then switches the
+   * response to gzip. Headers can still change until the first byte reaches the underlying
+   * stream, since that is what commits the response.
+   */
+  private class CompressingOutputStream extends OutputStream {
+    private final TimedOutputStream sink;
+    private final MultivaluedMap<String, Object> headers;
+    private byte[] buffer;
+    private int buffered;
+    private GZIPOutputStream gzip;
+    private long written;
+    private long deflateNanos;
+    private boolean finished;
+
+    CompressingOutputStream(OutputStream sink, MultivaluedMap<String, Object> headers) {
+      this.sink = new TimedOutputStream(sink);
+      this.headers = headers;
+      this.buffer = new byte[config.minimumSize()];
+    }
+
+    @Override public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+      written += len;
+      if (gzip == null) {
+        if (buffered + len <= buffer.length) {
+          System.arraycopy(b, off, buffer, buffered, len);
+          buffered += len;
+          return;
+        }
+        startCompressing();
+      }
+      deflate(b, off, len);
+    }
+
+    private void startCompressing() throws IOException {
+      headers.putSingle(HttpHeaders.CONTENT_ENCODING, "gzip");
+      headers.remove(HttpHeaders.CONTENT_LENGTH);
+      gzip = new GZIPOutputStream(sink, 8192) {
+        {
+          def.setLevel(config.level());
+        }
+      };
+      deflate(buffer, 0, buffered);
+      buffer = null;
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+      long start = System.nanoTime();
+      long sinkNanos = sink.nanos;
+      gzip.write(b, off, len);
+      deflateNanos += System.nanoTime() - start - (sink.nanos - sinkNanos);
+    }
+
+    /** Leaves buffered bytes in place, so flushing does not commit an undecided response. */
+    @Override public void flush() throws IOException {
+      if (gzip != null) {
+        gzip.flush();
+      }
+    }
+
+    /** Writes out whatever is buffered or pending in the compressor, without closing the sink. */
+    void finish() throws IOException {
+      if (finished) {
+        return;
+      }
+      finished = true;
+
+      if (gzip == null) {
+        sink.write(buffer, 0, buffered);
+        belowMinimumSize.inc();
+        return;
+      }
+      long start = System.nanoTime();
+      long sinkNanos = sink.nanos;
+      gzip.finish();
+      deflateNanos += System.nanoTime() - start - (sink.nanos - sinkNanos);
+
+      uncompressedBytes.inc(written);
+      compressedBytes.inc(sink.count);
+      deflate.update(deflateNanos, NANOSECONDS);
+    }
+
+    @Override public void close() throws IOException {
+      finish();
+      sink.close();
+    }
+  }
+
+  /** Counts the bytes written to a stream and the time spent writing them. */
+  private static class TimedOutputStream extends OutputStream {
+    private final OutputStream delegate;
+    long count;
+    long nanos;
+
+    TimedOutputStream(OutputStream delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+      long start = System.nanoTime();
+      delegate.write(b, off, len);
+      nanos += System.nanoTime() - start;
+      count += len;
+    }
+
+    @Override public void flush() throws IOException {
+      delegate.flush();
+    }
+
+    @Override public void close() throws IOException {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package keywhiz.service.filters;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import java.lang.reflect.Method;
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListener;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+
+/**
+ * Counts the database queries issued while serving each resource method.
+ *
+ * For every matched request, increments the counters {@code <Resource>.<method>.requests} and
+ * {@code <Resource>.<method>.queries} under this class's metric prefix; the ratio between the two
+ * is the number of round trips an endpoint makes per request. Queries are attributed to the
+ * request being served on the issuing thread, so work done on background threads is not counted.
+ *
+ * Only installed when {@code countQueries} is set in the configuration, as the load tests do
+ * through the development configuration.
+ */
+public class QueryCountFilter implements ContainerRequestFilter, ContainerResponseFilter {
+  private static final ThreadLocal<int[]> queries = new ThreadLocal<>();
+
+  private final MetricRegistry metricRegistry;
+
+  @Context private ResourceInfo resourceInfo;
+
+  @Inject public QueryCountFilter(MetricRegistry metricRegistry) {
+    this.metricRegistry = metricRegistry;
+  }
+
+  @VisibleForTesting
+  QueryCountFilter(MetricRegistry metricRegistry, ResourceInfo resourceInfo) {
+    this.metricRegistry = metricRegistry;
+    this.resourceInfo = resourceInfo;
+  }
+
+  /** Adds the query counting listener to a jOOQ context. */
+  public static void install(DSLContext dslContext) {
+    ExecuteListenerProvider[] existing = dslContext.configuration().executeListenerProviders();
+    ExecuteListenerProvider[] providers = new ExecuteListenerProvider[existing.length + 1];
+    System.arraycopy(existing, 0, providers, 0, existing.length);
+    providers[existing.length] = new DefaultExecuteListenerProvider(new Listener());
+    dslContext.configuration().set(providers);
+  }
+
+  @Override public void filter(ContainerRequestContext request) {
+    queries.set(new int[1]);
+  }
+
+  @Override public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+    int[] count = queries.get();
+    queries.remove();
+
+    Method method = resourceInfo.getResourceMethod();
+    if (count == null || method == null) {
+      return;
+    }
+    String name = MetricRegistry.name(QueryCountFilter.class,
+        resourceName(resourceInfo.getResourceClass()), method.getName());
+    metricRegistry.counter(name + ".requests").inc();
+    metricRegistry.counter(name + ".queries").inc(count[0]);
+  }
+
+  /** Simple name of a resource class, looking through Guice's AOP subclasses. */
+  private static String resourceName(Class<?> resourceClass) {
+    Class<?> c = resourceClass;
+    while (c.getSimpleName().contains("$$") && c.getSuperclass() != null) {
+      c = c.getSuperclass();
+    }
+    return c.getSimpleName();
+  }
+
+  private static class Listener extends DefaultExecuteListener {
+    @Override public void executeStart(ExecuteContext ctx) {
+      int[] count = queries.get();
+      if (count != null) {
+        count[0]++;
+      }
+    }
+  }
+}
@@ -17,6 +17,10 @@
 package keywhiz.service.providers;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import java.io.ByteArrayInputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -25,7 +29,6 @@ import java.security.Principal;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -69,18 +72,28 @@ public class ClientAuthFactory {
 
   private final ClientAuthenticator authenticator;
   private final ClientAuthConfig clientAuthConfig;
+  // Principals for certificates forwarded in the XFCC header, keyed by the SHA-256 digest of the
+  // header's url-encoded Cert value, so that a proxy forwarding the same client certificate on
+  // every request only has it parsed once.
+  private final Cache<HashCode, ForwardedCertificatePrincipal> forwardedPrincipals;
 
   @Inject
   public ClientAuthFactory(ClientDAOFactory clientDAOFactory, KeywhizConfig keywhizConfig) {
-    this.authenticator =
-        new ClientAuthenticator(clientDAOFactory.readwrite(), clientDAOFactory.readonly(),
-            keywhizConfig.getClientAuthConfig());
-    this.clientAuthConfig = keywhizConfig.getClientAuthConfig();
+    this(new ClientAuthenticator(clientDAOFactory.readwrite(), clientDAOFactory.readonly(),
+        keywhizConfig.getClientAuthConfig()), keywhizConfig.getClientAuthConfig());
   }
 
   @VisibleForTesting ClientAuthFactory(ClientDAO clientDAO, ClientAuthConfig clientAuthConfig) {
-    this.authenticator = new ClientAuthenticator(clientDAO, clientDAO, clientAuthConfig);
+    this(new ClientAuthenticator(clientDAO, clientDAO, clientAuthConfig), clientAuthConfig);
+  }
+
+  private ClientAuthFactory(ClientAuthenticator authenticator,
+      ClientAuthConfig clientAuthConfig) {
+    this.authenticator = authenticator;
     this.clientAuthConfig = clientAuthConfig;
+    this.forwardedPrincipals = CacheBuilder.newBuilder()
+        .maximumSize(clientAuthConfig.xfccCertificateCacheSize())
+        .build();
   }
 
   /**
@@ -244,19 +257,34 @@ public class ClientAuthFactory {
    * exceptions if the header is malformatted or the client is absent.
    */
   private Client authenticateClientFromXfccHeader(List<String> xfccHeaderValues) {
-    X509Certificate clientCert =
-        getClientCertFromXfccHeaderEnvoyFormatted(xfccHeaderValues).orElseThrow(() ->
-            new NotAuthorizedException(
-                format("unable to parse client certificate from %s header", XFCC_HEADER_NAME))
-        );
-
     CertificatePrincipal certificatePrincipal =
-        new CertificatePrincipal(clientCert.getSubjectDN().toString(),
-            new X509Certificate[] {clientCert});
+        getCertValueFromXfccHeaderEnvoyFormatted(xfccHeaderValues)
+            .flatMap(this::forwardedPrincipal)
+            .orElseThrow(() -> new NotAuthorizedException(
+                format("unable to parse client certificate from %s header", XFCC_HEADER_NAME))
+            );
 
     return authenticateClientFromPrincipal(certificatePrincipal);
   }
 
+  /**
+   * Returns the principal for a url-encoded certificate from the XFCC header, parsing the
+   * certificate only if it is not already cached. Certificates which fail to parse are not cached.
+   */
+  private Optional<ForwardedCertificatePrincipal> forwardedPrincipal(String urlEncodedPem) {
+    HashCode digest = Hashing.sha256().hashString(urlEncodedPem, UTF_8);
+    ForwardedCertificatePrincipal principal = forwardedPrincipals.getIfPresent(digest);
+    if (principal == null) {
+      Optional<X509Certificate> cert = parseUrlEncodedPem(urlEncodedPem);
+      if (cert.isEmpty()) {
+        return Optional.empty();
+      }
+      principal = ForwardedCertificatePrincipal.of(cert.get());
+      forwardedPrincipals.put(digest, principal);
+    }
+    return Optional.of(principal);
+  }
+
   /**
    * Checks that the specified principal identifies a proxy which is trusted
    * to forward client information to Keywhiz, based on the input information
@@ -314,7 +342,7 @@ public class ClientAuthFactory {
     return false;
   }
 
-  private Optional<X509Certificate> getClientCertFromXfccHeaderEnvoyFormatted(
+  private Optional<String> getCertValueFromXfccHeaderEnvoyFormatted(
       List<String> xfccHeaderValues) {
     // Keywhiz currently supports only one configured XFCC header,,since otherwise it is difficult
     // to distinguish which certificate should have access to secrets
@@ -327,10 +355,10 @@ public class ClientAuthFactory {
       return Optional.empty();
     }
 
-    // Parse the XFCC header as formatted by Envoy
-    XfccHeader xfccHeader;
+    // Parse the XFCC header as formatted by Envoy, locating only the Cert field
+    XfccHeader.Fields xfccHeader;
     try {
-      xfccHeader = XfccHeader.parse(xfccHeaderValues.get(0));
+      xfccHeader = XfccHeader.scan(xfccHeaderValues.get(0), CERT_KEY);
     } catch (XfccHeader.ParseException e) {
       logger.warn(format("Unable to parse input %s header", XFCC_HEADER_NAME), e);
       return Optional.empty();
@@ -339,33 +367,29 @@ public class ClientAuthFactory {
     // Keywhiz currently supports only one certificate set in the XFCC header,
     // since otherwise it is more difficult to distinguish which certificate should have
     // access to secrets
-    if (xfccHeader.elements.length == 0) {
+    if (xfccHeader.elements() == 0) {
       logger.warn("No data provided in {} header", XFCC_HEADER_NAME);
       return Optional.empty();
-    } else if (xfccHeader.elements.length > 1) {
+    } else if (xfccHeader.elements() > 1) {
       logger.warn(
           "Keywhiz only supports one certificate set in the {} header, but {} were provided",
-          XFCC_HEADER_NAME, xfccHeader.elements.length);
+          XFCC_HEADER_NAME, xfccHeader.elements());
       return Optional.empty();
     }
 
-    List<String> certValues = Arrays.stream(xfccHeader.elements[0].pairs)
-        .filter((pair) -> CERT_KEY.equalsIgnoreCase(pair.key))
-        .map((pair) -> pair.value)
-        .collect(Collectors.toUnmodifiableList());
-
-    if (certValues.size() == 0) {
+    int certValues = xfccHeader.count(CERT_KEY);
+    if (certValues == 0) {
       logger.warn("Unable to find {} in {} header; no client ID parsed from header", CERT_KEY,
           XFCC_HEADER_NAME);
       return Optional.empty();
-    } else if (certValues.size() > 1) {
+    } else if (certValues > 1) {
       logger.warn(
           "Keywhiz only supports one {} key in the {} header, but {} were provided",
-          CERT_KEY, XFCC_HEADER_NAME, certValues.size());
+          CERT_KEY, XFCC_HEADER_NAME, certValues);
       return Optional.empty();
     }
 
-    return parseUrlEncodedPem(certValues.get(0));
+    return xfccHeader.value(CERT_KEY);
   }
 
   private Optional<X509Certificate> parseUrlEncodedPem(String urlEncodedPem) {
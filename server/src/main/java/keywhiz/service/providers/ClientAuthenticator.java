@@ -143,11 +143,18 @@ public class ClientAuthenticator {
   }
 
   static Optional<String> getClientName(Principal principal) {
+    if (principal instanceof ForwardedCertificatePrincipal) {
+      return ((ForwardedCertificatePrincipal) principal).clientName();
+    }
     if (principal instanceof SpiffePrincipal) {
       return Optional.of(((SpiffePrincipal) principal).getClientName());
     }
 
-    X500Name name = new X500Name(principal.getName());
+    return getClientName(principal.getName());
+  }
+
+  static Optional<String> getClientName(String subjectDn) {
+    X500Name name = new X500Name(subjectDn);
     RDN[] rdns = name.getRDNs(BCStyle.CN);
     if (rdns.length == 0) {
       return Optional.empty();
@@ -156,6 +163,9 @@ public class ClientAuthenticator {
   }
 
   static Optional<URI> getSpiffeId(Principal principal) {
+    if (principal instanceof ForwardedCertificatePrincipal) {
+      return ((ForwardedCertificatePrincipal) principal).spiffeId();
+    }
     if (principal instanceof CertificatePrincipal) {
       // This chain is either from the XFCC header's "Cert" field, which includes only the
       // client certificate rather than the chain, or from the CertificateSecurityContext
@@ -0,0 +1,35 @@
+package keywhiz.service.providers;
+
+import java.net.URI;
+import java.security.cert.X509Certificate;
+import java.util.Optional;
+import keywhiz.auth.mutualssl.CertificatePrincipal;
+
+/**
+ * A {@link CertificatePrincipal} for a certificate forwarded by a proxy in the XFCC header, with
+ * the client name and SPIFFE ID extracted once, when the certificate is parsed. Instances are
+ * immutable, so {@link ClientAuthFactory} caches and reuses them across requests forwarding the
+ * same certificate.
+ */
+final class ForwardedCertificatePrincipal extends CertificatePrincipal {
+  private final Optional<String> clientName;
+  private final Optional<URI> spiffeId;
+
+  private ForwardedCertificatePrincipal(X509Certificate certificate) {
+    super(certificate.getSubjectDN().toString(), new X509Certificate[] {certificate});
+    this.clientName = ClientAuthenticator.getClientName(getName());
+    this.spiffeId = ClientAuthenticator.getSpiffeIdFromCertificate(certificate);
+  }
+
+  static ForwardedCertificatePrincipal of(X509Certificate certificate) {
+    return new ForwardedCertificatePrincipal(certificate);
+  }
+
+  Optional<String> clientName() {
+    return clientName;
+  }
+
+  Optional<URI> spiffeId() {
+    return spiffeId;
+  }
+}
@@ -0,0 +1,53 @@
+package keywhiz.service.providers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import io.dropwizard.jackson.Jackson;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import keywhiz.KeywhizService;
+import keywhiz.api.RawSecretContentModule;
+
+import static keywhiz.api.RawSecretContentModule.APPLICATION_SMILE;
+
+/**
+ * Writes responses as Smile, Jackson's binary JSON, for resources that produce
+ * {@link RawSecretContentModule#APPLICATION_SMILE}. The mapper is configured like the JSON one,
+ * plus {@link RawSecretContentModule} so secret content is sent as raw bytes.
+ */
+@Produces(APPLICATION_SMILE)
+public class SmileMessageBodyWriter implements MessageBodyWriter<Object> {
+  private final ObjectMapper mapper;
+
+  public SmileMessageBodyWriter() {
+    SmileFactory factory = new SmileFactory()
+        .disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT);
+    factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    this.mapper = KeywhizService.customizeObjectMapper(Jackson.newObjectMapper(factory))
+        .registerModule(new RawSecretContentModule());
+  }
+
+  @Override public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+      MediaType mediaType) {
+    return MediaType.valueOf(APPLICATION_SMILE).isCompatible(mediaType);
+  }
+
+  @Override public long getSize(Object value, Class<?> type, Type genericType,
+      Annotation[] annotations, MediaType mediaType) {
+    return -1;
+  }
+
+  @Override public void writeTo(Object value, Class<?> type, Type genericType,
+      Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+      OutputStream entityStream) throws IOException {
+    mapper.writerFor(mapper.constructType(genericType)).writeValue(entityStream, value);
+  }
+}
@@ -3,6 +3,7 @@ package keywhiz.service.providers;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Structured representation of Envoy's {@code X-Forwarded-Client-Cert} (XFCC) header.
@@ -85,6 +86,158 @@ public class XfccHeader {
    * @throws ParseException if an error occurred while parsing the header.
    */
   public static XfccHeader parse(String headerValue) throws ParseException {
+    List<Element> elements = new ArrayList<>();
+    List<Element.Pair> pairs = new ArrayList<>();
+    scan(headerValue, new PairHandler() {
+      @Override public void endElement() {
+        elements.add(new Element(pairs.toArray(new Element.Pair[pairs.size()])));
+        pairs.clear();
+      }
+
+      @Override public void pair(int keyStart, int keyEnd, int valueStart, int valueEnd,
+          boolean escaped) {
+        pairs.add(new Element.Pair(headerValue.substring(keyStart, keyEnd),
+            value(headerValue, valueStart, valueEnd, escaped)));
+      }
+    });
+    return new XfccHeader(elements.toArray(new Element[elements.size()]));
+  }
+
+  /**
+   * Validates the provided XFCC header value and locates the values of the given keys, without
+   * materializing any other key-value pairs. Keys are matched ignoring case.
+   *
+   * Use this instead of {@link #parse} when only a few fields of the header are needed, e.g. the
+   * {@code Cert} field when authenticating the forwarded client.
+   *
+   * @throws ParseException if the header is invalid; it is rejected exactly when {@link #parse}
+   *                        rejects it.
+   */
+  public static Fields scan(String headerValue, String... keys) throws ParseException {
+    Fields fields = new Fields(headerValue, keys);
+    scan(headerValue, new PairHandler() {
+      @Override public void endElement() {
+        fields.elements++;
+      }
+
+      @Override public void pair(int keyStart, int keyEnd, int valueStart, int valueEnd,
+          boolean escaped) {
+        fields.record(keyStart, keyEnd, valueStart, valueEnd, escaped);
+      }
+    });
+    return fields;
+  }
+
+  /**
+   * Values of selected keys in an XFCC header, recorded as offsets into the header by {@link
+   * #scan}. A value is only copied out of the header when it is requested.
+   */
+  public static final class Fields {
+    private final String headerValue;
+    private final String[] keys;
+    private final int[] counts;
+    private final int[] valueStarts;
+    private final int[] valueEnds;
+    private final boolean[] escaped;
+    private int elements;
+
+    private Fields(String headerValue, String[] keys) {
+      this.headerValue = headerValue;
+      this.keys = keys.clone();
+      this.counts = new int[keys.length];
+      this.valueStarts = new int[keys.length];
+      this.valueEnds = new int[keys.length];
+      this.escaped = new boolean[keys.length];
+    }
+
+    /**
+     * Number of elements in the header.
+     */
+    public int elements() {
+      return elements;
+    }
+
+    /**
+     * Number of pairs with the given key, across all elements.
+     *
+     * @throws IllegalArgumentException if the key was not passed to {@link #scan}.
+     */
+    public int count(String key) {
+      return counts[indexOf(key)];
+    }
+
+    /**
+     * Value of the first pair with the given key, if any.
+     *
+     * @throws IllegalArgumentException if the key was not passed to {@link #scan}.
+     */
+    public Optional<String> value(String key) {
+      int i = indexOf(key);
+      if (counts[i] == 0) {
+        return Optional.empty();
+      }
+      return Optional.of(XfccHeader.value(headerValue, valueStarts[i], valueEnds[i], escaped[i]));
+    }
+
+    private int indexOf(String key) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i].equalsIgnoreCase(key)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("Key " + key + " was not scanned for");
+    }
+
+    private void record(int keyStart, int keyEnd, int valueStart, int valueEnd,
+        boolean valueEscaped) {
+      int keyLength = keyEnd - keyStart;
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i].length() == keyLength
+            && headerValue.regionMatches(true, keyStart, keys[i], 0, keyLength)) {
+          if (counts[i]++ == 0) {
+            valueStarts[i] = valueStart;
+            valueEnds[i] = valueEnd;
+            escaped[i] = valueEscaped;
+          }
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Receives the structure of a header from {@link #scan(String, PairHandler)}, with keys and
+   * values given as offsets into the header.
+   */
+  private interface PairHandler {
+    /**
+     * Called after the last pair of each element.
+     */
+    void endElement();
+
+    /**
+     * Called for each key-value pair. Offsets are {@code 0}-based; ends are one past the last
+     * character. Values exclude their surrounding quotes.
+     *
+     * @param escaped whether the value contains escaped double quotes.
+     */
+    void pair(int keyStart, int keyEnd, int valueStart, int valueEnd, boolean escaped);
+  }
+
+  /**
+   * Returns the value located at the provided offsets of the header, unescaping double quotes.
+   */
+  private static String value(String headerValue, int valueStart, int valueEnd, boolean escaped) {
+    String value = headerValue.substring(valueStart, valueEnd);
+    return escaped ? value.replace("\\\"", "\"") : value;
+  }
+
+  /**
+   * Scans the provided XFCC header value once, reporting its elements and pairs to the handler.
+   *
+   * @throws ParseException if an error occurred while parsing the header.
+   */
+  private static void scan(String headerValue, PairHandler handler) throws ParseException {
     //   All rules:
     // HEADER  := ELEMENT [',' ELEMENT]*
     // ELEMENT := [PAIR [';' PAIR]]*
@@ -94,9 +247,8 @@ public class XfccHeader {
     // QUOTED_VALUE   := '"' [^"]* '"'
     // UNQUOTED_VALUE := [^=;,"]*
     //    Double-quotes in values should be replaced by \"
-    List<Element> elements = new ArrayList<>();
     int pos = 0;
-    pos = parseElement(headerValue, pos, elements);
+    pos = scanElement(headerValue, pos, handler);
     while (pos < headerValue.length()) {
       char c = headerValue.charAt(pos);
       if (c != ',') {
@@ -104,9 +256,8 @@ public class XfccHeader {
             + "' instead of element delimiter at position " + pos);
       }
       pos++;
-      pos = parseElement(headerValue, pos, elements);
+      pos = scanElement(headerValue, pos, handler);
     }
-    return new XfccHeader(elements.toArray(new Element[elements.size()]));
   }
 
   /**
@@ -114,30 +265,31 @@ public class XfccHeader {
    *
    * @param headerValue XFCC header contents to parse.
    * @param pos         {@code 0}-based offset at which to start parsing.
-   * @param elements    List into which to add the resulting parsed element.
+   * @param handler     Handler to which to report the element and its pairs.
    * @return {@code 0}-based offset in the header at which this element ends. The offset is one past
    * the last character of the element.
    */
-  private static int parseElement(String headerValue, int pos, List<Element> elements)
+  private static int scanElement(String headerValue, int pos, PairHandler handler)
       throws ParseException {
     //   Rules relevant to this method:
     // HEADER  := ELEMENT [',' ELEMENT]*
     // ELEMENT := [PAIR [';' PAIR]]
-    List<Element.Pair> pairs = new ArrayList<>();
+    boolean first = true;
     while (pos < headerValue.length()) {
       char c = headerValue.charAt(pos);
       if (c == ',') {
         // End of element
         break;
       }
-      if ((!pairs.isEmpty()) && (c == ';')) {
+      if ((!first) && (c == ';')) {
         // Consume pair delimiter
         pos++;
       }
-      pos = parsePair(headerValue, pos, pairs);
+      pos = scanPair(headerValue, pos, handler);
+      first = false;
     }
 
-    elements.add(new Element(pairs.toArray(new Element.Pair[pairs.size()])));
+    handler.endElement();
     return pos;
   }
 
@@ -146,11 +298,11 @@ public class XfccHeader {
    *
    * @param headerValue XFCC header contents to parse.
    * @param pos         {@code 0}-based offset at which to start parsing.
-   * @param pairs       List into which to add the resulting parsed pair.
+   * @param handler     Handler to which to report the pair.
    * @return {@code 0}-based offset in the header at which this pair ends. The offset is one past
    * the last character of the pair.
    */
-  private static int parsePair(String headerValue, int pos, List<Element.Pair> pairs)
+  private static int scanPair(String headerValue, int pos, PairHandler handler)
       throws ParseException {
     //   Rules relevant to this method:
     // ELEMENT := [PAIR [';' PAIR]]
@@ -164,7 +316,7 @@ public class XfccHeader {
     int keyStartPosition = pos;
 
     // Consume key and the terminating =
-    String key;
+    int keyEndPosition;
     while (true) {
       if (pos >= headerValue.length()) {
         throw new ParseException("Unterminated key starts at position " + keyStartPosition
@@ -173,7 +325,7 @@ public class XfccHeader {
       char c = headerValue.charAt(pos);
       if (c == '=') {
         // End of key
-        key = headerValue.substring(keyStartPosition, pos);
+        keyEndPosition = pos;
         pos++;
         break;
       }
@@ -193,18 +345,24 @@ public class XfccHeader {
       throw new ParseException("Missing value for key which starts at position "
           + keyStartPosition + ", current position: " + pos);
     }
-    StringBuilder value = new StringBuilder();
+    int valueStartPosition = pos;
+    int valueEndPosition = pos;
+    boolean[] escaped = new boolean[1];
     if (pos < headerValue.length()) {
       if (headerValue.charAt(pos) == '"') {
-        // Consume quoted value
-        pos = parseQuotedValue(headerValue, pos, value);
+        // Consume quoted value, excluding the quotes from the reported value
+        valueStartPosition = pos + 1;
+        pos = scanQuotedValue(headerValue, pos, escaped);
+        valueEndPosition = pos - 1;
       } else {
         // Consume unquoted value
-        pos = parseUnquotedValue(headerValue, pos, value);
+        pos = scanUnquotedValue(headerValue, pos, escaped);
+        valueEndPosition = pos;
       }
     }
 
-    pairs.add(new Element.Pair(key, value.toString()));
+    handler.pair(keyStartPosition, keyEndPosition, valueStartPosition, valueEndPosition,
+        escaped[0]);
     return pos;
   }
 
@@ -214,11 +372,11 @@ public class XfccHeader {
    *
    * @param headerValue XFCC header contents to parse.
    * @param pos         {@code 0}-based offset at which to start parsing.
-   * @param value       {@code StringBuilder} into which to output the value.
+   * @param escaped     Set to {@code true} if the value contains escaped double quotes.
    * @return {@code 0}-based offset in the header at which this value ends. The offset is one past
    * the last character of the value.
    */
-  private static int parseUnquotedValue(String headerValue, int pos, StringBuilder value)
+  private static int scanUnquotedValue(String headerValue, int pos, boolean[] escaped)
       throws ParseException {
     // UNQUOTED_VALUE := [^;,="]*
     //     Double-quotes in values should be replaced by \"
@@ -236,9 +394,7 @@ public class XfccHeader {
               + ", current position: " + pos);
         } else {
           // Escaped double quote
-          value.setCharAt(value.length() - 1, '"');
-          pos++;
-          continue;
+          escaped[0] = true;
         }
       } else if (c == '=') {
         throw new ParseException("Invalid character '" + c
@@ -247,7 +403,6 @@ public class XfccHeader {
       }
 
       // Consume valid character
-      value.append(c);
       pos++;
     }
     return pos;
@@ -259,11 +414,11 @@ public class XfccHeader {
    *
    * @param headerValue XFCC header contents to parse.
    * @param pos         {@code 0}-based offset at which to start parsing.
-   * @param value       {@code StringBuilder} into which to output the value.
+   * @param escaped     Set to {@code true} if the value contains escaped double quotes.
    * @return {@code 0}-based offset in the header at which this value ends. The offset is one past
    * the last character (terminating quote) of the value.
    */
-  private static int parseQuotedValue(String headerValue, int pos, StringBuilder value)
+  private static int scanQuotedValue(String headerValue, int pos, boolean[] escaped)
       throws ParseException {
     // QUOTED_VALUE := '"' [^"]* '"'
     //     Double-quotes in values should be replaced by \"
@@ -276,28 +431,21 @@ public class XfccHeader {
     int startPosition = pos;
     pos++;
     while (true) {
-      if (pos >= headerValue.length()) {
+      // Any character but a double quote is valid, so skip straight to the next one; quoted
+      // values hold the url-encoded certificates, by far the longest part of the header.
+      int quote = headerValue.indexOf('"', pos);
+      if (quote < 0) {
         throw new ParseException("Unterminated quoted value starts at position "
-            + startPosition + ", current position: " + pos);
+            + startPosition + ", current position: " + headerValue.length());
       }
-      char c = headerValue.charAt(pos);
+      pos = quote + 1;
 
-      if (c == '"') {
-        if (headerValue.charAt(pos - 1) != '\\') {
-          // End of quoted value
-          pos++;
-          break;
-        } else {
-          // Escaped double quote
-          value.setCharAt(value.length() - 1, '"');
-          pos++;
-          continue;
-        }
+      if (headerValue.charAt(quote - 1) != '\\') {
+        // End of quoted value
+        break;
       }
-
-      // Consume valid character
-      value.append(c);
-      pos++;
+      // Escaped double quote
+      escaped[0] = true;
     }
     return pos;
   }
@@ -0,0 +1,182 @@
+package keywhiz.service.purge;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import keywhiz.jooq.tables.records.SecretPurgeProgressRecord;
+import keywhiz.service.daos.SecretDAO;
+import keywhiz.service.daos.SecretDAO.SecretDAOFactory;
+import keywhiz.service.daos.SecretPurgeProgressDAO;
+import keywhiz.service.daos.SecretPurgeProgressDAO.SecretPurgeProgressDAOFactory;
+import keywhiz.utility.AdaptiveBatchSize;
+import org.joda.time.DateTime;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * PERMANENTLY REMOVES secrets which were deleted before a cutoff date, along with their versions
+ * and their `deleted_secrets` and `deleted_accessgrants` records.
+ *
+ * Secrets are walked in id order with a cursor rather than loaded up front. Each batch is removed
+ * in one transaction which also records the cursor, so an interrupted removal resumes after the
+ * last batch it completed. Batch sizes follow the observed removal latency, and removal waits
+ * whenever the readonly replica falls too far behind.
+ */
+public class DeletedSecretsPurger {
+  private static final Logger logger = LoggerFactory.getLogger(DeletedSecretsPurger.class);
+  private static final long REPLICA_LAG_POLL_MILLIS = 1000;
+
+  private final DSLContext jooq;
+  private final SecretDAOFactory secretDAOFactory;
+  private final SecretPurgeProgressDAOFactory progressDAOFactory;
+  private final ReplicationLagMonitor replicationLagMonitor;
+
+  @Inject public DeletedSecretsPurger(DSLContext jooq, SecretDAOFactory secretDAOFactory,
+      SecretPurgeProgressDAOFactory progressDAOFactory,
+      ReplicationLagMonitor replicationLagMonitor) {
+    this.jooq = jooq;
+    this.secretDAOFactory = secretDAOFactory;
+    this.progressDAOFactory = progressDAOFactory;
+    this.replicationLagMonitor = replicationLagMonitor;
+  }
+
+  /**
+   * @return the total number of deleted secrets
+   */
+  public int countDeletedSecrets() {
+    return secretDAOFactory.readwrite().countDeletedSecrets();
+  }
+
+  /**
+   * @return the number of secrets deleted before the cutoff
+   */
+  public int countSecretsDeletedBeforeDate(DateTime deletedBefore) {
+    return secretDAOFactory.readwrite().countSecretsDeletedBeforeDate(deletedBefore);
+  }
+
+  /**
+   * Walks the secrets that {@link #purge} would remove without modifying anything, reading from
+   * the readonly database.
+   */
+  public SecretPurgeEstimate estimate(DateTime deletedBefore, SecretPurgeOptions options) {
+    checkArgument(deletedBefore != null);
+    SecretDAO secretDAO = secretDAOFactory.readonly();
+
+    Long resumeAfterId = options.restart() ? null : progressDAOFactory.readonly()
+        .getProgress(cutoffSeconds(deletedBefore))
+        .filter(progress -> !progress.getCompleted())
+        .map(SecretPurgeProgressRecord::getLastId)
+        .orElse(null);
+
+    long secrets = 0;
+    long secretContents = 0;
+    long batches = 0;
+    Long cursor = resumeAfterId;
+    List<Long> ids;
+    do {
+      ids = secretDAO.getIdsOfSecretsDeletedBeforeDate(deletedBefore, cursor,
+          options.initialBatchSize());
+      if (ids.isEmpty()) {
+        break;
+      }
+      secrets += ids.size();
+      secretContents += secretDAO.countSecretContentsForSecretIds(ids);
+      batches++;
+      cursor = ids.get(ids.size() - 1);
+    } while (ids.size() == options.initialBatchSize());
+
+    Duration projected = Duration.ofMillis(
+        batches * options.targetBatchLatencyMillis() + Math.max(0, batches - 1) * options.pauseMillis());
+    return SecretPurgeEstimate.of(secrets, secretContents, batches, resumeAfterId, projected);
+  }
+
+  /**
+   * PERMANENTLY REMOVES the secrets deleted before the cutoff. Resumes a previous removal with the
+   * same cutoff unless {@link SecretPurgeOptions#restart()} is set.
+   *
+   * @return the number of secrets removed by this call
+   * @throws InterruptedException if interrupted while pausing between batches; the removal can be
+   * resumed by calling this method again
+   */
+  public long purge(DateTime deletedBefore, SecretPurgeOptions options)
+      throws InterruptedException {
+    checkArgument(deletedBefore != null);
+    long cutoff = cutoffSeconds(deletedBefore);
+    SecretPurgeProgressDAO progressDAO = progressDAOFactory.readwrite();
+    SecretPurgeProgressRecord progress = progressDAO.getProgress(cutoff)
+        .filter(existing -> !options.restart() && !existing.getCompleted())
+        .orElseGet(() -> progressDAO.resetProgress(cutoff));
+    long progressId = progress.getId();
+    if (progress.getLastId() != null) {
+      logger.info("drop-deleted-secrets: resuming after secret id {}", progress.getLastId());
+    }
+
+    SecretDAO secretDAO = secretDAOFactory.readwrite();
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(options.initialBatchSize(), 1,
+        options.maxBatchSize(), options.targetBatchLatencyMillis());
+    Long cursor = progress.getLastId();
+    long removed = 0;
+
+    while (true) {
+      int limit = batchSize.currentSize();
+      List<Long> ids = secretDAO.getIdsOfSecretsDeletedBeforeDate(deletedBefore, cursor, limit);
+      boolean completed = ids.size() < limit;
+      Long newCursor = ids.isEmpty() ? cursor : ids.get(ids.size() - 1);
+
+      long start = System.nanoTime();
+      long batchRemoved = jooq.transactionResult(configuration -> {
+        long count = secretDAOFactory.using(configuration).dangerPermanentlyRemoveSecretsWithIds(ids);
+        progressDAOFactory.using(configuration).advance(progressId, newCursor, count, completed);
+        return count;
+      });
+      long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      removed += batchRemoved;
+      cursor = newCursor;
+
+      if (completed) {
+        break;
+      }
+
+      int nextSize = batchSize.onBatchCompleted(latencyMillis);
+      logger.info("drop-deleted-secrets: removed {} secrets in {} ms ({} so far); next batch {}",
+          batchRemoved, latencyMillis, removed, nextSize);
+      if (options.pauseMillis() > 0) {
+        Thread.sleep(options.pauseMillis());
+      }
+      awaitReplicas(options, batchSize);
+    }
+
+    logger.info("drop-deleted-secrets: removed {} secrets deleted before {}", removed,
+        deletedBefore);
+    return removed;
+  }
+
+  private void awaitReplicas(SecretPurgeOptions options, AdaptiveBatchSize batchSize)
+      throws InterruptedException {
+    if (options.maxReplicaLagSeconds() < 0) {
+      return;
+    }
+
+    OptionalLong lag = replicationLagMonitor.secondsBehindPrimary();
+    if (lag.isEmpty() || lag.getAsLong() <= options.maxReplicaLagSeconds()) {
+      return;
+    }
+
+    int nextSize = batchSize.onBackpressure();
+    while (lag.isPresent() && lag.getAsLong() > options.maxReplicaLagSeconds()) {
+      logger.info("drop-deleted-secrets: replica is {} s behind; waiting (next batch {})",
+          lag.getAsLong(), nextSize);
+      Thread.sleep(REPLICA_LAG_POLL_MILLIS);
+      lag = replicationLagMonitor.secondsBehindPrimary();
+    }
+  }
+
+  private static long cutoffSeconds(DateTime deletedBefore) {
+    return deletedBefore.getMillis() / 1000;
+  }
+}
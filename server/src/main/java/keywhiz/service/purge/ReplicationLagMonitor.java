@@ -0,0 +1,52 @@
+package keywhiz.service.purge;
+
+import java.util.OptionalLong;
+import javax.inject.Inject;
+import keywhiz.service.config.Readonly;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.exception.DataAccessException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports how far the readonly database lags behind the primary, as seen by MySQL's replica
+ * status.
+ */
+public class ReplicationLagMonitor {
+  private static final Logger logger = LoggerFactory.getLogger(ReplicationLagMonitor.class);
+  private static final String LAG_COLUMN = "Seconds_Behind_Master";
+
+  private final DSLContext readonlyJooq;
+
+  @Inject public ReplicationLagMonitor(@Readonly DSLContext readonlyJooq) {
+    this.readonlyJooq = readonlyJooq;
+  }
+
+  /**
+   * @return seconds the readonly database is behind the primary; empty if it is not a replica, if
+   * replication is stopped or if the status cannot be read
+   */
+  public OptionalLong secondsBehindPrimary() {
+    Result<Record> status;
+    try {
+      status = readonlyJooq.fetch("SHOW SLAVE STATUS");
+    } catch (DataAccessException e) {
+      logger.warn("Unable to read replica status: {}", e.getMessage());
+      return OptionalLong.empty();
+    }
+    if (status.isEmpty()) {
+      return OptionalLong.empty();
+    }
+
+    Record row = status.get(0);
+    Field<?> lagField = row.field(LAG_COLUMN);
+    if (lagField == null) {
+      return OptionalLong.empty();
+    }
+    Long lag = row.get(lagField, Long.class);
+    return lag == null ? OptionalLong.empty() : OptionalLong.of(lag);
+  }
+}
@@ -0,0 +1,36 @@
+package keywhiz.service.purge;
+
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+/**
+ * What a permanent removal of deleted secrets would do, as reported by a dry run.
+ */
+@AutoValue
+public abstract class SecretPurgeEstimate {
+  public static SecretPurgeEstimate of(long secrets, long secretContents, long batches,
+      @Nullable Long resumeAfterId, Duration projectedDuration) {
+    return new AutoValue_SecretPurgeEstimate(secrets, secretContents, batches, resumeAfterId,
+        projectedDuration);
+  }
+
+  /** secrets that would be removed */
+  public abstract long secrets();
+
+  /** versions of those secrets that would be removed */
+  public abstract long secretContents();
+
+  /** batches needed at the initial batch size */
+  public abstract long batches();
+
+  /** id after which an interrupted removal would resume; null if it would start from scratch */
+  @Nullable public abstract Long resumeAfterId();
+
+  /**
+   * Time needed if every batch takes the target latency, plus the pause between batches. Batches
+   * grow when removals are faster than the target, so this errs on the long side unless replicas
+   * fall behind.
+   */
+  public abstract Duration projectedDuration();
+}
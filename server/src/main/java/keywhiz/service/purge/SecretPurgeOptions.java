@@ -0,0 +1,63 @@
+package keywhiz.service.purge;
+
+import com.google.auto.value.AutoValue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Tuning for a permanent removal of deleted secrets.
+ */
+@AutoValue
+public abstract class SecretPurgeOptions {
+  public static Builder builder() {
+    return new AutoValue_SecretPurgeOptions.Builder()
+        .initialBatchSize(1000)
+        .maxBatchSize(10000)
+        .targetBatchLatencyMillis(500)
+        .pauseMillis(500)
+        .maxReplicaLagSeconds(10)
+        .restart(false);
+  }
+
+  public abstract Builder toBuilder();
+
+  @AutoValue.Builder public abstract static class Builder {
+    public abstract Builder initialBatchSize(int initialBatchSize);
+    public abstract Builder maxBatchSize(int maxBatchSize);
+    public abstract Builder targetBatchLatencyMillis(long targetBatchLatencyMillis);
+    public abstract Builder pauseMillis(long pauseMillis);
+    public abstract Builder maxReplicaLagSeconds(long maxReplicaLagSeconds);
+    public abstract Builder restart(boolean restart);
+
+    abstract SecretPurgeOptions autoBuild();
+
+    public SecretPurgeOptions build() {
+      SecretPurgeOptions options = autoBuild();
+      checkArgument(options.initialBatchSize() > 0, "initialBatchSize must be positive");
+      checkArgument(options.maxBatchSize() >= options.initialBatchSize(),
+          "maxBatchSize must be at least initialBatchSize");
+      checkArgument(options.targetBatchLatencyMillis() > 0,
+          "targetBatchLatencyMillis must be positive");
+      checkArgument(options.pauseMillis() >= 0, "pauseMillis must not be negative");
+      return options;
+    }
+  }
+
+  /** number of secrets removed by the first batch */
+  public abstract int initialBatchSize();
+
+  /** upper bound on the number of secrets removed by a single batch */
+  public abstract int maxBatchSize();
+
+  /** batch latency the batch size is adjusted towards */
+  public abstract long targetBatchLatencyMillis();
+
+  /** minimum pause between batches */
+  public abstract long pauseMillis();
+
+  /** replica lag above which removal waits for replicas to catch up; negative to ignore lag */
+  public abstract long maxReplicaLagSeconds();
+
+  /** whether to discard a checkpoint left by an interrupted removal with the same cutoff */
+  public abstract boolean restart();
+}
@@ -19,8 +19,10 @@ package keywhiz.service.resources;
 import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import io.dropwizard.auth.Auth;
 import keywhiz.api.BatchSecretRequest;
+import keywhiz.api.PartialBatchSecretResponse;
 import keywhiz.api.SecretDeliveryResponse;
 import keywhiz.api.model.Client;
 import keywhiz.api.model.SanitizedSecret;
@@ -44,11 +46,15 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static keywhiz.api.RawSecretContentModule.APPLICATION_SMILE;
 import static keywhiz.Tracing.setTag;
 
 /**
@@ -57,20 +63,23 @@ import static keywhiz.Tracing.setTag;
  * resourceDescription Retrieve Batched Named Secrets
  */
 @Path("/batchsecret")
-@Produces(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE})
 public class BatchSecretDeliveryResource {
   private static final Logger logger = LoggerFactory.getLogger(BatchSecretDeliveryResource.class);
 
   private final SecretController secretController;
   private final AclDAO aclDAO;
   private final ClientDAO clientDAO;
+  private final SecretDeliveryResponseCache responseCache;
 
   @Inject
   public BatchSecretDeliveryResource(@Readonly SecretController secretController,
-                                     AclDAOFactory aclDAOFactory, ClientDAOFactory clientDAOFactory) {
+                                     AclDAOFactory aclDAOFactory, ClientDAOFactory clientDAOFactory,
+                                     SecretDeliveryResponseCache responseCache) {
     this.secretController = secretController;
     this.aclDAO = aclDAOFactory.readonly();
     this.clientDAO = clientDAOFactory.readonly();
+    this.responseCache = responseCache;
   }
 
   @VisibleForTesting
@@ -79,6 +88,7 @@ public class BatchSecretDeliveryResource {
     this.secretController = secretController;
     this.aclDAO = aclDAO;
     this.clientDAO = clientDAO;
+    this.responseCache = SecretDeliveryResponseCache.disabled();
   }
 
   /**
@@ -98,48 +108,113 @@ public class BatchSecretDeliveryResource {
   @POST
   @Consumes(APPLICATION_JSON)
   public List<SecretDeliveryResponse> getBatchSecret(@Auth Client client, @Valid BatchSecretRequest request) {
+    BatchLookup lookup = lookUp(client, request.secrets());
 
+    // The request fails whenever a single secret is requested that is not accessible
+    // The client is responsible for only requesting secrets they have permission for
+    if (!lookup.missing.isEmpty()) {
+      logger.warn("Client {} requested secrets that do not exist: {}", client.getName(), lookup.missing);
+      throw new NotFoundException();
+    }
 
-    List<SanitizedSecret> clientAccessibleSecrets = aclDAO.getBatchSanitizedSecretsFor(client, request.secrets());
-    List<Secret> existingSecrets = secretController.getSecretsByName(request.secrets());
-
-    boolean clientExists = clientDAO.getClientByName(client.getName()).isPresent();
+    // If *any* of the secrets is forbidden
+    if (!lookup.forbidden.isEmpty()) {
+      throw new ForbiddenException(format("Access denied: %s to secret(s) '%s'", client.getName(), lookup.forbidden));
+    }
 
-    List<String> forbiddenSecrets = new ArrayList<>();
+    // This is only possible if all secrets are both existing AND accessible to the client
+    return responsesFor(client, lookup.existingSecrets);
+  }
 
-    // The request fails whenever a single secret is requested that is not accessible
-    // The client is responsible for only requesting secrets they have permission for
-    for (String secretname : request.secrets()) {
-      boolean secretExists = existingSecrets.stream().anyMatch(s -> s.getName().equals(secretname));
-      boolean secretAccessible = clientAccessibleSecrets.stream().anyMatch(s -> s.name().equals(secretname));
+  /**
+   * Retrieve the Secrets a client can access out of a batch, and which of the rest are forbidden
+   * or missing, rather than failing the whole batch.
+   *
+   * @param secrets the name of the Secrets to retrieve in batch
+   * @param client  the client performing the retrieval
+   * @return the accessible secrets, and the names of forbidden and missing ones
+   * <p>
+   * responseMessage 200 Retrieved accessible Secrets, listing forbidden and missing names
+   * responseMessage 404 Client not found
+   * responseMessage 500 Secret response could not be generated for given Secret
+   */
+  @Timed
+  @ExceptionMetered
+  @POST
+  @Path("partial")
+  @Consumes(APPLICATION_JSON)
+  public PartialBatchSecretResponse getPartialBatchSecret(@Auth Client client,
+      @Valid BatchSecretRequest request) {
+    BatchLookup lookup = lookUp(client, request.secrets());
+
+    List<Secret> accessibleSecrets = lookup.existingSecrets.stream()
+        .filter(s -> lookup.accessible.contains(s.getName()))
+        .collect(toList());
+    setTag("nForbidden", lookup.forbidden.size());
+    setTag("nMissing", lookup.missing.size());
+    return PartialBatchSecretResponse.of(
+        ImmutableList.copyOf(responsesFor(client, accessibleSecrets)),
+        ImmutableList.copyOf(lookup.forbidden),
+        ImmutableList.copyOf(lookup.missing));
+  }
 
-      if (!(clientExists && secretExists)) {
-        logger.warn("Client {} or secret {} does not exist (client exists={}, secret exists={})", client.getName(), secretname, clientExists, secretExists);
-        throw new NotFoundException();
-      }
-      if (!secretAccessible) {
-        // at this point we know the client and secret both exist
-        forbiddenSecrets.add(secretname);
+  /**
+   * Looks up the requested secrets and which of them the client can access, indexing both by name.
+   * The client itself is only looked up when some secret is not accessible, since an access grant
+   * implies the client exists; a client that does not exist is not found either way.
+   */
+  private BatchLookup lookUp(Client client, List<String> secretNames) {
+    Set<String> accessible = aclDAO.getBatchSanitizedSecretsFor(client, secretNames).stream()
+        .map(SanitizedSecret::name)
+        .collect(toSet());
+    List<Secret> existingSecrets = secretController.getSecretsByName(secretNames);
+    Set<String> existing = existingSecrets.stream().map(Secret::getName).collect(toSet());
+
+    List<String> missing = new ArrayList<>();
+    List<String> forbidden = new ArrayList<>();
+    for (String secretName : new LinkedHashSet<>(secretNames)) {
+      if (!existing.contains(secretName)) {
+        missing.add(secretName);
+      } else if (!accessible.contains(secretName)) {
+        // at this point we know the secret exists
+        forbidden.add(secretName);
       }
     }
 
-    // If *any* of the secrets is forbidden
-    if (!forbiddenSecrets.isEmpty()) {
-      throw new ForbiddenException(format("Access denied: %s to secret(s) '%s'", client.getName(), forbiddenSecrets));
+    if (!(missing.isEmpty() && forbidden.isEmpty())
+        && clientDAO.getClientByName(client.getName()).isEmpty()) {
+      logger.warn("Client {} does not exist", client.getName());
+      throw new NotFoundException();
     }
+    return new BatchLookup(existingSecrets, accessible, missing, forbidden);
+  }
 
-    logger.info("Client {} granted access to {}.", client.getName(), clientAccessibleSecrets.stream().map(s -> s.name()).collect(toList()));
+  private List<SecretDeliveryResponse> responsesFor(Client client, List<Secret> secrets) {
+    logger.info("Client {} granted access to {}.", client.getName(), secrets.stream().map(s -> s.getName()).collect(toList()));
     try {
-      // This is only possible if all secrets are both existing AND accessible to the client
-      List<SecretDeliveryResponse> secrets = existingSecrets.stream()
-              .map(SecretDeliveryResponse::fromSecret)
+      List<SecretDeliveryResponse> responses = secrets.stream()
+              .map(responseCache::responseFor)
               .collect(toList());
-      setTag("nSecrets", secrets.size());
-      return secrets;
+      setTag("nSecrets", responses.size());
+      return responses;
     } catch (IllegalArgumentException e) {
-      logger.error(format("Failed creating batch response for secrets %s", existingSecrets.stream().map(s -> s.getName()).collect(toList())), e);
+      logger.error(format("Failed creating batch response for secrets %s", secrets.stream().map(s -> s.getName()).collect(toList())), e);
       throw new InternalServerErrorException();
     }
   }
-}
 
+  private static class BatchLookup {
+    final List<Secret> existingSecrets;
+    final Set<String> accessible;
+    final List<String> missing;
+    final List<String> forbidden;
+
+    BatchLookup(List<Secret> existingSecrets, Set<String> accessible, List<String> missing,
+        List<String> forbidden) {
+      this.existingSecrets = existingSecrets;
+      this.accessible = accessible;
+      this.missing = missing;
+      this.forbidden = forbidden;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package keywhiz.service.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Maps;
+import java.util.Map;
+import java.util.Optional;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import keywhiz.KeywhizConfig;
+import keywhiz.api.model.Client;
+import keywhiz.api.model.SanitizedSecret;
+import keywhiz.api.model.Secret;
+import keywhiz.service.config.ReadCoalescingConfig;
+import keywhiz.service.daos.AclDAO;
+import keywhiz.service.daos.SecretController;
+import keywhiz.utility.SingleFlight;
+
+/**
+ * The reads behind secret delivery, coalesced so that when many clients ask for the same secret
+ * at once (typically right after it rotates), one database read is shared between them. Secrets
+ * are coalesced by name, and access checks by client and secret name. Metrics are reported under
+ * this class's prefix, as {@code secretByName} and {@code sanitizedSecretFor}.
+ */
+@Singleton
+public class SecretDeliveryReads {
+  private final SingleFlight<String, Optional<Secret>> secretsByName;
+  private final SingleFlight<Map.Entry<String, String>, Optional<SanitizedSecret>>
+      sanitizedSecretsFor;
+
+  @Inject public SecretDeliveryReads(KeywhizConfig config, MetricRegistry metricRegistry) {
+    ReadCoalescingConfig coalescing = config.getReadCoalescingConfig();
+    if (coalescing.enabled()) {
+      this.secretsByName = new SingleFlight<>(coalescing.maxWaitMillis(), metricRegistry,
+          MetricRegistry.name(SecretDeliveryReads.class, "secretByName"));
+      this.sanitizedSecretsFor = new SingleFlight<>(coalescing.maxWaitMillis(), metricRegistry,
+          MetricRegistry.name(SecretDeliveryReads.class, "sanitizedSecretFor"));
+    } else {
+      this.secretsByName = SingleFlight.disabled();
+      this.sanitizedSecretsFor = SingleFlight.disabled();
+    }
+  }
+
+  private SecretDeliveryReads() {
+    this.secretsByName = SingleFlight.disabled();
+    this.sanitizedSecretsFor = SingleFlight.disabled();
+  }
+
+  /** Reads that always go to the database. */
+  public static SecretDeliveryReads uncoalesced() {
+    return new SecretDeliveryReads();
+  }
+
+  /** {@link SecretController#getSecretByName}, shared with concurrent reads of the same name. */
+  public Optional<Secret> secretByName(SecretController secretController, String name) {
+    return secretsByName.execute(name, () -> secretController.getSecretByName(name));
+  }
+
+  /**
+   * {@link AclDAO#getSanitizedSecretFor}, shared with concurrent reads by the same client of the
+   * same secret.
+   */
+  public Optional<SanitizedSecret> sanitizedSecretFor(AclDAO aclDAO, Client client,
+      String secretName) {
+    return sanitizedSecretsFor.execute(Maps.immutableEntry(client.getName(), secretName),
+        () -> aclDAO.getSanitizedSecretFor(client, secretName));
+  }
+}
@@ -45,6 +45,7 @@ import org.slf4j.LoggerFactory;
 
 import static java.lang.String.format;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static keywhiz.api.RawSecretContentModule.APPLICATION_SMILE;
 
 /**
  * parentEndpointName secret
@@ -52,26 +53,39 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
  * resourceDescription Retrieve Secret by name
  */
 @Path("/secret/{secretName}")
-@Produces(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE})
 public class SecretDeliveryResource {
   private static final Logger logger = LoggerFactory.getLogger(SecretDeliveryResource.class);
 
   private final SecretController secretController;
   private final AclDAO aclDAO;
   private final ClientDAO clientDAO;
+  private final SecretDeliveryResponseCache responseCache;
+  private final SecretDeliveryReads reads;
 
   @Inject public SecretDeliveryResource(@Readonly SecretController secretController,
-      AclDAOFactory aclDAOFactory, ClientDAOFactory clientDAOFactory) {
+      AclDAOFactory aclDAOFactory, ClientDAOFactory clientDAOFactory,
+      SecretDeliveryResponseCache responseCache, SecretDeliveryReads reads) {
     this.secretController = secretController;
     this.aclDAO = aclDAOFactory.readonly();
     this.clientDAO = clientDAOFactory.readwrite();
+    this.responseCache = responseCache;
+    this.reads = reads;
   }
 
   @VisibleForTesting SecretDeliveryResource(SecretController secretController, AclDAO aclDAO,
       ClientDAO clientDAO) {
+    this(secretController, aclDAO, clientDAO, SecretDeliveryResponseCache.disabled(),
+        SecretDeliveryReads.uncoalesced());
+  }
+
+  @VisibleForTesting SecretDeliveryResource(SecretController secretController, AclDAO aclDAO,
+      ClientDAO clientDAO, SecretDeliveryResponseCache responseCache, SecretDeliveryReads reads) {
     this.secretController = secretController;
     this.aclDAO = aclDAO;
     this.clientDAO = clientDAO;
+    this.responseCache = responseCache;
+    this.reads = reads;
   }
 
   /**
@@ -90,8 +104,9 @@ public class SecretDeliveryResource {
   @GET
   public SecretDeliveryResponse getSecret(@NotEmpty @PathParam("secretName") String secretName,
                                           @Auth Client client) {
-    Optional<SanitizedSecret> sanitizedSecret = aclDAO.getSanitizedSecretFor(client, secretName);
-    Optional<Secret> secret = secretController.getSecretByName(secretName);
+    Optional<SanitizedSecret> sanitizedSecret =
+        reads.sanitizedSecretFor(aclDAO, client, secretName);
+    Optional<Secret> secret = reads.secretByName(secretController, secretName);
 
     if (!sanitizedSecret.isPresent()) {
       boolean clientExists = clientDAO.getClientByName(client.getName()).isPresent();
@@ -110,7 +125,7 @@ public class SecretDeliveryResource {
 
     logger.info("Client {} granted access to {}.", client.getName(), secretName);
     try {
-      return SecretDeliveryResponse.fromSecret(secret.get());
+      return responseCache.responseFor(secret.get());
     } catch (IllegalArgumentException e) {
       logger.error(format("Failed creating response for secret %s", secretName), e);
       throw new InternalServerErrorException();
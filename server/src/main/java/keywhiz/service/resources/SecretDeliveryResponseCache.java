@@ -0,0 +1,292 @@
+package keywhiz.service.resources;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import keywhiz.KeywhizConfig;
+import keywhiz.api.ApiDate;
+import keywhiz.api.SecretDeliveryResponse;
+import keywhiz.api.model.Secret;
+import keywhiz.service.config.ReadCoalescingConfig;
+import keywhiz.service.config.SecretResponseCacheConfig;
+import keywhiz.utility.SingleFlight;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Caches the JSON of {@link SecretDeliveryResponse}s by secret and content version, so a secret
+ * read by many clients is decrypted and serialized once per version rather than once per request.
+ *
+ * Serialized responses are held encrypted under a key generated at startup that never leaves the
+ * process. A cached response is only used while the fields written alongside the content still
+ * match the secret, and a new content version is a new key, so entries for old versions simply
+ * age out of the cache. Concurrent misses for the same version share one build, and a caller
+ * whose secret differs from the one that was built builds its own response. Under this
+ * class's metric prefix, {@code hits} and {@code misses} count lookups, and {@code build} reports
+ * the coalescing of builds (see {@link SingleFlight}).
+ */
+@Singleton
+public class SecretDeliveryResponseCache {
+  private static final String CIPHER = "AES/GCM/NoPadding";
+  private static final int NONCE_BYTES = 12;
+  private static final int TAG_BITS = 128;
+
+  private final ObjectMapper mapper;
+  private final boolean enabled;
+  private final Cache<Map.Entry<Long, Long>, Entry> entries;
+  private final SecretKey key;
+  private final SecureRandom random = new SecureRandom();
+  private final Counter hits;
+  private final Counter misses;
+  private final SingleFlight<Map.Entry<Long, Long>, SecretDeliveryResponse> builds;
+
+  @Inject public SecretDeliveryResponseCache(ObjectMapper mapper, KeywhizConfig config,
+      MetricRegistry metricRegistry) {
+    this(mapper, config.getSecretResponseCacheConfig(), config.getReadCoalescingConfig(),
+        metricRegistry);
+  }
+
+  @VisibleForTesting SecretDeliveryResponseCache(ObjectMapper mapper,
+      SecretResponseCacheConfig config, ReadCoalescingConfig coalescing,
+      MetricRegistry metricRegistry) {
+    this.mapper = mapper;
+    this.enabled = config.enabled();
+    this.entries = CacheBuilder.newBuilder()
+        .maximumSize(config.maximumSize())
+        .build();
+    try {
+      KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+      keyGenerator.init(256, random);
+      this.key = keyGenerator.generateKey();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+    this.hits = metricRegistry.counter(
+        MetricRegistry.name(SecretDeliveryResponseCache.class, "hits"));
+    this.misses = metricRegistry.counter(
+        MetricRegistry.name(SecretDeliveryResponseCache.class, "misses"));
+    this.builds = coalescing.enabled()
+        ? new SingleFlight<>(coalescing.maxWaitMillis(), metricRegistry,
+            MetricRegistry.name(SecretDeliveryResponseCache.class, "build"))
+        : SingleFlight.disabled();
+  }
+
+  /** A cache that always builds responses from the secret. */
+  public static SecretDeliveryResponseCache disabled() {
+    return new SecretDeliveryResponseCache(new ObjectMapper(),
+        SecretResponseCacheConfig.of(false, null), ReadCoalescingConfig.of(false, null),
+        new MetricRegistry());
+  }
+
+  /**
+   * Returns the delivery response for a secret. On a hit, the secret is not decrypted: the
+   * response writes its cached JSON when serialized as JSON by a mapper with
+   * {@link #serializerModule()}, and decrypts it otherwise.
+   *
+   * @throws IllegalArgumentException as {@link SecretDeliveryResponse#fromSecret} does
+   */
+  public SecretDeliveryResponse responseFor(Secret secret) {
+    Optional<Long> version = secret.getVersion();
+    if (!enabled || version.isEmpty()) {
+      return SecretDeliveryResponse.fromSecret(secret);
+    }
+
+    Map.Entry<Long, Long> cacheKey = Maps.immutableEntry(secret.getId(), version.get());
+    Entry entry = entries.getIfPresent(cacheKey);
+    if (entry != null && entry.matches(secret)) {
+      hits.inc();
+      return new CachedResponse(secret, entry);
+    }
+
+    misses.inc();
+    AtomicBoolean builtHere = new AtomicBoolean();
+    SecretDeliveryResponse response = builds.execute(cacheKey, () -> {
+      builtHere.set(true);
+      return build(cacheKey, secret);
+    });
+    if (builtHere.get()) {
+      return response;
+    }
+
+    // Another caller built this version, possibly before its name or metadata changed
+    entry = entries.getIfPresent(cacheKey);
+    if (entry != null && entry.matches(secret)) {
+      return new CachedResponse(secret, entry);
+    }
+    return build(cacheKey, secret);
+  }
+
+  private SecretDeliveryResponse build(Map.Entry<Long, Long> cacheKey, Secret secret) {
+    SecretDeliveryResponse response = SecretDeliveryResponse.fromSecret(secret);
+    try {
+      entries.put(cacheKey, new Entry(secret, response.getSecretLength(),
+          mapper.writeValueAsBytes(response)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return response;
+  }
+
+  @VisibleForTesting long size() {
+    return entries.size();
+  }
+
+  private byte[] gcm(int mode, byte[] nonce, byte[] input) {
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER);
+      cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, nonce));
+      return cipher.doFinal(input);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** The encrypted JSON of one version of a secret, and what it was built from. */
+  private class Entry {
+    final String name;
+    final String checksum;
+    final ApiDate createdAt;
+    final ApiDate updatedAt;
+    final ImmutableMap<String, String> metadata;
+    final int secretLength;
+    final byte[] nonce = new byte[NONCE_BYTES];
+    final byte[] ciphertext;
+
+    Entry(Secret secret, int secretLength, byte[] json) {
+      this.name = secret.getDisplayName();
+      this.checksum = secret.getChecksum();
+      this.createdAt = secret.getCreatedAt();
+      this.updatedAt = secret.getUpdatedAt();
+      this.metadata = secret.getMetadata();
+      this.secretLength = secretLength;
+      random.nextBytes(nonce);
+      this.ciphertext = gcm(Cipher.ENCRYPT_MODE, nonce, json);
+    }
+
+    /** Whether the fields serialized alongside the content are unchanged. */
+    boolean matches(Secret secret) {
+      return Objects.equals(name, secret.getDisplayName())
+          && Objects.equals(checksum, secret.getChecksum())
+          && Objects.equals(createdAt, secret.getCreatedAt())
+          && Objects.equals(updatedAt, secret.getUpdatedAt())
+          && Objects.equals(metadata, secret.getMetadata());
+    }
+
+    byte[] json() {
+      return gcm(Cipher.DECRYPT_MODE, nonce, ciphertext);
+    }
+  }
+
+  /**
+   * Jackson module that writes the cached JSON of responses from this class as a raw value. The
+   * server's mappers need it whichever type they are asked to write the response as; without it,
+   * cached responses are still serialized correctly, just field by field.
+   */
+  public static Module serializerModule() {
+    return new SimpleModule(SecretDeliveryResponseCache.class.getSimpleName())
+        .setSerializerModifier(new BeanSerializerModifier() {
+          @Override public JsonSerializer<?> modifySerializer(SerializationConfig config,
+              BeanDescription description, JsonSerializer<?> serializer) {
+            if (SecretDeliveryResponse.class.isAssignableFrom(description.getBeanClass())) {
+              return new CachedResponseSerializer(serializer);
+            }
+            return serializer;
+          }
+        });
+  }
+
+  /** A response backed by a cache entry, whose content is only decrypted when asked for. */
+  private class CachedResponse extends SecretDeliveryResponse {
+    private final Entry entry;
+    private String content;
+
+    CachedResponse(Secret secret, Entry entry) {
+      super(secret.getDisplayName(), null, entry.secretLength, secret.getChecksum(),
+          secret.getCreatedAt(), secret.getUpdatedAt(), secret.getMetadata());
+      this.entry = entry;
+    }
+
+    @Override public String getSecret() {
+      if (content == null) {
+        try {
+          content = mapper.readTree(entry.json()).get("secret").asText();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return content;
+    }
+  }
+
+  /**
+   * Writes cached JSON as a raw value for text generators, and delegates to the regular
+   * serializer for everything else, including binary formats.
+   */
+  private static class CachedResponseSerializer extends JsonSerializer<Object>
+      implements ContextualSerializer, ResolvableSerializer {
+    private final JsonSerializer<Object> delegate;
+
+    @SuppressWarnings("unchecked")
+    CachedResponseSerializer(JsonSerializer<?> delegate) {
+      this.delegate = (JsonSerializer<Object>) delegate;
+    }
+
+    @Override public void serialize(Object value, JsonGenerator gen, SerializerProvider provider)
+        throws IOException {
+      if (value instanceof CachedResponse && !gen.canWriteBinaryNatively()) {
+        gen.writeRawValue(new String(((CachedResponse) value).entry.json(), UTF_8));
+        return;
+      }
+      delegate.serialize(value, gen, provider);
+    }
+
+    @Override public void serializeWithType(Object value, JsonGenerator gen,
+        SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+      delegate.serializeWithType(value, gen, provider, typeSerializer);
+    }
+
+    @Override public void resolve(SerializerProvider provider) throws JsonMappingException {
+      if (delegate instanceof ResolvableSerializer) {
+        ((ResolvableSerializer) delegate).resolve(provider);
+      }
+    }
+
+    @Override public JsonSerializer<?> createContextual(SerializerProvider provider,
+        BeanProperty property) throws JsonMappingException {
+      JsonSerializer<?> contextual = provider.handlePrimaryContextualization(delegate, property);
+      return contextual == delegate ? this : new CachedResponseSerializer(contextual);
+    }
+  }
+}
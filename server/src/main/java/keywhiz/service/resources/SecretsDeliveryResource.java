@@ -30,11 +30,13 @@ import keywhiz.api.model.Client;
 import keywhiz.api.model.SanitizedSecret;
 import keywhiz.service.daos.AclDAO;
 import keywhiz.service.daos.AclDAO.AclDAOFactory;
+import keywhiz.service.filters.Compressed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static keywhiz.api.RawSecretContentModule.APPLICATION_SMILE;
 import static keywhiz.Tracing.setTag;
 
 /**
@@ -43,7 +45,7 @@ import static keywhiz.Tracing.setTag;
  * resourceDescription Retrieve a collection of Secrets
  */
 @Path("/secrets")
-@Produces(APPLICATION_JSON)
+@Produces({APPLICATION_JSON, APPLICATION_SMILE})
 public class SecretsDeliveryResource {
   private static final Logger logger = LoggerFactory.getLogger(SecretsDeliveryResource.class);
 
@@ -63,6 +65,7 @@ public class SecretsDeliveryResource {
    */
   @Timed @ExceptionMetered
   @GET
+  @Compressed
   public List<SecretDeliveryResponse> getSecrets(@Auth Client client) {
     logger.info("Client {} listed available secrets.", client.getName());
     List<SecretDeliveryResponse> secrets = aclDAO.getSanitizedSecretsFor(client).stream()
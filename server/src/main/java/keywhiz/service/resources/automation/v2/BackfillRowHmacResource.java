@@ -11,12 +11,14 @@ import java.util.Objects;
 import java.util.Optional;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import keywhiz.api.automation.v2.RowHmacBackfillStatusV2;
 import keywhiz.api.model.AutomationClient;
 import keywhiz.jooq.tables.records.AccessgrantsRecord;
 import keywhiz.jooq.tables.records.ClientsRecord;
@@ -27,6 +29,8 @@ import keywhiz.log.AuditLog;
 import keywhiz.log.Event;
 import keywhiz.log.EventTag;
 import keywhiz.log.LogArguments;
+import keywhiz.service.backfill.RowHmacBackfillTable;
+import keywhiz.service.backfill.RowHmacBackfiller;
 import keywhiz.service.crypto.RowHmacGenerator;
 import keywhiz.service.permissions.Action;
 import keywhiz.service.permissions.PermissionCheck;
@@ -55,17 +59,97 @@ public class BackfillRowHmacResource {
   private final RowHmacGenerator rowHmacGenerator;
   private final AuditLog auditLog;
   private final PermissionCheck permissionCheck;
+  private final RowHmacBackfiller backfiller;
 
   @Inject
   public BackfillRowHmacResource(
       DSLContext jooq,
       RowHmacGenerator rowHmacGenerator,
       AuditLog auditLog,
-      PermissionCheck permissionCheck) {
+      PermissionCheck permissionCheck,
+      RowHmacBackfiller backfiller) {
     this.jooq = jooq;
     this.rowHmacGenerator = rowHmacGenerator;
     this.auditLog = auditLog;
     this.permissionCheck = permissionCheck;
+    this.backfiller = backfiller;
+  }
+
+  /**
+   * Start a background backfill of row_hmac for a whole table.
+   *
+   * The job runs on the server's backfill workers, persists its progress and resumes after a
+   * restart. Starting a table that is already running returns its current status.
+   *
+   * @param tableName one of secrets, secrets-content, clients, memberships or accessgrants
+   * @param restart discard any saved progress and start from the beginning of the table
+   *
+   * responseMessage 200 Backfill started, current status returned
+   * responseMessage 404 Unknown table
+   */
+  @Timed @ExceptionMetered
+  @Path("jobs/{table}")
+  @POST
+  @Produces(APPLICATION_JSON)
+  @LogArguments
+  public RowHmacBackfillStatusV2 startBackfillJob(
+      @Auth AutomationClient automationClient,
+      @PathParam("table") String tableName,
+      @QueryParam("restart") boolean restart) {
+    RowHmacBackfillTable table = RowHmacBackfillTable.fromPathName(tableName)
+        .orElseThrow(NotFoundException::new);
+    permissionCheck.checkAllowedForTargetTypeOrThrow(automationClient, Action.UPDATE,
+        table.table().getRecordType());
+
+    RowHmacBackfillStatusV2 status = backfiller.startBackfill(table, restart);
+
+    Map<String, String> extraInfo = ImmutableMap.of("restart", Boolean.toString(restart));
+    auditLog.recordEvent(new Event(
+        Instant.now(),
+        EventTag.SECRET_BACKFILLHMAC,
+        automationClient.getName(),
+        tableName,
+        extraInfo));
+
+    return status;
+  }
+
+  /**
+   * Retrieve the progress of background backfills for every table.
+   *
+   * responseMessage 200 Progress of each table's backfill
+   */
+  @Timed @ExceptionMetered
+  @Path("jobs")
+  @GET
+  @Produces(APPLICATION_JSON)
+  public List<RowHmacBackfillStatusV2> backfillJobStatuses(
+      @Auth AutomationClient automationClient) {
+    permissionCheck.checkAllowedForTargetTypeOrThrow(automationClient, Action.READ,
+        RowHmacBackfillStatusV2.class);
+    return backfiller.statuses();
+  }
+
+  /**
+   * Retrieve the progress of the background backfill of one table.
+   *
+   * @param tableName one of secrets, secrets-content, clients, memberships or accessgrants
+   *
+   * responseMessage 200 Progress of the table's backfill
+   * responseMessage 404 Unknown table
+   */
+  @Timed @ExceptionMetered
+  @Path("jobs/{table}")
+  @GET
+  @Produces(APPLICATION_JSON)
+  public RowHmacBackfillStatusV2 backfillJobStatus(
+      @Auth AutomationClient automationClient,
+      @PathParam("table") String tableName) {
+    RowHmacBackfillTable table = RowHmacBackfillTable.fromPathName(tableName)
+        .orElseThrow(NotFoundException::new);
+    permissionCheck.checkAllowedForTargetTypeOrThrow(automationClient, Action.READ,
+        RowHmacBackfillStatusV2.class);
+    return backfiller.status(table);
   }
 
   /**
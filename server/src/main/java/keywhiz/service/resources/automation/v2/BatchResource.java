@@ -6,6 +6,8 @@ import io.dropwizard.auth.Auth;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -14,17 +16,22 @@ import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import keywhiz.KeywhizConfig;
 import keywhiz.api.automation.v2.BatchCreateOrUpdateSecretsRequestV2;
 import keywhiz.api.automation.v2.BatchCreateOrUpdateSecretsResponseV2;
+import keywhiz.api.automation.v2.BatchDeleteSecretsRequestV2;
+import keywhiz.api.automation.v2.BatchDeleteSecretsResponseV2;
 import keywhiz.api.automation.v2.BatchMode;
 import keywhiz.api.automation.v2.CreateOrUpdateSecretInfoV2;
 import keywhiz.api.model.AutomationClient;
 import keywhiz.api.model.Group;
 import keywhiz.api.model.Secret;
+import keywhiz.api.model.SecretSeries;
 import keywhiz.api.model.SecretSeriesAndContent;
 import keywhiz.log.AuditLog;
 import keywhiz.log.Event;
@@ -33,6 +40,7 @@ import keywhiz.log.LogArguments;
 import keywhiz.service.daos.AclDAO;
 import keywhiz.service.daos.SecretController;
 import keywhiz.service.daos.SecretDAO;
+import keywhiz.service.daos.SecretDeletionMode;
 import keywhiz.service.permissions.Action;
 import keywhiz.service.permissions.PermissionCheck;
 import org.jooq.DSLContext;
@@ -40,6 +48,9 @@ import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
 @Path("/automation/v2/batch")
 public class BatchResource {
   private static final Logger logger = LoggerFactory.getLogger(BatchResource.class);
@@ -75,7 +86,7 @@ public class BatchResource {
   @Path("secrets")
   @POST
   @Consumes(MediaType.APPLICATION_JSON)
-  @LogArguments
+  @LogArguments(sampleRate = 0.1)
   public BatchCreateOrUpdateSecretsResponseV2 batchCreateOrUpdateSecrets(
       @Auth AutomationClient automationClient,
       @Valid BatchCreateOrUpdateSecretsRequestV2 request) {
@@ -127,6 +138,74 @@ public class BatchResource {
         .build();
   }
 
+  /**
+   * Soft-deletes several secrets in a single transaction, recording one audit event for all of
+   * them. Fails without deleting anything if any secret is not found or may not be deleted.
+   *
+   * @param request names and/or ids of the secrets to delete
+   *
+   * responseMessage 200 Secrets deleted
+   * responseMessage 404 One or more secrets not found
+   */
+  @Timed
+  @ExceptionMetered
+  @Path("secrets/delete")
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @LogArguments(sampleRate = 0.1)
+  public BatchDeleteSecretsResponseV2 batchDeleteSecrets(
+      @Auth AutomationClient automationClient,
+      @Valid BatchDeleteSecretsRequestV2 request) {
+    Map<Long, SecretSeries> secrets = new LinkedHashMap<>();
+    secretDAO.getSecretSeriesByNames(request.names())
+        .forEach(series -> secrets.put(series.id(), series));
+    secretDAO.getSecretSeriesByIds(request.ids())
+        .forEach(series -> secrets.put(series.id(), series));
+
+    Set<String> foundNames = secrets.values().stream().map(SecretSeries::name).collect(toSet());
+    List<String> missing = new ArrayList<>();
+    request.names().stream().filter(name -> !foundNames.contains(name)).forEach(missing::add);
+    request.ids().stream().filter(id -> !secrets.containsKey(id))
+        .forEach(id -> missing.add(id.toString()));
+    if (!missing.isEmpty()) {
+      throw new NotFoundException(String.format("Secrets not found: %s", missing));
+    }
+
+    for (SecretSeries series : secrets.values()) {
+      permissionCheck.checkAllowedOrThrow(automationClient, Action.DELETE, series);
+    }
+    if (secrets.isEmpty()) {
+      return BatchDeleteSecretsResponseV2.builder().build();
+    }
+
+    // Get the groups for these secrets so they can be restored manually if necessary
+    Map<Long, List<Group>> groups = aclDAO.getGroupsForSecrets(secrets.keySet());
+
+    List<String> deletedNames = secretDAO.deleteSecretsByIds(secrets.keySet()).stream()
+        .map(id -> secrets.get(id).name())
+        .collect(toList());
+
+    // Record the deletion in the audit log
+    Map<String, String> secretGroups = new LinkedHashMap<>();
+    for (Long id : secrets.keySet()) {
+      secretGroups.put(secrets.get(id).name(), groups.getOrDefault(id, List.of()).stream()
+          .map(Group::getName)
+          .collect(toSet())
+          .toString());
+    }
+    Map<String, String> extraInfo = new HashMap<>();
+    extraInfo.put("groups", secretGroups.toString());
+    extraInfo.put("deleted count", Integer.toString(deletedNames.size()));
+    extraInfo.put("deletion mode", SecretDeletionMode.SOFT.toString());
+    auditLog.recordEvent(new Event(Instant.now(), EventTag.SECRET_BULKDELETE,
+        automationClient.getName(), String.join(",", deletedNames), extraInfo));
+
+    return BatchDeleteSecretsResponseV2.builder()
+        .deletedSecrets(deletedNames)
+        .build();
+  }
+
   private void createOrUpdateSecret(
       DSLContext dslContext,
       AutomationClient automationClient,
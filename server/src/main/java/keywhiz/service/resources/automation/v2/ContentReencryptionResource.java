@@ -0,0 +1,102 @@
+package keywhiz.service.resources.automation.v2;
+
+import com.codahale.metrics.annotation.ExceptionMetered;
+import com.codahale.metrics.annotation.Timed;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.auth.Auth;
+import java.time.Instant;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import keywhiz.api.automation.v2.ContentReencryptionStatusV2;
+import keywhiz.api.model.AutomationClient;
+import keywhiz.jooq.tables.records.SecretsContentRecord;
+import keywhiz.log.AuditLog;
+import keywhiz.log.Event;
+import keywhiz.log.EventTag;
+import keywhiz.log.LogArguments;
+import keywhiz.service.backfill.ContentReencrypter;
+import keywhiz.service.crypto.ContentCryptographer;
+import keywhiz.service.permissions.Action;
+import keywhiz.service.permissions.PermissionCheck;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+/**
+ * parentEndpointName automation/v2-content-reencryption
+ * resourceDescription Automation endpoints to re-encrypt secret contents after a root key rotation
+ */
+@Path("/automation/v2/content-reencryption")
+public class ContentReencryptionResource {
+  private final ContentReencrypter reencrypter;
+  private final ContentCryptographer cryptographer;
+  private final AuditLog auditLog;
+  private final PermissionCheck permissionCheck;
+
+  @Inject
+  public ContentReencryptionResource(ContentReencrypter reencrypter,
+      ContentCryptographer cryptographer, AuditLog auditLog, PermissionCheck permissionCheck) {
+    this.reencrypter = reencrypter;
+    this.cryptographer = cryptographer;
+    this.auditLog = auditLog;
+    this.permissionCheck = permissionCheck;
+  }
+
+  /**
+   * Start re-encrypting every secret version under the current root key.
+   *
+   * The server must be configured with both the new content key and the previous one. The job
+   * runs on background workers, persists its progress and resumes after a restart. Starting a
+   * job that is already running returns its current status.
+   *
+   * @param restart discard any saved progress and start from the beginning of the table
+   *
+   * responseMessage 200 Re-encryption started, current status returned
+   * responseMessage 400 No previous content key is configured
+   */
+  @Timed @ExceptionMetered
+  @POST
+  @Produces(APPLICATION_JSON)
+  @LogArguments
+  public ContentReencryptionStatusV2 startReencryption(
+      @Auth AutomationClient automationClient,
+      @QueryParam("restart") boolean restart) {
+    permissionCheck.checkAllowedForTargetTypeOrThrow(automationClient, Action.UPDATE,
+        SecretsContentRecord.class);
+    if (!cryptographer.hasPreviousKey()) {
+      throw new BadRequestException("No previous content key is configured");
+    }
+
+    ContentReencryptionStatusV2 status = reencrypter.startReencryption(restart);
+
+    Map<String, String> extraInfo = ImmutableMap.of("restart", Boolean.toString(restart));
+    auditLog.recordEvent(new Event(
+        Instant.now(),
+        EventTag.SECRET_REENCRYPT,
+        automationClient.getName(),
+        "secrets_content",
+        extraInfo));
+
+    return status;
+  }
+
+  /**
+   * Retrieve the progress of the re-encryption job.
+   *
+   * responseMessage 200 Progress of the re-encryption job
+   */
+  @Timed @ExceptionMetered
+  @GET
+  @Produces(APPLICATION_JSON)
+  public ContentReencryptionStatusV2 reencryptionStatus(
+      @Auth AutomationClient automationClient) {
+    permissionCheck.checkAllowedForTargetTypeOrThrow(automationClient, Action.READ,
+        ContentReencryptionStatusV2.class);
+    return reencrypter.status();
+  }
+}
@@ -40,6 +40,7 @@ import keywhiz.service.daos.AclDAO.AclDAOFactory;
 import keywhiz.service.daos.GroupDAO;
 import keywhiz.service.daos.GroupDAO.GroupDAOFactory;
 import keywhiz.service.exceptions.ConflictException;
+import keywhiz.service.filters.Compressed;
 import keywhiz.service.permissions.Action;
 import keywhiz.service.permissions.PermissionCheck;
 import org.slf4j.Logger;
@@ -204,6 +205,7 @@ public class GroupResource {
   @GET
   @Path("{name}/secretsandgroups")
   @Produces(APPLICATION_JSON)
+  @Compressed
   @LogArguments
   public Set<SanitizedSecretWithGroups> secretsWithGroupsForGroup(@Auth AutomationClient automationClient,
       @PathParam("name") String name) {
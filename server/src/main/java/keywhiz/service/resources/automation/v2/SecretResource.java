@@ -70,6 +70,7 @@ import keywhiz.service.daos.SecretDeletionMode;
 import keywhiz.service.daos.SecretSeriesDAO;
 import keywhiz.service.daos.SecretSeriesDAO.SecretSeriesDAOFactory;
 import keywhiz.service.exceptions.ConflictException;
+import keywhiz.service.filters.Compressed;
 import keywhiz.service.permissions.Action;
 import keywhiz.service.permissions.PermissionCheck;
 import keywhiz.service.validation.NullOrValidEnumIgnoreCase;
@@ -346,6 +347,7 @@ public class SecretResource {
   @Path("/v2")
   @GET
   @Produces(APPLICATION_JSON)
+  @Compressed
   @LogArguments
   public Iterable<SanitizedSecret> secretListingV2(@Auth AutomationClient automationClient,
       @QueryParam("idx") Integer idx, @QueryParam("num") Integer num,
@@ -452,6 +454,7 @@ public class SecretResource {
   @Path("expiring/v4")
   @GET
   @Produces(APPLICATION_JSON)
+  @Compressed
   @LogArguments
   public SanitizedSecretWithGroupsListAndCursor secretListingExpiringV4(
       @Auth AutomationClient automationClient,
@@ -656,7 +659,7 @@ public class SecretResource {
   @POST
   @Path("request/contents")
   @Produces(APPLICATION_JSON)
-  @LogArguments
+  @LogArguments(sampleRate = 0.1)
   public SecretContentsResponseV2 secretContents(@Auth AutomationClient automationClient,
       @Valid SecretContentsRequestV2 request) {
     HashMap<String, String> successSecrets = new HashMap<>();
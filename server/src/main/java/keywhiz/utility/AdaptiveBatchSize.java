@@ -0,0 +1,59 @@
+package keywhiz.utility;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Sizes batches of database writes from their observed latency. A batch slower than the target
+ * shrinks the next one in proportion to the overshoot; a batch under target grows the next one by
+ * a quarter. Outside pressure, such as replication lag, halves the size.
+ *
+ * Sizes always stay within [minSize, maxSize].
+ */
+public class AdaptiveBatchSize {
+  private final int minSize;
+  private final int maxSize;
+  private final long targetLatencyMillis;
+  private int size;
+
+  public AdaptiveBatchSize(int initialSize, int minSize, int maxSize, long targetLatencyMillis) {
+    checkArgument(minSize > 0, "minSize must be positive");
+    checkArgument(maxSize >= minSize, "maxSize must be at least minSize");
+    checkArgument(targetLatencyMillis > 0, "targetLatencyMillis must be positive");
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.targetLatencyMillis = targetLatencyMillis;
+    this.size = clamp(initialSize);
+  }
+
+  /**
+   * Records the latency of a completed batch.
+   *
+   * @return the size of the next batch
+   */
+  public synchronized int onBatchCompleted(long latencyMillis) {
+    if (latencyMillis > targetLatencyMillis) {
+      size = clamp(size * targetLatencyMillis / latencyMillis);
+    } else {
+      size = clamp(size + Math.max(1, size / 4));
+    }
+    return size;
+  }
+
+  /**
+   * Halves the batch size in response to load that batch latency does not reflect.
+   *
+   * @return the size of the next batch
+   */
+  public synchronized int onBackpressure() {
+    size = clamp(size / 2);
+    return size;
+  }
+
+  public synchronized int currentSize() {
+    return size;
+  }
+
+  private int clamp(long proposed) {
+    return (int) Math.max(minSize, Math.min(maxSize, proposed));
+  }
+}
@@ -0,0 +1,53 @@
+package keywhiz.utility;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Paces batch jobs against the database. Each time a batch is slower than the target latency the
+ * pause between batches grows (doubling, or by the overshoot, whichever is larger, capped at a
+ * maximum); each time a batch comes in under target the pause is halved.
+ *
+ * Safe to share between worker threads, which is the intended use: the database is the shared
+ * resource being protected.
+ */
+public class AdaptiveThrottle {
+  private final long targetLatencyMillis;
+  private final long maxDelayMillis;
+  private long delayMillis = 0;
+
+  public AdaptiveThrottle(long targetLatencyMillis, long maxDelayMillis) {
+    checkArgument(targetLatencyMillis > 0, "targetLatencyMillis must be positive");
+    checkArgument(maxDelayMillis >= 0, "maxDelayMillis must not be negative");
+    this.targetLatencyMillis = targetLatencyMillis;
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /**
+   * Records the latency of a completed batch.
+   *
+   * @return the pause to observe before the next batch
+   */
+  public synchronized long onBatchCompleted(long latencyMillis) {
+    if (latencyMillis > targetLatencyMillis) {
+      long overshoot = latencyMillis - targetLatencyMillis;
+      delayMillis = Math.min(maxDelayMillis, Math.max(delayMillis * 2, overshoot));
+    } else {
+      delayMillis = delayMillis / 2;
+    }
+    return delayMillis;
+  }
+
+  public synchronized long currentDelayMillis() {
+    return delayMillis;
+  }
+
+  /**
+   * Records the latency of a completed batch and sleeps for the resulting pause.
+   */
+  public void pace(long latencyMillis) throws InterruptedException {
+    long delay = onBatchCompleted(latencyMillis);
+    if (delay > 0) {
+      Thread.sleep(delay);
+    }
+  }
+}
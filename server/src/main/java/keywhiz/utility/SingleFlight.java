@@ -0,0 +1,95 @@
+package keywhiz.utility;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Throwables;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Coalesces identical concurrent reads. The first caller for a key does the read; callers that
+ * arrive for the same key while it is in flight wait for its result instead of repeating it.
+ * Nothing is kept once the read completes, so a later call always reads afresh.
+ *
+ * A waiting caller gives up after the maximum wait and does the read itself, so a slow read only
+ * ever delays others by that much. If the read fails, waiting callers fail with the same exception.
+ * Under the given metric name, {@code coalesced} counts the callers served by another's read and
+ * {@code timedOut} those that stopped waiting.
+ */
+public class SingleFlight<K, V> {
+  private final boolean enabled;
+  private final long maxWaitMillis;
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+  private final Counter coalesced;
+  private final Counter timedOut;
+
+  public SingleFlight(long maxWaitMillis, MetricRegistry metricRegistry, String name) {
+    checkArgument(maxWaitMillis >= 0, "maxWaitMillis must not be negative");
+    this.enabled = true;
+    this.maxWaitMillis = maxWaitMillis;
+    this.coalesced = metricRegistry.counter(MetricRegistry.name(name, "coalesced"));
+    this.timedOut = metricRegistry.counter(MetricRegistry.name(name, "timedOut"));
+  }
+
+  private SingleFlight() {
+    this.enabled = false;
+    this.maxWaitMillis = 0;
+    this.coalesced = new Counter();
+    this.timedOut = new Counter();
+  }
+
+  /** A SingleFlight that does every read it is given. */
+  public static <K, V> SingleFlight<K, V> disabled() {
+    return new SingleFlight<>();
+  }
+
+  /**
+   * Returns the result of the read in flight for the key, or of {@code read} if there is none.
+   */
+  public V execute(K key, Supplier<V> read) {
+    if (!enabled) {
+      return read.get();
+    }
+
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+    if (existing == null) {
+      return lead(key, flight, read);
+    }
+
+    try {
+      V value = existing.get(maxWaitMillis, MILLISECONDS);
+      coalesced.inc();
+      return value;
+    } catch (TimeoutException e) {
+      timedOut.inc();
+      return read.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return read.get();
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private V lead(K key, CompletableFuture<V> flight, Supplier<V> read) {
+    try {
+      V value = read.get();
+      flight.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, flight);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+CREATE TABLE `row_hmac_backfill_progress` (
+    `id` bigint NOT NULL AUTO_INCREMENT,
+    `table_name` varchar(64) NOT NULL,
+    `shard` bigint NOT NULL,
+    `last_id` bigint NOT NULL,
+    `end_id` bigint NOT NULL,
+    `rows_updated` bigint NOT NULL DEFAULT 0,
+    `completed` tinyint(1) NOT NULL DEFAULT 0,
+    `createdat` bigint NOT NULL,
+    `updatedat` bigint NOT NULL,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `rhbp_table_name_shard_idx` (`table_name`,`shard`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci;
@@ -0,0 +1,11 @@
+CREATE TABLE `secret_purge_progress` (
+    `id` bigint NOT NULL AUTO_INCREMENT,
+    `deleted_before` bigint NOT NULL,
+    `last_id` bigint,
+    `secrets_removed` bigint NOT NULL DEFAULT 0,
+    `completed` tinyint(1) NOT NULL DEFAULT 0,
+    `createdat` bigint NOT NULL,
+    `updatedat` bigint NOT NULL,
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `spp_deleted_before_idx` (`deleted_before`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci;
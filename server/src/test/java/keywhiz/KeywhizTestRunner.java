@@ -24,6 +24,8 @@ import keywhiz.jooq.tables.DeletedAccessgrants;
 import keywhiz.jooq.tables.DeletedSecrets;
 import keywhiz.jooq.tables.Groups;
 import keywhiz.jooq.tables.Memberships;
+import keywhiz.jooq.tables.RowHmacBackfillProgress;
+import keywhiz.jooq.tables.SecretPurgeProgress;
 import keywhiz.jooq.tables.Secrets;
 import keywhiz.jooq.tables.SecretsContent;
 import keywhiz.jooq.tables.Users;
@@ -74,6 +76,12 @@ public class KeywhizTestRunner extends BlockJUnit4ClassRunner {
     try {
       jooqContext.truncate(DeletedAccessgrants.DELETED_ACCESSGRANTS).execute();
     } catch(DataAccessException e) {}
+    try {
+      jooqContext.truncate(RowHmacBackfillProgress.ROW_HMAC_BACKFILL_PROGRESS).execute();
+    } catch(DataAccessException e) {}
+    try {
+      jooqContext.truncate(SecretPurgeProgress.SECRET_PURGE_PROGRESS).execute();
+    } catch(DataAccessException e) {}
 
     Object test = getTestClass().getJavaClass().getDeclaredConstructor().newInstance();
     injector.injectMembers(test);
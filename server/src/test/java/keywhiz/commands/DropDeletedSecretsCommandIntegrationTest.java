@@ -5,7 +5,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import keywhiz.IntegrationTestRule;
 import keywhiz.KeywhizTestRunner;
@@ -15,7 +17,7 @@ import keywhiz.api.model.SecretSeries;
 import keywhiz.api.model.SecretSeriesAndContent;
 import keywhiz.service.crypto.ContentCryptographer;
 import keywhiz.service.crypto.CryptoFixtures;
-import keywhiz.service.daos.SecretDAO;
+import keywhiz.service.purge.DeletedSecretsPurger;
 import keywhiz.test.ServiceContext;
 import net.sourceforge.argparse4j.inf.Namespace;
 import org.jooq.DSLContext;
@@ -38,7 +40,7 @@ public class DropDeletedSecretsCommandIntegrationTest {
 
   @Inject private DSLContext jooqContext;
   @Inject private ObjectMapper objectMapper;
-  @Inject private SecretDAO.SecretDAOFactory secretDAOFactory;
+  @Inject private DeletedSecretsPurger purger;
 
   private final static ContentCryptographer cryptographer = CryptoFixtures.contentCryptographer();
   private final static ApiDate january18 = ApiDate.parse("2018-01-01T00:00:00Z");
@@ -242,30 +244,59 @@ public class DropDeletedSecretsCommandIntegrationTest {
   }
 
   @Test
-  public void injectsDao() {
+  public void testSecretDeletion_dryRun() throws Exception {
+    runCommand("yes", "2019-02-01T00:00:00Z", 0, true, 1);
+
+    // check the database state; secrets should NOT have been removed
+    checkExpectedSecretSeries(ImmutableList.of(series1, series2, series3), ImmutableList.of());
+    checkExpectedSecretContents(ImmutableList.of(content1, content2a, content2b, content3),
+        ImmutableList.of());
+  }
+
+  @Test
+  public void testSecretDeletion_smallBatches() throws Exception {
+    runCommand("yes", "2019-02-01T00:00:00Z", 0, false, 1);
+
+    // check the database state; secret2 and secret3 should have been removed
+    checkExpectedSecretSeries(ImmutableList.of(series1), ImmutableList.of(series2, series3));
+    checkExpectedSecretContents(ImmutableList.of(content1),
+        ImmutableList.of(content2a, content2b, content3));
+  }
+
+  @Test
+  public void injectsPurger() {
     ServiceContext context = ServiceContext.create();
-    assertNotNull(DropDeletedSecretsCommand.getSecretDAO(context.getBootstrap(), context.getConfig()));
+    assertNotNull(DropDeletedSecretsCommand.getPurger(context.getBootstrap(), context.getConfig()));
   }
 
   private void runCommandWithConfirmationAndDate(String confirmation, String date,
       int sleepMillis) throws Exception {
-    SecretDAO secretDAO = secretDAOFactory.readwrite();
+    runCommand(confirmation, date, sleepMillis, false, 1000);
+  }
+
+  private void runCommand(String confirmation, String date, int sleepMillis, boolean dryRun,
+      int batchSize) throws Exception {
     // confirm that the expected secrets are present
     checkExpectedSecretSeries(ImmutableList.of(series1, series2, series3), ImmutableList.of());
     checkExpectedSecretContents(ImmutableList.of(content1, content2a, content2b, content3),
         ImmutableList.of());
 
-    DropDeletedSecretsCommand command = new DropDeletedSecretsCommand(secretDAO);
+    DropDeletedSecretsCommand command = new DropDeletedSecretsCommand(purger);
+
+    Map<String, Object> attrs = new HashMap<>();
+    attrs.put(DropDeletedSecretsCommand.INPUT_DELETED_BEFORE, date);
+    attrs.put(DropDeletedSecretsCommand.INPUT_SLEEP_MILLIS, sleepMillis);
+    attrs.put(DropDeletedSecretsCommand.INPUT_BATCH_SIZE, batchSize);
+    attrs.put(DropDeletedSecretsCommand.INPUT_MAX_BATCH_SIZE, 10000);
+    attrs.put(DropDeletedSecretsCommand.INPUT_TARGET_BATCH_MILLIS, 500);
+    attrs.put(DropDeletedSecretsCommand.INPUT_MAX_REPLICA_LAG_SECONDS, -1);
+    attrs.put(DropDeletedSecretsCommand.INPUT_RESTART, false);
+    attrs.put(DropDeletedSecretsCommand.INPUT_DRY_RUN, dryRun);
 
     // remove secrets
     InputStream in = new ByteArrayInputStream(confirmation.getBytes(UTF_8));
     System.setIn(in);
-    command.run(null,
-        new Namespace(
-            ImmutableMap.of(
-                DropDeletedSecretsCommand.INPUT_DELETED_BEFORE, date,
-                DropDeletedSecretsCommand.INPUT_SLEEP_MILLIS, sleepMillis)),
-        null);
+    command.run(null, new Namespace(attrs), null);
     System.setIn(System.in);
   }
 
@@ -0,0 +1,208 @@
+package keywhiz.service.backfill;
+
+import com.codahale.metrics.MetricRegistry;
+import java.security.Provider;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Optional;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import keywhiz.KeywhizTestRunner;
+import keywhiz.MigrationsRule;
+import keywhiz.api.automation.v2.ContentReencryptionStatusV2;
+import keywhiz.jooq.tables.records.SecretsContentRecord;
+import keywhiz.service.config.ContentReencryptionConfig;
+import keywhiz.service.config.EnvelopeEncryptionConfig;
+import keywhiz.service.crypto.ContentCryptographer;
+import keywhiz.service.crypto.CryptoModule.Derivation;
+import keywhiz.service.crypto.CryptoModule.Encryption;
+import keywhiz.service.crypto.RowHmacGenerator;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO.RowHmacBackfillProgressDAOFactory;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.io.BaseEncoding.base16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Base64.getEncoder;
+import static keywhiz.jooq.tables.SecretsContent.SECRETS_CONTENT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(KeywhizTestRunner.class)
+public class ContentReencrypterTest {
+  @ClassRule public static final MigrationsRule migrationsRule = new MigrationsRule();
+
+  private static final SecretKey NEW_KEY = new SecretKeySpec(
+      base16().lowerCase().decode("bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb"), "AES");
+
+  @Inject private DSLContext jooq;
+  @Inject private ContentCryptographer oldCryptographer;
+  @Inject private RowHmacGenerator oldRowHmacGenerator;
+  @Inject private RowHmacBackfillProgressDAOFactory progressDAOFactory;
+  @Inject @Derivation private SecretKey oldKey;
+  @Inject @Derivation private Provider derivationProvider;
+  @Inject @Encryption private Provider encryptionProvider;
+
+  private ContentCryptographer cryptographer;
+  private RowHmacGenerator rowHmacGenerator;
+  private ContentReencrypter reencrypter;
+
+  @Before public void setUp() {
+    cryptographer = new ContentCryptographer(NEW_KEY, derivationProvider, encryptionProvider,
+        new SecureRandom(), EnvelopeEncryptionConfig.defaults(), Optional.of(oldKey));
+    rowHmacGenerator = new RowHmacGenerator(cryptographer, new SecureRandom());
+    reencrypter = new ContentReencrypter(jooq, progressDAOFactory, cryptographer,
+        rowHmacGenerator, new MetricRegistry(), ContentReencryptionConfig.of(2, 3, null, null));
+  }
+
+  @Test public void reencryptsEveryRowUnderTheCurrentKey() throws Exception {
+    for (long i = 1; i <= 10; i++) {
+      createContent(i, oldCryptographer, oldRowHmacGenerator);
+    }
+
+    reencrypter.startReencryption(false);
+    awaitCompletion();
+
+    ContentCryptographer newKeyOnly = new ContentCryptographer(NEW_KEY, derivationProvider,
+        encryptionProvider, new SecureRandom());
+    for (SecretsContentRecord row : jooq.fetch(SECRETS_CONTENT)) {
+      String plaintext = newKeyOnly.decrypt(row.getEncryptedContent());
+      assertThat(plaintext).isEqualTo(content(row.getId()));
+      assertThat(row.getContentHmac())
+          .isEqualTo(cryptographer.computeHmac(plaintext.getBytes(UTF_8), "hmackey"));
+      assertThat(row.getRowHmac()).isEqualTo(rowHmacGenerator.computeRowHmac(
+          SECRETS_CONTENT.getName(),
+          List.of(row.getEncryptedContent(), row.getMetadata(), row.getId())));
+    }
+
+    ContentReencryptionStatusV2 status = reencrypter.status();
+    assertThat(status.completed()).isTrue();
+    assertThat(status.rowsReencrypted()).isEqualTo(10);
+    assertThat(status.remainingRows()).isZero();
+  }
+
+  @Test public void leavesRowsUnderTheCurrentKeyAlone() throws Exception {
+    createContent(1, oldCryptographer, oldRowHmacGenerator);
+    createContent(2, cryptographer, rowHmacGenerator);
+    String current = encryptedContent(2);
+
+    reencrypter.startReencryption(false);
+    awaitCompletion();
+
+    assertThat(encryptedContent(2)).isEqualTo(current);
+    assertThat(reencrypter.status().rowsReencrypted()).isEqualTo(1);
+  }
+
+  @Test public void skipsRowsUndecryptableUnderEitherKey() throws Exception {
+    ContentCryptographer unknown = new ContentCryptographer(
+        new SecretKeySpec(base16().lowerCase().decode("cccccccccccccccccccccccccccccccc"), "AES"),
+        derivationProvider, encryptionProvider, new SecureRandom());
+    createContent(1, unknown, oldRowHmacGenerator);
+    createContent(2, oldCryptographer, oldRowHmacGenerator);
+    String undecryptable = encryptedContent(1);
+
+    reencrypter.startReencryption(false);
+    awaitCompletion();
+
+    assertThat(encryptedContent(1)).isEqualTo(undecryptable);
+    ContentReencryptionStatusV2 status = reencrypter.status();
+    assertThat(status.completed()).isTrue();
+    assertThat(status.rowsReencrypted()).isEqualTo(1);
+    assertThat(status.rowsFailed()).isEqualTo(1);
+  }
+
+  @Test public void acceptsRowHmacsUnderEitherKey() {
+    List<Object> fields = List.of("encrypted", "", 1L);
+    String oldHmac = oldRowHmacGenerator.computeRowHmac(SECRETS_CONTENT.getName(), fields);
+
+    assertThat(rowHmacGenerator.verifyRowHmac(SECRETS_CONTENT.getName(), fields, oldHmac)).isTrue();
+    assertThat(rowHmacGenerator.isPreviousKeyHmac(SECRETS_CONTENT.getName(), fields, oldHmac))
+        .isTrue();
+    assertThat(rowHmacGenerator.verifyRowHmac(SECRETS_CONTENT.getName(), fields, "bogus"))
+        .isFalse();
+  }
+
+  @Test public void processBatchAdvancesPersistedCursor() {
+    for (long i = 1; i <= 5; i++) {
+      createContent(i, oldCryptographer, oldRowHmacGenerator);
+    }
+    progressDAOFactory.readwrite().resetProgress(ContentReencrypter.JOB_NAME, 0, 5, 1);
+    long progressId =
+        progressDAOFactory.readwrite().getProgress(ContentReencrypter.JOB_NAME).get(0).getId();
+
+    long cursor = reencrypter.processBatch(progressId, 5);
+
+    assertThat(cursor).isEqualTo(3);
+    assertThat(progressDAOFactory.readwrite().getProgress(ContentReencrypter.JOB_NAME).get(0)
+        .getLastId()).isEqualTo(3);
+    assertThat(cryptographer.reencrypt(encryptedContent(3))).isEmpty();
+    assertThat(cryptographer.reencrypt(encryptedContent(4))).isPresent();
+    assertThat(reencrypter.status().remainingRows()).isEqualTo(2);
+  }
+
+  @Test public void processBatchContinuesFromCursorPersistedByAnotherWorker() {
+    for (long i = 1; i <= 3; i++) {
+      createContent(i, oldCryptographer, oldRowHmacGenerator);
+    }
+    progressDAOFactory.readwrite().resetProgress(ContentReencrypter.JOB_NAME, 0, 3, 1);
+    long progressId =
+        progressDAOFactory.readwrite().getProgress(ContentReencrypter.JOB_NAME).get(0).getId();
+    progressDAOFactory.readwrite().advanceShard(progressId, 2, 2, false);
+
+    long cursor = reencrypter.processBatch(progressId, 3);
+
+    assertThat(cursor).isEqualTo(3);
+    assertThat(cryptographer.reencrypt(encryptedContent(1))).isPresent();
+    assertThat(cryptographer.reencrypt(encryptedContent(3))).isEmpty();
+    assertThat(progressDAOFactory.readwrite().getProgress(ContentReencrypter.JOB_NAME).get(0)
+        .getRowsUpdated()).isEqualTo(3);
+  }
+
+  @Test public void processBatchStopsWhenShardWasReset() {
+    createContent(1, oldCryptographer, oldRowHmacGenerator);
+    progressDAOFactory.readwrite().resetProgress(ContentReencrypter.JOB_NAME, 0, 1, 1);
+    long progressId =
+        progressDAOFactory.readwrite().getProgress(ContentReencrypter.JOB_NAME).get(0).getId();
+    progressDAOFactory.readwrite().resetProgress(ContentReencrypter.JOB_NAME, 0, 1, 1);
+
+    long cursor = reencrypter.processBatch(progressId, 1);
+
+    assertThat(cursor).isEqualTo(1);
+    assertThat(cryptographer.reencrypt(encryptedContent(1))).isPresent();
+  }
+
+  private void awaitCompletion() throws InterruptedException {
+    for (int i = 0; i < 100 && reencrypter.isRunning(); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(reencrypter.isRunning()).isFalse();
+  }
+
+  private static String content(long id) {
+    return getEncoder().encodeToString(("content" + id).getBytes(UTF_8));
+  }
+
+  private void createContent(long id, ContentCryptographer encrypter,
+      RowHmacGenerator hmacGenerator) {
+    String encrypted = encrypter.encryptionKeyDerivedFrom("secret" + id).encrypt(content(id));
+    jooq.insertInto(SECRETS_CONTENT)
+        .set(SECRETS_CONTENT.ID, id)
+        .set(SECRETS_CONTENT.SECRETID, 100 + id)
+        .set(SECRETS_CONTENT.ENCRYPTED_CONTENT, encrypted)
+        .set(SECRETS_CONTENT.CONTENT_HMAC,
+            encrypter.computeHmac(content(id).getBytes(UTF_8), "hmackey"))
+        .set(SECRETS_CONTENT.METADATA, "")
+        .set(SECRETS_CONTENT.CREATEDAT, 0L)
+        .set(SECRETS_CONTENT.UPDATEDAT, 0L)
+        .set(SECRETS_CONTENT.ROW_HMAC, hmacGenerator.computeRowHmac(SECRETS_CONTENT.getName(),
+            List.of(encrypted, "", id)))
+        .execute();
+  }
+
+  private String encryptedContent(long id) {
+    return jooq.fetchOne(SECRETS_CONTENT, SECRETS_CONTENT.ID.eq(id)).getEncryptedContent();
+  }
+}
@@ -0,0 +1,203 @@
+package keywhiz.service.backfill;
+
+import java.util.List;
+import javax.inject.Inject;
+import keywhiz.KeywhizTestRunner;
+import keywhiz.MigrationsRule;
+import keywhiz.api.automation.v2.RowHmacBackfillStatusV2;
+import keywhiz.jooq.tables.records.AccessgrantsRecord;
+import keywhiz.jooq.tables.records.RowHmacBackfillProgressRecord;
+import keywhiz.service.crypto.RowHmacGenerator;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO;
+import keywhiz.service.daos.RowHmacBackfillProgressDAO.RowHmacBackfillProgressDAOFactory;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static keywhiz.jooq.tables.Accessgrants.ACCESSGRANTS;
+import static keywhiz.jooq.tables.Secrets.SECRETS;
+import static keywhiz.service.backfill.RowHmacBackfillTable.ACCESSGRANTS_TABLE;
+import static keywhiz.service.backfill.RowHmacBackfillTable.SECRETS_TABLE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jooq.impl.DSL.max;
+import static org.jooq.impl.DSL.min;
+
+@RunWith(KeywhizTestRunner.class)
+public class RowHmacBackfillerTest {
+  @ClassRule public static final MigrationsRule migrationsRule = new MigrationsRule();
+
+  @Inject private DSLContext jooq;
+  @Inject private RowHmacBackfiller backfiller;
+  @Inject private RowHmacGenerator rowHmacGenerator;
+  @Inject private RowHmacBackfillProgressDAOFactory progressDAOFactory;
+
+  private RowHmacBackfillProgressDAO progressDAO;
+
+  @Before public void setUp() {
+    progressDAO = progressDAOFactory.readwrite();
+  }
+
+  @Test public void backfillsEveryShard() throws Exception {
+    for (long i = 1; i <= 20; i++) {
+      createAccessgrant(i, 100 + i, "bogus");
+    }
+
+    backfiller.startBackfill(ACCESSGRANTS_TABLE, false);
+    awaitCompletion(ACCESSGRANTS_TABLE);
+
+    for (AccessgrantsRecord row : jooq.fetch(ACCESSGRANTS)) {
+      assertThat(row.getRowHmac()).isEqualTo(expectedHmac(row));
+    }
+
+    RowHmacBackfillStatusV2 status = backfiller.status(ACCESSGRANTS_TABLE);
+    assertThat(status.completed()).isTrue();
+    assertThat(status.running()).isFalse();
+    assertThat(status.rowsUpdated()).isEqualTo(20);
+    assertThat(status.remainingIds()).isZero();
+  }
+
+  @Test public void onlyWritesMissingSecretHmacs() throws Exception {
+    createSecret(1, "missing", "");
+    createSecret(2, "present", "present-hmac");
+
+    backfiller.startBackfill(SECRETS_TABLE, false);
+    awaitCompletion(SECRETS_TABLE);
+
+    assertThat(secretHmac(1)).isEqualTo(
+        rowHmacGenerator.computeRowHmac(SECRETS.getName(), List.of("missing", 1L)));
+    assertThat(secretHmac(2)).isEqualTo("present-hmac");
+    assertThat(backfiller.status(SECRETS_TABLE).rowsUpdated()).isEqualTo(1);
+  }
+
+  @Test public void resumesFromPersistedCursor() throws Exception {
+    for (long i = 1; i <= 10; i++) {
+      createAccessgrant(i, 100 + i, "bogus");
+    }
+    long minId = jooq.fetchValue(jooq.select(min(ACCESSGRANTS.ID)).from(ACCESSGRANTS));
+    progressDAO.resetProgress(ACCESSGRANTS.getName(), minId - 1, minId + 9, 1);
+    RowHmacBackfillProgressRecord shard = progressDAO.getProgress(ACCESSGRANTS.getName()).get(0);
+    progressDAO.advanceShard(shard.getId(), minId + 4, 0, false);
+
+    backfiller.startBackfill(ACCESSGRANTS_TABLE, false);
+    awaitCompletion(ACCESSGRANTS_TABLE);
+
+    for (AccessgrantsRecord row : jooq.fetch(ACCESSGRANTS)) {
+      if (row.getId() <= minId + 4) {
+        assertThat(row.getRowHmac()).isEqualTo("bogus");
+      } else {
+        assertThat(row.getRowHmac()).isEqualTo(expectedHmac(row));
+      }
+    }
+  }
+
+  @Test public void restartDiscardsPersistedCursor() throws Exception {
+    for (long i = 1; i <= 10; i++) {
+      createAccessgrant(i, 100 + i, "bogus");
+    }
+    long maxId = jooq.fetchValue(jooq.select(max(ACCESSGRANTS.ID)).from(ACCESSGRANTS));
+    progressDAO.resetProgress(ACCESSGRANTS.getName(), maxId - 1, maxId, 1);
+
+    backfiller.startBackfill(ACCESSGRANTS_TABLE, true);
+    awaitCompletion(ACCESSGRANTS_TABLE);
+
+    for (AccessgrantsRecord row : jooq.fetch(ACCESSGRANTS)) {
+      assertThat(row.getRowHmac()).isEqualTo(expectedHmac(row));
+    }
+  }
+
+  @Test public void processBatchAdvancesPersistedCursor() {
+    for (long i = 1; i <= 3; i++) {
+      createAccessgrant(i, 100 + i, "bogus");
+    }
+    List<AccessgrantsRecord> rows = jooq.selectFrom(ACCESSGRANTS).orderBy(ACCESSGRANTS.ID).fetch();
+    long firstId = rows.get(0).getId();
+    progressDAO.resetProgress(ACCESSGRANTS.getName(), firstId - 1, firstId + 2, 1);
+    RowHmacBackfillProgressRecord shard = progressDAO.getProgress(ACCESSGRANTS.getName()).get(0);
+
+    long cursor = backfiller.processBatch(ACCESSGRANTS_TABLE, shard.getId(), firstId);
+
+    assertThat(cursor).isEqualTo(firstId);
+    assertThat(progressDAO.getProgress(ACCESSGRANTS.getName()).get(0).getLastId()).isEqualTo(firstId);
+    assertThat(jooq.fetchOne(ACCESSGRANTS, ACCESSGRANTS.ID.eq(firstId + 1)).getRowHmac())
+        .isEqualTo("bogus");
+  }
+
+  @Test public void processBatchContinuesFromCursorPersistedByAnotherWorker() {
+    for (long i = 1; i <= 3; i++) {
+      createAccessgrant(i, 100 + i, "bogus");
+    }
+    List<AccessgrantsRecord> rows = jooq.selectFrom(ACCESSGRANTS).orderBy(ACCESSGRANTS.ID).fetch();
+    long firstId = rows.get(0).getId();
+    progressDAO.resetProgress(ACCESSGRANTS.getName(), firstId - 1, firstId + 2, 1);
+    RowHmacBackfillProgressRecord shard = progressDAO.getProgress(ACCESSGRANTS.getName()).get(0);
+    progressDAO.advanceShard(shard.getId(), firstId + 1, 2, false);
+
+    long cursor = backfiller.processBatch(ACCESSGRANTS_TABLE, shard.getId(), shard.getEndId());
+
+    assertThat(cursor).isEqualTo(firstId + 2);
+    assertThat(jooq.fetchOne(ACCESSGRANTS, ACCESSGRANTS.ID.eq(firstId)).getRowHmac())
+        .isEqualTo("bogus");
+    AccessgrantsRecord last = jooq.fetchOne(ACCESSGRANTS, ACCESSGRANTS.ID.eq(firstId + 2));
+    assertThat(last.getRowHmac()).isEqualTo(expectedHmac(last));
+    assertThat(progressDAO.getProgress(ACCESSGRANTS.getName()).get(0).getRowsUpdated())
+        .isEqualTo(3);
+  }
+
+  @Test public void processBatchStopsWhenShardWasReset() {
+    createAccessgrant(1, 101, "bogus");
+    long id = jooq.fetchValue(jooq.select(min(ACCESSGRANTS.ID)).from(ACCESSGRANTS));
+    progressDAO.resetProgress(ACCESSGRANTS.getName(), id - 1, id, 1);
+    RowHmacBackfillProgressRecord shard = progressDAO.getProgress(ACCESSGRANTS.getName()).get(0);
+    progressDAO.resetProgress(ACCESSGRANTS.getName(), id - 1, id, 1);
+
+    long cursor = backfiller.processBatch(ACCESSGRANTS_TABLE, shard.getId(), shard.getEndId());
+
+    assertThat(cursor).isEqualTo(shard.getEndId());
+    assertThat(jooq.fetchOne(ACCESSGRANTS, ACCESSGRANTS.ID.eq(id)).getRowHmac())
+        .isEqualTo("bogus");
+  }
+
+  @Test public void emptyTableCompletesImmediately() {
+    RowHmacBackfillStatusV2 status = backfiller.startBackfill(ACCESSGRANTS_TABLE, false);
+    assertThat(status.shards()).isZero();
+    assertThat(status.completed()).isTrue();
+  }
+
+  private void awaitCompletion(RowHmacBackfillTable table) throws InterruptedException {
+    for (int i = 0; i < 100 && backfiller.isRunning(table); i++) {
+      Thread.sleep(100);
+    }
+    assertThat(backfiller.isRunning(table)).isFalse();
+  }
+
+  private String expectedHmac(AccessgrantsRecord row) {
+    return rowHmacGenerator.computeRowHmac(ACCESSGRANTS.getName(),
+        List.of(row.getGroupid(), row.getSecretid()));
+  }
+
+  private void createAccessgrant(long groupId, long secretId, String rowHmac) {
+    jooq.insertInto(ACCESSGRANTS)
+        .set(ACCESSGRANTS.GROUPID, groupId)
+        .set(ACCESSGRANTS.SECRETID, secretId)
+        .set(ACCESSGRANTS.CREATEDAT, 0L)
+        .set(ACCESSGRANTS.UPDATEDAT, 0L)
+        .set(ACCESSGRANTS.ROW_HMAC, rowHmac)
+        .execute();
+  }
+
+  private void createSecret(long id, String name, String rowHmac) {
+    jooq.insertInto(SECRETS)
+        .set(SECRETS.ID, id)
+        .set(SECRETS.NAME, name)
+        .set(SECRETS.CREATEDAT, 0L)
+        .set(SECRETS.UPDATEDAT, 0L)
+        .set(SECRETS.ROW_HMAC, rowHmac)
+        .execute();
+  }
+
+  private String secretHmac(long id) {
+    return jooq.fetchOne(SECRETS, SECRETS.ID.eq(id)).getRowHmac();
+  }
+}
@@ -18,9 +18,12 @@ package keywhiz.service.crypto;
 
 import java.security.Provider;
 import java.security.Security;
+import java.util.Optional;
+import javax.crypto.AEADBadTagException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import keywhiz.FakeRandom;
+import keywhiz.service.config.EnvelopeEncryptionConfig;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -30,10 +33,17 @@ import static com.google.common.io.BaseEncoding.base16;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Base64.getEncoder;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class ContentCryptographerTest {
   private static final SecretKey BASE_KEY = new SecretKeySpec(
       base16().lowerCase().decode("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa"), "AES");
+  private static final SecretKey NEW_KEY = new SecretKeySpec(
+      base16().lowerCase().decode("bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb"), "AES");
   private static final Provider BC = new BouncyCastleProvider();
 
   ContentCryptographer cryptographer;
@@ -59,4 +69,116 @@ public class ContentCryptographerTest {
     String outputBase64 = cryptographer.decrypt(crypted);
     assertThat(outputBase64).isEqualTo(inputBase64);
   }
+
+  @Test public void envelopeEncryptDecrypt() throws Exception {
+    String inputBase64 = getEncoder().encodeToString("Hello World".getBytes(UTF_8));
+
+    String crypted = envelopeCryptographer()
+        .encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(inputBase64);
+
+    assertThat(crypted).contains("wrappedKey");
+    assertThat(envelopeCryptographer().decrypt(crypted)).isEqualTo(inputBase64);
+    // content stays readable if envelope encryption is turned off again
+    assertThat(cryptographer.decrypt(crypted)).isEqualTo(inputBase64);
+  }
+
+  @Test public void envelopeModeDecryptsLegacyContent() throws Exception {
+    String inputBase64 = getEncoder().encodeToString("Hello World".getBytes(UTF_8));
+
+    String crypted = cryptographer.encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(inputBase64);
+
+    assertThat(crypted).doesNotContain("wrappedKey");
+    assertThat(envelopeCryptographer().decrypt(crypted)).isEqualTo(inputBase64);
+  }
+
+  @Test public void unwrapsEachDataKeyOnce() throws Exception {
+    String inputBase64 = getEncoder().encodeToString("Hello World".getBytes(UTF_8));
+    String crypted = envelopeCryptographer()
+        .encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(inputBase64);
+
+    ContentCryptographer reader = spy(envelopeCryptographer());
+    assertThat(reader.decrypt(crypted)).isEqualTo(inputBase64);
+    assertThat(reader.decrypt(crypted)).isEqualTo(inputBase64);
+
+    verify(reader, times(1)).deriveKey(anyInt(), eq("secret_filename.gpg"));
+  }
+
+  @Test(expected = AEADBadTagException.class)
+  public void rejectsDataKeyMovedToAnotherSecret() throws Throwable {
+    String inputBase64 = getEncoder().encodeToString("Hello World".getBytes(UTF_8));
+    String crypted = envelopeCryptographer()
+        .encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(inputBase64);
+
+    try {
+      envelopeCryptographer().decrypt(
+          crypted.replace("secret_filename.gpg", "other_filename.gpg"));
+    } catch (RuntimeException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Test public void decryptsContentUnderPreviousKey() {
+    String inputBase64 = getEncoder().encodeToString("Hello World".getBytes(UTF_8));
+    String crypted = cryptographer.encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(inputBase64);
+
+    assertThat(rotatedCryptographer(EnvelopeEncryptionConfig.defaults()).decrypt(crypted))
+        .isEqualTo(inputBase64);
+  }
+
+  @Test public void reencryptMovesContentToCurrentKey() {
+    String inputBase64 = getEncoder().encodeToString("Hello World".getBytes(UTF_8));
+    String crypted = cryptographer.encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(inputBase64);
+
+    ContentCryptographer rotated = rotatedCryptographer(EnvelopeEncryptionConfig.defaults());
+    Optional<String> reencrypted = rotated.reencrypt(crypted);
+
+    assertThat(reencrypted).isPresent();
+    assertThat(new ContentCryptographer(NEW_KEY, BC, BC, FakeRandom.create())
+        .decrypt(reencrypted.get())).isEqualTo(inputBase64);
+    assertThat(rotated.reencrypt(reencrypted.get())).isEmpty();
+  }
+
+  @Test public void reencryptRewrapsEnvelopeDataKey() {
+    String inputBase64 = getEncoder().encodeToString("Hello World".getBytes(UTF_8));
+    String crypted = envelopeCryptographer()
+        .encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(inputBase64);
+
+    ContentCryptographer rotated = rotatedCryptographer(EnvelopeEncryptionConfig.of(true, null, null));
+    String reencrypted = rotated.reencrypt(crypted).get();
+
+    assertThat(reencrypted).isNotEqualTo(crypted);
+    assertThat(reencrypted).contains(contentOf(crypted));
+    assertThat(new ContentCryptographer(NEW_KEY, BC, BC, FakeRandom.create(),
+        EnvelopeEncryptionConfig.of(true, null, null)).decrypt(reencrypted))
+        .isEqualTo(inputBase64);
+  }
+
+  @Test public void reencryptWithoutPreviousKeyIsNoop() {
+    String crypted = cryptographer.encryptionKeyDerivedFrom("secret_filename.gpg")
+        .encrypt(getEncoder().encodeToString("Hello World".getBytes(UTF_8)));
+
+    assertThat(cryptographer.hasPreviousKey()).isFalse();
+    assertThat(cryptographer.reencrypt(crypted)).isEmpty();
+  }
+
+  private static String contentOf(String crypted) {
+    return ContentCryptographer.Crypted.fromJson(crypted).content();
+  }
+
+  private static ContentCryptographer rotatedCryptographer(EnvelopeEncryptionConfig config) {
+    return new ContentCryptographer(NEW_KEY, BC, BC, FakeRandom.create(), config,
+        Optional.of(BASE_KEY));
+  }
+
+  private static ContentCryptographer envelopeCryptographer() {
+    return new ContentCryptographer(BASE_KEY, BC, BC, FakeRandom.create(),
+        EnvelopeEncryptionConfig.of(true, null, null));
+  }
 }
@@ -19,11 +19,13 @@ package keywhiz.service.daos;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.LongStream;
 import javax.inject.Inject;
 import keywhiz.KeywhizConfig;
 import keywhiz.KeywhizTestRunner;
@@ -42,6 +44,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import static java.util.stream.Collectors.toCollection;
 import static keywhiz.jooq.tables.Accessgrants.ACCESSGRANTS;
 import static keywhiz.jooq.tables.Clients.CLIENTS;
 import static keywhiz.jooq.tables.Memberships.MEMBERSHIPS;
@@ -242,6 +245,37 @@ public class AclDAOTest {
     assertThat(groupsForSecrets.get(secret2.getId())).containsOnly(group1, group2);
   }
 
+  @Test public void getGroupsForSecretsSharesGroupInstances() {
+    aclDAO.allowAccess(jooqContext.configuration(), secret1.getId(), group1.getId());
+    aclDAO.allowAccess(jooqContext.configuration(), secret2.getId(), group1.getId());
+    Map<Long, List<Group>> groupsForSecrets =
+        aclDAO.getGroupsForSecrets(ImmutableSet.of(secret1.getId(), secret2.getId()));
+
+    assertThat(groupsForSecrets.get(secret1.getId()).get(0))
+        .isSameAs(groupsForSecrets.get(secret2.getId()).get(0));
+  }
+
+  @Test public void getGroupsForSecretsWithManyIds() {
+    aclDAO.allowAccess(jooqContext.configuration(), secret1.getId(), group1.getId());
+    aclDAO.allowAccess(jooqContext.configuration(), secret2.getId(), group2.getId());
+
+    Set<Long> secretIds = LongStream.rangeClosed(1, 2500)
+        .map(i -> -i)
+        .boxed()
+        .collect(toCollection(HashSet::new));
+    secretIds.add(secret1.getId());
+    secretIds.add(secret2.getId());
+    Map<Long, List<Group>> groupsForSecrets = aclDAO.getGroupsForSecrets(secretIds);
+
+    assertThat(groupsForSecrets.size()).isEqualTo(2);
+    assertThat(groupsForSecrets.get(secret1.getId())).containsOnly(group1);
+    assertThat(groupsForSecrets.get(secret2.getId())).containsOnly(group2);
+  }
+
+  @Test public void getGroupsForSecretsOmitsSecretsWithoutGroups() {
+    assertThat(aclDAO.getGroupsForSecrets(ImmutableSet.of(secret1.getId()))).isEmpty();
+  }
+
   @Test public void getGroupsForClient() {
     aclDAO.enrollClient(jooqContext.configuration(), client1.getId(), group2.getId());
     assertThat(aclDAO.getGroupsFor(client1)).containsOnly(group2);
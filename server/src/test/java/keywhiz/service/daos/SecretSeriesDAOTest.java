@@ -424,6 +424,33 @@ public class SecretSeriesDAOTest {
     assertThat(secretSeriesDAO.getSecretSeriesById(id)).isEmpty();
   }
 
+  @Test public void softDeleteMultipleSecretSeries() {
+    long first = createSecretSeries("bulkDeleted1");
+    long second = createSecretSeries("bulkDeleted2");
+    long untouched = createSecretSeries("notBulkDeleted");
+    long groupID = groupDAO.createGroup("group1", "creator", "", ImmutableMap.of());
+    aclDAO.allowAccess(jooqContext.configuration(), first, groupID);
+    aclDAO.allowAccess(jooqContext.configuration(), second, groupID);
+    aclDAO.allowAccess(jooqContext.configuration(), untouched, groupID);
+
+    assertThat(secretSeriesDAO.softDeleteSecretSeriesByIds(List.of(first, second, 12345L)))
+        .containsExactlyInAnyOrder(first, second);
+
+    assertThat(secretSeriesDAO.getSecretSeriesById(first)).isEmpty();
+    assertThat(secretSeriesDAO.getSecretSeriesById(second)).isEmpty();
+    assertThat(secretSeriesDAO.getSecretSeriesById(untouched)).isPresent();
+    assertThat(secretSeriesDAO.getSecretSeriesByDeletedName("bulkDeleted1")).hasSize(1);
+    assertThat(secretSeriesDAO.getSecretSeriesByDeletedName("bulkDeleted2")).hasSize(1);
+    assertThat(jooqContext.fetch(ACCESSGRANTS).getValues(ACCESSGRANTS.SECRETID))
+        .containsExactly(untouched);
+    assertThat(jooqContext.fetch(DELETED_ACCESSGRANTS).getValues(DELETED_ACCESSGRANTS.SECRETID))
+        .containsExactlyInAnyOrder(first, second);
+
+    // already deleted secrets are skipped
+    assertThat(secretSeriesDAO.softDeleteSecretSeriesByNames(List.of("notBulkDeleted", "bulkDeleted1")))
+        .containsExactly(untouched);
+  }
+
   @Test public void renameSecretSeriesById() {
     long now = OffsetDateTime.now().toEpochSecond();
     String oldName = "toBeRenamed_renameSecretSeriesById";
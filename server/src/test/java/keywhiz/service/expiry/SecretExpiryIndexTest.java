@@ -0,0 +1,170 @@
+package keywhiz.service.expiry;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import keywhiz.KeywhizConfig;
+import keywhiz.KeywhizTestRunner;
+import keywhiz.MigrationsRule;
+import keywhiz.service.config.SecretExpiryIndexConfig;
+import keywhiz.service.crypto.ContentCryptographer;
+import keywhiz.service.daos.GroupDAO.GroupDAOFactory;
+import keywhiz.service.daos.SecretContentDAO.SecretContentDAOFactory;
+import keywhiz.service.daos.SecretDAO;
+import keywhiz.service.daos.SecretDAO.SecretDAOFactory;
+import keywhiz.service.daos.SecretSeriesDAO.SecretSeriesDAOFactory;
+import keywhiz.service.permissions.PermissionCheck;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(KeywhizTestRunner.class)
+public class SecretExpiryIndexTest {
+  @ClassRule public static final MigrationsRule migrationsRule = new MigrationsRule();
+
+  private static final long NOW = Instant.now().getEpochSecond();
+
+  @Inject private DSLContext jooq;
+  @Inject private SecretContentDAOFactory secretContentDAOFactory;
+  @Inject private SecretSeriesDAOFactory secretSeriesDAOFactory;
+  @Inject private GroupDAOFactory groupDAOFactory;
+  @Inject private ContentCryptographer cryptographer;
+  @Inject private PermissionCheck permissionCheck;
+  @Inject private KeywhizConfig config;
+  @Inject private SecretDAOFactory secretDAOFactory;
+
+  private final Clock clock = mock(Clock.class);
+  private SecretExpiryIndex index;
+  private DSLContext indexedJooq;
+  private SecretDAOFactory indexedSecretDAOFactory;
+  private SecretDAO indexedSecretDAO;
+  private SecretDAO secretDAO;
+
+  @Before public void setUp() {
+    when(clock.instant()).thenReturn(Instant.ofEpochSecond(NOW));
+    index = new SecretExpiryIndex(jooq,
+        SecretExpiryIndexConfig.of(true, 60L, ImmutableList.of(100L)), new MetricRegistry(),
+        clock);
+    indexedJooq = DSL.using(jooq.configuration().derive());
+    index.install(indexedJooq);
+    indexedSecretDAOFactory = new SecretDAOFactory(indexedJooq, jooq, secretContentDAOFactory,
+        secretSeriesDAOFactory, groupDAOFactory, cryptographer, permissionCheck, config, index);
+    indexedSecretDAO = indexedSecretDAOFactory.readwrite();
+    secretDAO = secretDAOFactory.readwrite();
+  }
+
+  @Test public void reconcileLoadsCurrentSecretsWithExpiry() {
+    createSecret(secretDAO, "expiring", NOW + 10);
+    createSecret(secretDAO, "neverExpires", 0);
+    createSecret(secretDAO, "deleted", NOW + 20);
+    secretDAO.deleteSecretsByName("deleted");
+
+    assertThat(index.isReady()).isFalse();
+    index.reconcile();
+
+    assertThat(index.isReady()).isTrue();
+    assertThat(index.expiringNames(0, Long.MAX_VALUE)).containsExactly("expiring");
+  }
+
+  @Test public void reconcileRemovesSecretsChangedElsewhere() {
+    createSecret(secretDAO, "a", NOW + 10);
+    createSecret(secretDAO, "b", NOW + 20);
+    index.reconcile();
+
+    secretDAO.deleteSecretsByName("a");
+    assertThat(index.expiringNames(0, Long.MAX_VALUE)).containsExactly("a", "b");
+
+    index.reconcile();
+    assertThat(index.expiringNames(0, Long.MAX_VALUE)).containsExactly("b");
+  }
+
+  @Test public void expiringKeepsTiesPastTheLimit() {
+    createSecret(secretDAO, "a", NOW + 10);
+    createSecret(secretDAO, "b", NOW + 20);
+    createSecret(secretDAO, "c", NOW + 20);
+    createSecret(secretDAO, "d", NOW + 30);
+    index.reconcile();
+
+    assertThat(index.expiring(NOW, NOW + 100, 2).stream().map(SecretExpiryEntry::name))
+        .containsExactlyInAnyOrder("a", "b", "c");
+    assertThat(index.expiringNames(NOW + 20, NOW + 30)).containsExactlyInAnyOrder("b", "c");
+  }
+
+  @Test public void writesThroughTheDAORefreshTheIndex() {
+    index.reconcile();
+
+    createSecret(indexedSecretDAO, "created", NOW + 200);
+    assertThat(index.expiringNames(NOW, NOW + 300)).containsExactly("created");
+
+    indexedSecretDAO.setExpiration("created", Instant.ofEpochSecond(NOW + 10));
+    assertThat(index.expiringNames(NOW + 100, NOW + 300)).isEmpty();
+    assertThat(index.expiringNames(NOW, NOW + 100)).containsExactly("created");
+
+    indexedSecretDAO.deleteSecretsByName("created");
+    assertThat(index.expiringNames(0, Long.MAX_VALUE)).isEmpty();
+  }
+
+  @Test public void writesReachTheIndexWhenTheirTransactionCommits() {
+    index.reconcile();
+
+    indexedJooq.transaction(configuration -> {
+      createSecret(indexedSecretDAOFactory.using(configuration), "committed", NOW + 100);
+      assertThat(index.expiringNames(0, Long.MAX_VALUE)).isEmpty();
+    });
+
+    assertThat(index.expiringNames(0, Long.MAX_VALUE)).containsExactly("committed");
+  }
+
+  @Test public void rolledBackWritesNeverReachTheIndex() {
+    index.reconcile();
+
+    assertThatThrownBy(() -> indexedJooq.transaction(configuration -> {
+      createSecret(indexedSecretDAOFactory.using(configuration), "rolledBack", NOW + 100);
+      throw new IllegalStateException("rolled back");
+    })).isInstanceOf(IllegalStateException.class);
+
+    assertThat(index.expiringNames(0, Long.MAX_VALUE)).isEmpty();
+  }
+
+  @Test public void notifiesListenersWhenThresholdCrossed() {
+    createSecret(secretDAO, "soon", NOW + 150);
+    createSecret(secretDAO, "later", NOW + 500);
+    createSecret(secretDAO, "alreadyWithinThreshold", NOW + 50);
+    List<String> notified = new ArrayList<>();
+    index.addListener((secret, threshold) -> {
+      assertThat(threshold).isEqualTo(Duration.ofSeconds(100));
+      notified.add(secret.name());
+    });
+    index.reconcile();
+
+    index.checkThresholds();
+    assertThat(notified).isEmpty();
+
+    when(clock.instant()).thenReturn(Instant.ofEpochSecond(NOW + 60));
+    index.checkThresholds();
+    assertThat(notified).containsExactly("soon");
+
+    index.checkThresholds();
+    assertThat(notified).containsExactly("soon");
+  }
+
+  private void createSecret(SecretDAO dao, String name, long expiry) {
+    String encrypted = cryptographer.encryptionKeyDerivedFrom(name).encrypt("c2VjcmV0");
+    dao.createSecret(name, null, encrypted, "hmac", "creator", ImmutableMap.of(), expiry,
+        "description", null, null);
+  }
+}
@@ -0,0 +1,123 @@
+package keywhiz.service.filters;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import keywhiz.service.config.CompressionConfig;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+public class CompressionInterceptorTest {
+  private static final String PREFIX = "keywhiz.service.filters.CompressionInterceptor";
+
+  @Rule public MockitoRule mockito = MockitoJUnit.rule();
+
+  @Mock HttpHeaders requestHeaders;
+  @Mock WriterInterceptorContext context;
+
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private final MultivaluedMap<String, Object> responseHeaders = new MultivaluedHashMap<>();
+  private final ByteArrayOutputStream response = new ByteArrayOutputStream();
+  private final AtomicReference<OutputStream> entityStream = new AtomicReference<>(response);
+  private CompressionInterceptor interceptor;
+
+  @Before public void setUp() throws Exception {
+    interceptor = new CompressionInterceptor(CompressionConfig.of(null, 64, null), metricRegistry,
+        requestHeaders);
+    when(context.getHeaders()).thenReturn(responseHeaders);
+    when(context.getOutputStream()).thenAnswer(invocation -> entityStream.get());
+    doAnswer(invocation -> {
+      entityStream.set(invocation.getArgument(0));
+      return null;
+    }).when(context).setOutputStream(any());
+    when(requestHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING))
+        .thenReturn(ImmutableList.of("gzip, deflate"));
+  }
+
+  @Test public void compressesLargeResponses() throws Exception {
+    byte[] entity = "{\"name\": \"General_Password\"}, ".repeat(100).getBytes(UTF_8);
+    writeEntity(entity);
+
+    assertThat(responseHeaders.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(responseHeaders.get(HttpHeaders.VARY)).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(ByteStreams.toByteArray(
+        new GZIPInputStream(new ByteArrayInputStream(response.toByteArray())))).isEqualTo(entity);
+    assertThat(metricRegistry.counter(PREFIX + ".uncompressedBytes").getCount())
+        .isEqualTo(entity.length);
+    assertThat(metricRegistry.counter(PREFIX + ".compressedBytes").getCount())
+        .isEqualTo(response.size())
+        .isLessThan(entity.length / 10);
+    assertThat(metricRegistry.timer(PREFIX + ".deflate").getCount()).isEqualTo(1);
+  }
+
+  @Test public void sendsSmallResponsesAsTheyAre() throws Exception {
+    byte[] entity = "{\"name\": \"General_Password\"}".getBytes(UTF_8);
+    writeEntity(entity);
+
+    assertThat(responseHeaders).doesNotContainKey(HttpHeaders.CONTENT_ENCODING);
+    assertThat(response.toByteArray()).isEqualTo(entity);
+    assertThat(metricRegistry.counter(PREFIX + ".belowMinimumSize").getCount()).isEqualTo(1);
+  }
+
+  @Test public void sendsResponsesAsTheyAreWithoutGzipInAcceptEncoding() throws Exception {
+    when(requestHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING)).thenReturn(null);
+    byte[] entity = "x".repeat(1000).getBytes(UTF_8);
+    writeEntity(entity);
+
+    assertThat(responseHeaders).doesNotContainKey(HttpHeaders.CONTENT_ENCODING);
+    assertThat(responseHeaders.get(HttpHeaders.VARY)).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.toByteArray()).isEqualTo(entity);
+  }
+
+  @Test public void sendsResponsesAsTheyAreWhenDisabled() throws Exception {
+    interceptor = new CompressionInterceptor(CompressionConfig.of(false, 64, null), metricRegistry,
+        requestHeaders);
+    byte[] entity = "x".repeat(1000).getBytes(UTF_8);
+    writeEntity(entity);
+
+    assertThat(responseHeaders).isEmpty();
+    assertThat(response.toByteArray()).isEqualTo(entity);
+  }
+
+  @Test public void parsesAcceptEncoding() {
+    assertThat(CompressionInterceptor.acceptsGzip(ImmutableList.of("gzip"))).isTrue();
+    assertThat(CompressionInterceptor.acceptsGzip(ImmutableList.of("br", "GZIP;q=0.5"))).isTrue();
+    assertThat(CompressionInterceptor.acceptsGzip(ImmutableList.of("deflate, gzip; q=0")))
+        .isFalse();
+    assertThat(CompressionInterceptor.acceptsGzip(ImmutableList.of("gzip;q="))).isFalse();
+    assertThat(CompressionInterceptor.acceptsGzip(ImmutableList.of("gzip;q=x"))).isFalse();
+    assertThat(CompressionInterceptor.acceptsGzip(ImmutableList.of("identity"))).isFalse();
+    assertThat(CompressionInterceptor.acceptsGzip(null)).isFalse();
+  }
+
+  /** Runs the interceptor around a message body writer that writes the entity in small chunks. */
+  private void writeEntity(byte[] entity) throws Exception {
+    doAnswer(invocation -> {
+      OutputStream out = entityStream.get();
+      for (int i = 0; i < entity.length; i += 10) {
+        out.write(entity, i, Math.min(10, entity.length - i));
+      }
+      return null;
+    }).when(context).proceed();
+    interceptor.aroundWriteTo(context);
+  }
+}
@@ -0,0 +1,99 @@
+package keywhiz.service.filters;
+
+import com.codahale.metrics.MetricRegistry;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ResourceInfo;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+public class QueryCountFilterTest {
+  private static final String PREFIX = "keywhiz.service.filters.QueryCountFilter.Resource.get";
+
+  @Rule public MockitoRule mockito = MockitoJUnit.rule();
+
+  @Mock ResourceInfo resourceInfo;
+  @Mock ContainerRequestContext request;
+  @Mock ContainerResponseContext response;
+
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private QueryCountFilter filter;
+  private DSLContext jooq;
+
+  @Before public void setUp() throws Exception {
+    doReturn(Resource.class).when(resourceInfo).getResourceClass();
+    doReturn(Resource.class.getMethod("get")).when(resourceInfo).getResourceMethod();
+    filter = new QueryCountFilter(metricRegistry, resourceInfo);
+
+    jooq = DSL.using(new MockConnection(ctx -> new MockResult[] {new MockResult(0, null)}),
+        SQLDialect.MYSQL);
+    QueryCountFilter.install(jooq);
+  }
+
+  @Test public void countsQueriesPerResourceMethod() {
+    filter.filter(request);
+    jooq.execute("SELECT 1");
+    jooq.execute("SELECT 2");
+    filter.filter(request, response);
+
+    filter.filter(request);
+    jooq.execute("SELECT 3");
+    filter.filter(request, response);
+
+    assertThat(metricRegistry.counter(PREFIX + ".requests").getCount()).isEqualTo(2);
+    assertThat(metricRegistry.counter(PREFIX + ".queries").getCount()).isEqualTo(3);
+  }
+
+  @Test public void ignoresQueriesOutsideRequests() {
+    jooq.execute("SELECT 1");
+
+    filter.filter(request);
+    filter.filter(request, response);
+    jooq.execute("SELECT 2");
+
+    assertThat(metricRegistry.counter(PREFIX + ".requests").getCount()).isEqualTo(1);
+    assertThat(metricRegistry.counter(PREFIX + ".queries").getCount()).isZero();
+  }
+
+  @Test public void ignoresUnmatchedRequests() {
+    doReturn(null).when(resourceInfo).getResourceMethod();
+
+    filter.filter(request);
+    jooq.execute("SELECT 1");
+    filter.filter(request, response);
+
+    assertThat(metricRegistry.getCounters()).isEmpty();
+  }
+
+  @Test public void namesGuiceEnhancedResourcesAfterTheirResourceClass() {
+    doReturn(Resource$$EnhancerByGuice$$1.class).when(resourceInfo).getResourceClass();
+
+    filter.filter(request);
+    jooq.execute("SELECT 1");
+    filter.filter(request, response);
+
+    assertThat(metricRegistry.counter(PREFIX + ".queries").getCount()).isEqualTo(1);
+  }
+
+  public static class Resource {
+    public String get() {
+      return "";
+    }
+  }
+
+  /** Stands in for the subclass Guice generates to apply method interceptors. */
+  public static class Resource$$EnhancerByGuice$$1 extends Resource {
+  }
+}
@@ -38,6 +38,7 @@ import org.glassfish.jersey.server.ContainerRequest;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -47,6 +48,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ClientAuthFactoryTest {
@@ -207,6 +210,40 @@ public class ClientAuthFactoryTest {
     assertThat(factory.provide(request, httpServletRequest)).isEqualTo(client);
   }
 
+  @Test public void reusesParsedCertificate_fromXfccHeader() {
+    when(clientAuthConfig.xfccCertificateCacheSize()).thenReturn(100L);
+    factory = new ClientAuthFactory(clientDAO, clientAuthConfig);
+    when(httpServletRequest.getLocalPort()).thenReturn(xfccAllowedPort);
+    when(request.getRequestHeader(ClientAuthFactory.XFCC_HEADER_NAME)).thenReturn(
+        List.of(xfccHeader));
+    when(securityContext.getUserPrincipal()).thenReturn(xfccPrincipal);
+
+    assertThat(factory.provide(request, httpServletRequest)).isEqualTo(client);
+    assertThat(factory.provide(request, httpServletRequest)).isEqualTo(client);
+
+    ArgumentCaptor<Principal> principals = ArgumentCaptor.forClass(Principal.class);
+    verify(clientDAO, times(2)).sawClient(eq(client), principals.capture());
+    assertThat(principals.getAllValues().get(1)).isSameAs(principals.getAllValues().get(0));
+  }
+
+  @Test public void parsesCertificateOnEveryRequestWhenCacheDisabled_fromXfccHeader() {
+    when(clientAuthConfig.xfccCertificateCacheSize()).thenReturn(0L);
+    factory = new ClientAuthFactory(clientDAO, clientAuthConfig);
+    when(httpServletRequest.getLocalPort()).thenReturn(xfccAllowedPort);
+    when(request.getRequestHeader(ClientAuthFactory.XFCC_HEADER_NAME)).thenReturn(
+        List.of(xfccHeader));
+    when(securityContext.getUserPrincipal()).thenReturn(xfccPrincipal);
+
+    factory.provide(request, httpServletRequest);
+    factory.provide(request, httpServletRequest);
+
+    ArgumentCaptor<Principal> principals = ArgumentCaptor.forClass(Principal.class);
+    verify(clientDAO, times(2)).sawClient(eq(client), principals.capture());
+    assertThat(principals.getAllValues().get(1)).isNotSameAs(principals.getAllValues().get(0));
+    assertThat(principals.getAllValues().get(1).getName())
+        .isEqualTo(principals.getAllValues().get(0).getName());
+  }
+
   @Test public void returnsClientWhenClientPresent_fromXfccHeader_customSpiffeIdHeader() {
     when(httpServletRequest.getLocalPort()).thenReturn(xfccAllowedPort);
     when(request.getRequestHeader(ClientAuthFactory.XFCC_HEADER_NAME)).thenReturn(
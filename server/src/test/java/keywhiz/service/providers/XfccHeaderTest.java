@@ -1,5 +1,7 @@
 package keywhiz.service.providers;
 
+import java.util.Arrays;
+import java.util.Optional;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -136,7 +138,44 @@ public class XfccHeaderTest {
         new XfccHeader.Element.Pair("a", "="))));
   }
 
+  @Test
+  public void testScanLocatesRequestedKeys() throws XfccHeader.ParseException {
+    XfccHeader.Fields fields = XfccHeader.scan(
+        "By=http://frontend.lyft.com;Cert=\"a\\\"b\";URI=http://testclient.lyft.com;DNS=lyft.com;DNS=www.lyft.com",
+        "cert", "DNS", "Subject");
+    assertEquals(1, fields.elements());
+    assertEquals(1, fields.count("Cert"));
+    assertEquals(Optional.of("a\"b"), fields.value("CERT"));
+    assertEquals(2, fields.count("dns"));
+    assertEquals(Optional.of("lyft.com"), fields.value("DNS"));
+    assertEquals(0, fields.count("Subject"));
+    assertEquals(Optional.empty(), fields.value("Subject"));
+  }
+
+  @Test
+  public void testScanCountsKeysAcrossElements() throws XfccHeader.ParseException {
+    XfccHeader.Fields fields = XfccHeader.scan(
+        "By=http://frontend.lyft.com;URI=http://testclient.lyft.com,By=http://backend.lyft.com;URI=http://frontend.lyft.com",
+        "URI");
+    assertEquals(2, fields.elements());
+    assertEquals(2, fields.count("URI"));
+    assertEquals(Optional.of("http://testclient.lyft.com"), fields.value("URI"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testScanRejectsKeysNotScannedFor() throws XfccHeader.ParseException {
+    XfccHeader.scan("By=http://frontend.lyft.com", "Cert").value("By");
+  }
+
   private static void assertParseFails(String headerValue) {
+    try {
+      XfccHeader.Fields fields = XfccHeader.scan(headerValue);
+      fail("Expected scan to fail, but got " + fields.elements() + " elements");
+    } catch (XfccHeader.ParseException e) {
+      // expected
+    }
+
+
     XfccHeader header;
     try {
       header = XfccHeader.parse(headerValue);
@@ -155,6 +194,37 @@ public class XfccHeaderTest {
       throw new AssertionError("Parsing failed instead of succeeding", e);
     }
     assertHeaderEquals(expectedResult, actual);
+    assertScanMatches(actualHeaderValue, expectedResult);
+  }
+
+  /**
+   * Checks that scanning for each key of the expected header locates the same values as parsing.
+   */
+  private static void assertScanMatches(String headerValue, XfccHeader expected) {
+    for (XfccHeader.Element element : expected.elements) {
+      for (XfccHeader.Element.Pair pair : element.pairs) {
+        XfccHeader.Fields fields;
+        try {
+          fields = XfccHeader.scan(headerValue, pair.key);
+        } catch (XfccHeader.ParseException e) {
+          throw new AssertionError("Scanning failed instead of succeeding", e);
+        }
+        assertEquals(expected.elements.length, fields.elements());
+        assertEquals("Count of " + pair.key,
+            Arrays.stream(expected.elements)
+                .flatMap(e -> Arrays.stream(e.pairs))
+                .filter(p -> p.key.equalsIgnoreCase(pair.key))
+                .count(),
+            fields.count(pair.key));
+        assertEquals("First value of " + pair.key,
+            Arrays.stream(expected.elements)
+                .flatMap(e -> Arrays.stream(e.pairs))
+                .filter(p -> p.key.equalsIgnoreCase(pair.key))
+                .map(p -> p.value)
+                .findFirst(),
+            fields.value(pair.key));
+      }
+    }
   }
 
   private static void assertHeaderEquals(XfccHeader expected, XfccHeader actual) {
@@ -0,0 +1,161 @@
+package keywhiz.service.purge;
+
+import java.util.OptionalLong;
+import javax.inject.Inject;
+import keywhiz.KeywhizTestRunner;
+import keywhiz.MigrationsRule;
+import keywhiz.jooq.tables.records.SecretPurgeProgressRecord;
+import keywhiz.service.daos.SecretDAO.SecretDAOFactory;
+import keywhiz.service.daos.SecretPurgeProgressDAO;
+import keywhiz.service.daos.SecretPurgeProgressDAO.SecretPurgeProgressDAOFactory;
+import org.joda.time.DateTime;
+import org.jooq.DSLContext;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static keywhiz.jooq.tables.DeletedAccessgrants.DELETED_ACCESSGRANTS;
+import static keywhiz.jooq.tables.DeletedSecrets.DELETED_SECRETS;
+import static keywhiz.jooq.tables.Secrets.SECRETS;
+import static keywhiz.jooq.tables.SecretsContent.SECRETS_CONTENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(KeywhizTestRunner.class)
+public class DeletedSecretsPurgerTest {
+  @ClassRule public static final MigrationsRule migrationsRule = new MigrationsRule();
+
+  private static final DateTime CUTOFF = new DateTime("2019-01-01T00:00:00Z");
+  private static final long BEFORE_CUTOFF = CUTOFF.minusDays(1).getMillis() / 1000;
+  private static final long AFTER_CUTOFF = CUTOFF.plusDays(1).getMillis() / 1000;
+
+  @Inject private DSLContext jooq;
+  @Inject private DeletedSecretsPurger purger;
+  @Inject private SecretDAOFactory secretDAOFactory;
+  @Inject private SecretPurgeProgressDAOFactory progressDAOFactory;
+
+  private SecretPurgeProgressDAO progressDAO;
+  private final SecretPurgeOptions options = SecretPurgeOptions.builder()
+      .initialBatchSize(2)
+      .pauseMillis(0)
+      .maxReplicaLagSeconds(-1)
+      .build();
+
+  @Before public void setUp() {
+    progressDAO = progressDAOFactory.readwrite();
+  }
+
+  @Test public void removesSecretsAndTheirDeletedRecords() throws Exception {
+    for (long id = -3; id <= 3; id++) {
+      if (id != 0) {
+        createSecret(id, null, BEFORE_CUTOFF);
+      }
+    }
+    createSecret(4, 104L, BEFORE_CUTOFF);
+    createSecret(10, null, AFTER_CUTOFF);
+
+    assertThat(purger.purge(CUTOFF, options)).isEqualTo(6);
+
+    assertThat(jooq.fetch(SECRETS).getValues(SECRETS.ID)).containsOnly(4L, 10L);
+    assertThat(jooq.fetch(SECRETS_CONTENT).getValues(SECRETS_CONTENT.SECRETID))
+        .containsOnly(4L, 10L);
+    assertThat(jooq.fetch(DELETED_SECRETS).getValues(DELETED_SECRETS.ID)).containsOnly(4L, 10L);
+    assertThat(jooq.fetch(DELETED_ACCESSGRANTS).getValues(DELETED_ACCESSGRANTS.SECRETID))
+        .containsOnly(4L, 10L);
+
+    SecretPurgeProgressRecord progress = progressDAO.getProgress(CUTOFF.getMillis() / 1000).get();
+    assertThat(progress.getCompleted()).isTrue();
+    assertThat(progress.getSecretsRemoved()).isEqualTo(6);
+  }
+
+  @Test public void resumesFromCheckpoint() throws Exception {
+    for (long id = 1; id <= 5; id++) {
+      createSecret(id, null, BEFORE_CUTOFF);
+    }
+    SecretPurgeProgressRecord progress = progressDAO.resetProgress(CUTOFF.getMillis() / 1000);
+    progressDAO.advance(progress.getId(), 2L, 2, false);
+
+    assertThat(purger.purge(CUTOFF, options)).isEqualTo(3);
+    assertThat(jooq.fetch(SECRETS).getValues(SECRETS.ID)).containsOnly(1L, 2L);
+    assertThat(progressDAO.getProgress(CUTOFF.getMillis() / 1000).get().getSecretsRemoved())
+        .isEqualTo(5);
+  }
+
+  @Test public void restartIgnoresCheckpoint() throws Exception {
+    for (long id = 1; id <= 5; id++) {
+      createSecret(id, null, BEFORE_CUTOFF);
+    }
+    SecretPurgeProgressRecord progress = progressDAO.resetProgress(CUTOFF.getMillis() / 1000);
+    progressDAO.advance(progress.getId(), 2L, 2, false);
+
+    purger.purge(CUTOFF, options.toBuilder().restart(true).build());
+    assertThat(jooq.fetch(SECRETS)).isEmpty();
+  }
+
+  @Test public void estimateDoesNotRemoveAnything() {
+    for (long id = 1; id <= 5; id++) {
+      createSecret(id, null, BEFORE_CUTOFF);
+    }
+    createSecret(6, 100L, BEFORE_CUTOFF);
+
+    SecretPurgeEstimate estimate = purger.estimate(CUTOFF, options);
+
+    assertThat(estimate.secrets()).isEqualTo(5);
+    assertThat(estimate.secretContents()).isEqualTo(5);
+    assertThat(estimate.batches()).isEqualTo(3);
+    assertThat(estimate.resumeAfterId()).isNull();
+    assertThat(estimate.projectedDuration().toMillis()).isEqualTo(3 * 500);
+    assertThat(jooq.fetchCount(SECRETS)).isEqualTo(6);
+  }
+
+  @Test public void waitsForLaggingReplica() throws Exception {
+    for (long id = 1; id <= 3; id++) {
+      createSecret(id, null, BEFORE_CUTOFF);
+    }
+    ReplicationLagMonitor lagMonitor = mock(ReplicationLagMonitor.class);
+    when(lagMonitor.secondsBehindPrimary())
+        .thenReturn(OptionalLong.of(30), OptionalLong.of(0), OptionalLong.empty());
+    DeletedSecretsPurger lagAwarePurger =
+        new DeletedSecretsPurger(jooq, secretDAOFactory, progressDAOFactory, lagMonitor);
+
+    lagAwarePurger.purge(CUTOFF, options.toBuilder().maxReplicaLagSeconds(10).build());
+
+    assertThat(jooq.fetch(SECRETS)).isEmpty();
+    verify(lagMonitor, times(3)).secondsBehindPrimary();
+  }
+
+  private void createSecret(long id, Long current, long updatedAt) {
+    jooq.insertInto(SECRETS)
+        .set(SECRETS.ID, id)
+        .set(SECRETS.NAME, "secret" + id)
+        .set(SECRETS.CURRENT, current)
+        .set(SECRETS.CREATEDAT, 0L)
+        .set(SECRETS.UPDATEDAT, updatedAt)
+        .execute();
+    jooq.insertInto(SECRETS_CONTENT)
+        .set(SECRETS_CONTENT.ID, 100 + id)
+        .set(SECRETS_CONTENT.SECRETID, id)
+        .set(SECRETS_CONTENT.ENCRYPTED_CONTENT, "")
+        .set(SECRETS_CONTENT.CONTENT_HMAC, "")
+        .set(SECRETS_CONTENT.CREATEDAT, 0L)
+        .set(SECRETS_CONTENT.UPDATEDAT, 0L)
+        .set(SECRETS_CONTENT.METADATA, "{}")
+        .execute();
+    jooq.insertInto(DELETED_SECRETS)
+        .set(DELETED_SECRETS.ID, id)
+        .set(DELETED_SECRETS.NAME, "secret" + id)
+        .set(DELETED_SECRETS.CREATEDAT, 0L)
+        .set(DELETED_SECRETS.UPDATEDAT, updatedAt)
+        .execute();
+    jooq.insertInto(DELETED_ACCESSGRANTS)
+        .set(DELETED_ACCESSGRANTS.GROUPID, 1L)
+        .set(DELETED_ACCESSGRANTS.SECRETID, id)
+        .set(DELETED_ACCESSGRANTS.CREATEDAT, 0L)
+        .set(DELETED_ACCESSGRANTS.UPDATEDAT, 0L)
+        .execute();
+  }
+}
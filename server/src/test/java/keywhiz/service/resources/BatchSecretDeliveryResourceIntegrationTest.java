@@ -23,6 +23,7 @@ import keywhiz.KeywhizService;
 import keywhiz.TestClients;
 import keywhiz.api.ApiDate;
 import keywhiz.api.BatchSecretRequest;
+import keywhiz.api.PartialBatchSecretResponse;
 import keywhiz.api.SecretDeliveryResponse;
 import keywhiz.api.model.Secret;
 import keywhiz.client.KeywhizClient;
@@ -167,5 +168,28 @@ public class BatchSecretDeliveryResourceIntegrationTest {
         assertThat(response.code()).isEqualTo(403);
     }
 
+    @Test
+    public void returnsPartialBatchWhenSomeDeniedOrMissing() throws Exception {
+        BatchSecretRequest request = BatchSecretRequest.create(
+                ImmutableList.of("General_Password", "Hacking_Password", "Nonexistent_Password"));
 
+        String body = mapper.writeValueAsString(request);
+        Request post = new Request.Builder()
+                .post(RequestBody.create(KeywhizClient.JSON, body))
+                .url(testUrl("/batchsecret/partial"))
+                .addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                .addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON)
+                .build();
+
+        Response response = client.newCall(post).execute();
+        assertThat(response.code()).isEqualTo(200);
+
+        PartialBatchSecretResponse parsedResponse =
+                mapper.readValue(response.body().string(), PartialBatchSecretResponse.class);
+
+        assertThat(parsedResponse.secrets()).extracting(SecretDeliveryResponse::getName)
+                .containsExactly("General_Password");
+        assertThat(parsedResponse.forbidden()).containsExactly("Hacking_Password");
+        assertThat(parsedResponse.missing()).containsExactly("Nonexistent_Password");
+    }
 }
@@ -18,6 +18,7 @@ package keywhiz.service.resources;
 import com.google.common.collect.ImmutableList;
 import keywhiz.api.ApiDate;
 import keywhiz.api.BatchSecretRequest;
+import keywhiz.api.PartialBatchSecretResponse;
 import keywhiz.api.SecretDeliveryResponse;
 import keywhiz.api.model.Client;
 import keywhiz.api.model.SanitizedSecret;
@@ -38,6 +39,8 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class BatchSecretDeliveryResourceTest {
@@ -227,4 +230,46 @@ public class BatchSecretDeliveryResourceTest {
         assertThat(response.get(0).getSecret()).isEqualTo(secretBase64.getSecret());
     }
 
+    @Test
+    public void doesNotLookUpClientWhenAllSecretsAllowed() throws Exception {
+        ImmutableList<String> secretnames = ImmutableList.of(secret.getName(), secret2.getName());
+
+        when(aclDAO.getBatchSanitizedSecretsFor(client, secretnames))
+                .thenReturn(List.of(SanitizedSecret.fromSecret(secret), SanitizedSecret.fromSecret(secret2)));
+        when(secretController.getSecretsByName(secretnames))
+                .thenReturn(List.of(secret, secret2));
+
+        batchSecretDeliveryResource.getBatchSecret(client, BatchSecretRequest.create(secretnames));
+        verify(clientDAO, never()).getClientByName(client.getName());
+    }
+
+    @Test
+    public void partialBatchReturnsAccessibleSecretsAndListsTheRest() throws Exception {
+        ImmutableList<String> secretnames =
+                ImmutableList.of(secret.getName(), "secretthatdoesnotexist", secret2.getName());
+
+        when(aclDAO.getBatchSanitizedSecretsFor(client, secretnames))
+                .thenReturn(List.of(SanitizedSecret.fromSecret(secret)));
+        when(clientDAO.getClientByName(client.getName())).thenReturn(Optional.of(client));
+        when(secretController.getSecretsByName(secretnames))
+                .thenReturn(List.of(secret, secret2));
+
+        PartialBatchSecretResponse response =
+                batchSecretDeliveryResource.getPartialBatchSecret(client, BatchSecretRequest.create(secretnames));
+
+        assertThat(response.secrets()).containsExactly(SecretDeliveryResponse.fromSecret(secret));
+        assertThat(response.forbidden()).containsExactly(secret2.getName());
+        assertThat(response.missing()).containsExactly("secretthatdoesnotexist");
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void partialBatchReturnsNotFoundWhenClientDoesNotExist() throws Exception {
+        ImmutableList<String> secretnames = ImmutableList.of(secret.getName());
+
+        when(aclDAO.getBatchSanitizedSecretsFor(client, secretnames)).thenReturn(ImmutableList.of());
+        when(clientDAO.getClientByName(client.getName())).thenReturn(Optional.empty());
+        when(secretController.getSecretsByName(secretnames)).thenReturn(ImmutableList.of(secret));
+
+        batchSecretDeliveryResource.getPartialBatchSecret(client, BatchSecretRequest.create(secretnames));
+    }
 }
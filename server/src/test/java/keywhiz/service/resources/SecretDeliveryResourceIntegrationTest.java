@@ -17,6 +17,7 @@ package keywhiz.service.resources;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.dropwizard.jackson.Jackson;
+import java.util.List;
 import keywhiz.IntegrationTestRule;
 import keywhiz.KeywhizService;
 import keywhiz.TestClients;
@@ -25,6 +26,7 @@ import keywhiz.api.SecretDeliveryResponse;
 import keywhiz.api.model.Client;
 import keywhiz.api.model.Secret;
 import keywhiz.client.KeywhizClient;
+import keywhiz.client.SecretDeliveryClient;
 import keywhiz.commands.DbSeedCommand;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -35,6 +37,7 @@ import org.junit.Test;
 import org.junit.rules.RuleChain;
 
 import static java.time.Instant.EPOCH;
+import static keywhiz.api.RawSecretContentModule.APPLICATION_SMILE;
 import static keywhiz.testing.HttpClients.testUrl;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -67,6 +70,30 @@ public class SecretDeliveryResourceIntegrationTest {
         .isEqualTo(mapper.writeValueAsString(SecretDeliveryResponse.fromSecret(generalPassword)));
   }
 
+  @Test public void returnsSmileWhenAccepted() throws Exception {
+    Request get = new Request.Builder()
+        .get()
+        .url(testUrl("/secret/General_Password"))
+        .header("Accept", APPLICATION_SMILE)
+        .build();
+
+    Response response = client.newCall(get).execute();
+    assertThat(response.code()).isEqualTo(200);
+    assertThat(response.header("Content-Type")).isEqualTo(APPLICATION_SMILE);
+  }
+
+  @Test public void deliversTheSameSecretsInSmileAndJson() throws Exception {
+    SecretDeliveryClient json = new SecretDeliveryClient(mapper, client, testUrl("/"));
+    SecretDeliveryClient smile = new SecretDeliveryClient(mapper, client, testUrl("/"), true);
+
+    SecretDeliveryResponse secret = smile.secret("General_Password");
+    assertThat(secret).isEqualTo(json.secret("General_Password"));
+    assertThat(secret.getSecret()).isEqualTo(generalPassword.getSecret());
+    assertThat(smile.secrets()).isEqualTo(json.secrets());
+    assertThat(smile.secrets(List.of("General_Password", "Database_Password")))
+        .isEqualTo(json.secrets(List.of("General_Password", "Database_Password")));
+  }
+
   @Test public void recordsClientExpirationInDatabase() throws Exception {
     Request get = new Request.Builder()
         .get()
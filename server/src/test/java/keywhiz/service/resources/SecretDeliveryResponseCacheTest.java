@@ -0,0 +1,199 @@
+package keywhiz.service.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.dropwizard.jackson.Jackson;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import keywhiz.KeywhizService;
+import keywhiz.api.ApiDate;
+import keywhiz.api.SecretDeliveryResponse;
+import keywhiz.api.model.Secret;
+import keywhiz.service.config.ReadCoalescingConfig;
+import keywhiz.service.config.SecretResponseCacheConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SecretDeliveryResponseCacheTest {
+  private static final ApiDate NOW = ApiDate.now();
+  private static final ObjectMapper mapper =
+      KeywhizService.customizeObjectMapper(Jackson.newObjectMapper());
+
+  MetricRegistry metricRegistry;
+  SecretDeliveryResponseCache cache;
+  AtomicInteger decryptions;
+
+  @Before public void setUp() {
+    metricRegistry = new MetricRegistry();
+    cache = new SecretDeliveryResponseCache(mapper, SecretResponseCacheConfig.defaults(),
+        ReadCoalescingConfig.defaults(), metricRegistry);
+    decryptions = new AtomicInteger();
+  }
+
+  @Test public void hitsDoNotDecryptTheSecret() throws Exception {
+    SecretDeliveryResponse expected = SecretDeliveryResponse.fromSecret(secret(1L, "c2VjcmV0"));
+    SecretDeliveryResponse first = cache.responseFor(secret(1L, "c2VjcmV0"));
+    int decrypted = decryptions.get();
+
+    SecretDeliveryResponse second = cache.responseFor(secret(1L, "c2VjcmV0"));
+
+    assertThat(decryptions.get()).isEqualTo(decrypted);
+    assertThat(mapper.writeValueAsString(second)).isEqualTo(mapper.writeValueAsString(expected));
+    assertThat(second).isEqualTo(first).isEqualTo(expected);
+    assertThat(metricRegistry.counter(
+        MetricRegistry.name(SecretDeliveryResponseCache.class, "hits")).getCount()).isEqualTo(1);
+    assertThat(metricRegistry.counter(
+        MetricRegistry.name(SecretDeliveryResponseCache.class, "misses")).getCount()).isEqualTo(1);
+  }
+
+  @Test public void writesCachedJsonAsTheDeclaredType() throws Exception {
+    cache.responseFor(secret(1L, "c2VjcmV0"));
+
+    String json = mapper.writerFor(SecretDeliveryResponse.class)
+        .writeValueAsString(cache.responseFor(secret(1L, "c2VjcmV0")));
+
+    assertThat(json).isEqualTo(
+        mapper.writeValueAsString(SecretDeliveryResponse.fromSecret(secret(1L, "c2VjcmV0"))));
+  }
+
+  @Test public void writesCachedJsonWithinLists() throws Exception {
+    cache.responseFor(secret(1L, "c2VjcmV0"));
+    List<SecretDeliveryResponse> responses = ImmutableList.of(
+        cache.responseFor(secret(1L, "c2VjcmV0")), cache.responseFor(secret(1L, "c2VjcmV0")));
+
+    String json = mapper.writerFor(mapper.getTypeFactory()
+        .constructCollectionType(List.class, SecretDeliveryResponse.class))
+        .writeValueAsString(responses);
+
+    SecretDeliveryResponse expected = SecretDeliveryResponse.fromSecret(secret(1L, "c2VjcmV0"));
+    assertThat(json).isEqualTo(mapper.writeValueAsString(ImmutableList.of(expected, expected)));
+  }
+
+  @Test public void newVersionsMiss() {
+    cache.responseFor(secret(1L, "c2VjcmV0"));
+
+    SecretDeliveryResponse response = cache.responseFor(secret(2L, "bmV3"));
+
+    assertThat(response.getSecret()).isEqualTo("bmV3");
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test public void changedFieldsMiss() {
+    cache.responseFor(secret(1L, "c2VjcmV0"));
+    Secret renamed = new Secret(1, "renamed", null, null, content("c2VjcmV0"), "checksum", NOW,
+        null, NOW, null, null, null, null, 0, 1L, NOW, null);
+    Secret relabeled = new Secret(1, "secret", null, null, content("c2VjcmV0"), "checksum", NOW,
+        null, NOW, null, ImmutableMap.of("mode", "0400"), null, null, 0, 1L, NOW, null);
+
+    assertThat(cache.responseFor(renamed)).isEqualTo(SecretDeliveryResponse.fromSecret(renamed));
+    assertThat(cache.responseFor(relabeled))
+        .isEqualTo(SecretDeliveryResponse.fromSecret(relabeled));
+    assertThat(metricRegistry.counter(
+        MetricRegistry.name(SecretDeliveryResponseCache.class, "hits")).getCount()).isZero();
+  }
+
+  @Test public void coalescedCallersWithChangedFieldsBuildTheirOwnResponse() throws Exception {
+    CountDownLatch building = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Secret.LazyString blockingContent = () -> {
+      building.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return "c2VjcmV0";
+    };
+    Secret leaderSecret = new Secret(1, "secret", null, null, blockingContent, "checksum", NOW,
+        null, NOW, null, null, null, null, 0, 1L, NOW, null);
+    Secret renamed = new Secret(1, "renamed", null, null, content("c2VjcmV0"), "checksum", NOW,
+        null, NOW, null, null, null, null, 0, 1L, NOW, null);
+    cache = new SecretDeliveryResponseCache(mapper, SecretResponseCacheConfig.defaults(),
+        ReadCoalescingConfig.of(true, 10_000L), metricRegistry);
+
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      Future<SecretDeliveryResponse> leader =
+          executor.submit(() -> cache.responseFor(leaderSecret));
+      building.await();
+      AtomicReference<Thread> followerThread = new AtomicReference<>();
+      Future<SecretDeliveryResponse> follower = executor.submit(() -> {
+        followerThread.set(Thread.currentThread());
+        return cache.responseFor(renamed);
+      });
+      while (followerThread.get() == null
+          || followerThread.get().getState() != Thread.State.TIMED_WAITING) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+
+      assertThat(leader.get(5, SECONDS).getName()).isEqualTo("secret");
+      SecretDeliveryResponse response = follower.get(5, SECONDS);
+      assertThat(response).isEqualTo(SecretDeliveryResponse.fromSecret(renamed));
+      assertThat(mapper.writeValueAsString(response))
+          .isEqualTo(mapper.writeValueAsString(SecretDeliveryResponse.fromSecret(renamed)));
+      assertThat(metricRegistry.counter(MetricRegistry.name(
+          SecretDeliveryResponseCache.class, "build", "coalesced")).getCount()).isEqualTo(1);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test public void decryptsContentOfHitsWhenAskedFor() {
+    cache.responseFor(secret(1L, "c2VjcmV0"));
+
+    assertThat(cache.responseFor(secret(1L, "c2VjcmV0")).getSecret()).isEqualTo("c2VjcmV0");
+  }
+
+  @Test public void serializesHitsNormallyInBinaryFormats() throws Exception {
+    ObjectMapper smile =
+        KeywhizService.customizeObjectMapper(Jackson.newObjectMapper(new SmileFactory()));
+    cache.responseFor(secret(1L, "c2VjcmV0"));
+
+    byte[] bytes = smile.writeValueAsBytes(cache.responseFor(secret(1L, "c2VjcmV0")));
+
+    assertThat(smile.readValue(bytes, SecretDeliveryResponse.class).getSecret())
+        .isEqualTo("c2VjcmV0");
+  }
+
+  @Test public void doesNotCacheUnversionedSecrets() {
+    cache.responseFor(secret(null, "c2VjcmV0"));
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test public void disabledCacheBuildsEveryResponse() {
+    SecretDeliveryResponseCache disabled = SecretDeliveryResponseCache.disabled();
+    disabled.responseFor(secret(1L, "c2VjcmV0"));
+    int decrypted = decryptions.get();
+
+    disabled.responseFor(secret(1L, "c2VjcmV0"));
+
+    assertThat(decryptions.get()).isGreaterThan(decrypted);
+    assertThat(disabled.size()).isZero();
+  }
+
+  private Secret secret(Long version, String content) {
+    return new Secret(1, "secret", null, null, content(content), "checksum", NOW, null, NOW, null,
+        null, null, null, 0, version, NOW, null);
+  }
+
+  private Secret.LazyString content(String content) {
+    return () -> {
+      decryptions.incrementAndGet();
+      return content;
+    };
+  }
+}
@@ -101,6 +101,19 @@ public class SecretsDeliveryResourceIntegrationTest {
         .contains(nonExistentOwnerPass.getName());
   }
 
+  @Test
+  public void compressesResponsesTransparently() throws Exception {
+    Request get = new Request.Builder()
+        .get()
+        .url(testUrl("/secrets"))
+        .build();
+
+    Response response = client.newCall(get).execute();
+    assertThat(response.code()).isEqualTo(200);
+    assertThat(response.networkResponse().header("Content-Encoding")).isEqualTo("gzip");
+    assertThat(response.body().string()).contains(generalPassword.getName());
+  }
+
   @Test
   public void returnsJsonArray() throws Exception {
     Request get = new Request.Builder()
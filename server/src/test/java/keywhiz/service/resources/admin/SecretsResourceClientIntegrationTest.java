@@ -15,17 +15,22 @@
  */
 package keywhiz.service.resources.admin;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import keywhiz.IntegrationTestRule;
 import keywhiz.TestClients;
 import keywhiz.api.SecretDetailResponse;
 import keywhiz.api.automation.v2.PartialUpdateSecretRequestV2;
 import keywhiz.api.model.SanitizedSecret;
+import keywhiz.client.AsyncKeywhizClient;
 import keywhiz.client.KeywhizClient;
 import keywhiz.commands.DbSeedCommand;
 import org.junit.Before;
@@ -34,6 +39,8 @@ import org.junit.Test;
 import org.junit.rules.RuleChain;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
 import static org.junit.Assert.assertEquals;
@@ -108,6 +115,45 @@ public class SecretsResourceClientIntegrationTest {
             "Versioned_Password");
   }
 
+  @Test public void iteratesAndVisitsTheSameSecretsAsTheListing() throws IOException {
+    login();
+    List<String> listed = keywhizClient.allSecrets().stream()
+        .map(SanitizedSecret::name)
+        .collect(toList());
+
+    List<String> iterated = new ArrayList<>();
+    try (MappingIterator<SanitizedSecret> secrets = keywhizClient.iterateSecrets()) {
+      secrets.forEachRemaining(secret -> iterated.add(secret.name()));
+    }
+    List<String> visited = new ArrayList<>();
+    keywhizClient.forEachSecret(secret -> visited.add(secret.name()));
+
+    assertThat(iterated).isNotEmpty().isEqualTo(listed);
+    assertThat(visited).isEqualTo(listed);
+  }
+
+  @Test public void createsAndGrantsSecretsConcurrently() throws Exception {
+    login();
+    long groupId = keywhizClient.getGroupByName(createGroup()).getId();
+
+    List<String> names = new ArrayList<>();
+    List<CompletableFuture<Void>> grants = new ArrayList<>();
+    try (AsyncKeywhizClient asyncClient = keywhizClient.async(4, new MetricRegistry())) {
+      for (int i = 0; i < 10; i++) {
+        String name = UUID.randomUUID().toString();
+        names.add(name);
+        grants.add(asyncClient.createSecret(name, null, "description", "content".getBytes(UTF_8),
+            ImmutableMap.of(), 0)
+            .thenCompose(secret -> asyncClient.grantSecretToGroupByIds(secret.id, groupId)));
+      }
+      CompletableFuture.allOf(grants.toArray(new CompletableFuture[0])).get(30, SECONDS);
+    }
+
+    assertThat(keywhizClient.groupDetailsForId(groupId).getSecrets())
+        .extracting(SanitizedSecret::name)
+        .containsExactlyInAnyOrderElementsOf(names);
+  }
+
   @Test public void listingExcludesSecretContent() throws IOException {
     // This is checking that the response body doesn't contain the secret information anywhere, not
     // just that the resulting Java objects parsed by gson don't.
@@ -8,13 +8,17 @@ import static org.mockito.Mockito.when;
 
 import java.util.Map;
 import java.util.UUID;
+import javax.ws.rs.NotFoundException;
 import keywhiz.api.ApiDate;
+import keywhiz.api.automation.v2.RowHmacBackfillStatusV2;
 import keywhiz.api.model.AutomationClient;
 import keywhiz.api.model.Client;
 import keywhiz.jooq.tables.records.SecretsRecord;
 import keywhiz.log.AuditLog;
 import keywhiz.log.Event;
 import keywhiz.log.EventTag;
+import keywhiz.service.backfill.RowHmacBackfillTable;
+import keywhiz.service.backfill.RowHmacBackfiller;
 import keywhiz.service.crypto.RowHmacGenerator;
 import keywhiz.service.permissions.PermissionCheck;
 import keywhiz.test.TestDSLContexts;
@@ -33,6 +37,8 @@ public class BackfillRowHmacResourceTest {
   private AuditLog auditLog;
   @Mock
   private PermissionCheck permissionCheck;
+  @Mock
+  private RowHmacBackfiller backfiller;
 
   @Captor
   private ArgumentCaptor<Event> eventCaptor;
@@ -54,7 +60,7 @@ public class BackfillRowHmacResourceTest {
 
     when(rowHmacGenerator.computeRowHmac(any(), any())).thenReturn("newHmac");
 
-    BackfillRowHmacResource resource = new BackfillRowHmacResource(context, rowHmacGenerator, auditLog, permissionCheck);
+    BackfillRowHmacResource resource = new BackfillRowHmacResource(context, rowHmacGenerator, auditLog, permissionCheck, backfiller);
 
     String clientName = UUID.randomUUID().toString();
     String secretName = UUID.randomUUID().toString();
@@ -78,7 +84,7 @@ public class BackfillRowHmacResourceTest {
 
     DSLContext context = TestDSLContexts.returning(record);
 
-    BackfillRowHmacResource resource = new BackfillRowHmacResource(context, rowHmacGenerator, auditLog, permissionCheck);
+    BackfillRowHmacResource resource = new BackfillRowHmacResource(context, rowHmacGenerator, auditLog, permissionCheck, backfiller);
 
     String clientName = UUID.randomUUID().toString();
     String secretName = UUID.randomUUID().toString();
@@ -99,6 +105,36 @@ public class BackfillRowHmacResourceTest {
     assertEquals(newHmac, extraInfo.get("newHmac"));
   }
 
+  @Test
+  public void startBackfillJobStartsBackfillAndWritesToAuditLog() {
+    RowHmacBackfillStatusV2 status = RowHmacBackfillStatusV2.builder()
+        .table("accessgrants")
+        .running(true)
+        .build();
+    when(backfiller.startBackfill(RowHmacBackfillTable.ACCESSGRANTS_TABLE, true)).thenReturn(status);
+
+    BackfillRowHmacResource resource = new BackfillRowHmacResource(
+        TestDSLContexts.returning(new SecretsRecord()), rowHmacGenerator, auditLog, permissionCheck, backfiller);
+
+    String clientName = UUID.randomUUID().toString();
+    assertEquals(status, resource.startBackfillJob(newAutomationClient(clientName), "accessgrants", true));
+
+    verify(auditLog).recordEvent(eventCaptor.capture());
+    Event event = eventCaptor.getValue();
+    assertEquals(EventTag.SECRET_BACKFILLHMAC, event.getType());
+    assertEquals(clientName, event.getUser());
+    assertEquals("accessgrants", event.getObjectName());
+    assertEquals("true", event.getExtraInfo().get("restart"));
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void startBackfillJobRejectsUnknownTable() {
+    BackfillRowHmacResource resource = new BackfillRowHmacResource(
+        TestDSLContexts.returning(new SecretsRecord()), rowHmacGenerator, auditLog, permissionCheck, backfiller);
+
+    resource.startBackfillJob(newAutomationClient("client"), "users", false);
+  }
+
   private static AutomationClient newAutomationClient(String clientName) {
     ApiDate now = ApiDate.now();
     Client client = new Client(1, clientName, "1st client", null, now, "test", now, "test", null, null, true, true);
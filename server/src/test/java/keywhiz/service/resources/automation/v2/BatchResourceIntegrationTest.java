@@ -4,9 +4,12 @@ import com.google.common.io.BaseEncoding;
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import javax.inject.Inject;
+import javax.ws.rs.NotFoundException;
 import keywhiz.KeywhizTestRunner;
 import keywhiz.api.ApiDate;
 import keywhiz.api.automation.v2.BatchCreateOrUpdateSecretsRequestV2;
+import keywhiz.api.automation.v2.BatchDeleteSecretsRequestV2;
+import keywhiz.api.automation.v2.BatchDeleteSecretsResponseV2;
 import keywhiz.api.automation.v2.BatchMode;
 import keywhiz.api.automation.v2.CreateOrUpdateSecretInfoV2;
 import keywhiz.api.model.AutomationClient;
@@ -69,6 +72,41 @@ public class BatchResourceIntegrationTest {
     test(BatchMode.BEST_EFFORT, VALID_YES, VALID_YES, EXCEPTION_NO, CREATED_YES, CREATED_YES);
   }
 
+  @Test
+  public void deleteSecretsByNameAndId() {
+    CreateOrUpdateSecretInfoV2 byName = validNewSecret();
+    CreateOrUpdateSecretInfoV2 byId = validNewSecret();
+    CreateOrUpdateSecretInfoV2 kept = validNewSecret();
+    resource.batchCreateOrUpdateSecrets(automationClient, BatchCreateOrUpdateSecretsRequestV2.builder()
+        .batchMode(BatchMode.ALL_OR_NONE)
+        .secrets(byName, byId, kept)
+        .build());
+    long id = secretDAO.getSecretByName(byId.name()).get().series().id();
+
+    BatchDeleteSecretsResponseV2 response = resource.batchDeleteSecrets(automationClient,
+        BatchDeleteSecretsRequestV2.builder().names(byName.name()).ids(id).build());
+
+    assertThat(response.deletedSecrets()).containsExactlyInAnyOrder(byName.name(), byId.name());
+    assertThat(secretDAO.getSecretByName(byName.name())).isEmpty();
+    assertThat(secretDAO.getSecretByName(byId.name())).isEmpty();
+    assertThat(secretDAO.getSecretByName(kept.name())).isPresent();
+  }
+
+  @Test
+  public void deleteSecretsDeletesNothingIfAnySecretIsMissing() {
+    CreateOrUpdateSecretInfoV2 secret = validNewSecret();
+    resource.batchCreateOrUpdateSecrets(automationClient, BatchCreateOrUpdateSecretsRequestV2.builder()
+        .batchMode(BatchMode.ALL_OR_NONE)
+        .secrets(secret)
+        .build());
+
+    assertThrows(NotFoundException.class,
+        () -> resource.batchDeleteSecrets(automationClient, BatchDeleteSecretsRequestV2.builder()
+            .names(secret.name(), UUID.randomUUID().toString())
+            .build()));
+    assertThat(secretDAO.getSecretByName(secret.name())).isPresent();
+  }
+
   private void test(
       String batchMode,
       boolean secret1Valid,
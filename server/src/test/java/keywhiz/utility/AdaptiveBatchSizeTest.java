@@ -0,0 +1,39 @@
+package keywhiz.utility;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveBatchSizeTest {
+  @Test public void growsWhileUnderTarget() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 1000, 100);
+    assertThat(batchSize.onBatchCompleted(50)).isEqualTo(125);
+    assertThat(batchSize.onBatchCompleted(100)).isEqualTo(156);
+  }
+
+  @Test public void shrinksInProportionToOvershoot() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(400, 10, 1000, 100);
+    assertThat(batchSize.onBatchCompleted(200)).isEqualTo(200);
+    assertThat(batchSize.onBatchCompleted(400)).isEqualTo(50);
+  }
+
+  @Test public void staysWithinBounds() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(5000, 10, 1000, 100);
+    assertThat(batchSize.currentSize()).isEqualTo(1000);
+    assertThat(batchSize.onBatchCompleted(1)).isEqualTo(1000);
+    assertThat(batchSize.onBatchCompleted(100_000)).isEqualTo(10);
+    assertThat(batchSize.onBackpressure()).isEqualTo(10);
+  }
+
+  @Test public void halvesOnBackpressure() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, 10, 1000, 100);
+    assertThat(batchSize.onBackpressure()).isEqualTo(50);
+    assertThat(batchSize.currentSize()).isEqualTo(50);
+  }
+
+  @Test public void smallBatchesStillGrow() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1, 1, 10, 100);
+    assertThat(batchSize.onBatchCompleted(1)).isEqualTo(2);
+    assertThat(batchSize.onBatchCompleted(1)).isEqualTo(3);
+  }
+}
@@ -0,0 +1,34 @@
+package keywhiz.utility;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveThrottleTest {
+  @Test public void noDelayWhileUnderTarget() {
+    AdaptiveThrottle throttle = new AdaptiveThrottle(100, 1000);
+    assertThat(throttle.onBatchCompleted(50)).isZero();
+    assertThat(throttle.onBatchCompleted(100)).isZero();
+  }
+
+  @Test public void backsOffWhenOverTarget() {
+    AdaptiveThrottle throttle = new AdaptiveThrottle(100, 1000);
+    assertThat(throttle.onBatchCompleted(150)).isEqualTo(50);
+    assertThat(throttle.onBatchCompleted(120)).isEqualTo(100);
+    assertThat(throttle.onBatchCompleted(500)).isEqualTo(400);
+  }
+
+  @Test public void delayIsCapped() {
+    AdaptiveThrottle throttle = new AdaptiveThrottle(100, 1000);
+    assertThat(throttle.onBatchCompleted(5000)).isEqualTo(1000);
+    assertThat(throttle.onBatchCompleted(5000)).isEqualTo(1000);
+  }
+
+  @Test public void recoversWhenUnderTarget() {
+    AdaptiveThrottle throttle = new AdaptiveThrottle(100, 1000);
+    throttle.onBatchCompleted(900);
+    assertThat(throttle.onBatchCompleted(10)).isEqualTo(400);
+    assertThat(throttle.onBatchCompleted(10)).isEqualTo(200);
+    assertThat(throttle.currentDelayMillis()).isEqualTo(200);
+  }
+}
@@ -0,0 +1,153 @@
+package keywhiz.utility;
+
+import com.codahale.metrics.MetricRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+  MetricRegistry metricRegistry;
+  ExecutorService executor;
+  CountDownLatch leaderStarted;
+  CountDownLatch release;
+  AtomicInteger reads;
+
+  @Before public void setUp() {
+    metricRegistry = new MetricRegistry();
+    executor = Executors.newCachedThreadPool();
+    leaderStarted = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    reads = new AtomicInteger();
+  }
+
+  @After public void tearDown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test public void concurrentCallersShareOneRead() throws Exception {
+    SingleFlight<String, String> flight = new SingleFlight<>(10_000, metricRegistry, "test");
+    Future<String> leader = executor.submit(() -> flight.execute("key", this::blockingRead));
+    leaderStarted.await();
+
+    List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    List<Future<String>> followers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      followers.add(executor.submit(() -> {
+        threads.add(Thread.currentThread());
+        return flight.execute("key", this::blockingRead);
+      }));
+    }
+    awaitWaiting(threads, 3);
+    release.countDown();
+
+    assertThat(leader.get(5, SECONDS)).isEqualTo("value1");
+    for (Future<String> follower : followers) {
+      assertThat(follower.get(5, SECONDS)).isEqualTo("value1");
+    }
+    assertThat(reads.get()).isEqualTo(1);
+    assertThat(metricRegistry.counter("test.coalesced").getCount()).isEqualTo(3);
+  }
+
+  @Test public void differentKeysAreNotCoalesced() throws Exception {
+    SingleFlight<String, String> flight = new SingleFlight<>(10_000, metricRegistry, "test");
+    Future<String> leader = executor.submit(() -> flight.execute("key", this::blockingRead));
+    leaderStarted.await();
+
+    assertThat(flight.execute("other", () -> "other")).isEqualTo("other");
+    release.countDown();
+    assertThat(leader.get(5, SECONDS)).isEqualTo("value1");
+    assertThat(metricRegistry.counter("test.coalesced").getCount()).isZero();
+  }
+
+  @Test public void followersStopWaitingAfterMaxWait() throws Exception {
+    SingleFlight<String, String> flight = new SingleFlight<>(10, metricRegistry, "test");
+    Future<String> leader = executor.submit(() -> flight.execute("key", this::blockingRead));
+    leaderStarted.await();
+
+    assertThat(flight.execute("key", () -> "own read")).isEqualTo("own read");
+    assertThat(metricRegistry.counter("test.timedOut").getCount()).isEqualTo(1);
+    release.countDown();
+    assertThat(leader.get(5, SECONDS)).isEqualTo("value1");
+  }
+
+  @Test public void followersFailWithTheLeader() throws Exception {
+    SingleFlight<String, String> flight = new SingleFlight<>(10_000, metricRegistry, "test");
+    Future<String> leader = executor.submit(() -> flight.execute("key", () -> {
+      blockingRead();
+      throw new IllegalStateException("read failed");
+    }));
+    leaderStarted.await();
+
+    List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    Future<String> follower = executor.submit(() -> {
+      threads.add(Thread.currentThread());
+      return flight.execute("key", this::blockingRead);
+    });
+    awaitWaiting(threads, 1);
+    release.countDown();
+
+    assertThatThrownBy(() -> leader.get(5, SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> follower.get(5, SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(reads.get()).isEqualTo(1);
+  }
+
+  @Test public void completedReadsAreNotReused() {
+    SingleFlight<String, Integer> flight = new SingleFlight<>(10_000, metricRegistry, "test");
+
+    assertThat(flight.execute("key", reads::incrementAndGet)).isEqualTo(1);
+    assertThat(flight.execute("key", reads::incrementAndGet)).isEqualTo(2);
+  }
+
+  @Test public void disabledDoesEveryRead() throws Exception {
+    SingleFlight<String, String> flight = SingleFlight.disabled();
+    Future<String> first = executor.submit(() -> flight.execute("key", this::blockingRead));
+    leaderStarted.await();
+
+    assertThat(flight.execute("key", () -> "own read")).isEqualTo("own read");
+    release.countDown();
+    assertThat(first.get(5, SECONDS)).isEqualTo("value1");
+  }
+
+  private String blockingRead() {
+    int read = reads.incrementAndGet();
+    leaderStarted.countDown();
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    return "value" + read;
+  }
+
+  /** Waits until the given number of threads have started and are blocked. */
+  private static void awaitWaiting(List<Thread> threads, int count) throws InterruptedException {
+    while (true) {
+      synchronized (threads) {
+        if (threads.size() == count && threads.stream().allMatch(
+            t -> t.getState() == Thread.State.WAITING
+                || t.getState() == Thread.State.TIMED_WAITING)) {
+          return;
+        }
+      }
+      Thread.sleep(5);
+    }
+  }
+}